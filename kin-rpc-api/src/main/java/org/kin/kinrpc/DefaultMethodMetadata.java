@@ -4,6 +4,7 @@ import org.kin.framework.utils.ClassUtils;
 import org.kin.kinrpc.utils.HandlerUtils;
 import org.kin.kinrpc.utils.RpcUtils;
 import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
@@ -29,6 +30,8 @@ public class DefaultMethodMetadata implements MethodMetadata {
     private final boolean asyncReturn;
     /** 标识服务方法返回值是void */
     private final boolean oneWay;
+    /** 标识服务方法是server stream */
+    private final boolean streamReturn;
     /**
      * 方法返回类型泛型参数实际类型
      * 非泛型, 则是Object
@@ -48,6 +51,7 @@ public class DefaultMethodMetadata implements MethodMetadata {
             this.asyncReturn = false;
         }
         this.oneWay = Void.class.equals(returnType);
+        this.streamReturn = Flux.class.isAssignableFrom(returnType);
         this.inferredClassForReturn = ClassUtils.getInferredClassForGeneric(method.getGenericReturnType());
     }
 
@@ -118,6 +122,11 @@ public class DefaultMethodMetadata implements MethodMetadata {
         return oneWay;
     }
 
+    @Override
+    public boolean isStreamReturn() {
+        return streamReturn;
+    }
+
     @Override
     public String toString() {
         return "DefaultMethodMetadata{" +
@@ -128,6 +137,7 @@ public class DefaultMethodMetadata implements MethodMetadata {
                 ", returnType=" + returnType +
                 ", asyncReturn=" + asyncReturn +
                 ", oneWay=" + oneWay +
+                ", streamReturn=" + streamReturn +
                 ", inferredClassForReturn=" + inferredClassForReturn +
                 '}';
     }
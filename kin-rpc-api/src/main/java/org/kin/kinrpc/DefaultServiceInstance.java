@@ -31,6 +31,10 @@ public class DefaultServiceInstance implements ServiceInstance {
     private final Map<String, String> metadata;
     /** 服务权重 */
     private final int weight;
+    /** 服务预热时间 */
+    private final long warmup;
+    /** 服务发布时间戳 */
+    private final long timestamp;
 
     public DefaultServiceInstance(String service,
                                   String host,
@@ -45,6 +49,8 @@ public class DefaultServiceInstance implements ServiceInstance {
 
         this.scheme = metadata(ServiceMetadataConstants.SCHEMA_KEY);
         this.weight = Integer.parseInt(metadata(ServiceMetadataConstants.WEIGHT_KEY, "0"));
+        this.warmup = Long.parseLong(metadata(ServiceMetadataConstants.WARMUP_KEY, "0"));
+        this.timestamp = Long.parseLong(metadata(ServiceMetadataConstants.TIMESTAMP_KEY, "0"));
     }
 
     @Override
@@ -87,6 +93,16 @@ public class DefaultServiceInstance implements ServiceInstance {
         return weight;
     }
 
+    @Override
+    public long warmup() {
+        return warmup;
+    }
+
+    @Override
+    public long timestamp() {
+        return timestamp;
+    }
+
     @Override
     public boolean isCluster() {
         return false;
@@ -7,7 +7,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * filter invoker chain
@@ -95,24 +94,23 @@ public class FilterChain<T> extends DelegateInvoker<T> {
 
     @Override
     public RpcResult invoke(Invocation invocation) {
-        CompletableFuture<Object> invokeFuture = new CompletableFuture<>();
-        super.invoke(invocation)
-                .onFinish((r, t) -> onInvokeFinish(invocation, r, t, invokeFuture));
-        return RpcResult.success(invocation, invokeFuture);
+        //复用同一rpc result, filter chain结束后覆盖其结果
+        RpcResult rpcResult = super.invoke(invocation);
+        return rpcResult.onFinish((r, t) -> onInvokeFinish(invocation, rpcResult, r, t));
     }
 
     /**
      * call after filter chain invoke finish
      *
-     * @param invocation   rpc call信息
-     * @param result       rpc call result
-     * @param t            rpc call exception
-     * @param invokeFuture filter chain invoke listen future
+     * @param invocation rpc call信息
+     * @param rpcResult  filter chain invoke result
+     * @param result     rpc call result
+     * @param t          rpc call exception
      */
     private void onInvokeFinish(Invocation invocation,
+                                RpcResult rpcResult,
                                 @Nullable Object result,
-                                @Nullable Throwable t,
-                                CompletableFuture<Object> invokeFuture) {
+                                @Nullable Throwable t) {
         invocation.attach(InvocationConstants.RPC_CALL_END_TIME_KEY, System.currentTimeMillis());
 
         //call Filter#onResponse
@@ -120,13 +118,7 @@ public class FilterChain<T> extends DelegateInvoker<T> {
         onResponse(invocation, rpcResponse);
 
         //overwrite result or exception
-        result = rpcResponse.getResult();
-        t = rpcResponse.getException();
-        if (Objects.isNull(t)) {
-            invokeFuture.complete(result);
-        } else {
-            invokeFuture.completeExceptionally(t);
-        }
+        rpcResult.overwrite(rpcResponse.getResult(), rpcResponse.getException());
     }
 
     /**
@@ -118,4 +118,10 @@ public class GenericMethodMetadata implements MethodMetadata {
     public boolean isOneWay() {
         return oneWay;
     }
+
+    @Override
+    public boolean isStreamReturn() {
+        //泛化调用不支持stream
+        return false;
+    }
 }
@@ -89,6 +89,15 @@ public interface Invocation extends AttachmentSupport {
         return methodMetadata().isOneWay();
     }
 
+    /**
+     * 返回服务方法是否是server stream
+     *
+     * @return true表示服务方法是server stream
+     */
+    default boolean isStreamReturn() {
+        return methodMetadata().isStreamReturn();
+    }
+
     /**
      * 返回服务调用结果真实返回值
      * 异步返回(比如CompletableFuture, Mono或Flux等等), 则取返回值中的泛型参数
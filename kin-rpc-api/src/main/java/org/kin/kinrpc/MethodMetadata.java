@@ -79,4 +79,12 @@ public interface MethodMetadata {
      * @return true表示服务方法返回是void
      */
     boolean isOneWay();
+
+    /**
+     * 判断服务方法是否是server stream, 即返回值为{@link reactor.core.publisher.Flux}
+     * server stream服务方法返回的元素会按consumer的request-n逐个传输, 而不是一次性返回
+     *
+     * @return true表示服务方法是server stream
+     */
+    boolean isStreamReturn();
 }
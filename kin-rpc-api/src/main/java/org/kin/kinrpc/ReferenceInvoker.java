@@ -23,6 +23,15 @@ public interface ReferenceInvoker<T> extends Invoker<T> {
      */
     boolean isAvailable();
 
+    /**
+     * 返回invoker是否可写, 即可用且底层连接未饱和(in-flight request数量未达上限)
+     *
+     * @return true表示invoker可写
+     */
+    default boolean isWritable() {
+        return isAvailable();
+    }
+
     /**
      * 关闭底层client, 释放资源
      */
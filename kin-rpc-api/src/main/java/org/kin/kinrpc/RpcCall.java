@@ -0,0 +1,308 @@
+package org.kin.kinrpc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * 单次rpc call调用状态, 贯穿proxy -> cluster -> filter chain -> transport, 仅complete一次
+ * 替代每层各自创建{@link CompletableFuture}并通过{@link CompletableFuture#whenComplete(BiConsumer)}串联的方式,
+ * 注册的callback按注册顺序保存在数组中, complete时按序执行, 不再为每个callback创建新的future stage
+ * <p>
+ * 在complete之后注册的callback, 会在注册线程立即执行, 但仍保证在之前注册的callback之后执行
+ * 仅当需要暴露给user时, 才会通过{@link #toFuture()}创建{@link CompletableFuture}
+ * <p>
+ * 注意: 调用状态可能被user持有(比如async future), 故不做池化复用
+ *
+ * @author huangjianqin
+ * @date 2023/9/5
+ */
+public final class RpcCall {
+    private static final Logger log = LoggerFactory.getLogger(RpcCall.class);
+    /** 空callback数组 */
+    private static final Object[] EMPTY_CALLBACKS = new Object[0];
+
+    /** rpc call result */
+    private Object result;
+    /** rpc call exception */
+    private Throwable exception;
+    /** 是否已complete */
+    private volatile boolean done;
+    /** 是否有线程正在执行callback */
+    private boolean draining;
+    /**
+     * 已注册但还未执行的callback
+     * 元素类型为{@link BiConsumer}, {@link CompletableFuture}或{@link RpcCall}
+     */
+    private Object[] callbacks = EMPTY_CALLBACKS;
+    /** callback数量 */
+    private int callbackNum;
+    /** 下一个待执行的callback下标 */
+    private int next;
+    /** lazy init, 暴露给user的future */
+    private CompletableFuture<Object> future;
+
+    /**
+     * 返回已成功complete的{@link RpcCall}实例
+     *
+     * @param result rpc call result
+     * @return {@link RpcCall}实例
+     */
+    public static RpcCall completed(@Nullable Object result) {
+        RpcCall call = new RpcCall();
+        call.complete(result);
+        return call;
+    }
+
+    /**
+     * 返回已异常complete的{@link RpcCall}实例
+     *
+     * @param t rpc call exception
+     * @return {@link RpcCall}实例
+     */
+    public static RpcCall failed(Throwable t) {
+        RpcCall call = new RpcCall();
+        call.completeExceptionally(t);
+        return call;
+    }
+
+    /**
+     * 适配{@link CompletableFuture}, 如果{@code future}已complete, 则直接取其结果, 不会额外创建future stage
+     *
+     * @param future result future
+     * @return {@link RpcCall}实例
+     */
+    public static RpcCall from(CompletableFuture<Object> future) {
+        RpcCall call = new RpcCall();
+        if (future.isDone()) {
+            try {
+                call.complete(future.getNow(null));
+            } catch (CompletionException e) {
+                call.completeExceptionally(Objects.nonNull(e.getCause()) ? e.getCause() : e);
+            } catch (CancellationException e) {
+                call.completeExceptionally(e);
+            }
+        } else {
+            future.whenComplete(call::complete);
+        }
+        return call;
+    }
+
+    /**
+     * rpc call成功
+     *
+     * @param result rpc call result
+     * @return true表示本次调用complete了rpc call
+     */
+    public boolean complete(@Nullable Object result) {
+        return complete(result, null);
+    }
+
+    /**
+     * rpc call异常
+     *
+     * @param t rpc call exception
+     * @return true表示本次调用complete了rpc call
+     */
+    public boolean completeExceptionally(Throwable t) {
+        Objects.requireNonNull(t);
+        return complete(null, t);
+    }
+
+    /**
+     * complete rpc call, {@code t}不为null则表示rpc call异常
+     *
+     * @param result rpc call result
+     * @param t      rpc call exception
+     * @return true表示本次调用complete了rpc call
+     */
+    public boolean complete(@Nullable Object result, @Nullable Throwable t) {
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+
+            this.result = result;
+            this.exception = t;
+            this.done = true;
+            if (draining) {
+                return true;
+            }
+            draining = true;
+        }
+
+        drain();
+        return true;
+    }
+
+    /**
+     * 当rpc call complete时, 回调{@code callback}
+     * 如果{@code callback}抛出异常且rpc call本身成功, 则后续callback将收到该异常
+     *
+     * @param callback 回调方法
+     */
+    public void onFinish(BiConsumer<Object, Throwable> callback) {
+        addCallback(callback);
+    }
+
+    /**
+     * 当rpc call complete时, complete {@code future}
+     *
+     * @param future 需要complete的future
+     */
+    public void onFinish(CompletableFuture<Object> future) {
+        addCallback(future);
+    }
+
+    /**
+     * 当rpc call complete时, complete {@code call}
+     *
+     * @param call 需要complete的rpc call
+     */
+    public void onFinish(RpcCall call) {
+        if (call == this) {
+            return;
+        }
+        addCallback(call);
+    }
+
+    /**
+     * 返回暴露给user的{@link CompletableFuture}, 多次调用返回同一实例
+     * future complete时, 在此之前注册的callback均已执行完
+     *
+     * @return result future
+     */
+    public CompletableFuture<Object> toFuture() {
+        CompletableFuture<Object> future;
+        synchronized (this) {
+            future = this.future;
+            if (Objects.nonNull(future)) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            this.future = future;
+        }
+
+        addCallback(future);
+        return future;
+    }
+
+    /**
+     * 覆盖rpc call结果, 仅影响后续执行的callback
+     * !!! 仅允许在callback内调用
+     *
+     * @param result rpc call result
+     * @param t      rpc call exception
+     */
+    void overwrite(@Nullable Object result, @Nullable Throwable t) {
+        this.result = result;
+        this.exception = t;
+    }
+
+    /**
+     * 注册callback, 如果rpc call已complete且没有线程正在执行callback, 则在当前线程执行
+     *
+     * @param callback callback
+     */
+    private void addCallback(Object callback) {
+        synchronized (this) {
+            if (callbackNum == callbacks.length) {
+                callbacks = Arrays.copyOf(callbacks, Math.max(4, callbackNum << 1));
+            }
+            callbacks[callbackNum++] = callback;
+            if (!done || draining) {
+                return;
+            }
+            draining = true;
+        }
+
+        drain();
+    }
+
+    /**
+     * 按注册顺序执行callback, 直到没有待执行的callback
+     */
+    private void drain() {
+        for (; ; ) {
+            Object callback;
+            synchronized (this) {
+                if (next >= callbackNum) {
+                    //释放callback引用
+                    callbacks = EMPTY_CALLBACKS;
+                    callbackNum = 0;
+                    next = 0;
+                    draining = false;
+                    return;
+                }
+                callback = callbacks[next];
+                callbacks[next++] = null;
+            }
+
+            invokeCallback(callback);
+        }
+    }
+
+    /**
+     * 执行callback
+     *
+     * @param callback callback
+     */
+    @SuppressWarnings("unchecked")
+    private void invokeCallback(Object callback) {
+        Object result = this.result;
+        Throwable t = this.exception;
+        if (callback instanceof RpcCall) {
+            ((RpcCall) callback).complete(result, t);
+        } else if (callback instanceof CompletableFuture) {
+            CompletableFuture<Object> future = (CompletableFuture<Object>) callback;
+            if (Objects.isNull(t)) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(t);
+            }
+        } else {
+            try {
+                ((BiConsumer<Object, Throwable>) callback).accept(result, t);
+            } catch (Throwable e) {
+                if (Objects.isNull(t)) {
+                    //与CompletableFuture#whenComplete一致
+                    overwrite(null, e);
+                } else {
+                    log.error("rpc call callback error", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * rpc call是否已complete
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * rpc call是否异常complete
+     */
+    public boolean isCompletedExceptionally() {
+        return done && Objects.nonNull(exception);
+    }
+
+    //getter
+    @Nullable
+    public Object getResult() {
+        return done ? result : null;
+    }
+
+    @Nullable
+    public Throwable getException() {
+        return done ? exception : null;
+    }
+}
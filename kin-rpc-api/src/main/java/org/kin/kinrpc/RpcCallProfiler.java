@@ -1,12 +1,16 @@
 package org.kin.kinrpc;
 
+import org.kin.framework.utils.SysUtils;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -31,6 +35,13 @@ public final class RpcCallProfiler {
      */
     private static final ConcurrentMap<Integer, ConcurrentMap<Integer, RpcCallProfiler>> HANDLER_STATISTICS =
             new ConcurrentHashMap<>(64);
+    /** rpc call响应时间peak EWMA衰减时间(纳秒), 默认3s */
+    private static final double EWMA_DECAY_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Math.max(1, SysUtils.getIntSysProperty(KinRpcSystemProperties.PEAK_EWMA_DECAY_TIME, 3_000)));
+    /** 滑动窗口时间(毫秒), 默认10s */
+    private static final int WINDOW_TIME = Math.max(1, SysUtils.getIntSysProperty(KinRpcSystemProperties.PROFILER_WINDOW_TIME, 10_000));
+    /** 滑动窗口bucket数量 */
+    private static final int WINDOW_BUCKETS = 10;
 
     /** 活跃数, 即当前已发起但未结束的rpc call次数 */
     private final AtomicInteger active = new AtomicInteger();
@@ -48,6 +59,12 @@ public final class RpcCallProfiler {
     private final AtomicLong failedMaxElapsed = new AtomicLong();
     /** rpc call成功最大耗时 */
     private final AtomicLong succeededMaxElapsed = new AtomicLong();
+    /** rpc call响应时间peak EWMA, double bits */
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToRawLongBits(0D));
+    /** 上次更新{@link #ewmaBits}的时间戳, 纳秒 */
+    private final AtomicLong ewmaStamp = new AtomicLong(System.nanoTime());
+    /** 最近{@link #WINDOW_TIME}毫秒内已完成的rpc call统计, 包括失败的rpc call, 比如超时 */
+    private final RpcCallWindow window = new RpcCallWindow(WINDOW_TIME, WINDOW_BUCKETS);
 
     /**
      * 返回服务维度的统计
@@ -56,6 +73,10 @@ public final class RpcCallProfiler {
      * @return 统计信息
      */
     public static RpcCallProfiler get(int invokerId) {
+        RpcCallProfiler profiler = INVOKER_STATISTICS.get(invokerId);
+        if (Objects.nonNull(profiler)) {
+            return profiler;
+        }
         return INVOKER_STATISTICS.computeIfAbsent(invokerId, k -> new RpcCallProfiler());
     }
 
@@ -67,7 +88,14 @@ public final class RpcCallProfiler {
      * @return 统计信息
      */
     public static RpcCallProfiler get(int invokerId, int handlerId) {
-        ConcurrentMap<Integer, RpcCallProfiler> handlerMap = HANDLER_STATISTICS.computeIfAbsent(invokerId, k -> new ConcurrentHashMap<>());
+        ConcurrentMap<Integer, RpcCallProfiler> handlerMap = HANDLER_STATISTICS.get(invokerId);
+        if (Objects.isNull(handlerMap)) {
+            handlerMap = HANDLER_STATISTICS.computeIfAbsent(invokerId, k -> new ConcurrentHashMap<>());
+        }
+        RpcCallProfiler profiler = handlerMap.get(handlerId);
+        if (Objects.nonNull(profiler)) {
+            return profiler;
+        }
         return handlerMap.computeIfAbsent(handlerId, k -> new RpcCallProfiler());
     }
 
@@ -163,6 +191,10 @@ public final class RpcCallProfiler {
         status.total.incrementAndGet();
         //total elapsed +
         status.totalElapsed.addAndGet(elapsed);
+        //update peak EWMA
+        status.observe(elapsed);
+        //sliding window, 失败的rpc call(比如超时)同样计入, 避免慢invoker因失败而看起来很快
+        status.window.add(elapsed);
 
         //update max elapsed
         if (status.maxElapsed.get() < elapsed) {
@@ -187,6 +219,26 @@ public final class RpcCallProfiler {
         }
     }
 
+    /**
+     * 更新rpc call响应时间peak EWMA
+     * 响应时间大于当前值时直接取响应时间(peak), 否则按距离上次更新的时间指数衰减
+     *
+     * @param rtt rpc call耗时
+     */
+    private void observe(double rtt) {
+        long now = System.nanoTime();
+        long last = ewmaStamp.getAndSet(now);
+        double weight = Math.exp(-Math.max(0, now - last) / EWMA_DECAY_NANOS);
+        for (; ; ) {
+            long bits = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(bits);
+            double next = rtt > ewma ? rtt : ewma * weight + rtt * (1 - weight);
+            if (ewmaBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
     /**
      * 日志输出, 一般用于测试或运维
      */
@@ -274,6 +326,39 @@ public final class RpcCallProfiler {
         return succeededMaxElapsed.get();
     }
 
+    /**
+     * 返回rpc call响应时间peak EWMA, 0表示没有统计数据
+     * 按距离上次更新的时间指数衰减, 避免一段时间没有rpc call的invoker一直保持历史峰值而无法被选中
+     *
+     * @return rpc call响应时间peak EWMA(毫秒)
+     */
+    public double getEwmaResponse() {
+        double ewma = Double.longBitsToDouble(ewmaBits.get());
+        long elapsed = System.nanoTime() - ewmaStamp.get();
+        if (ewma == 0 || elapsed <= 0) {
+            return ewma;
+        }
+        return ewma * Math.exp(-elapsed / EWMA_DECAY_NANOS);
+    }
+
+    /**
+     * 返回滑动窗口内已完成的rpc call次数, 包括失败的rpc call
+     *
+     * @return 滑动窗口内已完成的rpc call次数
+     */
+    public long getWindowTotal() {
+        return window.count();
+    }
+
+    /**
+     * 返回滑动窗口内已完成的rpc call平均耗时, 包括失败的rpc call, 0表示滑动窗口内没有rpc call
+     *
+     * @return 滑动窗口内已完成的rpc call平均耗时(毫秒)
+     */
+    public long getWindowAverageElapsed() {
+        return window.averageElapsed();
+    }
+
     public long getAverageTps() {
         if (getTotalElapsed() >= 1000L) {
             return getTotal() / (getTotalElapsed() / 1000L);
@@ -0,0 +1,89 @@
+package org.kin.kinrpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于滑动窗口的rpc call统计, 无锁
+ * <p>
+ * 窗口被划分为固定数量的bucket, 每个bucket统计一段时间内的rpc call次数和耗时, 过期的bucket在下次写入时重置
+ * bucket重置与并发写入存在竞争, 可能会丢失少量统计数据, 对于负载均衡来说可以接受
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+final class RpcCallWindow {
+    /** 每个bucket的时间跨度, 毫秒 */
+    private final long bucketMs;
+    /** bucket */
+    private final Bucket[] buckets;
+
+    RpcCallWindow(long windowMs, int bucketNum) {
+        this.bucketMs = Math.max(1, windowMs / bucketNum);
+        this.buckets = new Bucket[bucketNum];
+        for (int i = 0; i < bucketNum; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 记录已完成的rpc call
+     *
+     * @param elapsed rpc call耗时
+     */
+    void add(long elapsed) {
+        long windowStart = System.currentTimeMillis() / bucketMs;
+        Bucket bucket = buckets[(int) (windowStart % buckets.length)];
+        long start = bucket.start.get();
+        if (start < windowStart && bucket.start.compareAndSet(start, windowStart)) {
+            //bucket过期, 重置
+            bucket.count.set(0);
+            bucket.elapsed.set(0);
+        }
+        bucket.count.incrementAndGet();
+        bucket.elapsed.addAndGet(elapsed);
+    }
+
+    /**
+     * 返回窗口内的rpc call次数
+     *
+     * @return 窗口内的rpc call次数
+     */
+    long count() {
+        long minStart = System.currentTimeMillis() / bucketMs - buckets.length + 1;
+        long count = 0;
+        for (Bucket bucket : buckets) {
+            if (bucket.start.get() >= minStart) {
+                count += bucket.count.get();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 返回窗口内的rpc call平均耗时, 0表示窗口内没有rpc call
+     *
+     * @return 窗口内的rpc call平均耗时
+     */
+    long averageElapsed() {
+        long minStart = System.currentTimeMillis() / bucketMs - buckets.length + 1;
+        long count = 0;
+        long elapsed = 0;
+        for (Bucket bucket : buckets) {
+            if (bucket.start.get() >= minStart) {
+                count += bucket.count.get();
+                elapsed += bucket.elapsed.get();
+            }
+        }
+        return count == 0 ? 0 : elapsed / count;
+    }
+
+    //---------------------------------------------------------------------------------------------------------
+    private static class Bucket {
+        /** bucket所属时间段, 即时间戳 / bucket时间跨度 */
+        private final AtomicLong start = new AtomicLong();
+        /** rpc call次数 */
+        private final AtomicLong count = new AtomicLong();
+        /** rpc call总耗时 */
+        private final AtomicLong elapsed = new AtomicLong();
+    }
+}
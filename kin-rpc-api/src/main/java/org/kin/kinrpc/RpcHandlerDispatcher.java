@@ -0,0 +1,20 @@
+package org.kin.kinrpc;
+
+/**
+ * 服务方法调用分派
+ * 每个服务生成一个实现类, 根据handlerId直接调用服务方法, 不经过{@link RpcHandler}查找和反射调用
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ * @see org.kin.kinrpc.utils.RpcHandlerDispatcherUtils
+ */
+public interface RpcHandlerDispatcher {
+    /**
+     * 服务方法调用
+     *
+     * @param handlerId 服务方法唯一id
+     * @param params    方法调用参数
+     * @return 方法调用返回值
+     */
+    Object dispatch(int handlerId, Object[] params) throws Exception;
+}
@@ -2,9 +2,9 @@ package org.kin.kinrpc;
 
 import org.kin.kinrpc.utils.RpcUtils;
 
+import javax.annotation.Nullable;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.function.BiConsumer;
 
 /**
@@ -15,42 +15,41 @@ import java.util.function.BiConsumer;
  * @date 2023/2/26
  */
 public final class RpcResult {
-    /** 不包含调用结果的{@link CompletableFuture} */
-    private static final CompletableFuture<Object> EMPTY_FUTURE = CompletableFuture.completedFuture(null);
-
     /** rpc call 元数据 */
     private final Invocation invocation;
-    /** result future */
-    private CompletableFuture<Object> resultFuture;
+    /** rpc call调用状态, filter chain各层共享同一实例 */
+    private final RpcCall call;
 
     public static RpcResult success(Invocation invocation, CompletableFuture<Object> resultFuture) {
-        return new RpcResult(invocation, resultFuture);
+        return new RpcResult(invocation, RpcCall.from(resultFuture));
+    }
+
+    public static RpcResult success(Invocation invocation, RpcCall call) {
+        return new RpcResult(invocation, call);
     }
 
     public static RpcResult fail(Invocation invocation, Throwable t) {
-        CompletableFuture<Object> exceptionFuture = new CompletableFuture<>();
-        exceptionFuture.completeExceptionally(t);
-        return new RpcResult(invocation, exceptionFuture);
+        return new RpcResult(invocation, RpcCall.failed(t));
     }
 
     public static RpcResult empty(Invocation invocation) {
-        return new RpcResult(invocation, EMPTY_FUTURE);
+        return new RpcResult(invocation, RpcCall.completed(null));
     }
 
     /**
-     * @param invocation   rpc call信息
-     * @param resultFuture rpc call result future, 由{@link RpcResult}创建者控制complete
+     * @param invocation rpc call信息
+     * @param call       rpc call调用状态, 由{@link RpcResult}创建者控制complete
      */
-    private RpcResult(Invocation invocation, CompletableFuture<Object> resultFuture) {
+    private RpcResult(Invocation invocation, RpcCall call) {
         this.invocation = invocation;
-        this.resultFuture = resultFuture;
+        this.call = call;
     }
 
     /**
      * invoke过程是否抛出的异常
      */
     public boolean hasException() {
-        return resultFuture.isCompletedExceptionally();
+        return call.isCompletedExceptionally();
     }
 
     /**
@@ -58,12 +57,10 @@ public final class RpcResult {
      *
      * @return 服务调用异常
      */
+    @Nullable
     public Throwable getException() {
-        try {
-            return RpcUtils.normalizeException((Throwable) resultFuture.get());
-        } catch (InterruptedException | ExecutionException e) {
-            return e;
-        }
+        Throwable t = call.getException();
+        return Objects.nonNull(t) ? RpcUtils.normalizeException(t) : null;
     }
 
     /**
@@ -72,54 +69,40 @@ public final class RpcResult {
      * @param callback 回调方法
      */
     public RpcResult onFinish(BiConsumer<Object, Throwable> callback) {
-        resultFuture = resultFuture.whenComplete(callback);
+        call.onFinish(callback);
         return this;
     }
 
     /**
      * 当invoke结果返回时, complete {@code future}
-     * !!! 注意, {@code future}会覆盖{@link #resultFuture}
      *
      * @param future final result future
      */
     public RpcResult onFinish(CompletableFuture<Object> future) {
-        resultFuture.whenComplete((r, t) -> completeFuture(r, t, future));
-        resultFuture = future;
+        call.onFinish(future);
         return this;
     }
 
     /**
-     * complete {@code future}
+     * 当invoke结果返回时, complete {@code call}
      *
-     * @param result rpc call结果
-     * @param t      rpc call执行异常
-     * @param future 需要complete的future
+     * @param call final rpc call
      */
-    private void completeFuture(Object result,
-                                Throwable t,
-                                CompletableFuture<Object> future) {
-        if (future.isDone()) {
-            return;
-        }
-
-        if (Objects.isNull(t)) {
-            future.complete(result);
-        } else {
-            future.completeExceptionally(t);
-        }
+    public RpcResult onFinish(RpcCall call) {
+        this.call.onFinish(call);
+        return this;
     }
 
     /**
      * 当invoke结果返回时, 执行{@code callback}, 然后complete {@code future}
-     * !!! 注意, {@code future}会覆盖{@link #resultFuture}
+     * {@code callback}执行异常不影响{@code future}的结果
      *
      * @param callback 回调方法
      * @param future   final result future
      */
     public RpcResult onFinish(BiConsumer<Object, Throwable> callback,
                               CompletableFuture<Object> future) {
-        resultFuture.whenComplete((r, t) -> callbackAndCompleteFuture(callback, r, t, future));
-        resultFuture = future;
+        call.onFinish((r, t) -> callbackAndCompleteFuture(callback, r, t, future));
         return this;
     }
 
@@ -138,16 +121,40 @@ public final class RpcResult {
         try {
             callback.accept(result, t);
         } finally {
-            completeFuture(result, t, future);
+            if (Objects.isNull(t)) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(t);
+            }
         }
     }
 
+    /**
+     * 覆盖rpc call结果, 仅影响后续执行的callback
+     * !!! 仅允许在callback内调用
+     *
+     * @param result rpc call result
+     * @param t      rpc call exception
+     */
+    void overwrite(@Nullable Object result, @Nullable Throwable t) {
+        call.overwrite(result, t);
+    }
+
     //getter
     public Invocation getInvocation() {
         return invocation;
     }
 
+    public RpcCall getCall() {
+        return call;
+    }
+
+    /**
+     * 返回result future, 多次调用返回同一实例
+     *
+     * @return result future
+     */
     public CompletableFuture<Object> getResultFuture() {
-        return resultFuture;
+        return call.toFuture();
     }
 }
@@ -9,12 +9,15 @@ import org.kin.framework.utils.StringUtils;
 import org.kin.kinrpc.config.ExecutorConfig;
 import org.kin.kinrpc.config.ServiceConfig;
 import org.kin.kinrpc.constants.InvocationConstants;
+import org.kin.kinrpc.constants.ServiceConstants;
 import org.kin.kinrpc.executor.ExecutorManager;
 import org.kin.kinrpc.executor.ManagedExecutor;
+import org.kin.kinrpc.utils.RpcHandlerDispatcherUtils;
 import org.kin.kinrpc.utils.RpcUtils;
 import org.kin.kinrpc.utils.ServiceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.Nullable;
@@ -35,6 +38,9 @@ public class RpcService<T> implements Invoker<T> {
     private final FilterChain<T> chain;
     /** 服务方法元数据 */
     private final IntObjectMap<RpcHandler> rpcHandlerMap;
+    /** 生成的服务方法调用分派, 为null则通过{@link #rpcHandlerMap}查找{@link RpcHandler}调用 */
+    @Nullable
+    private final RpcHandlerDispatcher dispatcher;
     /** 服务调用线程池 */
     private final ManagedExecutor executor;
     /** 是否terminated */
@@ -69,6 +75,7 @@ public class RpcService<T> implements Invoker<T> {
             rpcHandlerMap.put(metadata.handlerId(), rpcHandler);
         }
         this.rpcHandlerMap = rpcHandlerMap;
+        this.dispatcher = createDispatcher();
 
         //create invoke executor
         ExecutorConfig executorConfig = config.getExecutor();
@@ -113,24 +120,23 @@ public class RpcService<T> implements Invoker<T> {
             //服务方法调用参数校验
             invocation.attach(InvocationConstants.VALIDATION_KEY, config.isValidation());
 
-            CompletableFuture<Object> future = new CompletableFuture<>();
             if (Objects.nonNull(executor)) {
+                RpcCall call = new RpcCall();
                 //如果服务执行线程池队列已满, 则抛出RejectedExecutionException, 捕获异常后, 直接返回rpc result
                 executor.execute(() -> {
                     if (isTerminated()) {
-                        future.complete(new IllegalStateException(String.format("service '%s' unExported", service())));
+                        call.complete(new IllegalStateException(String.format("service '%s' unExported", service())));
                         return;
                     }
 
                     chain.invoke(invocation)
-                            .onFinish(future);
+                            .onFinish(call);
                 });
+                return RpcResult.success(invocation, call);
             } else {
-                chain.invoke(invocation)
-                        .onFinish(future);
+                //直接复用filter chain返回的rpc result
+                return chain.invoke(invocation);
             }
-
-            return RpcResult.success(invocation, future);
         } catch (Exception e) {
             //执行异常直接返回
             return RpcResult.fail(invocation, e);
@@ -144,62 +150,60 @@ public class RpcService<T> implements Invoker<T> {
      * @return rpc result
      */
     private RpcResult doInvoke(Invocation invocation) {
-        int handlerId = invocation.handlerId();
-        RpcHandler rpcHandler = rpcHandlerMap.get(handlerId);
-        if (Objects.isNull(rpcHandler)) {
-            throw new IllegalArgumentException("can not find rpc handler with handlerId=" + handlerId);
+        RpcHandler rpcHandler = null;
+        if (Objects.isNull(dispatcher)) {
+            int handlerId = invocation.handlerId();
+            rpcHandler = rpcHandlerMap.get(handlerId);
+            if (Objects.isNull(rpcHandler)) {
+                throw new IllegalArgumentException("can not find rpc handler with handlerId=" + handlerId);
+            }
         }
 
-        CompletableFuture<Object> future = new CompletableFuture<>();
-        doInvoke0(rpcHandler, invocation, future);
-        return RpcResult.success(invocation, future);
+        RpcCall call = new RpcCall();
+        doInvoke0(rpcHandler, invocation, call);
+        return RpcResult.success(invocation, call);
     }
 
     /**
-     * 服务方法调用并complete {@code future}
+     * 服务方法调用并complete {@code call}
      *
-     * @param rpcHandler rpc handler
+     * @param rpcHandler rpc handler, 使用生成的服务方法调用分派时为null
      * @param invocation rpc invocation
-     * @param future     result future
+     * @param call       rpc call
      */
-    private void doInvoke0(RpcHandler rpcHandler,
+    private void doInvoke0(@Nullable RpcHandler rpcHandler,
                            Invocation invocation,
-                           CompletableFuture<Object> future) {
+                           RpcCall call) {
         try {
             //关联rpc context与attachments
             RpcContext.attachMany(invocation.serverAttachments());
             Object ret = doInvoke1(rpcHandler, invocation);
-            CompletableFuture<Object> invokeFuture = wrapFuture(ret);
-            invokeFuture.whenComplete((r, t) -> {
-                if (Objects.isNull(t)) {
-                    //invoke success
-                    future.complete(r);
-                } else {
-                    future.completeExceptionally(t);
-                }
-            });
+            completeCall(ret, call);
         } catch (Exception e) {
-            future.completeExceptionally(e);
+            call.completeExceptionally(e);
         }
     }
 
     /**
-     * 将服务调用结果封装成{@link CompletableFuture}
+     * 根据服务调用结果complete {@code call}, 非异步返回结果直接complete, 不再额外封装成{@link CompletableFuture}
      */
     @SuppressWarnings("unchecked")
-    private CompletableFuture<Object> wrapFuture(Object ret) {
+    private void completeCall(Object ret, RpcCall call) {
         if (ret instanceof CompletableFuture) {
-            return (CompletableFuture<Object>) ret;
+            ((CompletableFuture<Object>) ret).whenComplete(call::complete);
         } else if (ret instanceof Mono) {
-            return (CompletableFuture<Object>) ((Mono<?>) ret).toFuture();
+            ((Mono<Object>) ret).toFuture().whenComplete(call::complete);
+        } else if (ret instanceof Flux) {
+            //server stream, 直接返回flux, 由transport层按consumer request-n订阅
+            call.complete(ret);
         } else {
             //非异步返回结果
             AsyncContext asyncContext = AsyncContext.remove();
             if (Objects.nonNull(asyncContext)) {
                 //使用了async context
-                return asyncContext.getFuture();
+                asyncContext.getFuture().whenComplete(call::complete);
             } else {
-                return CompletableFuture.completedFuture(ret);
+                call.complete(ret);
             }
         }
     }
@@ -207,10 +211,10 @@ public class RpcService<T> implements Invoker<T> {
     /**
      * 服务方法调用
      *
-     * @param rpcHandler rpc handler
+     * @param rpcHandler rpc handler, 使用生成的服务方法调用分派时为null
      * @param invocation rpc invocation
      */
-    private Object doInvoke1(RpcHandler rpcHandler,
+    private Object doInvoke1(@Nullable RpcHandler rpcHandler,
                              Invocation invocation) {
         String handlerName = invocation.handlerName();
         Object[] params = invocation.params();
@@ -238,17 +242,20 @@ public class RpcService<T> implements Invoker<T> {
         }
 
         //其他方法
-        //打印入参信息
-        int paramLength = params == null ? 0 : params.length;
-        String[] actualParamTypeNames = new String[paramLength];
-        for (int i = 0; i < actualParamTypeNames.length; i++) {
-            actualParamTypeNames[i] = params[i].getClass().getName();
-        }
         if (log.isDebugEnabled()) {
+            //打印入参信息
+            int paramLength = params == null ? 0 : params.length;
+            String[] actualParamTypeNames = new String[paramLength];
+            for (int i = 0; i < actualParamTypeNames.length; i++) {
+                actualParamTypeNames[i] = Objects.nonNull(params[i]) ? params[i].getClass().getName() : "null";
+            }
             log.debug("method '{}' actual params' type is {}", handlerName, actualParamTypeNames);
         }
 
         try {
+            if (Objects.isNull(rpcHandler)) {
+                return dispatcher.dispatch(invocation.handlerId(), params);
+            }
             return rpcHandler.handle(params);
         } catch (Exception e) {
             log.error("method '{}' invoke error, params is {}", handlerName, params, e);
@@ -257,6 +264,36 @@ public class RpcService<T> implements Invoker<T> {
         }
     }
 
+    /**
+     * 如果开启了生成服务方法调用分派, 则为服务生成{@link RpcHandlerDispatcher}实现类
+     *
+     * @return {@link RpcHandlerDispatcher}实例, 不支持或生成失败则返回null
+     */
+    @Nullable
+    private RpcHandlerDispatcher createDispatcher() {
+        if (!KinRpcAppContext.ENHANCE || !config.boolAttachment(ServiceConstants.GENERATED_DISPATCH_KEY)) {
+            return null;
+        }
+
+        Class<T> interfaceClass = config.getInterfaceClass();
+        List<MethodMetadata> metadatas = new ArrayList<>(rpcHandlerMap.size());
+        for (RpcHandler rpcHandler : rpcHandlerMap) {
+            metadatas.add(rpcHandler.metadata());
+        }
+        if (!RpcHandlerDispatcherUtils.isSupported(interfaceClass, metadatas)) {
+            log.warn("service '{}' does not support generated dispatch, due to service interface or method signature type is not public", service());
+            return null;
+        }
+
+        try {
+            return RpcHandlerDispatcherUtils.generate(interfaceClass, config.getInstance(), metadatas);
+        } catch (Exception | LinkageError e) {
+            //生成类校验失败或者依赖类找不到时, 抛出的是LinkageError, 例如VerifyError, NoClassDefFoundError
+            log.warn("service '{}' generate dispatcher fail, fallback to rpc handler", service(), e);
+            return null;
+        }
+    }
+
     /**
      * 返回服务唯一标识
      *
@@ -73,6 +73,24 @@ public interface ServiceInstance {
      */
     int weight();
 
+    /**
+     * 返回服务预热时间, 毫秒, 0表示不预热
+     *
+     * @return 服务预热时间
+     */
+    default long warmup() {
+        return 0;
+    }
+
+    /**
+     * 返回服务发布时间戳, 毫秒, 0表示未知
+     *
+     * @return 服务发布时间戳
+     */
+    default long timestamp() {
+        return 0;
+    }
+
     /**
      * 返回服务元数据
      *
@@ -27,6 +27,8 @@ public abstract class AbstractServiceConfig<ASC extends AbstractServiceConfig<AS
     private String bootstrap;
     /** 延迟发布时间, 毫秒 */
     private Long delay;
+    /** 预热时间, 毫秒, 服务发布后该时间内consumer按比例降低其权重 */
+    private Long warmup;
     /** 是否开启token校验 */
     private String token;
     /** 标识是否异步export */
@@ -87,6 +89,10 @@ public abstract class AbstractServiceConfig<ASC extends AbstractServiceConfig<AS
             delay = DefaultConfig.DEFAULT_SERVICE_DELAY;
         }
 
+        if (Objects.isNull(warmup)) {
+            warmup = DefaultConfig.DEFAULT_SERVICE_WARMUP;
+        }
+
         if (Objects.isNull(exportAsync)) {
             exportAsync = DefaultConfig.DEFAULT_SERVICE_EXPORT_ASYNC;
         }
@@ -174,6 +180,15 @@ public abstract class AbstractServiceConfig<ASC extends AbstractServiceConfig<AS
         return castThis();
     }
 
+    public Long getWarmup() {
+        return warmup;
+    }
+
+    public ASC warmup(long warmup) {
+        this.warmup = warmup;
+        return castThis();
+    }
+
     public String getToken() {
         return token;
     }
@@ -273,6 +288,10 @@ public abstract class AbstractServiceConfig<ASC extends AbstractServiceConfig<AS
         this.delay = delay;
     }
 
+    public void setWarmup(Long warmup) {
+        this.warmup = warmup;
+    }
+
     public void setToken(String token) {
         this.token = token;
     }
@@ -313,6 +332,7 @@ public abstract class AbstractServiceConfig<ASC extends AbstractServiceConfig<AS
                 ", weight=" + weight +
                 ", bootstrap='" + bootstrap + '\'' +
                 ", delay=" + delay +
+                ", warmup=" + warmup +
                 ", token=" + token +
                 ", exportAsync=" + exportAsync +
                 ", validation=" + validation +
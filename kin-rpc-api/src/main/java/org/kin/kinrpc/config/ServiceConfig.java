@@ -158,6 +158,11 @@ public final class ServiceConfig<T> extends AbstractServiceConfig<ServiceConfig<
                 if (StringUtils.isNotBlank(getToken())) {
                     metadata.put(ServiceMetadataConstants.TOKEN_KEY, getToken());
                 }
+                Long warmup = getWarmup();
+                if (Objects.nonNull(warmup) && warmup > 0) {
+                    metadata.put(ServiceMetadataConstants.WARMUP_KEY, warmup.toString());
+                    metadata.put(ServiceMetadataConstants.TIMESTAMP_KEY, Long.toString(System.currentTimeMillis()));
+                }
                 this.metadata = new ServiceMetadata(metadata);
             }
         }
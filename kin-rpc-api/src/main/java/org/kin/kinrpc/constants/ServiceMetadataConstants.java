@@ -16,6 +16,12 @@ public final class ServiceMetadataConstants {
     public static final String SERIALIZATION_KEY = "serialization";
     /** service token */
     public static final String TOKEN_KEY = "token";
+    /** 服务预热时间, 毫秒 */
+    public static final String WARMUP_KEY = "warmup";
+    /** 服务发布时间戳, 毫秒 */
+    public static final String TIMESTAMP_KEY = "timestamp";
+    /** provider支持的payload compression code, 逗号分隔, consumer仅使用provider声明支持的压缩实现 */
+    public static final String COMPRESSION_KEY = "compression";
     /** appName */
     public static final String APP_NAME_KEY = "appName";
 
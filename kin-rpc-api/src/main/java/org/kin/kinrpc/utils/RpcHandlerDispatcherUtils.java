@@ -0,0 +1,287 @@
+package org.kin.kinrpc.utils;
+
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import org.kin.kinrpc.MethodMetadata;
+import org.kin.kinrpc.RpcHandlerDispatcher;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于asm(byte buddy内置)为服务生成{@link RpcHandlerDispatcher}实现类
+ * 生成的dispatch方法内部是{@code switch(handlerId)}, 每个case直接调用服务接口方法, 参数直接拆箱, 不经过反射
+ * <p>
+ * 仅当{@link org.kin.kinrpc.KinRpcAppContext#ENHANCE}为true时才允许使用
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+public final class RpcHandlerDispatcherUtils {
+    /** 生成类名后缀 */
+    private static final String CLASS_NAME_SUFFIX = "$$KinRpcDispatcher$";
+    /** 生成类名计数器 */
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    /** {@link RpcHandlerDispatcher}内部类名 */
+    private static final String DISPATCHER_INTERNAL_NAME = Type.getInternalName(RpcHandlerDispatcher.class);
+    /** {@link RpcHandlerDispatcher#dispatch(int, Object[])}方法描述 */
+    private static final String DISPATCH_DESCRIPTOR = "(I[Ljava/lang/Object;)Ljava/lang/Object;";
+    /** target字段名 */
+    private static final String TARGET_FIELD = "target";
+
+    private RpcHandlerDispatcherUtils() {
+    }
+
+    /**
+     * 返回是否支持为{@code interfaceClass}生成{@link RpcHandlerDispatcher}
+     * 生成类与服务接口不在同一class loader, 故服务接口, 方法参数和返回值类型都必须是public
+     *
+     * @param interfaceClass 服务接口
+     * @param metadatas      服务方法元数据
+     * @return true表示支持
+     */
+    public static boolean isSupported(Class<?> interfaceClass, Collection<MethodMetadata> metadatas) {
+        if (!interfaceClass.isInterface() || !isPublic(interfaceClass)) {
+            return false;
+        }
+
+        for (MethodMetadata metadata : metadatas) {
+            Method method = metadata.method();
+            if (!isPublic(method.getReturnType())) {
+                return false;
+            }
+            for (Class<?> paramType : method.getParameterTypes()) {
+                if (!isPublic(paramType)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 返回{@code type}是否public, 数组则判断元素类型
+     */
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    /**
+     * 生成{@link RpcHandlerDispatcher}实例
+     *
+     * @param interfaceClass 服务接口
+     * @param instance       服务实例
+     * @param metadatas      服务方法元数据
+     * @return {@link RpcHandlerDispatcher}实例
+     */
+    public static RpcHandlerDispatcher generate(Class<?> interfaceClass,
+                                                Object instance,
+                                                Collection<MethodMetadata> metadatas) throws Exception {
+        String className = interfaceClass.getName() + CLASS_NAME_SUFFIX + COUNTER.incrementAndGet();
+        byte[] bytes = generateBytes(className.replace('.', '/'), interfaceClass, metadatas);
+
+        ClassLoader parent = interfaceClass.getClassLoader();
+        if (parent == null) {
+            parent = RpcHandlerDispatcher.class.getClassLoader();
+        }
+        Class<?> dispatcherClass = new DispatcherClassLoader(parent).define(className, bytes);
+        return (RpcHandlerDispatcher) dispatcherClass.getConstructor(Object.class).newInstance(instance);
+    }
+
+    /**
+     * 生成{@link RpcHandlerDispatcher}实现类字节码
+     *
+     * @param internalName   生成类内部类名
+     * @param interfaceClass 服务接口
+     * @param metadatas      服务方法元数据
+     * @return 字节码
+     */
+    private static byte[] generateBytes(String internalName,
+                                        Class<?> interfaceClass,
+                                        Collection<MethodMetadata> metadatas) {
+        String interfaceInternalName = Type.getInternalName(interfaceClass);
+        String interfaceDescriptor = Type.getDescriptor(interfaceClass);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, internalName, null,
+                "java/lang/Object", new String[]{DISPATCHER_INTERNAL_NAME});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, TARGET_FIELD, interfaceDescriptor, null, null).visitEnd();
+
+        //constructor
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, interfaceInternalName);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, internalName, TARGET_FIELD, interfaceDescriptor);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        //dispatch, lookupswitch要求key升序
+        List<MethodMetadata> sortedMetadatas = new ArrayList<>(metadatas);
+        sortedMetadatas.sort(Comparator.comparingInt(MethodMetadata::handlerId));
+        int size = sortedMetadatas.size();
+        int[] keys = new int[size];
+        Label[] labels = new Label[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = sortedMetadatas.get(i).handlerId();
+            labels[i] = new Label();
+        }
+        Label defaultLabel = new Label();
+
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "dispatch", DISPATCH_DESCRIPTOR, null,
+                new String[]{"java/lang/Exception"});
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitLookupSwitchInsn(defaultLabel, keys, labels);
+        for (int i = 0; i < size; i++) {
+            mv.visitLabel(labels[i]);
+            visitInvoke(mv, internalName, interfaceInternalName, interfaceDescriptor, sortedMetadatas.get(i).method());
+        }
+
+        //default, 找不到服务方法
+        mv.visitLabel(defaultLabel);
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn("can not find rpc handler with handlerId=");
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(I)Ljava/lang/StringBuilder;", false);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 生成单个case的字节码: 参数拆箱, 直接调用服务接口方法, 返回值装箱后返回
+     */
+    private static void visitInvoke(MethodVisitor mv,
+                                    String internalName,
+                                    String interfaceInternalName,
+                                    String interfaceDescriptor,
+                                    Method method) {
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, internalName, TARGET_FIELD, interfaceDescriptor);
+
+        Class<?>[] paramTypes = method.getParameterTypes();
+        for (int i = 0; i < paramTypes.length; i++) {
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            pushInt(mv, i);
+            mv.visitInsn(Opcodes.AALOAD);
+            unbox(mv, paramTypes[i]);
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, interfaceInternalName, method.getName(),
+                Type.getMethodDescriptor(method), true);
+        box(mv, method.getReturnType());
+        mv.visitInsn(Opcodes.ARETURN);
+    }
+
+    /**
+     * push int常量
+     */
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        }
+    }
+
+    /**
+     * 将栈顶Object转换为{@code type}, 基础类型则拆箱
+     */
+    private static void unbox(MethodVisitor mv, Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (!Object.class.equals(type)) {
+                mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+            }
+            return;
+        }
+
+        Class<?> wrapperType = wrapperType(type);
+        String wrapperInternalName = Type.getInternalName(wrapperType);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, wrapperInternalName);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapperInternalName, type.getName() + "Value",
+                "()" + Type.getDescriptor(type), false);
+    }
+
+    /**
+     * 将栈顶返回值转换为Object, 基础类型则装箱, void则返回null
+     */
+    private static void box(MethodVisitor mv, Class<?> type) {
+        if (void.class.equals(type)) {
+            mv.visitInsn(Opcodes.ACONST_NULL);
+            return;
+        }
+        if (!type.isPrimitive()) {
+            return;
+        }
+
+        String wrapperInternalName = Type.getInternalName(wrapperType(type));
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapperInternalName, "valueOf",
+                "(" + Type.getDescriptor(type) + ")L" + wrapperInternalName + ";", false);
+    }
+
+    /**
+     * 返回基础类型对应的包装类型
+     */
+    private static Class<?> wrapperType(Class<?> type) {
+        if (boolean.class.equals(type)) {
+            return Boolean.class;
+        } else if (byte.class.equals(type)) {
+            return Byte.class;
+        } else if (char.class.equals(type)) {
+            return Character.class;
+        } else if (short.class.equals(type)) {
+            return Short.class;
+        } else if (int.class.equals(type)) {
+            return Integer.class;
+        } else if (long.class.equals(type)) {
+            return Long.class;
+        } else if (float.class.equals(type)) {
+            return Float.class;
+        } else if (double.class.equals(type)) {
+            return Double.class;
+        } else {
+            throw new IllegalArgumentException("unknown primitive type " + type);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 定义生成类的class loader
+     */
+    private static final class DispatcherClassLoader extends ClassLoader {
+        DispatcherClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String className, byte[] bytes) {
+            return defineClass(className, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.eclipse.collections.api.map.primitive.IntObjectMap;
 import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
 import org.kin.kinrpc.DefaultMethodMetadata;
 import org.kin.kinrpc.MethodMetadata;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +46,14 @@ public final class RpcUtils {
             return false;
         }
 
+        for (Class<?> paramType : method.getParameterTypes()) {
+            if (Publisher.class.isAssignableFrom(paramType)) {
+                //目前仅支持server stream, 即返回值为Flux, client stream和bidirectional stream(参数为Publisher)暂不支持
+                log.warn("service method '{}' is ignore, due to client stream or bidirectional stream is not supported", uniqueName);
+                return false;
+            }
+        }
+
         return true;
     }
 
@@ -0,0 +1,121 @@
+package org.kin.kinrpc.utils;
+
+import org.eclipse.collections.api.map.primitive.IntObjectMap;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.kin.framework.proxy.MethodDefinition;
+import org.kin.framework.proxy.Proxys;
+import org.kin.kinrpc.MethodMetadata;
+import org.kin.kinrpc.RpcHandler;
+import org.kin.kinrpc.RpcHandlerDispatcher;
+
+import java.util.Objects;
+
+/**
+ * 对比生成的服务方法调用分派与{@link RpcHandler}查找+调用的耗时
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class RpcHandlerDispatcherBenchmark {
+    /** 预热调用次数 */
+    private static final int WARMUP = 2_000_000;
+    /** 统计调用次数 */
+    private static final int ITERATIONS = 10_000_000;
+
+    public static void main(String[] args) throws Exception {
+        IntObjectMap<MethodMetadata> metadataMap = RpcUtils.getMethodMetadataMap("benchmark", Calculator.class);
+        if (!RpcHandlerDispatcherUtils.isSupported(Calculator.class, metadataMap.values())) {
+            throw new IllegalStateException("generated dispatch is not supported");
+        }
+
+        Calculator instance = new CalculatorImpl();
+        RpcHandlerDispatcher dispatcher = RpcHandlerDispatcherUtils.generate(Calculator.class, instance, metadataMap.values());
+
+        MethodMetadata addMetadata = null;
+        for (MethodMetadata metadata : metadataMap) {
+            if ("add".equals(metadata.method().getName())) {
+                addMetadata = metadata;
+            }
+        }
+        Objects.requireNonNull(addMetadata);
+        int handlerId = addMetadata.handlerId();
+        RpcHandler rpcHandler = new RpcHandler(addMetadata,
+                Proxys.adaptive().enhanceMethod(new MethodDefinition<>(instance, addMetadata.method())));
+        //与RpcService一致, 先根据handlerId查找rpc handler
+        IntObjectHashMap<RpcHandler> rpcHandlerMap = new IntObjectHashMap<>();
+        rpcHandlerMap.put(handlerId, rpcHandler);
+
+        //正确性校验
+        Object[] params = new Object[]{1, 2};
+        check(dispatcher.dispatch(handlerId, params));
+        check(rpcHandler.handle(params));
+        for (MethodMetadata metadata : metadataMap) {
+            if ("echo".equals(metadata.method().getName()) &&
+                    !"kinrpc".equals(dispatcher.dispatch(metadata.handlerId(), new Object[]{"kinrpc"}))) {
+                throw new IllegalStateException("generated dispatch echo result is wrong");
+            }
+        }
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("round %d, generated dispatch: %.2f ns/op, rpc handler: %.2f ns/op%n", round,
+                    measure(() -> dispatcher.dispatch(handlerId, params)),
+                    measure(() -> rpcHandlerMap.get(handlerId).handle(params)));
+        }
+    }
+
+    /**
+     * 校验add结果
+     */
+    private static void check(Object result) {
+        if (!Integer.valueOf(3).equals(result)) {
+            throw new IllegalStateException("add result is wrong, result=" + result);
+        }
+    }
+
+    /**
+     * 预热后统计平均每次调用耗时
+     *
+     * @param call 调用逻辑
+     * @return 平均每次调用耗时(ns)
+     */
+    private static double measure(Call call) throws Exception {
+        //防止jit消除调用
+        long blackhole = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            blackhole += (Integer) call.call();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += (Integer) call.call();
+        }
+        long cost = System.nanoTime() - start;
+        if (blackhole == 0) {
+            System.out.println(blackhole);
+        }
+        return (double) cost / ITERATIONS;
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        Object call() throws Exception;
+    }
+
+    public interface Calculator {
+        int add(int a, int b);
+
+        String echo(String s);
+    }
+
+    public static class CalculatorImpl implements Calculator {
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public String echo(String s) {
+            return s;
+        }
+    }
+}
@@ -224,6 +224,7 @@ public final class KinRpcBootstrap {
         setParentConfigIfNotExists(serviceConfig::weight, serviceConfig::getWeight, provider, ProviderConfig::getWeight);
         setParentConfigIfNotExists(serviceConfig::bootstrap, serviceConfig::getBootstrap, provider, ProviderConfig::getBootstrap);
         setParentConfigIfNotExists(serviceConfig::delay, serviceConfig::getDelay, provider, ProviderConfig::getDelay);
+        setParentConfigIfNotExists(serviceConfig::warmup, serviceConfig::getWarmup, provider, ProviderConfig::getWarmup);
         setParentConfigIfNotExists(serviceConfig::token, serviceConfig::getToken, provider, ProviderConfig::getToken);
         setParentConfigIfNotExists(serviceConfig::exportAsync, serviceConfig::getExportAsync, provider, ProviderConfig::getExportAsync);
         setParentConfigIfNotExists(serviceConfig::validation, serviceConfig::getValidation, provider, ProviderConfig::getValidation);
@@ -1,12 +1,12 @@
 package org.kin.kinrpc.cluster;
 
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.IgnoreForBinding;
 import net.bytebuddy.implementation.bind.annotation.Origin;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.This;
 import org.eclipse.collections.api.map.primitive.IntObjectMap;
 import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
-import org.kin.framework.collection.CopyOnWriteMap;
 import org.kin.framework.utils.ExceptionUtils;
 import org.kin.framework.utils.MethodHandleUtils;
 import org.kin.kinrpc.*;
@@ -24,6 +24,8 @@ import javax.annotation.Nonnull;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -48,8 +50,11 @@ public final class ReferenceProxy implements InvocationHandler {
     private final String service;
     /** cluster invoker */
     private final Invoker<?> invoker;
-    /** 服务方法元数据, key -> handlerId */
-    private final Map<Integer, MethodMetadata> methodMetadataMap = new CopyOnWriteMap<>(() -> new HashMap<>(8));
+    /**
+     * 非泛化调用下, 服务方法对应的stub, 构造时即确定, 不再每次调用都计算handlerId
+     * key -> 服务方法
+     */
+    private final Map<Method, MethodStub> methodStubMap;
     /** 方法级服务方法配置 */
     private final IntObjectMap<MethodConfig> methodConfigMap;
     /** 服务级服务方法配置 */
@@ -60,14 +65,6 @@ public final class ReferenceProxy implements InvocationHandler {
         this.service = config.getService();
         this.serviceId = GsvUtils.serviceId(this.service);
         this.invoker = invoker;
-        if (!config.isGeneric()) {
-            //非泛化, 服务方法是固定, 直接缓存
-            Map<Integer, MethodMetadata> methodMetadataMap = new HashMap<>();
-            for (MethodMetadata methodMetadata : RpcUtils.getMethodMetadataMap(this.service, config.getInterfaceClass())) {
-                methodMetadataMap.put(methodMetadata.handlerId(), methodMetadata);
-            }
-            this.methodMetadataMap.putAll(methodMetadataMap);
-        }
         //方法级
         IntObjectHashMap<MethodConfig> methodConfigMap = new IntObjectHashMap<>(config.getHandlers().size());
         for (MethodConfig method : config.getHandlers()) {
@@ -82,6 +79,18 @@ public final class ReferenceProxy implements InvocationHandler {
                 .sticky(config.isSticky())
                 .validation(config.isValidation());
         this.globalMethodConfig.attachMany(config.attachments());
+
+        if (!config.isGeneric()) {
+            //非泛化, 服务方法是固定, 直接创建stub
+            Map<Method, MethodStub> methodStubMap = new HashMap<>();
+            for (MethodMetadata methodMetadata : RpcUtils.getMethodMetadataMap(this.service, config.getInterfaceClass())) {
+                methodStubMap.put(methodMetadata.method(),
+                        new MethodStub(this, methodMetadata, getMethodConfig(methodMetadata.handlerId())));
+            }
+            this.methodStubMap = Collections.unmodifiableMap(methodStubMap);
+        } else {
+            this.methodStubMap = Collections.emptyMap();
+        }
     }
 
     @Override
@@ -105,8 +114,6 @@ public final class ReferenceProxy implements InvocationHandler {
             }
         }
 
-        int handlerId;
-        MethodMetadata methodMetadata;
         if (config.isGeneric()) {
             //泛化调用
             Class<?> returnType = Void.class;
@@ -122,23 +129,28 @@ public final class ReferenceProxy implements InvocationHandler {
             } else {
                 params = EMPTY_PARAMETER;
             }
-            methodMetadata = new GenericMethodMetadata(service, method,
+            MethodMetadata methodMetadata = new GenericMethodMetadata(service, method,
                     (String) args[0], params, returnType);
-            //overwrite
-            args = params;
-            handlerId = methodMetadata.handlerId();
+            return rpcInvoke(methodMetadata, getMethodConfig(methodMetadata.handlerId()), params);
         } else {
             //非泛化调用
-            String uniqueName = RpcUtils.getUniqueName(method);
-            handlerId = HandlerUtils.handlerId(service, uniqueName);
-            methodMetadata = methodMetadataMap.get(handlerId);
-            if (Objects.isNull(methodMetadata)) {
+            MethodStub methodStub = methodStubMap.get(method);
+            if (Objects.isNull(methodStub)) {
                 throw new IllegalStateException("can not find valid method metadata for method, " + method);
             }
+            return methodStub.invoke(args);
         }
+    }
 
-        MethodConfig methodConfig = getMethodConfig(handlerId);
-
+    /**
+     * 发起rpc call, 并根据服务方法返回值类型转换rpc call结果
+     *
+     * @param methodMetadata 服务方法元数据
+     * @param methodConfig   服务方法配置
+     * @param args           服务方法调用参数
+     * @return 服务方法返回值
+     */
+    private Object rpcInvoke(MethodMetadata methodMetadata, MethodConfig methodConfig, Object[] args) {
         RpcInvocation invocation = new RpcInvocation(serviceId, service, config.getServiceName(), config.getInterfaceClass(),
                 args, RpcContext.attachments(), methodMetadata);
         //clear attachments
@@ -192,11 +204,58 @@ public final class ReferenceProxy implements InvocationHandler {
      * @return rpc call future
      */
     private CompletableFuture<Object> rpcCall(RpcInvocation invocation) {
-        CompletableFuture<Object> userFuture = new CompletableFuture<>();
         // TODO: 2023/6/26 第一次rpc call还是在user invoke线程, 其他是在reference通用线程发起, 真要全异步, 这里需要扔到reference通用线程执行invoker.invoke
         RpcResult rpcResult = invoker.invoke(invocation);
-        //reference通用线程处理
-        rpcResult.onFinish(userFuture);
-        return userFuture;
+        //直接使用cluster rpc call暴露的future, 不再额外创建user future
+        return rpcResult.getResultFuture();
+    }
+
+    /**
+     * 返回非泛化调用下, 所有服务方法对应的stub
+     *
+     * @return 服务方法stub
+     */
+    @IgnoreForBinding
+    public Collection<MethodStub> getMethodStubs() {
+        return methodStubMap.values();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 服务方法stub, 服务方法元数据和配置在构造时即确定
+     * 增强模式下, 生成的reference类直接将服务方法委托给对应的stub, 调用时仅需读取字段, 无需再根据{@link Method}查找
+     */
+    public static final class MethodStub {
+        /** reference代理 */
+        private final ReferenceProxy referenceProxy;
+        /** 服务方法元数据 */
+        private final MethodMetadata methodMetadata;
+        /** 服务方法配置 */
+        private final MethodConfig methodConfig;
+
+        MethodStub(ReferenceProxy referenceProxy, MethodMetadata methodMetadata, MethodConfig methodConfig) {
+            this.referenceProxy = referenceProxy;
+            this.methodMetadata = methodMetadata;
+            this.methodConfig = methodConfig;
+        }
+
+        /**
+         * 服务方法调用入口
+         * !!! 其余public方法需标注{@link IgnoreForBinding}, 避免byte buddy委托时出现歧义
+         *
+         * @param args 服务方法调用参数
+         * @return 服务方法返回值
+         */
+        @RuntimeType
+        public Object invoke(@AllArguments Object[] args) {
+            return referenceProxy.rpcInvoke(methodMetadata, methodConfig, args);
+        }
+
+        //getter
+        @IgnoreForBinding
+        public Method method() {
+            return methodMetadata.method();
+        }
     }
 }
\ No newline at end of file
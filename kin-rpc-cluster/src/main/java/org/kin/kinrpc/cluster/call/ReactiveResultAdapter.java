@@ -1,23 +1,31 @@
 package org.kin.kinrpc.cluster.call;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.concurrent.CompletableFuture;
 
 /**
+ * 支持服务方法返回{@link Mono}或{@link Flux}
+ * server streaming rpc call, rpc call result即为stream元素{@link Flux}
+ *
  * @author huangjianqin
  * @date 2023/6/26
  */
 public class ReactiveResultAdapter implements RpcResultAdapter {
-    @SuppressWarnings("ReactiveStreamsUnusedPublisher")
+    @SuppressWarnings({"ReactiveStreamsUnusedPublisher", "unchecked"})
     @Override
     public Object convert(Class<?> type, boolean async, CompletableFuture<?> userFuture) {
+        if (Flux.class.equals(type)) {
+            //rpc call result为stream元素flux
+            return Mono.fromFuture(userFuture).flatMapMany(r -> (Flux<Object>) r);
+        }
         //在complete future执行线程(即reference通用线程)执行
         return Mono.fromFuture(userFuture);
     }
 
     @Override
     public boolean match(Class<?> returnType) {
-        return Mono.class.equals(returnType);
+        return Mono.class.equals(returnType) || Flux.class.equals(returnType);
     }
 }
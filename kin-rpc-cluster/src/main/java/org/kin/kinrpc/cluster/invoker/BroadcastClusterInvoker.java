@@ -3,6 +3,7 @@ package org.kin.kinrpc.cluster.invoker;
 import org.kin.framework.utils.Extension;
 import org.kin.kinrpc.Invocation;
 import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCall;
 import org.kin.kinrpc.RpcResult;
 import org.kin.kinrpc.config.DefaultConfig;
 import org.kin.kinrpc.config.ReferenceConfig;
@@ -16,7 +17,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * @author huangjianqin
@@ -37,7 +37,7 @@ public class BroadcastClusterInvoker<T> extends ClusterInvoker<T> {
     }
 
     @Override
-    protected void doInvoke(Invocation invocation, CompletableFuture<Object> future) {
+    protected void doInvoke(Invocation invocation, RpcCall future) {
         List<ReferenceInvoker<?>> availableInvokers = directory.list();
         int totalSize = availableInvokers.size();
         //允许服务调用失败次数
@@ -58,7 +58,7 @@ public class BroadcastClusterInvoker<T> extends ClusterInvoker<T> {
      * @param maxFailTimes      最大rpc call fail次数
      */
     private void doInvoke0(Invocation invocation,
-                           CompletableFuture<Object> future,
+                           RpcCall future,
                            List<ReferenceInvoker<?>> availableInvokers,
                            int idx,
                            int curFailTimes,
@@ -99,7 +99,7 @@ public class BroadcastClusterInvoker<T> extends ClusterInvoker<T> {
      * @param t                 rpc call fail exception
      */
     private void onInvokeFail(Invocation invocation,
-                              CompletableFuture<Object> future,
+                              RpcCall future,
                               List<ReferenceInvoker<?>> availableInvokers,
                               int idx,
                               int curFailTimes,
@@ -25,8 +25,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 /**
  * 特殊的{@link ReferenceInvoker}实现, 不是对单一服务实例发起RPC请求, 而是有策略地从服务实例集群挑选一个服务实例并发起RPC请求
@@ -100,9 +98,9 @@ public abstract class ClusterInvoker<T> implements ReferenceInvoker<T> {
 
     @Override
     public final RpcResult invoke(Invocation invocation) {
-        CompletableFuture<Object> future = new CompletableFuture<>();
-        RpcResult rpcResult = RpcResult.success(invocation, future);
-        doInvoke(invocation, future);
+        RpcCall call = new RpcCall();
+        RpcResult rpcResult = RpcResult.success(invocation, call);
+        doInvoke(invocation, call);
         return rpcResult;
     }
 
@@ -110,9 +108,9 @@ public abstract class ClusterInvoker<T> implements ReferenceInvoker<T> {
      * 自定义invoke实现
      *
      * @param invocation rpc call信息
-     * @param future     completed future
+     * @param future     rpc call调用状态, 整个cluster invoke过程(含重试)仅complete一次
      */
-    protected abstract void doInvoke(Invocation invocation, CompletableFuture<Object> future);
+    protected abstract void doInvoke(Invocation invocation, RpcCall future);
 
     /**
      * 根据router和loadBalance策略选择一个可用的invoker实例
@@ -140,19 +138,24 @@ public abstract class ClusterInvoker<T> implements ReferenceInvoker<T> {
             }
         }
 
-        //2. list invokers
-        List<ReferenceInvoker<?>> availableInvokers = directory.list();
-        //过滤掉单次请求曾经fail的service 访问地址
-        availableInvokers = availableInvokers.stream().filter(invoker -> !excludes.contains(invoker.serviceInstance()))
-                .collect(Collectors.toList());
+        //2. list invokers, directory返回的是可用invoker快照
+        List<ReferenceInvoker<?>> snapshot = directory.list();
+        List<ReferenceInvoker<?>> availableInvokers = filter(snapshot, excludes);
         //3. route
         List<ReferenceInvoker<?>> routedInvokers = router.route(availableInvokers);
         if (CollectionUtils.isEmpty(routedInvokers)) {
             return null;
         }
 
-        //4. load balance
-        ReferenceInvoker<?> loadBalancedInvoker = loadBalance.loadBalance(invocation, routedInvokers);
+        //4. load balance, 负载均衡数据结构仅基于directory快照构建, 过滤和路由后的invokers仅作为候选invoker
+        ReferenceInvoker<?> loadBalancedInvoker = loadBalance.loadBalance(invocation, snapshot, routedInvokers);
+        if (Objects.nonNull(loadBalancedInvoker) && !loadBalancedInvoker.isWritable()) {
+            //选中invoker连接已饱和, 则从可写invoker中重新选择
+            List<ReferenceInvoker<?>> writableInvokers = filterWritable(routedInvokers);
+            if (CollectionUtils.isNonEmpty(writableInvokers)) {
+                loadBalancedInvoker = loadBalance.loadBalance(invocation, snapshot, writableInvokers);
+            }
+        }
 
         //attach
         invocation.attach(InvocationConstants.LOADBALANCE_KEY, loadBalance);
@@ -167,6 +170,45 @@ public abstract class ClusterInvoker<T> implements ReferenceInvoker<T> {
         return (ReferenceInvoker<T>) loadBalancedInvoker;
     }
 
+    /**
+     * 过滤掉单次请求曾经fail的service 访问地址
+     * 常见情况下(没有重试), 直接返回{@code invokers}, 无任何分配
+     *
+     * @param invokers 可用invokers
+     * @param excludes 不包含的invoker实例
+     * @return 过滤后的invokers
+     */
+    private List<ReferenceInvoker<?>> filter(List<ReferenceInvoker<?>> invokers, Collection<ServiceInstance> excludes) {
+        if (excludes.isEmpty()) {
+            return invokers;
+        }
+
+        List<ReferenceInvoker<?>> filtered = new ArrayList<>(invokers.size());
+        for (ReferenceInvoker<?> invoker : invokers) {
+            if (!excludes.contains(invoker.serviceInstance())) {
+                filtered.add(invoker);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * 过滤掉连接已饱和的invoker
+     * 仅当load balance选中的invoker不可写时才调用, 避免每次rpc call都检查所有invoker是否可写
+     *
+     * @param invokers 可用invokers
+     * @return 可写的invokers
+     */
+    private List<ReferenceInvoker<?>> filterWritable(List<ReferenceInvoker<?>> invokers) {
+        List<ReferenceInvoker<?>> writableInvokers = new ArrayList<>(invokers.size());
+        for (ReferenceInvoker<?> invoker : invokers) {
+            if (invoker.isWritable()) {
+                writableInvokers.add(invoker);
+            }
+        }
+        return writableInvokers;
+    }
+
     /**
      * 根据router和loadBalance策略选择一个可用的invoker实例, 然后绑定到{@code invocation}, 如果没有找到任何可用invoker, 则抛{@link InvokerNotFoundException}
      *
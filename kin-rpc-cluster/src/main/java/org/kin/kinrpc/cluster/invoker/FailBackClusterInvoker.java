@@ -9,6 +9,7 @@ import org.kin.framework.utils.Extension;
 import org.kin.framework.utils.SysUtils;
 import org.kin.kinrpc.Invocation;
 import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCall;
 import org.kin.kinrpc.RpcResult;
 import org.kin.kinrpc.ServiceInstance;
 import org.kin.kinrpc.config.DefaultConfig;
@@ -26,7 +27,6 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -64,7 +64,7 @@ public class FailBackClusterInvoker<T> extends ClusterInvoker<T> {
      * @param future     completed future
      */
     private void onFailure(Invocation invocation,
-                           CompletableFuture<Object> future) {
+                           RpcCall future) {
         if (Objects.isNull(timer)) {
             synchronized (this) {
                 if (Objects.isNull(timer)) {
@@ -84,7 +84,7 @@ public class FailBackClusterInvoker<T> extends ClusterInvoker<T> {
     }
 
     @Override
-    protected void doInvoke(Invocation invocation, CompletableFuture<Object> future) {
+    protected void doInvoke(Invocation invocation, RpcCall future) {
         selectAttachOrThrow(invocation, Collections.emptyList());
         RpcResult rpcResult = invokeFilterChain(invocation);
         rpcResult.onFinish((r, t) -> {
@@ -108,7 +108,7 @@ public class FailBackClusterInvoker<T> extends ClusterInvoker<T> {
         /** rpc call info */
         private final Invocation invocation;
         /** completed future */
-        private final CompletableFuture<Object> future;
+        private final RpcCall future;
         /** rpc call fail invoker */
         private final List<ServiceInstance> failInstances = new LinkedList<>();
 
@@ -116,7 +116,7 @@ public class FailBackClusterInvoker<T> extends ClusterInvoker<T> {
         private int retryTimes = 0;
 
         public RetryTask(Invocation invocation,
-                         CompletableFuture<Object> future,
+                         RpcCall future,
                          ReferenceInvoker<?> failInvoker) {
             this.invocation = invocation;
             this.future = future;
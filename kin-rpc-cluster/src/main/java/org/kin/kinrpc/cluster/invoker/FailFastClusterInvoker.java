@@ -2,6 +2,7 @@ package org.kin.kinrpc.cluster.invoker;
 
 import org.kin.framework.utils.Extension;
 import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.RpcCall;
 import org.kin.kinrpc.RpcResult;
 import org.kin.kinrpc.config.ReferenceConfig;
 import org.kin.kinrpc.config.RegistryConfig;
@@ -10,7 +11,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 快速失败
@@ -29,7 +29,7 @@ public class FailFastClusterInvoker<T> extends ClusterInvoker<T> {
     }
 
     @Override
-    protected void doInvoke(Invocation invocation, CompletableFuture<Object> future) {
+    protected void doInvoke(Invocation invocation, RpcCall future) {
         selectAttachOrThrow(invocation, Collections.emptyList());
         RpcResult rpcResult = invokeFilterChain(invocation);
         rpcResult.onFinish(future);
@@ -3,6 +3,7 @@ package org.kin.kinrpc.cluster.invoker;
 import org.kin.framework.utils.ClassUtils;
 import org.kin.framework.utils.Extension;
 import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.RpcCall;
 import org.kin.kinrpc.RpcResult;
 import org.kin.kinrpc.config.ReferenceConfig;
 import org.kin.kinrpc.config.RegistryConfig;
@@ -12,7 +13,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 失败安全, 即打印报错日志, 然后返回默认值
@@ -31,7 +31,7 @@ public class FailSafeClusterInvoker<T> extends ClusterInvoker<T> {
     }
 
     @Override
-    protected void doInvoke(Invocation invocation, CompletableFuture<Object> future) {
+    protected void doInvoke(Invocation invocation, RpcCall future) {
         selectAttachOrThrow(invocation, Collections.emptyList());
         RpcResult rpcResult = invokeFilterChain(invocation);
         rpcResult.onFinish((r, t) -> {
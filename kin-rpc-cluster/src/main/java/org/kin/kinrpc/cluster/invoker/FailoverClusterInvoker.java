@@ -14,7 +14,6 @@ import org.slf4j.LoggerFactory;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 失败重试
@@ -33,7 +32,7 @@ public class FailoverClusterInvoker<T> extends ClusterInvoker<T> {
     }
 
     @Override
-    protected void doInvoke(Invocation invocation, CompletableFuture<Object> future) {
+    protected void doInvoke(Invocation invocation, RpcCall future) {
         MethodConfig methodConfig = invocation.attachment(InvocationConstants.METHOD_CONFIG_KEY);
         if (Objects.isNull(methodConfig)) {
             throw new IllegalStateException("can not find method config. invocation=" + invocation);
@@ -53,7 +52,7 @@ public class FailoverClusterInvoker<T> extends ClusterInvoker<T> {
      * @param excludes   调用失败的service instance
      */
     private void doInvoke(Invocation invocation,
-                          CompletableFuture<Object> future,
+                          RpcCall future,
                           int curTimes,
                           int maxTimes,
                           Set<ServiceInstance> excludes) {
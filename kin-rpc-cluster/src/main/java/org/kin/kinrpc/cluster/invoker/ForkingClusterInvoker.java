@@ -14,7 +14,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -39,7 +38,7 @@ public class ForkingClusterInvoker<T> extends ClusterInvoker<T> {
 
     @SuppressWarnings("unchecked")
     @Override
-    protected void doInvoke(Invocation invocation, CompletableFuture<Object> future) {
+    protected void doInvoke(Invocation invocation, RpcCall future) {
         List<ServiceInstance> excludes = new CopyOnWriteArrayList<>();
         if (forks < 1) {
             //尽全力发起rpc call
@@ -72,7 +71,7 @@ public class ForkingClusterInvoker<T> extends ClusterInvoker<T> {
      * @param selected   本轮选中的{@link ReferenceInvoker}实例
      */
     private void doInvoke0(Invocation invocation,
-                           CompletableFuture<Object> future,
+                           RpcCall future,
                            ReferenceInvoker<T> selected) {
         invocation.attach(InvocationConstants.RPC_CALL_INVOKER_KEY, selected);
 
@@ -89,7 +88,7 @@ public class ForkingClusterInvoker<T> extends ClusterInvoker<T> {
      * @param t          rpc call exception
      */
     private void onRpcCallResponse(Invocation invocation,
-                                   CompletableFuture<Object> future,
+                                   RpcCall future,
                                    Object result,
                                    Throwable t) {
         if (future.isDone()) {
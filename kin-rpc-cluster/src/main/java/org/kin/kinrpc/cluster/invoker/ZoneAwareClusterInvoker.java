@@ -5,6 +5,7 @@ import org.kin.framework.utils.ExtensionLoader;
 import org.kin.framework.utils.StringUtils;
 import org.kin.kinrpc.Invocation;
 import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCall;
 import org.kin.kinrpc.RpcException;
 import org.kin.kinrpc.cluster.zone.ZoneDetector;
 import org.kin.kinrpc.config.ReferenceConfig;
@@ -17,7 +18,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -50,7 +50,7 @@ public class ZoneAwareClusterInvoker<T> extends ClusterInvoker<T> {
     }
 
     @Override
-    protected void doInvoke(Invocation invocation, CompletableFuture<Object> future) {
+    protected void doInvoke(Invocation invocation, RpcCall future) {
         //1. 优先选择
         List<ReferenceInvoker<?>> invokers = directory.list();
         for (ReferenceInvoker<?> referenceInvoker : invokers) {
@@ -1,6 +1,7 @@
 package org.kin.kinrpc.cluster.loadbalance;
 
 import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.ServiceInstance;
 
 /**
  * @author huangjianqin
@@ -16,4 +17,39 @@ public abstract class AbstractLoadBalance implements LoadBalance {
     protected int weight(ReferenceInvoker<?> invoker) {
         return invoker.serviceInstance().weight();
     }
+
+    /**
+     * 返回invoker预热后的权重, 服务预热期间权重按已运行时间占预热时间的比例线性增长, 最小为1
+     *
+     * @param invoker invoker
+     * @param now     当前时间戳, 毫秒
+     * @return invoker预热后的权重
+     */
+    protected int warmupWeight(ReferenceInvoker<?> invoker, long now) {
+        int weight = weight(invoker);
+        long warmupEndTime = warmupEndTime(invoker);
+        if (weight <= 0 || now >= warmupEndTime) {
+            return weight;
+        }
+
+        ServiceInstance instance = invoker.serviceInstance();
+        long uptime = Math.max(0, now - instance.timestamp());
+        return (int) Math.max(1, weight * uptime / instance.warmup());
+    }
+
+    /**
+     * 返回invoker预热结束时间戳, 毫秒, 没有预热则返回0
+     *
+     * @param invoker invoker
+     * @return invoker预热结束时间戳
+     */
+    protected long warmupEndTime(ReferenceInvoker<?> invoker) {
+        ServiceInstance instance = invoker.serviceInstance();
+        long warmup = instance.warmup();
+        long timestamp = instance.timestamp();
+        if (warmup <= 0 || timestamp <= 0) {
+            return 0;
+        }
+        return timestamp + warmup;
+    }
 }
@@ -1,74 +1,246 @@
 package org.kin.kinrpc.cluster.loadbalance;
 
+import org.kin.framework.utils.ExceptionUtils;
 import org.kin.kinrpc.Invocation;
 import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCallProfiler;
+import org.kin.kinrpc.config.MethodConfig;
+import org.kin.kinrpc.config.ReferenceConfig;
+import org.kin.kinrpc.constants.ConsistentHashConstants;
+import org.kin.kinrpc.constants.InvocationConstants;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.SortedMap;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 基于一致性hash的负载均衡实现(有状态服务场景)
+ * <p>
+ * hash环以有序的long[]存储, 二分查找定位invoker, 仅基于directory可用invoker快照构建, 仅当快照变化时(即服务发现或invoker可用性变化)才重建, 见{@link InvokerSnapshot}
+ * hash key默认是全部服务方法参数, 可以通过{@link MethodConfig} attachment指定参数下标或者自定义提取逻辑, 见{@link ConsistentHashConstants}
+ * 支持bounded load, invoker活跃请求数超过上限时顺延到hash环下一个invoker, 避免热点key压垮单个invoker
  *
  * @author huangjianqin
  * @date 2021/11/21
  */
 public class ConsistentHashLoadBalance extends AbstractLoadBalance {
-    /** key -> 服务方法唯一id, value -> 该服务方法对应的一致性hash环 */
-    private final ConcurrentHashMap<Integer, ConsistentHash> consistentHashMap = new ConcurrentHashMap<>();
+    /** key -> 服务唯一id, value -> 该服务对应的一致性hash环 */
+    private final ConcurrentHashMap<Integer, Ring> rings = new ConcurrentHashMap<>();
+    /** key -> 服务方法唯一id, value -> 该服务方法的hash key提取逻辑 */
+    private final ConcurrentHashMap<Integer, Function<Object[], Object>> keyExtractors = new ConcurrentHashMap<>();
 
     @Override
     public ReferenceInvoker<?> loadBalance(Invocation invocation, List<ReferenceInvoker<?>> invokers) {
+        return loadBalance(invocation, invokers, invokers);
+    }
+
+    @Override
+    public ReferenceInvoker<?> loadBalance(Invocation invocation,
+                                           List<ReferenceInvoker<?>> snapshot,
+                                           List<ReferenceInvoker<?>> invokers) {
+        if (invokers.isEmpty()) {
+            return null;
+        }
+        if (invokers.size() == 1) {
+            return invokers.get(0);
+        }
+
+        ReferenceConfig<?> referenceConfig = invocation.attachment(InvocationConstants.REFERENCE_CONFIG_KEY);
+        Ring ring = rings.get(invocation.serviceId());
+        InvokerSnapshot.Match match = Objects.nonNull(ring) ? ring.match(snapshot, invokers) : InvokerSnapshot.Match.CHANGED;
+        if (InvokerSnapshot.Match.CHANGED.equals(match)) {
+            int virtualNodes = Objects.nonNull(referenceConfig) ?
+                    referenceConfig.intAttachment(ConsistentHashConstants.VIRTUAL_NODES_KEY, ConsistentHashConstants.DEFAULT_VIRTUAL_NODES) :
+                    ConsistentHashConstants.DEFAULT_VIRTUAL_NODES;
+            ring = new Ring(snapshot, Math.max(1, virtualNodes));
+            rings.put(invocation.serviceId(), ring);
+        }
+
+        //invokers不全在hash环上时, 用于跳过不在invokers中的节点
+        Set<ReferenceInvoker<?>> candidates = null;
+        if (invokers != snapshot) {
+            //单次请求过滤后的invokers, 比如重试时排除已失败的invoker, 无需重建hash环
+            candidates = Collections.newSetFromMap(new IdentityHashMap<>(invokers.size()));
+            candidates.addAll(invokers);
+        }
+
+        long hash = HashKeys.hash(hashKey(invocation));
+        double loadFactor = Objects.nonNull(referenceConfig) ?
+                referenceConfig.doubleAttachment(ConsistentHashConstants.LOAD_FACTOR_KEY, ConsistentHashConstants.DEFAULT_LOAD_FACTOR) :
+                ConsistentHashConstants.DEFAULT_LOAD_FACTOR;
+        return ring.select(hash, candidates, invocation.handlerId(), loadFactor > 1 ? capacity(invocation, invokers, loadFactor) : Integer.MAX_VALUE);
+    }
+
+    /**
+     * bounded load, 计算每个invoker活跃请求数上限, 即ceil(loadFactor * (总活跃请求数 + 1) / invoker数)
+     *
+     * @param invocation rpc call信息
+     * @param invokers   可用invokers
+     * @param loadFactor bounded load系数
+     * @return 每个invoker活跃请求数上限
+     */
+    private int capacity(Invocation invocation, List<ReferenceInvoker<?>> invokers, double loadFactor) {
         int handlerId = invocation.handlerId();
-        int hashCode = invokers.hashCode();
-        ConsistentHash consistentHash = consistentHashMap.get(handlerId);
-        if (Objects.isNull(consistentHash) || consistentHash.hashCode != hashCode) {
-            consistentHash = new ConsistentHash(invokers, hashCode);
-            consistentHashMap.put(handlerId, consistentHash);
+        long totalActive = 0;
+        for (ReferenceInvoker<?> invoker : invokers) {
+            totalActive += active(invoker, handlerId);
         }
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(loadFactor * (totalActive + 1) / invokers.size()));
+    }
 
-        //以参数作为hash对象
-        return consistentHash.get(invocation.params());
+    /**
+     * 返回invoker当前服务方法的活跃请求数
+     */
+    private static int active(ReferenceInvoker<?> invoker, int handlerId) {
+        return RpcCallProfiler.get(invoker.hashCode(), handlerId).getActive();
     }
 
+    /**
+     * 返回hash key
+     *
+     * @param invocation rpc call信息
+     * @return hash key
+     */
+    private Object hashKey(Invocation invocation) {
+        Function<Object[], Object> keyExtractor = keyExtractors.get(invocation.handlerId());
+        if (Objects.isNull(keyExtractor)) {
+            keyExtractor = keyExtractors.computeIfAbsent(invocation.handlerId(),
+                    k -> HashKeys.parse(HashKeys.methodConfig(invocation),
+                            ConsistentHashConstants.HASH_KEY_EXTRACTOR_KEY, ConsistentHashConstants.HASH_ARGUMENTS_KEY));
+        }
+        return keyExtractor.apply(invocation.params());
+    }
+
+    /**
+     * 返回服务当前的hash环, 用于校验hash环是否重建
+     *
+     * @param serviceId 服务唯一id
+     * @return hash环
+     */
+    InvokerSnapshot getRing(int serviceId) {
+        return rings.get(serviceId);
+    }
+
+    //---------------------------------------------------------------------------------------------------------
+
     /**
      * 不可变hash环
-     * 如果发现invoker list发生变化时, 直接替换
+     * 如果发现invoker成员发生变化时, 直接替换
      */
-    private static class ConsistentHash extends org.kin.framework.utils.ConsistentHash<ReferenceInvoker<?>> {
-        /** hash环每个节点数量(含虚拟节点) */
-        private static final int HASH_NODE_NUM = 128;
-        /** hash环唯一标识, 即hashCode(list(invoker)), 用于判断invoker list是否发生变化 */
-        private final int hashCode;
+    private static class Ring extends InvokerSnapshot {
+        /** 有序的hash环节点位置 */
+        private final long[] points;
+        /** 与{@link #points}一一对应的invoker */
+        private final ReferenceInvoker<?>[] owners;
 
-        public ConsistentHash(List<ReferenceInvoker<?>> invokers, int hashCode) {
-            super(HASH_NODE_NUM);
+        Ring(List<ReferenceInvoker<?>> invokers, int virtualNodes) {
+            super(invokers);
 
-            for (ReferenceInvoker<?> invoker : invokers) {
-                add(invoker);
+            MessageDigest md5;
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                ExceptionUtils.throwExt(e);
+                throw new IllegalStateException(e);
+            }
+
+            //每次md5生成2个节点
+            int digestNum = (virtualNodes + 1) / 2;
+            int size = members.size() * digestNum * 2;
+            long[] unsortedPoints = new long[size];
+            ReferenceInvoker<?>[] unsortedOwners = new ReferenceInvoker<?>[size];
+            int i = 0;
+            for (ReferenceInvoker<?> invoker : members) {
+                String address = invoker.serviceInstance().address();
+                for (int j = 0; j < digestNum; j++) {
+                    byte[] digest = md5.digest((address + "-" + j).getBytes(StandardCharsets.UTF_8));
+                    for (int k = 0; k < 2; k++) {
+                        unsortedPoints[i] = toLong(digest, k * 8);
+                        unsortedOwners[i] = invoker;
+                        i++;
+                    }
+                }
+            }
+
+            //按节点位置排序
+            Integer[] order = new Integer[size];
+            for (int j = 0; j < size; j++) {
+                order[j] = j;
+            }
+            Arrays.sort(order, Comparator.comparingLong(j -> unsortedPoints[j]));
+            this.points = new long[size];
+            this.owners = new ReferenceInvoker<?>[size];
+            for (int j = 0; j < size; j++) {
+                points[j] = unsortedPoints[order[j]];
+                owners[j] = unsortedOwners[order[j]];
             }
-            this.hashCode = hashCode;
         }
 
-        @Override
-        protected void applySlot(SortedMap<Long, ReferenceInvoker<?>> circle, String s, ReferenceInvoker<?> node) {
-            if (hashCode == 0) {
-                //初始化
-                super.applySlot(circle, s, node);
-                return;
+        /**
+         * bytes转long, big endian
+         */
+        private static long toLong(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[offset + i] & 0xFF);
             }
-            throw new UnsupportedOperationException();
+            return value;
         }
 
-        @Override
-        protected void removeSlot(SortedMap<Long, ReferenceInvoker<?>> circle, String s) {
-            if (hashCode == 0) {
-                //初始化
-                super.removeSlot(circle, s);
-                return;
+        /**
+         * 从hash key位置开始顺时针查找第一个满足条件的invoker
+         *
+         * @param hash       hash key在hash环上的位置
+         * @param candidates 候选invoker, null表示hash环上所有invoker均可选
+         * @param handlerId  服务方法唯一id
+         * @param capacity   invoker活跃请求数上限
+         * @return selected invoker
+         */
+        ReferenceInvoker<?> select(long hash, Set<ReferenceInvoker<?>> candidates, int handlerId, int capacity) {
+            int length = points.length;
+            int start = Arrays.binarySearch(points, hash);
+            if (start < 0) {
+                start = -start - 1;
+            }
+            if (start >= length) {
+                start = 0;
+            }
+
+            if (Objects.isNull(candidates) && capacity == Integer.MAX_VALUE) {
+                return owners[start];
+            }
+
+            //第一个候选invoker, 所有候选invoker都超过bounded load上限时返回
+            ReferenceInvoker<?> first = null;
+            //已检查过的invoker
+            Set<ReferenceInvoker<?>> visited = null;
+            for (int i = 0; i < length; i++) {
+                ReferenceInvoker<?> owner = owners[(start + i) % length];
+                if (Objects.nonNull(candidates) && !candidates.contains(owner)) {
+                    continue;
+                }
+                if (capacity == Integer.MAX_VALUE) {
+                    return owner;
+                }
+                if (Objects.isNull(first)) {
+                    first = owner;
+                } else if (owner == first || (Objects.nonNull(visited) && visited.contains(owner))) {
+                    continue;
+                }
+
+                if (active(owner, handlerId) < capacity) {
+                    return owner;
+                }
+
+                if (Objects.isNull(visited)) {
+                    visited = Collections.newSetFromMap(new IdentityHashMap<>());
+                }
+                visited.add(owner);
             }
-            throw new UnsupportedOperationException();
+            return Objects.nonNull(first) ? first : owners[start];
         }
     }
 }
@@ -0,0 +1,100 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.framework.utils.StringUtils;
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.config.MethodConfig;
+import org.kin.kinrpc.constants.InvocationConstants;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 基于hash的负载均衡共用的hash key提取和hash计算逻辑
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+final class HashKeys {
+    private HashKeys() {
+    }
+
+    /**
+     * 解析服务方法配置的hash key提取逻辑
+     * 优先级: 自定义提取逻辑 > 参数下标 > 全部参数
+     *
+     * @param methodConfig 服务方法配置
+     * @param extractorKey 自定义hash key提取逻辑的attachment key
+     * @param argumentsKey 参数下标的attachment key
+     * @return hash key提取逻辑, 入参为服务方法参数
+     */
+    static Function<Object[], Object> parse(MethodConfig methodConfig, String extractorKey, String argumentsKey) {
+        if (Objects.isNull(methodConfig)) {
+            return Function.identity();
+        }
+
+        Function<Object[], Object> keyExtractor = methodConfig.attachment(extractorKey);
+        if (Objects.nonNull(keyExtractor)) {
+            return keyExtractor;
+        }
+
+        String arguments = methodConfig.attachment(argumentsKey);
+        if (StringUtils.isBlank(arguments)) {
+            return Function.identity();
+        }
+
+        String[] splits = arguments.split(",");
+        int[] indexes = new int[splits.length];
+        for (int i = 0; i < splits.length; i++) {
+            indexes[i] = Integer.parseInt(splits[i].trim());
+        }
+
+        if (indexes.length == 1) {
+            int index = indexes[0];
+            return params -> index < params.length ? params[index] : null;
+        }
+
+        return params -> {
+            Object[] keys = new Object[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                int index = indexes[i];
+                keys[i] = index < params.length ? params[index] : null;
+            }
+            return keys;
+        };
+    }
+
+    /**
+     * 返回服务方法配置
+     *
+     * @param invocation rpc call信息
+     * @return 服务方法配置
+     */
+    static MethodConfig methodConfig(Invocation invocation) {
+        return invocation.attachment(InvocationConstants.METHOD_CONFIG_KEY);
+    }
+
+    /**
+     * 计算hash key的64位hash值
+     * 基于hash key的{@link Object#hashCode()}, 所以hash key需实现稳定的hashCode, 保证不同client路由一致
+     *
+     * @param key hash key
+     * @return 64位hash值
+     */
+    static long hash(Object key) {
+        int hashCode = key instanceof Object[] ? Arrays.deepHashCode((Object[]) key) : Objects.hashCode(key);
+        return mix(hashCode);
+    }
+
+    /**
+     * murmur3 fmix64, 打散到整个long范围
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
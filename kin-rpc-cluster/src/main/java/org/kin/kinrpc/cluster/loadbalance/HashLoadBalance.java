@@ -1,26 +1,179 @@
 package org.kin.kinrpc.cluster.loadbalance;
 
-import org.kin.framework.utils.HashUtils;
+import org.kin.framework.utils.StringUtils;
 import org.kin.kinrpc.Invocation;
 import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.config.MethodConfig;
+import org.kin.kinrpc.constants.HashConstants;
 
-import java.util.List;
-import java.util.TreeMap;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
- * 基于hash的负载均衡实现
+ * 基于hash的负载均衡实现, 相同hash key的请求总是路由到同一invoker
+ * <p>
+ * 使用jump consistent hash选择invoker, O(log n)且无内存分配, invoker按address排序保证不同client路由一致
+ * invoker表仅基于directory可用invoker快照构建, 仅当快照变化时才重建, 见{@link InvokerSnapshot}
+ * 单次请求过滤后的invokers(比如重试时排除已失败的invoker)则rehash, 无需重建invoker表
+ * hash key默认是全部服务方法参数, 可以通过{@link MethodConfig} attachment指定, 见{@link HashConstants}
  *
  * @author huangjianqin
  * @date 2019/7/29
  */
 public class HashLoadBalance implements LoadBalance {
+    /** key -> 服务唯一id, value -> 该服务对应的invoker表 */
+    private final ConcurrentHashMap<Integer, Table> tables = new ConcurrentHashMap<>();
+    /** key -> 服务方法唯一id, value -> 该服务方法的hash key提取逻辑 */
+    private final ConcurrentHashMap<Integer, Function<Invocation, Object>> keyExtractors = new ConcurrentHashMap<>();
+
     @Override
     public ReferenceInvoker<?> loadBalance(Invocation invocation, List<ReferenceInvoker<?>> invokers) {
-        TreeMap<Integer, ReferenceInvoker<?>> map = new TreeMap<>();
-        for (ReferenceInvoker<?> invoker : invokers) {
-            map.put(HashUtils.efficientHash(invoker, invokers.size()), invoker);
+        return loadBalance(invocation, invokers, invokers);
+    }
+
+    @Override
+    public ReferenceInvoker<?> loadBalance(Invocation invocation,
+                                           List<ReferenceInvoker<?>> snapshot,
+                                           List<ReferenceInvoker<?>> invokers) {
+        int size = invokers.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return invokers.get(0);
+        }
+
+        Table table = tables.get(invocation.serviceId());
+        InvokerSnapshot.Match match = Objects.nonNull(table) ? table.match(snapshot, invokers) : InvokerSnapshot.Match.CHANGED;
+        if (InvokerSnapshot.Match.CHANGED.equals(match)) {
+            table = new Table(snapshot);
+            tables.put(invocation.serviceId(), table);
+        }
+
+        //invokers不全在invoker表时, 用于跳过不在invokers中的invoker
+        Set<ReferenceInvoker<?>> candidates = null;
+        if (invokers != snapshot) {
+            //单次请求过滤后的invokers, 比如重试时排除已失败的invoker, 无需重建invoker表
+            candidates = Collections.newSetFromMap(new IdentityHashMap<>(size));
+            candidates.addAll(invokers);
+        }
+        return table.select(HashKeys.hash(hashKey(invocation)), candidates, invokers);
+    }
+
+    /**
+     * 返回hash key
+     *
+     * @param invocation rpc call信息
+     * @return hash key
+     */
+    private Object hashKey(Invocation invocation) {
+        Function<Invocation, Object> keyExtractor = keyExtractors.get(invocation.handlerId());
+        if (Objects.isNull(keyExtractor)) {
+            keyExtractor = keyExtractors.computeIfAbsent(invocation.handlerId(),
+                    k -> parseKeyExtractor(HashKeys.methodConfig(invocation)));
+        }
+        return keyExtractor.apply(invocation);
+    }
+
+    /**
+     * 解析服务方法配置的hash key提取逻辑
+     *
+     * @param methodConfig 服务方法配置
+     * @return hash key提取逻辑
+     */
+    private static Function<Invocation, Object> parseKeyExtractor(MethodConfig methodConfig) {
+        if (Objects.nonNull(methodConfig)) {
+            String attachmentKey = methodConfig.attachment(HashConstants.HASH_ATTACHMENT_KEY);
+            if (StringUtils.isNotBlank(attachmentKey)) {
+                return invocation -> invocation.serverAttachments().get(attachmentKey);
+            }
         }
 
-        return map.firstEntry().getValue();
+        Function<Object[], Object> paramsKeyExtractor = HashKeys.parse(methodConfig,
+                HashConstants.HASH_KEY_EXTRACTOR_KEY, HashConstants.HASH_ARGUMENTS_KEY);
+        return invocation -> paramsKeyExtractor.apply(invocation.params());
+    }
+
+    /**
+     * jump consistent hash, 返回[0, buckets)的bucket下标
+     * 见<a href="https://arxiv.org/abs/1406.2294">A Fast, Minimal Memory, Consistent Hash Algorithm</a>
+     *
+     * @param key     hash值
+     * @param buckets bucket数量
+     * @return bucket下标
+     */
+    private static int jumpConsistentHash(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * 返回服务当前的invoker表, 用于校验invoker表是否重建
+     *
+     * @param serviceId 服务唯一id
+     * @return invoker表
+     */
+    InvokerSnapshot getTable(int serviceId) {
+        return tables.get(serviceId);
+    }
+
+    //---------------------------------------------------------------------------------------------------------
+
+    /**
+     * 不可变invoker表
+     * 如果发现invoker成员发生变化时, 直接替换
+     */
+    private static class Table extends InvokerSnapshot {
+        /** 按address排序的invoker */
+        private final ReferenceInvoker<?>[] buckets;
+
+        Table(List<ReferenceInvoker<?>> invokers) {
+            super(invokers);
+            this.buckets = members.toArray(new ReferenceInvoker<?>[0]);
+            Arrays.sort(buckets, Comparator.comparing(invoker -> invoker.serviceInstance().address()));
+        }
+
+        /**
+         * 选择invoker
+         *
+         * @param hash       hash key的hash值
+         * @param candidates 候选invoker, null表示invoker表上所有invoker均可选
+         * @param invokers   本次请求的候选invokers
+         * @return selected invoker
+         */
+        ReferenceInvoker<?> select(long hash, @Nullable Set<ReferenceInvoker<?>> candidates, List<ReferenceInvoker<?>> invokers) {
+            int length = buckets.length;
+            int index = jumpConsistentHash(hash, length);
+            ReferenceInvoker<?> selected = buckets[index];
+            if (Objects.isNull(candidates) || candidates.contains(selected)) {
+                return selected;
+            }
+
+            //选中的invoker不在候选invoker中, 则rehash, 保证同一hash key重试时仍然是确定的
+            for (int i = 0; i < length; i++) {
+                hash = HashKeys.mix(hash + 1);
+                selected = buckets[jumpConsistentHash(hash, length)];
+                if (candidates.contains(selected)) {
+                    return selected;
+                }
+            }
+
+            //多次rehash仍未命中, 则按address顺序选择下一个候选invoker
+            for (int i = 1; i < length; i++) {
+                selected = buckets[(index + i) % length];
+                if (candidates.contains(selected)) {
+                    return selected;
+                }
+            }
+            return invokers.get(0);
+        }
     }
 }
@@ -0,0 +1,83 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.ReferenceInvoker;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于directory可用invoker快照预先构建的负载均衡数据结构(比如hash环, alias表)公共逻辑
+ * <p>
+ * 仅以directory返回的不可变invoker快照作为key, 快照仅当订阅的invoker列表或invoker可用性({@link org.kin.kinrpc.common.AvailabilityVersion})变化时才重建,
+ * 单次请求过滤后的invokers(比如重试时排除已失败的invoker, 排除不可写的invoker, 路由)仅作为候选invoker过滤, 永远不会触发重建
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ * @see LoadBalance#loadBalance(org.kin.kinrpc.Invocation, List, List)
+ */
+abstract class InvokerSnapshot {
+    /**
+     * 构建时的directory invoker快照, 用于快速判断快照是否发生变化
+     * 仅会被替换为成员完全相同的快照, 所以并发替换是幂等的
+     */
+    private volatile List<ReferenceInvoker<?>> source;
+    /** 快照上的invoker, 不可变 */
+    protected final Set<ReferenceInvoker<?>> members;
+
+    protected InvokerSnapshot(List<ReferenceInvoker<?>> snapshot) {
+        this.source = snapshot;
+        Set<ReferenceInvoker<?>> members = Collections.newSetFromMap(new IdentityHashMap<>(snapshot.size()));
+        members.addAll(snapshot);
+        this.members = Collections.unmodifiableSet(members);
+    }
+
+    /**
+     * 判断本次请求与快照的关系
+     *
+     * @param snapshot directory返回的可用invoker快照
+     * @param invokers 本次请求的候选invokers, 由{@code snapshot}过滤而来
+     * @return {@link Match}
+     */
+    final Match match(List<ReferenceInvoker<?>> snapshot, List<ReferenceInvoker<?>> invokers) {
+        if (source != snapshot) {
+            if (!sameMembers(snapshot)) {
+                return Match.CHANGED;
+            }
+            //directory快照重建了, 但invoker没有变化, 比如其他服务的invoker可用性变化
+            source = snapshot;
+        }
+
+        return invokers == snapshot ? Match.SAME : Match.SUBSET;
+    }
+
+    /**
+     * {@code snapshot}上的invoker是否与快照完全相同
+     */
+    private boolean sameMembers(List<ReferenceInvoker<?>> snapshot) {
+        if (snapshot.size() != members.size()) {
+            return false;
+        }
+        for (ReferenceInvoker<?> invoker : snapshot) {
+            if (!members.contains(invoker)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //---------------------------------------------------------------------------------------------------------
+
+    /**
+     * 本次请求与快照的关系
+     */
+    enum Match {
+        /** 快照没有变化, 且本次请求没有过滤invoker, 直接使用快照 */
+        SAME,
+        /** 快照没有变化, 但本次请求过滤了invoker, 使用快照但跳过不在候选invokers中的invoker */
+        SUBSET,
+        /** directory快照上的invoker发生变化, 需重建 */
+        CHANGED,
+    }
+}
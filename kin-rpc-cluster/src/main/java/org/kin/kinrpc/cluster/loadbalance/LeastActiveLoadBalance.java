@@ -0,0 +1,54 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCallProfiler;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少活跃请求数的负载均衡实现
+ * 选择当前服务方法活跃请求数最少的invoker, 多个invoker活跃请求数相同时, 按(预热)权重随机选择
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class LeastActiveLoadBalance extends AbstractLoadBalance {
+    @Override
+    public ReferenceInvoker<?> loadBalance(Invocation invocation, List<ReferenceInvoker<?>> invokers) {
+        int size = invokers.size();
+        if (size == 1) {
+            return invokers.get(0);
+        }
+
+        int handlerId = invocation.handlerId();
+        long now = System.currentTimeMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        //最少活跃请求数
+        int leastActive = Integer.MAX_VALUE;
+        //最少活跃请求数的invoker总权重
+        long totalWeight = 0;
+        //最少活跃请求数的invoker数量
+        int leastCount = 0;
+        ReferenceInvoker<?> selected = null;
+        for (ReferenceInvoker<?> invoker : invokers) {
+            int active = RpcCallProfiler.get(invoker.hashCode(), handlerId).getActive();
+            int weight = Math.max(0, warmupWeight(invoker, now));
+            if (active < leastActive) {
+                leastActive = active;
+                totalWeight = weight;
+                leastCount = 1;
+                selected = invoker;
+            } else if (active == leastActive) {
+                //weighted reservoir sampling, 一次遍历按权重随机选择
+                totalWeight += weight;
+                leastCount++;
+                if (totalWeight > 0 ? random.nextLong(totalWeight) < weight : random.nextInt(leastCount) == 0) {
+                    selected = invoker;
+                }
+            }
+        }
+        return selected;
+    }
+}
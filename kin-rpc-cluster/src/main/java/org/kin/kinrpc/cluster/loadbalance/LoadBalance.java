@@ -22,4 +22,19 @@ public interface LoadBalance {
      * @return selected invoker
      */
     ReferenceInvoker<?> loadBalance(Invocation invocation, List<ReferenceInvoker<?>> invokers);
+
+    /**
+     * 应用负载均衡策略过滤invokers
+     * 基于invoker快照预先构建数据结构的负载均衡实现需覆盖该方法, 仅当{@code snapshot}变化时才重建
+     *
+     * @param snapshot directory返回的不可变可用invoker快照
+     * @param invokers 本次请求的候选invokers, 即{@code snapshot}经过单次请求过滤(比如重试时排除已失败的invoker, 排除不可写的invoker)
+     *                 和路由后的invokers, 没有过滤时就是{@code snapshot}
+     * @return selected invoker
+     */
+    default ReferenceInvoker<?> loadBalance(Invocation invocation,
+                                            List<ReferenceInvoker<?>> snapshot,
+                                            List<ReferenceInvoker<?>> invokers) {
+        return loadBalance(invocation, invokers);
+    }
 }
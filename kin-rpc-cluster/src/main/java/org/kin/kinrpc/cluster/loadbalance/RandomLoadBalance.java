@@ -4,49 +4,198 @@ import org.kin.kinrpc.Invocation;
 import org.kin.kinrpc.ReferenceInvoker;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * 基于加权random的负载均衡实现(二分法，不要遍历)
+ * 基于加权random的负载均衡实现
+ * <p>
+ * 基于Walker alias method, O(1)且无内存分配, alias表仅基于directory可用invoker快照构建, 仅当快照变化时才重建, 见{@link InvokerSnapshot}
+ * 单次请求过滤后的invokers(比如重试时排除已失败的invoker)则线性查找, 无需重建alias表
+ * 支持服务预热, 存在预热中的invoker时, 定时重建alias表以更新预热权重
  * Created by 健勤 on 2017/2/15.
  */
 public class RandomLoadBalance extends AbstractLoadBalance {
+    /** 存在预热中的invoker时, alias表重建间隔(毫秒) */
+    private static final long WARMUP_REFRESH_INTERVAL = 1_000;
+
+    /** key -> 服务唯一id, value -> 该服务对应的alias表 */
+    private final ConcurrentHashMap<Integer, AliasTable> tables = new ConcurrentHashMap<>();
+
     @Override
     public ReferenceInvoker<?> loadBalance(Invocation invocation, List<ReferenceInvoker<?>> invokers) {
+        return loadBalance(invocation, invokers, invokers);
+    }
+
+    @Override
+    public ReferenceInvoker<?> loadBalance(Invocation invocation,
+                                           List<ReferenceInvoker<?>> snapshot,
+                                           List<ReferenceInvoker<?>> invokers) {
         //invoker数量
         int length = invokers.size();
         if (length == 0) {
             return null;
         }
-        //是否所有invoker相同权重
-        boolean sameWeight = true;
-        //每个invoker的权重
-        int[] weights = new int[length];
-        //第一个invoker的权重
-        int firstWeight = weight(invokers.get(0));
-        weights[0] = firstWeight;
-        //总权重
-        int totalWeight = firstWeight;
-        for (int i = 1; i < length; i++) {
-            int weight = weight(invokers.get(i));
-            weights[i] = weight;
-            //计算总权重
-            totalWeight += weight;
-            if (sameWeight && weight != firstWeight) {
-                sameWeight = false;
-            }
-        }
-        if (totalWeight > 0 && !sameWeight) {
-            //权重不完全一样 & 至少一个invoker权重>0
+        if (length == 1) {
+            return invokers.get(0);
+        }
+
+        long now = System.currentTimeMillis();
+        AliasTable table = tables.get(invocation.serviceId());
+        InvokerSnapshot.Match match = Objects.nonNull(table) ? table.match(snapshot, invokers) : InvokerSnapshot.Match.CHANGED;
+        if (InvokerSnapshot.Match.SUBSET.equals(match)) {
+            //单次请求过滤后的invokers, 比如重试时排除已失败的invoker, 无需重建alias表
+            return linearSelect(invokers, now);
+        }
+
+        if (InvokerSnapshot.Match.CHANGED.equals(match) || now >= table.refreshTime) {
+            table = new AliasTable(snapshot, now);
+            tables.put(invocation.serviceId(), table);
+        }
+
+        if (invokers != snapshot) {
+            //快照变化的同时过滤了invoker
+            return linearSelect(invokers, now);
+        }
+        return table.select();
+    }
+
+    /**
+     * 线性查找加权random选择invoker
+     *
+     * @param invokers 可用invokers
+     * @param now      当前时间戳, 毫秒
+     * @return selected invoker
+     */
+    private ReferenceInvoker<?> linearSelect(List<ReferenceInvoker<?>> invokers, long now) {
+        int length = invokers.size();
+        int totalWeight = 0;
+        for (ReferenceInvoker<?> invoker : invokers) {
+            totalWeight += Math.max(0, warmupWeight(invoker, now));
+        }
+        if (totalWeight > 0) {
             int offset = ThreadLocalRandom.current().nextInt(totalWeight);
-            for (int i = 0; i < length; i++) {
-                offset -= weights[i];
+            for (ReferenceInvoker<?> invoker : invokers) {
+                offset -= Math.max(0, warmupWeight(invoker, now));
                 if (offset < 0) {
-                    return invokers.get(i);
+                    return invoker;
                 }
             }
         }
         //纯随机
         return invokers.get(ThreadLocalRandom.current().nextInt(length));
     }
+
+    /**
+     * 返回服务当前的alias表, 用于校验alias表是否重建
+     *
+     * @param serviceId 服务唯一id
+     * @return alias表
+     */
+    InvokerSnapshot getTable(int serviceId) {
+        return tables.get(serviceId);
+    }
+
+    //---------------------------------------------------------------------------------------------------------
+
+    /**
+     * 不可变alias表
+     * 如果发现invoker成员发生变化时, 直接替换
+     */
+    private class AliasTable extends InvokerSnapshot {
+        /** invoker */
+        private final ReferenceInvoker<?>[] invokers;
+        /** 选中第i个invoker自身的概率, 否则选中{@link #alias}[i], null表示纯随机 */
+        private final double[] probs;
+        /** 第i个invoker的alias invoker下标 */
+        private final int[] alias;
+        /** alias表需要重建的时间戳, 用于更新预热权重 */
+        private final long refreshTime;
+
+        AliasTable(List<ReferenceInvoker<?>> invokers, long now) {
+            super(invokers);
+            this.invokers = invokers.toArray(new ReferenceInvoker<?>[0]);
+
+            int length = this.invokers.length;
+            int[] weights = new int[length];
+            long totalWeight = 0;
+            //是否所有invoker相同权重
+            boolean sameWeight = true;
+            long refreshTime = Long.MAX_VALUE;
+            for (int i = 0; i < length; i++) {
+                ReferenceInvoker<?> invoker = this.invokers[i];
+                int weight = Math.max(0, warmupWeight(invoker, now));
+                weights[i] = weight;
+                totalWeight += weight;
+                if (sameWeight && weight != weights[0]) {
+                    sameWeight = false;
+                }
+
+                long warmupEndTime = warmupEndTime(invoker);
+                if (now < warmupEndTime) {
+                    refreshTime = Math.min(refreshTime, Math.min(warmupEndTime, now + WARMUP_REFRESH_INTERVAL));
+                }
+            }
+            this.refreshTime = refreshTime;
+
+            if (totalWeight <= 0 || sameWeight) {
+                this.probs = null;
+                this.alias = null;
+                return;
+            }
+
+            //Vose's alias method
+            double[] probs = new double[length];
+            int[] alias = new int[length];
+            double[] scaled = new double[length];
+            int[] small = new int[length];
+            int[] large = new int[length];
+            int smallSize = 0;
+            int largeSize = 0;
+            for (int i = 0; i < length; i++) {
+                scaled[i] = (double) weights[i] * length / totalWeight;
+                if (scaled[i] < 1) {
+                    small[smallSize++] = i;
+                } else {
+                    large[largeSize++] = i;
+                }
+            }
+            while (smallSize > 0 && largeSize > 0) {
+                int less = small[--smallSize];
+                int more = large[--largeSize];
+                probs[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallSize++] = more;
+                } else {
+                    large[largeSize++] = more;
+                }
+            }
+            //剩余的概率均为1(浮点误差)
+            while (largeSize > 0) {
+                probs[large[--largeSize]] = 1;
+            }
+            while (smallSize > 0) {
+                probs[small[--smallSize]] = 1;
+            }
+            this.probs = probs;
+            this.alias = alias;
+        }
+
+        /**
+         * 加权random选择invoker
+         *
+         * @return selected invoker
+         */
+        ReferenceInvoker<?> select() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(invokers.length);
+            if (Objects.isNull(probs) || random.nextDouble() < probs[i]) {
+                return invokers[i];
+            }
+            return invokers[alias[i]];
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCallProfiler;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最短预测响应时间的负载均衡实现
+ * 预测响应时间 = 滑动窗口内rpc call平均耗时 * (活跃请求数 + 1), 失败的rpc call(比如超时)同样计入平均耗时
+ * 滑动窗口内没有rpc call时, 使用全部rpc call平均耗时, 避免长时间没有被选中的慢invoker预测响应时间为0
+ * 多个invoker预测响应时间相同时, 选择活跃请求数最少的invoker, 仍然相同则按(预热)权重随机选择
+ * 基于滑动窗口统计, 见{@link RpcCallProfiler#getWindowAverageElapsed()}, 能在窗口时间内感知invoker变慢
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class ShortestResponseLoadBalance extends AbstractLoadBalance {
+    @Override
+    public ReferenceInvoker<?> loadBalance(Invocation invocation, List<ReferenceInvoker<?>> invokers) {
+        int size = invokers.size();
+        if (size == 1) {
+            return invokers.get(0);
+        }
+
+        int handlerId = invocation.handlerId();
+        long now = System.currentTimeMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        //最短预测响应时间
+        long shortestResponse = Long.MAX_VALUE;
+        //最短预测响应时间的invoker中最少的活跃请求数
+        int leastActive = Integer.MAX_VALUE;
+        //最短预测响应时间的invoker总权重
+        long totalWeight = 0;
+        //最短预测响应时间的invoker数量
+        int shortestCount = 0;
+        ReferenceInvoker<?> selected = null;
+        for (ReferenceInvoker<?> invoker : invokers) {
+            RpcCallProfiler rpcCallProfiler = RpcCallProfiler.get(invoker.hashCode(), handlerId);
+            long averageElapsed = rpcCallProfiler.getWindowAverageElapsed();
+            if (averageElapsed == 0) {
+                //滑动窗口内没有rpc call
+                averageElapsed = rpcCallProfiler.getAverageElapsed();
+            }
+            int active = rpcCallProfiler.getActive();
+            long estimateResponse = averageElapsed * (active + 1);
+            int weight = Math.max(0, warmupWeight(invoker, now));
+            if (estimateResponse < shortestResponse ||
+                    (estimateResponse == shortestResponse && active < leastActive)) {
+                shortestResponse = estimateResponse;
+                leastActive = active;
+                totalWeight = weight;
+                shortestCount = 1;
+                selected = invoker;
+            } else if (estimateResponse == shortestResponse && active == leastActive) {
+                //weighted reservoir sampling, 一次遍历按权重随机选择
+                totalWeight += weight;
+                shortestCount++;
+                if (totalWeight > 0 ? random.nextLong(totalWeight) < weight : random.nextInt(shortestCount) == 0) {
+                    selected = invoker;
+                }
+            }
+        }
+        return selected;
+    }
+}
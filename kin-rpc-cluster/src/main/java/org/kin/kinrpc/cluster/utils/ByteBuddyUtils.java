@@ -2,9 +2,11 @@ package org.kin.kinrpc.cluster.utils;
 
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.implementation.MethodDelegation;
 import net.bytebuddy.matcher.ElementMatchers;
 import org.kin.framework.utils.ExceptionUtils;
+import org.kin.kinrpc.cluster.ReferenceProxy;
 
 /**
  * @author huangjianqin
@@ -16,14 +18,23 @@ public final class ByteBuddyUtils {
     }
 
     @SuppressWarnings("unchecked")
-    public static <T> T build(Class<T> serviceInterface, Object proxy) {
-        Class<T> proxyClass = (Class<T>) new ByteBuddy(ClassFileVersion.JAVA_V8)
+    public static <T> T build(Class<T> serviceInterface, ReferenceProxy proxy) {
+        DynamicType.Builder<T> builder = new ByteBuddy(ClassFileVersion.JAVA_V8)
                 .subclass(serviceInterface)
                 .name(serviceInterface.getSimpleName() + "Reference")
                 //过滤默认方法和Object定义的方法
                 .method(ElementMatchers.not(ElementMatchers.isDefaultMethod())
                         .and(ElementMatchers.not(ElementMatchers.isDeclaredBy(Object.class))))
-                .intercept(MethodDelegation.to(proxy))
+                .intercept(MethodDelegation.to(proxy));
+
+        //非泛化调用, 服务方法直接委托给对应的stub, 后注册的matcher优先匹配
+        int idx = 0;
+        for (ReferenceProxy.MethodStub methodStub : proxy.getMethodStubs()) {
+            builder = builder.method(ElementMatchers.is(methodStub.method()))
+                    .intercept(MethodDelegation.to(methodStub, "methodStub$" + idx++));
+        }
+
+        Class<T> proxyClass = (Class<T>) builder
                 .make()
                 .load(serviceInterface.getClassLoader())
                 .getLoaded();
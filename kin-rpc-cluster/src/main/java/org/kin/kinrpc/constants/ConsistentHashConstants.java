@@ -0,0 +1,36 @@
+package org.kin.kinrpc.constants;
+
+/**
+ * 一致性hash负载均衡相关配置
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public final class ConsistentHashConstants {
+    /**
+     * 作为hash key的服务方法参数下标, 逗号分隔, 比如"0,2"
+     * 配置在{@link org.kin.kinrpc.config.MethodConfig} attachment, 没有配置则以全部参数作为hash key
+     */
+    public static final String HASH_ARGUMENTS_KEY = "consistentHash.arguments";
+    /**
+     * 自定义hash key提取逻辑, 值类型为{@code Function<Object[], Object>}, 入参为服务方法参数
+     * 配置在{@link org.kin.kinrpc.config.MethodConfig} attachment, 优先级高于{@link #HASH_ARGUMENTS_KEY}
+     */
+    public static final String HASH_KEY_EXTRACTOR_KEY = "consistentHash.keyExtractor";
+    /** 每个invoker在hash环上的虚拟节点数量, 配置在reference config attachment */
+    public static final String VIRTUAL_NODES_KEY = "consistentHash.virtualNodes";
+    /**
+     * bounded load系数, 即invoker活跃请求数不能超过平均活跃请求数的多少倍, 超过则顺延到hash环下一个invoker
+     * 配置在reference config attachment, 小于等于1表示不限制
+     */
+    public static final String LOAD_FACTOR_KEY = "consistentHash.loadFactor";
+
+    //-------------------------------------------------------------------------------------default
+    /** 默认每个invoker在hash环上的虚拟节点数量 */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+    /** 默认bounded load系数, 不限制 */
+    public static final double DEFAULT_LOAD_FACTOR = 0;
+
+    private ConsistentHashConstants() {
+    }
+}
@@ -0,0 +1,28 @@
+package org.kin.kinrpc.constants;
+
+/**
+ * hash负载均衡相关配置
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public final class HashConstants {
+    /**
+     * 作为hash key的服务方法参数下标, 逗号分隔, 比如"0,2"
+     * 配置在{@link org.kin.kinrpc.config.MethodConfig} attachment, 没有配置则以全部参数作为hash key
+     */
+    public static final String HASH_ARGUMENTS_KEY = "hash.arguments";
+    /**
+     * 自定义hash key提取逻辑, 值类型为{@code Function<Object[], Object>}, 入参为服务方法参数
+     * 配置在{@link org.kin.kinrpc.config.MethodConfig} attachment, 优先级高于{@link #HASH_ARGUMENTS_KEY}
+     */
+    public static final String HASH_KEY_EXTRACTOR_KEY = "hash.keyExtractor";
+    /**
+     * 作为hash key的rpc context attachment key, 即以{@link org.kin.kinrpc.RpcContext#attach(String, String)}的value作为hash key
+     * 配置在{@link org.kin.kinrpc.config.MethodConfig} attachment, 优先级最高
+     */
+    public static final String HASH_ATTACHMENT_KEY = "hash.attachment";
+
+    private HashConstants() {
+    }
+}
@@ -5,11 +5,18 @@ package org.kin.kinrpc.constants;
  * @date 2023/8/17
  */
 public final class PeakEWMAConstants {
-    /** peak EWMA数据的生命周期时间 */
+    /**
+     * peak EWMA数据的生命周期时间
+     *
+     * @deprecated 响应时间peak EWMA改由{@link org.kin.kinrpc.RpcCallProfiler}统一维护,
+     * 使用系统变量{@link KinRpcSystemProperties#PEAK_EWMA_DECAY_TIME}配置衰减时间
+     */
+    @Deprecated
     public static final String LIFE_TIME_KEY = "peakEwma.lifeTime";
 
     //-------------------------------------------------------------------------------------default
     /** 默认peak EWMA数据的生命周期时间 */
+    @Deprecated
     public static final int DEFAULT_LIFE_TIME = 3_000;
 
     private PeakEWMAConstants() {
@@ -0,0 +1,96 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.ServiceInstance;
+import org.kin.kinrpc.cluster.invoker.FailFastClusterInvoker;
+import org.kin.kinrpc.config.LoadBalanceType;
+import org.kin.kinrpc.config.ReferenceConfig;
+import org.kin.kinrpc.config.RouterType;
+import org.kin.kinrpc.registry.directory.StaticDirectory;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 统计10/100/1000个invoker时{@link org.kin.kinrpc.cluster.invoker.ClusterInvoker#select(Invocation, Collection)}每次选择的耗时,
+ * 包括directory list, route和load balance
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class ClusterInvokerSelectBenchmark {
+    /** invoker数量 */
+    private static final int[] INVOKERS = {10, 100, 1_000};
+    /** hash key数量, 2的幂 */
+    private static final int KEYS = 1_024;
+    /** 预热调用次数 */
+    private static final int WARMUP = 200_000;
+    /** 统计调用次数 */
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) {
+        Invocation[] invocations = new Invocation[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            invocations[i] = LoadBalanceTestUtils.invocation("key-" + i);
+        }
+
+        for (LoadBalanceType loadBalanceType : new LoadBalanceType[]{LoadBalanceType.RANDOM, LoadBalanceType.HASH}) {
+            for (int num : INVOKERS) {
+                SelectClusterInvoker clusterInvoker = new SelectClusterInvoker(loadBalanceType, num);
+                for (int round = 0; round < 3; round++) {
+                    System.out.printf("round %d, %s, %d invokers: %.2f ns/op%n", round, loadBalanceType.getName(), num,
+                            measure(clusterInvoker, invocations));
+                }
+            }
+        }
+    }
+
+    /**
+     * 预热后统计平均每次选择耗时
+     *
+     * @return 平均每次选择耗时(ns)
+     */
+    private static double measure(SelectClusterInvoker clusterInvoker, Invocation[] invocations) {
+        //防止jit消除调用
+        long blackhole = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            blackhole += clusterInvoker.select(invocations[i & (KEYS - 1)]).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += clusterInvoker.select(invocations[i & (KEYS - 1)]).hashCode();
+        }
+        long cost = System.nanoTime() - start;
+        if (blackhole == 0) {
+            System.out.println(blackhole);
+        }
+        return (double) cost / ITERATIONS;
+    }
+
+    //---------------------------------------------------------------------------------------------------------
+
+    /**
+     * 暴露{@link #select(Invocation, Collection)}的cluster invoker
+     */
+    private static final class SelectClusterInvoker extends FailFastClusterInvoker<LoadBalanceTestUtils.Greeter> {
+        SelectClusterInvoker(LoadBalanceType loadBalanceType, int num) {
+            super(ReferenceConfig.create(LoadBalanceTestUtils.Greeter.class)
+                            .group("kinrpc")
+                            .serviceName("loadbalance")
+                            .version("0.1.0.0")
+                            .loadBalance(loadBalanceType)
+                            .router(RouterType.NONE),
+                    null,
+                    new StaticDirectory(LoadBalanceTestUtils.invokers(num, 100)));
+        }
+
+        /**
+         * 无排除invoker的选择, 即无重试的常见情况
+         */
+        ReferenceInvoker<LoadBalanceTestUtils.Greeter> select(Invocation invocation) {
+            return select(invocation, Collections.<ServiceInstance>emptyList());
+        }
+    }
+}
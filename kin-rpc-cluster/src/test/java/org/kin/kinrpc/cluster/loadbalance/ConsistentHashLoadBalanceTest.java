@@ -0,0 +1,80 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 校验一致性hash负载均衡的路由稳定性, 分布以及invoker成员变化后hash环重建, 单次请求过滤不会触发重建
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class ConsistentHashLoadBalanceTest {
+    /** hash key数量 */
+    private static final int KEYS = 10_000;
+
+    public static void main(String[] args) {
+        ConsistentHashLoadBalance loadBalance = new ConsistentHashLoadBalance();
+        List<ReferenceInvoker<?>> invokers = LoadBalanceTestUtils.invokers(5, 100);
+
+        //路由稳定且分布均匀
+        Map<String, ReferenceInvoker<?>> routes = new HashMap<>(KEYS);
+        Map<ReferenceInvoker<?>, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            String key = "key-" + i;
+            ReferenceInvoker<?> selected = loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), invokers);
+            if (selected != loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), new ArrayList<>(invokers))) {
+                throw new IllegalStateException("same key routes to different invoker");
+            }
+            routes.put(key, selected);
+            counts.merge(selected, 1, Integer::sum);
+        }
+        for (ReferenceInvoker<?> invoker : invokers) {
+            int count = counts.getOrDefault(invoker, 0);
+            if (count < KEYS / 10 || count > KEYS * 3 / 10) {
+                throw new IllegalStateException(String.format("unbalanced distribution, %s: %d", invoker, count));
+            }
+        }
+
+        //单次请求过滤后的invokers, 不能选中被排除的invoker, 重复相同的过滤结果也不会重建hash环
+        Invocation invocation = LoadBalanceTestUtils.invocation("key-0");
+        InvokerSnapshot ring = loadBalance.getRing(invocation.serviceId());
+        ReferenceInvoker<?> removed = invokers.get(0);
+        List<ReferenceInvoker<?>> filtered = new ArrayList<>(invokers.subList(1, invokers.size()));
+        for (int i = 0; i < 100; i++) {
+            if (loadBalance.loadBalance(LoadBalanceTestUtils.invocation("key-" + i), invokers, filtered) == removed) {
+                throw new IllegalStateException("excluded invoker is selected");
+            }
+        }
+        if (loadBalance.getRing(invocation.serviceId()) != ring) {
+            throw new IllegalStateException("hash ring is rebuilt by filtered invokers");
+        }
+
+        //invoker下线, 重建hash环后仅路由到该invoker的key发生变化
+        List<ReferenceInvoker<?>> shrunk = new ArrayList<>(filtered);
+        int remapped = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "key-" + i;
+            ReferenceInvoker<?> selected = loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), shrunk);
+            ReferenceInvoker<?> before = routes.get(key);
+            if (selected == removed) {
+                throw new IllegalStateException("removed invoker is selected");
+            }
+            if (selected != before) {
+                if (before != removed) {
+                    throw new IllegalStateException("key not owned by removed invoker is remapped, " + key);
+                }
+                remapped++;
+            }
+        }
+        if (remapped != counts.get(removed)) {
+            throw new IllegalStateException(String.format("remapped %d keys, expect %d", remapped, counts.get(removed)));
+        }
+        System.out.println("consistent hash load balance check passed");
+    }
+}
@@ -0,0 +1,67 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 统计1000个invoker时hash负载均衡每次选择的耗时, 包括未过滤和单次请求过滤(重试排除一个invoker)两种情况
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class HashLoadBalanceBenchmark {
+    /** invoker数量 */
+    private static final int INVOKERS = 1_000;
+    /** hash key数量, 2的幂 */
+    private static final int KEYS = 1_024;
+    /** 预热调用次数 */
+    private static final int WARMUP = 200_000;
+    /** 统计调用次数 */
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) {
+        HashLoadBalance loadBalance = new HashLoadBalance();
+        //与directory一致, 不可变快照
+        List<ReferenceInvoker<?>> snapshot = Collections.unmodifiableList(LoadBalanceTestUtils.invokers(INVOKERS, 100));
+        List<ReferenceInvoker<?>> filtered = new ArrayList<>(snapshot);
+        filtered.remove(INVOKERS / 2);
+        Invocation[] invocations = new Invocation[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            invocations[i] = LoadBalanceTestUtils.invocation("key-" + i);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("round %d, %d invokers, snapshot: %.2f ns/op, filtered: %.2f ns/op%n", round, INVOKERS,
+                    measure(loadBalance, invocations, snapshot, snapshot),
+                    measure(loadBalance, invocations, snapshot, filtered));
+        }
+    }
+
+    /**
+     * 预热后统计平均每次选择耗时
+     *
+     * @return 平均每次选择耗时(ns)
+     */
+    private static double measure(HashLoadBalance loadBalance, Invocation[] invocations,
+                                  List<ReferenceInvoker<?>> snapshot, List<ReferenceInvoker<?>> invokers) {
+        //防止jit消除调用
+        long blackhole = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            blackhole += loadBalance.loadBalance(invocations[i & (KEYS - 1)], snapshot, invokers).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += loadBalance.loadBalance(invocations[i & (KEYS - 1)], snapshot, invokers).hashCode();
+        }
+        long cost = System.nanoTime() - start;
+        if (blackhole == 0) {
+            System.out.println(blackhole);
+        }
+        return (double) cost / ITERATIONS;
+    }
+}
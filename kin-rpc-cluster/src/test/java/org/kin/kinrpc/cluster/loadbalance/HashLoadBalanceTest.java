@@ -0,0 +1,91 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 校验hash负载均衡的路由稳定性, 分布, 单次请求过滤不会触发invoker表重建, 以及address最大的invoker下线后仅迁移该invoker上的key
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class HashLoadBalanceTest {
+    /** hash key数量 */
+    private static final int KEYS = 10_000;
+
+    public static void main(String[] args) {
+        HashLoadBalance loadBalance = new HashLoadBalance();
+        List<ReferenceInvoker<?>> invokers = LoadBalanceTestUtils.invokers(5, 100);
+
+        //路由与invoker顺序无关, 且分布均匀
+        List<ReferenceInvoker<?>> reversed = new ArrayList<>(invokers);
+        Collections.reverse(reversed);
+        Map<String, ReferenceInvoker<?>> routes = new HashMap<>(KEYS);
+        Map<ReferenceInvoker<?>, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            String key = "key-" + i;
+            ReferenceInvoker<?> selected = loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), invokers);
+            if (selected != loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), reversed)) {
+                throw new IllegalStateException("route depends on invoker order");
+            }
+            routes.put(key, selected);
+            counts.merge(selected, 1, Integer::sum);
+        }
+        for (ReferenceInvoker<?> invoker : invokers) {
+            int count = counts.getOrDefault(invoker, 0);
+            if (count < KEYS * 3 / 20 || count > KEYS / 4) {
+                throw new IllegalStateException(String.format("unbalanced distribution, %s: %d", invoker, count));
+            }
+        }
+
+        //单次请求过滤后的invokers, 不能选中被排除的invoker, 同一key路由确定, 重复相同的过滤结果也不会重建invoker表
+        Invocation invocation = LoadBalanceTestUtils.invocation("key-0");
+        InvokerSnapshot table = loadBalance.getTable(invocation.serviceId());
+        ReferenceInvoker<?> excluded = invokers.get(2);
+        List<ReferenceInvoker<?>> filtered = new ArrayList<>(invokers);
+        filtered.remove(excluded);
+        for (int i = 0; i < 1_000; i++) {
+            String key = "key-" + i;
+            ReferenceInvoker<?> selected = loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), invokers, filtered);
+            if (selected == excluded) {
+                throw new IllegalStateException("excluded invoker is selected");
+            }
+            if (routes.get(key) != excluded && selected != routes.get(key)) {
+                throw new IllegalStateException("key not owned by excluded invoker is remapped, " + key);
+            }
+            if (selected != loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), invokers, filtered)) {
+                throw new IllegalStateException("same key routes to different invoker after filtered");
+            }
+        }
+        if (loadBalance.getTable(invocation.serviceId()) != table) {
+            throw new IllegalStateException("invoker table is rebuilt by filtered invokers");
+        }
+
+        //address最大的invoker下线, 即jump consistent hash最后一个bucket, 仅路由到该invoker的key发生变化
+        ReferenceInvoker<?> removed = invokers.get(invokers.size() - 1);
+        List<ReferenceInvoker<?>> shrunk = new ArrayList<>(invokers);
+        shrunk.remove(removed);
+        int remapped = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "key-" + i;
+            ReferenceInvoker<?> selected = loadBalance.loadBalance(LoadBalanceTestUtils.invocation(key), shrunk);
+            ReferenceInvoker<?> before = routes.get(key);
+            if (selected != before) {
+                if (before != removed) {
+                    throw new IllegalStateException("key not owned by removed invoker is remapped, " + key);
+                }
+                remapped++;
+            }
+        }
+        if (remapped != counts.get(removed)) {
+            throw new IllegalStateException(String.format("remapped %d keys, expect %d", remapped, counts.get(removed)));
+        }
+        System.out.println("hash load balance check passed");
+    }
+}
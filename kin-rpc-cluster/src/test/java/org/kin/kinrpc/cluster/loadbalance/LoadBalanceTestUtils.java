@@ -0,0 +1,132 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.DefaultServiceInstance;
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.MethodMetadata;
+import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcInvocation;
+import org.kin.kinrpc.RpcResult;
+import org.kin.kinrpc.ServiceInstance;
+import org.kin.kinrpc.constants.ServiceMetadataConstants;
+import org.kin.kinrpc.utils.GsvUtils;
+import org.kin.kinrpc.utils.RpcUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 负载均衡测试公共逻辑, 构造reference invoker和rpc call信息
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+final class LoadBalanceTestUtils {
+    /** 测试服务 */
+    static final String SERVICE = "kinrpc/loadbalance:0.1.0.0";
+
+    private LoadBalanceTestUtils() {
+    }
+
+    /**
+     * 构造{@code num}个相同权重的reference invoker
+     *
+     * @param num    invoker数量
+     * @param weight invoker权重
+     * @return reference invokers
+     */
+    static List<ReferenceInvoker<?>> invokers(int num, int weight) {
+        List<ReferenceInvoker<?>> invokers = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            invokers.add(invoker(i, weight));
+        }
+        return invokers;
+    }
+
+    /**
+     * 构造reference invoker
+     *
+     * @param index  invoker下标, 用于生成端口
+     * @param weight invoker权重
+     * @return reference invoker
+     */
+    static ReferenceInvoker<?> invoker(int index, int weight) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(ServiceMetadataConstants.WEIGHT_KEY, Integer.toString(weight));
+        return new TestReferenceInvoker(new DefaultServiceInstance(SERVICE, "127.0.0.1", 16000 + index, metadata));
+    }
+
+    /**
+     * 构造{@link Greeter#greet(String)}的rpc call信息
+     *
+     * @param name 服务方法参数
+     * @return rpc call信息
+     */
+    static Invocation invocation(String name) {
+        MethodMetadata methodMetadata = RpcUtils.getMethodMetadataMap(SERVICE, Greeter.class).values().iterator().next();
+        return new RpcInvocation(GsvUtils.serviceId(SERVICE), SERVICE, "loadbalance", Greeter.class,
+                new Object[]{name}, Collections.emptyMap(), methodMetadata);
+    }
+
+    /**
+     * 测试服务接口
+     */
+    interface Greeter {
+        String greet(String name);
+    }
+
+    /**
+     * 测试用的reference invoker, 基于address实现equals和hashCode
+     */
+    private static final class TestReferenceInvoker implements ReferenceInvoker<Object> {
+        private final ServiceInstance instance;
+
+        TestReferenceInvoker(ServiceInstance instance) {
+            this.instance = instance;
+        }
+
+        @Override
+        public ServiceInstance serviceInstance() {
+            return instance;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+            //do nothing
+        }
+
+        @Override
+        public RpcResult invoke(Invocation invocation) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TestReferenceInvoker that = (TestReferenceInvoker) o;
+            return instance.address().equals(that.instance.address());
+        }
+
+        @Override
+        public int hashCode() {
+            return instance.address().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return instance.address();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCallProfiler;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
+
+import java.util.List;
+
+/**
+ * 校验peak EWMA在读取时按时间衰减, 一段时间没有rpc call的慢invoker能重新被选中
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class PeakEWMALoadBalanceTest {
+    /** peak EWMA衰减时间(毫秒) */
+    private static final int DECAY_TIME = 200;
+
+    public static void main(String[] args) throws InterruptedException {
+        //需在RpcCallProfiler类加载前设置
+        System.setProperty(KinRpcSystemProperties.PEAK_EWMA_DECAY_TIME, Integer.toString(DECAY_TIME));
+
+        PeakEWMALoadBalance loadBalance = new PeakEWMALoadBalance();
+        Invocation invocation = LoadBalanceTestUtils.invocation("kinrpc");
+        int handlerId = invocation.handlerId();
+        List<ReferenceInvoker<?>> invokers = LoadBalanceTestUtils.invokers(2, 100);
+        ReferenceInvoker<?> slow = invokers.get(0);
+        ReferenceInvoker<?> fast = invokers.get(1);
+
+        record(slow, handlerId, 500);
+        record(fast, handlerId, 50);
+        if (loadBalance.loadBalance(invocation, invokers) != fast) {
+            throw new IllegalStateException("slow invoker is selected");
+        }
+
+        //读取时衰减
+        RpcCallProfiler slowProfiler = RpcCallProfiler.get(slow.hashCode(), handlerId);
+        double before = slowProfiler.getEwmaResponse();
+        Thread.sleep(DECAY_TIME * 2);
+        double after = slowProfiler.getEwmaResponse();
+        if (!(after < before * 0.3)) {
+            throw new IllegalStateException(String.format("peak EWMA is not decayed on read, before: %.2f, after: %.2f", before, after));
+        }
+
+        //慢invoker长时间没有rpc call, 衰减后低于持续有rpc call的快invoker
+        Thread.sleep(DECAY_TIME * 10);
+        record(fast, handlerId, 50);
+        if (loadBalance.loadBalance(invocation, invokers) != slow) {
+            throw new IllegalStateException("idle slow invoker is never selected again");
+        }
+        System.out.println("peak EWMA load balance check passed");
+    }
+
+    /**
+     * 模拟一次已完成的rpc call
+     */
+    private static void record(ReferenceInvoker<?> invoker, int handlerId, long elapsed) {
+        RpcCallProfiler.watch(invoker.hashCode(), handlerId);
+        RpcCallProfiler.end(invoker.hashCode(), handlerId, elapsed, true);
+    }
+}
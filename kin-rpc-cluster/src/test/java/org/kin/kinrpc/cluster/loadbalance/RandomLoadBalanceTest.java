@@ -0,0 +1,75 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 校验加权random负载均衡的分布, 以及invoker过滤和下线后不会选中被排除的invoker, 过滤不会触发alias表重建
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class RandomLoadBalanceTest {
+    /** 选择次数 */
+    private static final int SAMPLES = 200_000;
+
+    public static void main(String[] args) {
+        RandomLoadBalance loadBalance = new RandomLoadBalance();
+        Invocation invocation = LoadBalanceTestUtils.invocation("kinrpc");
+        List<ReferenceInvoker<?>> invokers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            invokers.add(LoadBalanceTestUtils.invoker(i, (i + 1) * 100));
+        }
+
+        //按权重分布
+        check(loadBalance, invocation, invokers);
+
+        //单次请求过滤后的invokers, 不能选中被排除的invoker, 重复相同的过滤结果也不会重建alias表
+        InvokerSnapshot table = loadBalance.getTable(invocation.serviceId());
+        ReferenceInvoker<?> removed = invokers.get(3);
+        List<ReferenceInvoker<?>> filtered = new ArrayList<>(invokers.subList(0, 3));
+        for (int i = 0; i < 100; i++) {
+            if (loadBalance.loadBalance(invocation, invokers, filtered) == removed) {
+                throw new IllegalStateException("excluded invoker is selected");
+            }
+        }
+        if (loadBalance.getTable(invocation.serviceId()) != table) {
+            throw new IllegalStateException("alias table is rebuilt by filtered invokers");
+        }
+
+        //invoker下线, 重建alias表后按剩余invoker权重分布
+        List<ReferenceInvoker<?>> shrunk = new ArrayList<>(filtered);
+        check(loadBalance, invocation, shrunk);
+        System.out.println("random load balance check passed");
+    }
+
+    /**
+     * 校验选中次数与invoker权重成正比
+     */
+    private static void check(RandomLoadBalance loadBalance, Invocation invocation, List<ReferenceInvoker<?>> invokers) {
+        Map<ReferenceInvoker<?>, Integer> counts = new HashMap<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            counts.merge(loadBalance.loadBalance(invocation, invokers), 1, Integer::sum);
+        }
+        if (counts.size() != invokers.size() || !invokers.containsAll(counts.keySet())) {
+            throw new IllegalStateException("selected invokers not match, " + counts.keySet());
+        }
+
+        int totalWeight = 0;
+        for (ReferenceInvoker<?> invoker : invokers) {
+            totalWeight += invoker.serviceInstance().weight();
+        }
+        for (ReferenceInvoker<?> invoker : invokers) {
+            double expect = (double) invoker.serviceInstance().weight() / totalWeight;
+            double actual = (double) counts.get(invoker) / SAMPLES;
+            if (Math.abs(actual - expect) > 0.01) {
+                throw new IllegalStateException(String.format("unexpected distribution, %s: %.4f, expect %.4f", invoker, actual, expect));
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.kin.kinrpc.cluster.loadbalance;
+
+import org.kin.kinrpc.Invocation;
+import org.kin.kinrpc.ReferenceInvoker;
+import org.kin.kinrpc.RpcCallProfiler;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 校验最短预测响应时间负载均衡计入失败的rpc call, 滑动窗口为空时使用全部rpc call平均耗时, 以及按活跃请求数打破平局
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class ShortestResponseLoadBalanceTest {
+    /** 滑动窗口时间(毫秒) */
+    private static final int WINDOW_TIME = 1_000;
+    /** 选择次数 */
+    private static final int SAMPLES = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        //需在RpcCallProfiler类加载前设置
+        System.setProperty(KinRpcSystemProperties.PROFILER_WINDOW_TIME, Integer.toString(WINDOW_TIME));
+
+        ShortestResponseLoadBalance loadBalance = new ShortestResponseLoadBalance();
+        Invocation invocation = LoadBalanceTestUtils.invocation("kinrpc");
+        int handlerId = invocation.handlerId();
+        ReferenceInvoker<?> stable = LoadBalanceTestUtils.invoker(0, 100);
+        ReferenceInvoker<?> timeout = LoadBalanceTestUtils.invoker(1, 100);
+        List<ReferenceInvoker<?>> invokers = Arrays.asList(stable, timeout);
+
+        //失败的rpc call(比如超时)同样计入滑动窗口
+        for (int i = 0; i < 10; i++) {
+            record(stable, handlerId, 10, true);
+            record(timeout, handlerId, 1_000, false);
+        }
+        record(timeout, handlerId, 1, true);
+        long windowTotal = RpcCallProfiler.get(timeout.hashCode(), handlerId).getWindowTotal();
+        if (windowTotal != 11) {
+            throw new IllegalStateException("failed rpc calls are not counted in window, window total: " + windowTotal);
+        }
+        checkAlwaysSelect(loadBalance, invocation, invokers, stable);
+
+        //滑动窗口为空时使用全部rpc call平均耗时
+        Thread.sleep(WINDOW_TIME * 3 / 2);
+        if (RpcCallProfiler.get(timeout.hashCode(), handlerId).getWindowTotal() != 0) {
+            throw new IllegalStateException("window is not expired");
+        }
+        checkAlwaysSelect(loadBalance, invocation, invokers, stable);
+
+        //没有统计数据时, 选择活跃请求数最少的invoker
+        ReferenceInvoker<?> busy = LoadBalanceTestUtils.invoker(2, 100);
+        ReferenceInvoker<?> idle = LoadBalanceTestUtils.invoker(3, 100);
+        RpcCallProfiler.watch(busy.hashCode(), handlerId);
+        checkAlwaysSelect(loadBalance, invocation, Arrays.asList(busy, idle), idle);
+        System.out.println("shortest response load balance check passed");
+    }
+
+    /**
+     * 模拟一次已完成的rpc call
+     */
+    private static void record(ReferenceInvoker<?> invoker, int handlerId, long elapsed, boolean succeeded) {
+        RpcCallProfiler.watch(invoker.hashCode(), handlerId);
+        RpcCallProfiler.end(invoker.hashCode(), handlerId, elapsed, succeeded);
+    }
+
+    /**
+     * 校验总是选中{@code expect}
+     */
+    private static void checkAlwaysSelect(ShortestResponseLoadBalance loadBalance,
+                                          Invocation invocation,
+                                          List<ReferenceInvoker<?>> invokers,
+                                          ReferenceInvoker<?> expect) {
+        for (int i = 0; i < SAMPLES; i++) {
+            ReferenceInvoker<?> selected = loadBalance.loadBalance(invocation, invokers);
+            if (selected != expect) {
+                throw new IllegalStateException(String.format("select %s, expect %s", selected, expect));
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.kin.kinrpc.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局可用性版本号
+ * 任意remoting client可用性发生变化时递增, 用于判断缓存的可用invoker快照是否需要重建
+ * 可用性变化频率很低, 因此全局共享一个版本号即可
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+public final class AvailabilityVersion {
+    /** 可用性版本号 */
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private AvailabilityVersion() {
+    }
+
+    /**
+     * 返回当前可用性版本号
+     *
+     * @return 当前可用性版本号
+     */
+    public static long current() {
+        return VERSION.get();
+    }
+
+    /**
+     * 可用性发生变化, 递增版本号
+     */
+    public static void increment() {
+        VERSION.incrementAndGet();
+    }
+}
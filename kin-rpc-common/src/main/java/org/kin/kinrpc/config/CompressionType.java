@@ -0,0 +1,23 @@
+package org.kin.kinrpc.config;
+
+/**
+ * @author huangjianqin
+ * @date 2023/9/8
+ */
+public enum CompressionType {
+    /** snappy, 基于netty实现, 无需引入额外依赖 */
+    SNAPPY("snappy"),
+    /** lz4, 需引入lz4-java */
+    LZ4("lz4"),
+    ;
+    private final String name;
+
+    CompressionType(String name) {
+        this.name = name;
+    }
+
+    //getter
+    public String getName() {
+        return name;
+    }
+}
@@ -32,6 +32,8 @@ public final class DefaultConfig {
     public static final Boolean DEFAULT_METHOD_STICKY = false;
     /** @see MethodConfig#isValidation() */
     public static final Boolean DEFAULT_METHOD_VALIDATION = true;
+    /** @see MethodConfig#getCompressionThreshold() */
+    public static final Integer DEFAULT_METHOD_COMPRESSION_THRESHOLD = 4096;
 
 
     //--------------------------------------------------------------------executor
@@ -81,6 +83,8 @@ public final class DefaultConfig {
     public static final String DEFAULT_SERVICE_BOOTSTRAP = BootstrapType.DEFAULT.getName();
     /** 默认延迟发布时间 */
     public static final Long DEFAULT_SERVICE_DELAY = 0L;
+    /** 默认不预热 */
+    public static final Long DEFAULT_SERVICE_WARMUP = 0L;
     /** 默认同步发布 */
     public static final Boolean DEFAULT_SERVICE_EXPORT_ASYNC = false;
     /** 默认注册到注册中心 */
@@ -13,6 +13,10 @@ public enum LoadBalanceType {
     ROUND_ROBIN("roundRobin"),
     /** Peak EWMA */
     PEAK_EWMA("PeakEWMA"),
+    /** least active */
+    LEAST_ACTIVE("leastActive"),
+    /** shortest response */
+    SHORTEST_RESPONSE("shortestResponse"),
     ;
 
     private final String name;
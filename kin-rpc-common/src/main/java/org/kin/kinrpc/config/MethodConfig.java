@@ -28,6 +28,10 @@ public class MethodConfig extends AttachableConfig<MethodConfig> {
     private String cache;
     /** 是否开启参数调用 */
     private Boolean validation;
+    /** request和response payload压缩类型, 为空则不压缩, 仅当provider声明支持该压缩类型时生效 */
+    private String compression;
+    /** payload超过该字节数才压缩 */
+    private Integer compressionThreshold;
 
     public static MethodConfig create(String name) {
         return new MethodConfig().name(name);
@@ -41,6 +45,7 @@ public class MethodConfig extends AttachableConfig<MethodConfig> {
         super.checkValid();
         check(StringUtils.isNotBlank(name), "method name must be not blank");
         check(timeout > 0, "method rpc call timeout must be greater than 0");
+        check(compressionThreshold >= 0, "method compression threshold must be greater than or equal to 0");
     }
 
     @Override
@@ -65,6 +70,10 @@ public class MethodConfig extends AttachableConfig<MethodConfig> {
         if (Objects.isNull(validation)) {
             validation = DefaultConfig.DEFAULT_METHOD_VALIDATION;
         }
+
+        if (Objects.isNull(compressionThreshold)) {
+            compressionThreshold = DefaultConfig.DEFAULT_METHOD_COMPRESSION_THRESHOLD;
+        }
     }
 
     //setter && getter
@@ -154,6 +163,28 @@ public class MethodConfig extends AttachableConfig<MethodConfig> {
         return validation(true);
     }
 
+    public String getCompression() {
+        return compression;
+    }
+
+    public MethodConfig compression(String compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public MethodConfig compression(CompressionType compressionType) {
+        return compression(compressionType.getName());
+    }
+
+    public Integer getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public MethodConfig compressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "MethodConfig{" +
@@ -164,6 +195,8 @@ public class MethodConfig extends AttachableConfig<MethodConfig> {
                 ", sticky=" + sticky +
                 "cache='" + cache + '\'' +
                 ", validation=" + validation +
+                ", compression='" + compression + '\'' +
+                ", compressionThreshold=" + compressionThreshold +
                 ", " + super.toString() +
                 '}';
     }
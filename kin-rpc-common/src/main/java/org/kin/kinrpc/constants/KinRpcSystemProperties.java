@@ -12,6 +12,34 @@ public final class KinRpcSystemProperties {
     //------------------------------------------------------------------------------------cluster
     /** failback cluster重试间隔 */
     public static final String FAILBACK_RETRY_PERIOD = "kinrpc.cluster.failback.period";
+    /** rpc call响应时间peak EWMA衰减时间(毫秒) */
+    public static final String PEAK_EWMA_DECAY_TIME = "kinrpc.cluster.peakEwma.decayTime";
+    /** rpc call滑动窗口统计的窗口时间(毫秒) */
+    public static final String PROFILER_WINDOW_TIME = "kinrpc.cluster.profiler.windowTime";
+
+    //------------------------------------------------------------------------------------transport
+    /** transport协议支持的最高版本号, 每个连接会与对端协商实际使用的版本号 */
+    public static final String TRANSPORT_VERSION = "kinrpc.transport.version";
+    /** 是否支持基于header table编码command metadata */
+    public static final String TRANSPORT_HEADER_TABLE = "kinrpc.transport.headerTable";
+    /** 是否支持基于class table编码message data class */
+    public static final String TRANSPORT_CLASS_TABLE = "kinrpc.transport.classTable";
+    /** 是否在transport io线程解码command header, 并按command类型分派 */
+    public static final String TRANSPORT_IO_THREAD_DISPATCH = "kinrpc.transport.ioThreadDispatch";
+    /** request超时时间轮tick间隔(毫秒), 即超时精度 */
+    public static final String TRANSPORT_TIMEOUT_TICK = "kinrpc.transport.timeout.tick";
+    /** 没有设置超时的request最长等待时间(毫秒), 超过则认为response已丢失 */
+    public static final String TRANSPORT_ORPHAN_TIMEOUT = "kinrpc.transport.orphan.timeout";
+    /** 单个连接默认最大in-flight request数量, 小于等于0表示不限制 */
+    public static final String TRANSPORT_MAX_IN_FLIGHT = "kinrpc.transport.maxInFlight";
+    /** server stream每次向remote request的元素数量上限 */
+    public static final String TRANSPORT_STREAM_PREFETCH = "kinrpc.transport.stream.prefetch";
+    /** 大command分块写出时每个chunk的字节数, 小于等于0表示不分块, 默认不分块 */
+    public static final String TRANSPORT_CHUNK_SIZE = "kinrpc.transport.chunk.size";
+    /** 单个连接正在重组的chunked command总字节数上限 */
+    public static final String TRANSPORT_CHUNK_REASSEMBLY_MAX_BYTES = "kinrpc.transport.chunk.reassemblyMaxBytes";
+    /** payload解压后字节数上限 */
+    public static final String TRANSPORT_DECOMPRESSED_MAX_BYTES = "kinrpc.transport.decompressedMaxBytes";
 
     private KinRpcSystemProperties() {
     }
@@ -10,6 +10,10 @@ public final class ReferenceConstants {
     /** reference config provideBy字段分隔符 */
     public static final String PROVIDE_BY_SEPARATOR = ",";
 
+    //---------------------------------------------------------------transport
+    /** 单个连接最大in-flight request数量, 小于等于0表示不限制 */
+    public static final String MAX_IN_FLIGHT_KEY = "transport.maxInFlight";
+
     //---------------------------------------------------------------cluster
     //---------------------------------------------------------------failback cluster
     /** failback cluster重试次数 */
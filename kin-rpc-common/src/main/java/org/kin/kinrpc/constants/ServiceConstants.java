@@ -7,6 +7,9 @@ package org.kin.kinrpc.constants;
  * @date 2023/7/1
  */
 public final class ServiceConstants {
+    /** 是否为服务生成{@code switch(handlerId)}分派类, 直接调用服务方法, 仅在支持字节码增强时生效 */
+    public static final String GENERATED_DISPATCH_KEY = "service.generatedDispatch";
+
     private ServiceConstants() {
     }
 }
@@ -0,0 +1,101 @@
+package org.kin.kinrpc.demo.jvm;
+
+import org.kin.kinrpc.config.ApplicationConfig;
+import org.kin.kinrpc.config.ReferenceConfig;
+import org.kin.kinrpc.config.ServiceConfig;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 统计jvm内echo调用平均每次分配的内存, 包括调用线程和全部线程(服务端执行线程等)
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class EchoAllocationBenchmark {
+    /** 服务名 */
+    private static final String SERVICE_NAME = "echo";
+    /** 预热调用次数 */
+    private static final int WARMUP = 50_000;
+    /** 统计调用次数 */
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadMXBean.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("thread allocated memory is not supported");
+        }
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        ServiceConfig<Echo> serviceConfig = ServiceConfig.create(Echo.class, new EchoImpl())
+                .jvm()
+                .serviceName(SERVICE_NAME)
+                .app(ApplicationConfig.create("kinrpc-echo-jvm-provider"))
+                .export();
+        ReferenceConfig<Echo> referenceConfig = ReferenceConfig.create(Echo.class)
+                .jvm()
+                .serviceName(SERVICE_NAME)
+                .app(ApplicationConfig.create("kinrpc-echo-jvm-consumer"));
+        try {
+            Thread.sleep(300);
+            Echo echo = referenceConfig.refer();
+            for (int round = 0; round < 3; round++) {
+                measure(threadMXBean, echo, round);
+            }
+        } finally {
+            referenceConfig.unRefer();
+            serviceConfig.unExport();
+        }
+    }
+
+    /**
+     * 预热后统计平均每次调用分配的内存
+     */
+    private static void measure(com.sun.management.ThreadMXBean threadMXBean, Echo echo, int round) {
+        //防止jit消除调用
+        long blackhole = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            blackhole += echo.echo("warmup").length();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long threadStart = threadMXBean.getThreadAllocatedBytes(threadId);
+        long totalStart = totalAllocatedBytes(threadMXBean);
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += echo.echo("echo").length();
+        }
+        long threadCost = threadMXBean.getThreadAllocatedBytes(threadId) - threadStart;
+        long totalCost = totalAllocatedBytes(threadMXBean) - totalStart;
+        if (blackhole == 0) {
+            System.out.println(blackhole);
+        }
+        System.out.printf("round %d, caller thread: %.2f bytes/op, all threads: %.2f bytes/op%n", round,
+                (double) threadCost / ITERATIONS, (double) totalCost / ITERATIONS);
+    }
+
+    /**
+     * 返回所有存活线程已分配的内存总和
+     * 统计期间结束的线程不会被计算在内, 所以仅作参考
+     */
+    private static long totalAllocatedBytes(com.sun.management.ThreadMXBean threadMXBean) {
+        long total = 0;
+        for (long allocatedBytes : threadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            if (allocatedBytes > 0) {
+                total += allocatedBytes;
+            }
+        }
+        return total;
+    }
+
+    //---------------------------------------------------------------------------------------------------------
+    public interface Echo {
+        String echo(String msg);
+    }
+
+    public static class EchoImpl implements Echo {
+        @Override
+        public String echo(String msg) {
+            return msg;
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.kin.serialization.Serialization;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -26,8 +27,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 final class MessageClient {
     private static final Logger log = LoggerFactory.getLogger(MessageClient.class);
-    /** send message timeout scheduler */
-    private static final ScheduledExecutorService SCHEDULER = ThreadPoolUtils.newScheduledThreadPool(
+    /** send message timeout and outbox linger scheduler */
+    static final ScheduledExecutorService SCHEDULER = ThreadPoolUtils.newScheduledThreadPool(
             "kinrpc-message-timeout-scheduler", true, SysUtils.CPU_NUM,
             new SimpleThreadFactory("kinrpc-message-timeout-scheduler", true),
             new ThreadPoolExecutor.CallerRunsPolicy());
@@ -133,10 +134,7 @@ final class MessageClient {
         }
 
         MessagePayload payload = outBoxMessage.getPayload();
-        //设置的超时时间, 这里更新为超时结束时间
-        if (payload.getTimeout() > 0) {
-            payload.setTimeout(System.currentTimeMillis() + payload.getTimeout());
-        }
+        updateTimeout(payload);
         MessageCommand command = new MessageCommand(serializationCode, payload);
 
         //request
@@ -164,6 +162,53 @@ final class MessageClient {
         }, actorEnv.commonExecutors);
     }
 
+    /**
+     * 批量send fire and forget message, 合并成一个{@link MessagePayloadBatch}发送
+     *
+     * @param outBoxMessages outbound fire and forget messages
+     */
+    void sendBatch(List<OutBoxMessage> outBoxMessages) {
+        if (outBoxMessages.size() == 1) {
+            send(outBoxMessages.get(0));
+            return;
+        }
+
+        if (!isActive()) {
+            return;
+        }
+
+        MessagePayload[] payloads = new MessagePayload[outBoxMessages.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            MessagePayload payload = outBoxMessages.get(i).getPayload();
+            updateTimeout(payload);
+            payloads[i] = payload;
+        }
+        MessageCommand command = new MessageCommand(serializationCode, MessagePayloadBatch.of(payloads));
+
+        //request
+        CompletableFuture<?> requestFuture = client.fireAndForget(command);
+        requestFutures.add(requestFuture);
+
+        //pre handle response
+        requestFuture.whenCompleteAsync((r, t) -> {
+            requestFutures.remove(requestFuture);
+            for (OutBoxMessage outBoxMessage : outBoxMessages) {
+                outBoxMessage.complete(null, t);
+            }
+        }, actorEnv.commonExecutors);
+    }
+
+    /**
+     * 设置的超时时间, 这里更新为超时结束时间
+     *
+     * @param payload message payload
+     */
+    private void updateTimeout(MessagePayload payload) {
+        if (payload.getTimeout() > 0) {
+            payload.setTimeout(System.currentTimeMillis() + payload.getTimeout());
+        }
+    }
+
     //setter && getter
     void setClientStateObserver(RemotingClientStateObserver clientStateObserver) {
         this.client.addObservers(clientStateObserver);
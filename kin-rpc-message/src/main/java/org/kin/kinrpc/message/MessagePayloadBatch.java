@@ -0,0 +1,43 @@
+package org.kin.kinrpc.message;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 批量发送的actor消息, 仅包含fire and forget消息
+ * 同一{@link OutBox}一次drain出来的连续多条tell消息合并成一个batch, 仅占用一个{@link org.kin.kinrpc.transport.cmd.MessageCommand}
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+final class MessagePayloadBatch implements Serializable {
+    private static final long serialVersionUID = 4317270693283629475L;
+
+    /** 按发送顺序排列的message payload */
+    private MessagePayload[] payloads;
+
+    static MessagePayloadBatch of(MessagePayload[] payloads) {
+        MessagePayloadBatch batch = new MessagePayloadBatch();
+        batch.payloads = payloads;
+        return batch;
+    }
+
+    private MessagePayloadBatch() {
+    }
+
+    //setter && getter
+    public MessagePayload[] getPayloads() {
+        return payloads;
+    }
+
+    public void setPayloads(MessagePayload[] payloads) {
+        this.payloads = payloads;
+    }
+
+    @Override
+    public String toString() {
+        return "MessagePayloadBatch{" +
+                "payloads=" + Arrays.toString(payloads) +
+                '}';
+    }
+}
@@ -1,38 +1,56 @@
 package org.kin.kinrpc.message;
 
+import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.kin.kinrpc.transport.RemotingClient;
 import org.kin.kinrpc.transport.RemotingClientStateObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
-import java.util.Objects;
+import java.util.*;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * outbound queue
- * 线程安全
+ * 线程安全, 基于mpsc queue实现, 消息入队和出队均无锁, 同一时刻仅有一个线程drain
+ * 待发送消息数有上限, 达到上限时按{@link OutBoxOverflowPolicy}处理, 避免remote处理慢导致内存无限增长
  *
  * @author huangjianqin
  * @date 2020-06-10
  */
 final class OutBox {
     private static final Logger log = LoggerFactory.getLogger(OutBox.class);
+    /** {@link OutBoxOverflowPolicy#BLOCK}时, 发送线程每次park时间 */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    /** destroy时等待待发送消息发送完的最长时间 */
+    private static final long DESTROY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
 
     /** remote address */
     private final Address address;
     /** actor env */
     private final RemotingActorEnv actorEnv;
     /** remote client */
-    private MessageClient client;
-    /** 待发送队列 */
-    private final LinkedList<OutBoxMessage> pendingMessages = new LinkedList<>();
-    private boolean isStopped;
-    /** 是否正在发送消息 */
-    private volatile boolean draining;
+    private volatile MessageClient client;
+    /** 待发送队列, 仅drain线程poll */
+    private final Queue<OutBoxMessage> pendingMessages = new MpscUnboundedArrayQueue<>(64);
+    /** 因client不可用而发送失败, 需优先重新发送的消息, 仅drain线程访问 */
+    private final LinkedList<OutBoxMessage> retryMessages = new LinkedList<>();
+    /** 待发送消息数, 包括{@link #pendingMessages}和{@link #retryMessages} */
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean isStopped;
+    /** 是否正在drain, 即是否有线程正在消费{@link #pendingMessages} */
+    private final AtomicBoolean draining = new AtomicBoolean();
+    /** 是否已提交drain task但还未开始执行, 保证同一时刻最多只有一个待执行的drain task */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    /** 是否已schedule攒批发送 */
+    private final AtomicBoolean lingerScheduled = new AtomicBoolean();
     /** client connect future */
     @SuppressWarnings("rawtypes")
-    private Future clientConnectFuture;
+    private volatile Future clientConnectFuture;
 
     OutBox(Address address, RemotingActorEnv actorEnv) {
         this.address = address;
@@ -45,112 +63,332 @@ final class OutBox {
      * @param outBoxMessage message which waiting to send
      */
     void pushMessage(OutBoxMessage outBoxMessage) {
-        boolean dropped = false;
-        synchronized (this) {
-            if (isStopped) {
-                dropped = true;
-            } else {
-                pendingMessages.add(outBoxMessage);
-            }
+        if (isStopped) {
+            drop(outBoxMessage, "outbox stopped");
+            return;
         }
 
-        if (dropped) {
-            log.warn("drop message, because of outbox stopped, {}", outBoxMessage);
-        } else {
-            if (draining) {
-                return;
+        if (!reserve(outBoxMessage)) {
+            return;
+        }
+        pendingMessages.offer(outBoxMessage);
+        if (isStopped) {
+            //入队时outbox已stop, 可能已错过destroy时丢弃剩余消息
+            dropPendingIfStopped();
+            return;
+        }
+
+        int pendingSize = size.get();
+        if (pendingSize > actorEnv.getOutBoxCapacity()) {
+            //drop oldest
+            trimOverflow();
+        }
+
+        if (draining.get()) {
+            return;
+        }
+
+        long lingerMs = actorEnv.getOutBoxLingerMs();
+        if (lingerMs > 0 && pendingSize < actorEnv.getOutBoxBatchSize()) {
+            //攒批, 等待更多消息入队后再批量发送
+            if (lingerScheduled.compareAndSet(false, true)) {
+                MessageClient.SCHEDULER.schedule(() -> {
+                    lingerScheduled.set(false);
+                    scheduleDrain();
+                }, lingerMs, TimeUnit.MILLISECONDS);
             }
+            return;
+        }
+
+        //async
+        scheduleDrain();
+    }
 
-            //async
+    /**
+     * 提交drain task, 如果已有待执行的drain task, 则不再提交
+     */
+    private void scheduleDrain() {
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
             actorEnv.commonExecutors.execute(OutBox.this::drainOutbox);
+        } catch (Exception e) {
+            drainScheduled.set(false);
+            log.error("schedule outbox drain fail, address={}", address, e);
         }
     }
 
     /**
-     * 消息出兑, 即准备发送消息
+     * 按{@link OutBoxOverflowPolicy}占用待发送消息空间
+     *
+     * @param outBoxMessage message which waiting to send
+     * @return false表示消息被拒绝
      */
-    private void drainOutbox() {
-        OutBoxMessage outBoxMessage;
-        synchronized (this) {
-            if (isStopped) {
-                return;
-            }
+    private boolean reserve(OutBoxMessage outBoxMessage) {
+        int capacity = actorEnv.getOutBoxCapacity();
+        OutBoxOverflowPolicy overflowPolicy = actorEnv.getOutBoxOverflowPolicy();
+        if (OutBoxOverflowPolicy.DROP_OLDEST.equals(overflowPolicy)) {
+            //先入队, 再丢弃最早入队的消息
+            size.incrementAndGet();
+            return true;
+        }
 
-            if (draining) {
-                //有其他线程正在drainOutbox
-                return;
+        //block截止时间, 仅BLOCK时有意义
+        long deadline = 0;
+        for (; ; ) {
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                continue;
             }
 
-            if (Objects.nonNull(clientConnectFuture)) {
-                //客户端正在连接服务器
-                return;
+            if (OutBoxOverflowPolicy.REJECT.equals(overflowPolicy) || isStopped) {
+                drop(outBoxMessage, "outbox is full");
+                return false;
             }
 
-            if (!validClient()) {
-                // TODO: 2021/10/12 如果一致连接不成功, 是否需要移除整个outBox
-                return;
+            //block, 等待drain线程腾出空间
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + TimeUnit.MILLISECONDS.toNanos(actorEnv.getOutBoxBlockTimeoutMs());
             }
+            if (now - deadline >= 0) {
+                drop(outBoxMessage, "outbox is full, block timeout");
+                return false;
+            }
+            if (!draining.get()) {
+                scheduleDrain();
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
 
-            outBoxMessage = pendingMessages.poll();
-            notify();
-            if (Objects.isNull(outBoxMessage)) {
+    /**
+     * 丢弃最早入队的消息, 直到待发送消息数不超过上限
+     * 如果有其他线程正在drain, 则由drain线程在取消息时丢弃
+     */
+    private void trimOverflow() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            dropOverflow();
+        } finally {
+            releaseDrain();
+        }
+    }
+
+    /**
+     * 丢弃最早入队的消息, 直到待发送消息数不超过上限
+     * 仅drain线程调用
+     */
+    private void dropOverflow() {
+        int capacity = actorEnv.getOutBoxCapacity();
+        while (size.get() > capacity) {
+            OutBoxMessage oldest = pollMessage();
+            if (Objects.isNull(oldest)) {
                 return;
             }
+            drop(oldest, "outbox is full, drop oldest");
+        }
+    }
 
-            draining = true;
+    /**
+     * 丢弃消息, ask消息的future以异常结束
+     *
+     * @param outBoxMessage dropped message
+     * @param reason        丢弃原因
+     */
+    private void drop(OutBoxMessage outBoxMessage, String reason) {
+        log.warn("drop message, because of {}, address={}, {}", reason, address, outBoxMessage);
+        outBoxMessage.complete(null, new RejectedExecutionException(String.format("%s, address=%s", reason, address)));
+    }
+
+    /**
+     * 消息出兑, 即准备发送消息
+     * 每次取出一批消息批量发送
+     */
+    private void drainOutbox() {
+        drainScheduled.set(false);
+        if (!draining.compareAndSet(false, true)) {
+            //有其他线程正在drainOutbox
+            return;
         }
 
-        while (true) {
-            try {
-                MessageClient client;
-                synchronized (this) {
-                    if (!validClient()) {
-                        return;
-                    }
+        Exception error = null;
+        try {
+            while (!isStopped) {
+                if (Objects.nonNull(clientConnectFuture)) {
+                    //客户端正在连接服务器
+                    break;
+                }
 
-                    client = this.client;
+                if (!validClient()) {
+                    // TODO: 2021/10/12 如果一致连接不成功, 是否需要移除整个outBox
+                    break;
                 }
-                outBoxMessage.sendWith(client);
-            } catch (Exception e) {
-                handleException(e);
-                return;
-            }
-            synchronized (this) {
-                if (isStopped) {
-                    return;
+
+                List<OutBoxMessage> outBoxMessages = pollMessages();
+                if (outBoxMessages.isEmpty()) {
+                    break;
                 }
 
-                outBoxMessage = pendingMessages.poll();
-                notify();
-                if (Objects.isNull(outBoxMessage)) {
-                    draining = false;
-                    return;
+                MessageClient client = this.client;
+                if (Objects.isNull(client) || !client.isActive()) {
+                    //client不可用, 消息重新入队, 等待client可用后再发送
+                    retryMessages.addAll(0, outBoxMessages);
+                    size.addAndGet(outBoxMessages.size());
+                    break;
                 }
+
+                try {
+                    sendMessages(client, outBoxMessages);
+                } catch (Exception e) {
+                    error = e;
+                    break;
+                }
+            }
+        } finally {
+            releaseDrain();
+        }
+
+        if (Objects.nonNull(error)) {
+            //释放drain后再处理, 因为可能会destroy outbox
+            handleException(error);
+            return;
+        }
+
+        //drain结束前入队的消息可能因看到draining=true而没有触发drain
+        MessageClient client = this.client;
+        if (!isStopped && size.get() > 0 &&
+                Objects.nonNull(client) && client.isActive()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * 释放drain权限, 如果outbox已stop, 则丢弃剩余消息
+     * destroy时可能因为其他线程正在drain而无法丢弃剩余消息, 所以由最后释放drain权限的线程负责
+     */
+    private void releaseDrain() {
+        draining.set(false);
+        if (isStopped) {
+            dropPendingIfStopped();
+        }
+    }
+
+    /**
+     * outbox已stop, 丢弃剩余消息, ask消息的future以异常结束
+     * 如果其他线程正在drain, 则由该线程释放drain权限时丢弃
+     */
+    private void dropPendingIfStopped() {
+        while (isStopped && size.get() > 0 && draining.compareAndSet(false, true)) {
+            try {
+                OutBoxMessage outBoxMessage;
+                while (Objects.nonNull(outBoxMessage = pollMessage())) {
+                    drop(outBoxMessage, "outbox stopped");
+                }
+            } finally {
+                draining.set(false);
             }
         }
     }
 
+    /**
+     * 取出一条待发送消息
+     * 仅drain线程调用
+     *
+     * @return 待发送消息, null表示没有待发送消息
+     */
+    private OutBoxMessage pollMessage() {
+        OutBoxMessage outBoxMessage = retryMessages.poll();
+        if (Objects.isNull(outBoxMessage)) {
+            outBoxMessage = pendingMessages.poll();
+        }
+        if (Objects.nonNull(outBoxMessage)) {
+            size.decrementAndGet();
+        }
+        return outBoxMessage;
+    }
+
+    /**
+     * 取出一批待发送消息
+     * 仅drain线程调用
+     *
+     * @return 待发送消息, 最多{@link RemotingActorEnv#getOutBoxBatchSize()}条
+     */
+    private List<OutBoxMessage> pollMessages() {
+        if (OutBoxOverflowPolicy.DROP_OLDEST.equals(actorEnv.getOutBoxOverflowPolicy())) {
+            dropOverflow();
+        }
+
+        int batchSize = actorEnv.getOutBoxBatchSize();
+        List<OutBoxMessage> outBoxMessages = null;
+        for (int i = 0; i < batchSize; i++) {
+            OutBoxMessage outBoxMessage = pollMessage();
+            if (Objects.isNull(outBoxMessage)) {
+                break;
+            }
+
+            if (Objects.isNull(outBoxMessages)) {
+                outBoxMessages = new ArrayList<>(Math.min(batchSize, size.get() + 1));
+            }
+            outBoxMessages.add(outBoxMessage);
+        }
+        return Objects.nonNull(outBoxMessages) ? outBoxMessages : Collections.emptyList();
+    }
+
+    /**
+     * 按入队顺序发送消息, 连续的fire and forget消息合并成一个batch发送, 需要response的消息则单独发送
+     *
+     * @param client         message client
+     * @param outBoxMessages 待发送消息
+     */
+    private void sendMessages(MessageClient client, List<OutBoxMessage> outBoxMessages) {
+        int batchStart = 0;
+        int size = outBoxMessages.size();
+        for (int i = 0; i < size; i++) {
+            OutBoxMessage outBoxMessage = outBoxMessages.get(i);
+            if (outBoxMessage.getPayload().isIgnoreResponse()) {
+                continue;
+            }
+
+            if (batchStart < i) {
+                client.sendBatch(outBoxMessages.subList(batchStart, i));
+            }
+            outBoxMessage.sendWith(client);
+            batchStart = i + 1;
+        }
+
+        if (batchStart < size) {
+            client.sendBatch(outBoxMessages.subList(batchStart, size));
+        }
+    }
+
     /**
      * 校验client是否可用
-     * 在对象锁内操作
      */
     private boolean validClient() {
+        MessageClient client = this.client;
         if (Objects.isNull(client)) {
             //没有连接好的客户端, 创建一个
-            createClient();
+            synchronized (this) {
+                createClient();
+            }
             return false;
         }
 
-        if (!client.isActive()) {
-            //client inactive
-            return false;
-        }
-        return true;
+        //client inactive
+        return client.isActive();
     }
 
     /**
      * 异常统一处理
-     * 在对象锁内操作
      *
      * @param e 异常
      */
@@ -172,7 +410,7 @@ final class OutBox {
      * 在对象锁内操作
      */
     private void createClient() {
-        if (Objects.nonNull(clientConnectFuture)) {
+        if (Objects.nonNull(clientConnectFuture) || isStopped) {
             return;
         }
 
@@ -182,15 +420,15 @@ final class OutBox {
                 synchronized (OutBox.this) {
                     if (!isStopped) {
                         OutBox.this.client = client;
-                        if (OutBox.this.client.isActive()) {
+                        if (client.isActive()) {
                             //很快连接上
-                            actorEnv.commonExecutors.execute(OutBox.this::drainOutbox);
+                            scheduleDrain();
                         } else {
                             //很慢, 设置callback
-                            OutBox.this.client.setClientStateObserver(new RemotingClientStateObserver() {
+                            client.setClientStateObserver(new RemotingClientStateObserver() {
                                 @Override
                                 public void onConnectSuccess(RemotingClient client) {
-                                    actorEnv.commonExecutors.execute(OutBox.this::drainOutbox);
+                                    scheduleDrain();
                                 }
                             });
                         }
@@ -212,21 +450,28 @@ final class OutBox {
 
     /**
      * destroy outbox
+     * client可用时, 最多等待{@link #DESTROY_TIMEOUT_NANOS}让待发送消息发送完, 剩余消息则丢弃
      */
     void destroy() {
-        synchronized (this) {
-            if (isStopped) {
-                return;
+        if (isStopped) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + DESTROY_TIMEOUT_NANOS;
+        while (size.get() > 0 && System.nanoTime() < deadline) {
+            MessageClient client = this.client;
+            if (Objects.isNull(client) || !client.isActive()) {
+                //client不可用, 无法发送
+                break;
             }
-            while (pendingMessages.size() > 0) {
-                //等待所有消息处理完才处理stop逻辑
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    //do nothing
-                }
+
+            //等待所有消息处理完才处理stop逻辑
+            if (!draining.get()) {
+                scheduleDrain();
             }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
         }
+
         synchronized (this) {
             if (isStopped) {
                 return;
@@ -238,5 +483,19 @@ final class OutBox {
             }
             client = null;
         }
+
+        //丢弃剩余消息, 如果其他线程正在drain, 则由该线程释放drain权限时丢弃
+        dropPendingIfStopped();
+    }
+
+    //getter
+
+    /**
+     * 返回待发送消息数
+     *
+     * @return 待发送消息数
+     */
+    int size() {
+        return size.get();
     }
 }
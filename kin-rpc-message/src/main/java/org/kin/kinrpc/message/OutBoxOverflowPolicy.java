@@ -0,0 +1,17 @@
+package org.kin.kinrpc.message;
+
+/**
+ * {@link OutBox}待发送消息数达到上限时的处理策略
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public enum OutBoxOverflowPolicy {
+    /** 丢弃最早入队的消息, 腾出空间给新消息 */
+    DROP_OLDEST,
+    /** 拒绝新消息, ask消息的future以异常结束 */
+    REJECT,
+    /** 阻塞发送线程, 直到有空闲空间, 超过最长阻塞时间则拒绝新消息, ask消息的future以异常结束 */
+    BLOCK,
+    ;
+}
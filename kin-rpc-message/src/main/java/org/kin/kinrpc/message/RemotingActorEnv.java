@@ -15,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
@@ -41,6 +42,16 @@ public final class RemotingActorEnv extends ActorEnv {
     private final SslConfig serverSslConfig;
     /** client端ssl */
     private final SslConfig clientSslConfig;
+    /** outbox单次批量发送的最大消息数, 1表示不合并, 逐条发送 */
+    private final int outBoxBatchSize;
+    /** outbox攒批等待时间(毫秒), 小于等于0表示消息入队后立即发送 */
+    private final long outBoxLingerMs;
+    /** outbox待发送消息数上限 */
+    private final int outBoxCapacity;
+    /** outbox待发送消息数达到上限时的处理策略 */
+    private final OutBoxOverflowPolicy outBoxOverflowPolicy;
+    /** {@link OutBoxOverflowPolicy#BLOCK}时, 发送线程最长阻塞时间(毫秒), 超时则拒绝消息 */
+    private final long outBoxBlockTimeoutMs;
     /** 标识是否terminated */
     private volatile boolean terminated = false;
     /** outbound client pool */
@@ -54,7 +65,12 @@ public final class RemotingActorEnv extends ActorEnv {
                              SerializationType serializationType,
                              ProtocolType protocolType,
                              SslConfig serverSslConfig,
-                             SslConfig clientSslConfig) {
+                             SslConfig clientSslConfig,
+                             int outBoxBatchSize,
+                             long outBoxLingerMs,
+                             int outBoxCapacity,
+                             OutBoxOverflowPolicy outBoxOverflowPolicy,
+                             long outBoxBlockTimeoutMs) {
         super(parallelism, new ActorRefProvider<RemotingActorEnv>() {
             @Override
             public ActorRef actorOf(RemotingActorEnv actorEnv, ActorPath actorPath) {
@@ -84,6 +100,11 @@ public final class RemotingActorEnv extends ActorEnv {
         this.protocol = protocolType.getName();
         this.serverSslConfig = serverSslConfig;
         this.clientSslConfig = clientSslConfig;
+        this.outBoxBatchSize = Math.max(1, outBoxBatchSize);
+        this.outBoxLingerMs = outBoxLingerMs;
+        this.outBoxCapacity = Math.max(1, outBoxCapacity);
+        this.outBoxOverflowPolicy = outBoxOverflowPolicy;
+        this.outBoxBlockTimeoutMs = Math.max(0, outBoxBlockTimeoutMs);
 
         startServer();
 
@@ -126,6 +147,7 @@ public final class RemotingActorEnv extends ActorEnv {
         }
         server = transport.createServer(listenAddress.getHost(), listenAddress.getPort(), null, serverSslConfig);
         server.registerRequestProcessor(new MessagePayloadProcessor());
+        server.registerRequestProcessor(new MessagePayloadBatchProcessor());
         server.start();
     }
 
@@ -166,6 +188,50 @@ public final class RemotingActorEnv extends ActorEnv {
         return clientSslConfig;
     }
 
+    int getOutBoxBatchSize() {
+        return outBoxBatchSize;
+    }
+
+    long getOutBoxLingerMs() {
+        return outBoxLingerMs;
+    }
+
+    int getOutBoxCapacity() {
+        return outBoxCapacity;
+    }
+
+    OutBoxOverflowPolicy getOutBoxOverflowPolicy() {
+        return outBoxOverflowPolicy;
+    }
+
+    long getOutBoxBlockTimeoutMs() {
+        return outBoxBlockTimeoutMs;
+    }
+
+    /**
+     * 返回发往{@code address}的待发送消息数
+     *
+     * @param address remote地址
+     * @return 待发送消息数
+     */
+    public int outBoxSize(Address address) {
+        OutBox outBox = outBoxes.get(address);
+        return Objects.nonNull(outBox) ? outBox.size() : 0;
+    }
+
+    /**
+     * 返回所有remote地址的待发送消息数
+     *
+     * @return key -> remote地址, value -> 待发送消息数
+     */
+    public Map<Address, Integer> outBoxSizes() {
+        Map<Address, Integer> sizes = new HashMap<>(outBoxes.size());
+        for (Map.Entry<Address, OutBox> entry : outBoxes.entrySet()) {
+            sizes.put(entry.getKey(), entry.getValue().size());
+        }
+        return sizes;
+    }
+
     //----------------------------------------------------------------------internal
 
     /**
@@ -304,13 +370,7 @@ public final class RemotingActorEnv extends ActorEnv {
     private class MessagePayloadProcessor implements RequestProcessor<MessagePayload> {
         @Override
         public void process(RequestContext requestContext, MessagePayload payload) {
-            long timeout = payload.getTimeout();
-            if (timeout > 0 && System.currentTimeMillis() > timeout) {
-                //message timeout, ignore
-                return;
-            }
-            //分派
-            postMessage(requestContext, payload);
+            processPayload(requestContext, payload);
         }
 
         @Override
@@ -319,6 +379,39 @@ public final class RemotingActorEnv extends ActorEnv {
         }
     }
 
+    /**
+     * 传输层对{@link MessagePayloadBatch}实例的处理, 拆包后按顺序分派
+     */
+    private class MessagePayloadBatchProcessor implements RequestProcessor<MessagePayloadBatch> {
+        @Override
+        public void process(RequestContext requestContext, MessagePayloadBatch batch) {
+            for (MessagePayload payload : batch.getPayloads()) {
+                processPayload(requestContext, payload);
+            }
+        }
+
+        @Override
+        public String interest() {
+            return MessagePayloadBatch.class.getName();
+        }
+    }
+
+    /**
+     * 处理接收到的message payload
+     *
+     * @param requestContext transport request context
+     * @param payload        message payload
+     */
+    private void processPayload(RequestContext requestContext, MessagePayload payload) {
+        long timeout = payload.getTimeout();
+        if (timeout > 0 && System.currentTimeMillis() > timeout) {
+            //message timeout, ignore
+            return;
+        }
+        //分派
+        postMessage(requestContext, payload);
+    }
+
     public static class Builder {
         /** listen host */
         private String host = NetUtils.getLocalhost4Ip();
@@ -334,6 +427,20 @@ public final class RemotingActorEnv extends ActorEnv {
         private SslConfig serverSslConfig;
         /** client端ssl */
         private SslConfig clientSslConfig;
+        /**
+         * outbox单次批量发送的最大消息数, 默认1, 即不合并, 逐条发送
+         * 合并后的fire and forget消息以{@link MessagePayloadBatch}发送, 旧版本接收方没有对应的processor, 会丢弃这些消息,
+         * 所以需先升级所有接收方, 再开启
+         */
+        private int outBoxBatchSize = 1;
+        /** outbox攒批等待时间(毫秒), 小于等于0表示消息入队后立即发送 */
+        private long outBoxLingerMs;
+        /** outbox待发送消息数上限 */
+        private int outBoxCapacity = 65536;
+        /** outbox待发送消息数达到上限时的处理策略 */
+        private OutBoxOverflowPolicy outBoxOverflowPolicy = OutBoxOverflowPolicy.REJECT;
+        /** {@link OutBoxOverflowPolicy#BLOCK}时, 发送线程最长阻塞时间(毫秒), 超时则拒绝消息 */
+        private long outBoxBlockTimeoutMs = 3000;
 
         public Builder host(String host) {
             this.host = host;
@@ -370,10 +477,41 @@ public final class RemotingActorEnv extends ActorEnv {
             return this;
         }
 
+        /**
+         * 开启outbox批量发送, !!! 所有接收方需先升级到支持{@link MessagePayloadBatch}的版本
+         */
+        public Builder outBoxBatchSize(int outBoxBatchSize) {
+            this.outBoxBatchSize = outBoxBatchSize;
+            return this;
+        }
+
+        public Builder outBoxLingerMs(long outBoxLingerMs) {
+            this.outBoxLingerMs = outBoxLingerMs;
+            return this;
+        }
+
+        public Builder outBoxCapacity(int outBoxCapacity) {
+            this.outBoxCapacity = outBoxCapacity;
+            return this;
+        }
+
+        public Builder outBoxOverflowPolicy(OutBoxOverflowPolicy outBoxOverflowPolicy) {
+            this.outBoxOverflowPolicy = outBoxOverflowPolicy;
+            return this;
+        }
+
+        public Builder outBoxBlockTimeoutMs(long outBoxBlockTimeoutMs) {
+            this.outBoxBlockTimeoutMs = outBoxBlockTimeoutMs;
+            return this;
+        }
+
         public ActorEnv build() {
             return new RemotingActorEnv(host, port,
                     parallelism, serializationType,
-                    protocolType, serverSslConfig, clientSslConfig);
+                    protocolType, serverSslConfig, clientSslConfig,
+                    outBoxBatchSize, outBoxLingerMs,
+                    outBoxCapacity, outBoxOverflowPolicy,
+                    outBoxBlockTimeoutMs);
         }
     }
 }
@@ -0,0 +1,115 @@
+package org.kin.kinrpc.message;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 校验outbox批量发送消息后, remote actor仍按发送顺序接收消息, 包括tell和ask交错发送
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class OutBoxBatchTest {
+    /** 消息数量 */
+    private static final int MESSAGES = 2_000;
+    /** 每隔多少条消息发送一次ask */
+    private static final int ASK_INTERVAL = 100;
+
+    public static void main(String[] args) throws Exception {
+        ActorEnv serverEnv = ActorEnv.remoting().port(16891).build();
+        ActorEnv clientEnv = ActorEnv.remoting().port(16892)
+                .outBoxBatchSize(64)
+                .outBoxLingerMs(5)
+                .build();
+        try {
+            SequenceActor sequenceActor = new SequenceActor();
+            serverEnv.newActor("sequence", sequenceActor);
+
+            ActorRef sequenceRef = clientEnv.actorOf(Address.of("127.0.0.1", 16891), "sequence");
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < MESSAGES; i++) {
+                SequenceMessage message = new SequenceMessage(i);
+                if (i % ASK_INTERVAL == 0) {
+                    futures.add(sequenceRef.ask(message));
+                } else {
+                    sequenceRef.tell(message);
+                }
+            }
+
+            if (!sequenceActor.latch.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("receive messages timeout, received " + sequenceActor.next);
+            }
+            if (sequenceActor.disorder >= 0) {
+                throw new IllegalStateException("messages are out of order, first disorder seq " + sequenceActor.disorder);
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                int seq = futures.get(i).get(5, TimeUnit.SECONDS);
+                if (seq != i * ASK_INTERVAL) {
+                    throw new IllegalStateException(String.format("ask response not match, %d, expect %d", seq, i * ASK_INTERVAL));
+                }
+            }
+            System.out.println("outbox batch check passed");
+        } finally {
+            clientEnv.destroy();
+            serverEnv.destroy();
+        }
+    }
+
+    /**
+     * 校验消息到达顺序的actor, 串行处理消息
+     */
+    private static class SequenceActor extends ThreadSafeActor {
+        /** 所有消息到达后count down */
+        private final CountDownLatch latch = new CountDownLatch(MESSAGES);
+        /** 下一条消息序号 */
+        private int next;
+        /** 首个乱序消息序号, 小于0表示没有乱序 */
+        private volatile int disorder = -1;
+
+        @Override
+        protected Behaviors createBehaviors() {
+            return Behaviors.builder()
+                    .behavior(SequenceMessage.class, message -> {
+                        int seq = message.getSeq();
+                        if (seq != next && disorder < 0) {
+                            disorder = seq;
+                        }
+                        next = seq + 1;
+                        if (seq % ASK_INTERVAL == 0) {
+                            sender().answer(seq);
+                        }
+                        latch.countDown();
+                    })
+                    .build();
+        }
+    }
+
+    /**
+     * 带序号的消息
+     */
+    public static class SequenceMessage implements Serializable {
+        private static final long serialVersionUID = 2651539627405839431L;
+
+        /** 消息序号 */
+        private int seq;
+
+        public SequenceMessage() {
+        }
+
+        public SequenceMessage(int seq) {
+            this.seq = seq;
+        }
+
+        public int getSeq() {
+            return seq;
+        }
+
+        public void setSeq(int seq) {
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.kin.kinrpc.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 校验remote不可达时, outbox满后按{@link OutBoxOverflowPolicy#REJECT}拒绝消息, 以及destroy后待发送的ask消息以异常结束而不是一直挂起
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class OutBoxOverflowTest {
+    /** outbox容量 */
+    private static final int CAPACITY = 4;
+    /** ask消息数量 */
+    private static final int ASKS = 20;
+
+    public static void main(String[] args) throws Exception {
+        RemotingActorEnv clientEnv = (RemotingActorEnv) ActorEnv.remoting().port(16894)
+                .outBoxCapacity(CAPACITY)
+                .outBoxOverflowPolicy(OutBoxOverflowPolicy.REJECT)
+                .build();
+        //没有server监听
+        Address unreachable = Address.of("127.0.0.1", 16893);
+        List<CompletableFuture<Object>> futures = new ArrayList<>(ASKS);
+        try {
+            ActorRef actorRef = clientEnv.actorOf(unreachable, "unreachable");
+            for (int i = 0; i < ASKS; i++) {
+                futures.add(actorRef.ask("ask-" + i));
+            }
+
+            //outbox满后, 入队时马上拒绝
+            int rejected = 0;
+            for (CompletableFuture<Object> future : futures) {
+                if (future.isCompletedExceptionally() && isRejected(future)) {
+                    rejected++;
+                }
+            }
+            if (rejected == 0) {
+                throw new IllegalStateException("no message is rejected when outbox is full");
+            }
+            if (clientEnv.outBoxSize(unreachable) > CAPACITY) {
+                throw new IllegalStateException("outbox size exceeds capacity, " + clientEnv.outBoxSize(unreachable));
+            }
+        } finally {
+            clientEnv.destroy();
+        }
+
+        //destroy后, 所有ask消息都以异常结束
+        for (CompletableFuture<Object> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("ask to unreachable address succeeded");
+            } catch (ExecutionException e) {
+                //expected
+            }
+        }
+        System.out.println("outbox overflow check passed");
+    }
+
+    /**
+     * ask消息是否因outbox满而被拒绝
+     */
+    private static boolean isRejected(CompletableFuture<Object> future) {
+        try {
+            future.getNow(null);
+            return false;
+        } catch (Exception e) {
+            Throwable cause = e.getCause();
+            return cause instanceof RejectedExecutionException && cause.getMessage().contains("outbox is full");
+        }
+    }
+}
@@ -7,17 +7,16 @@ import org.kin.kinrpc.config.ExecutorConfig;
 import org.kin.kinrpc.config.ReferenceConfig;
 import org.kin.kinrpc.config.ServerConfig;
 import org.kin.kinrpc.config.SslConfig;
+import org.kin.kinrpc.constants.ReferenceConstants;
 import org.kin.kinrpc.executor.ExecutorManager;
 import org.kin.kinrpc.executor.ManagedExecutor;
-import org.kin.kinrpc.transport.RemotingClient;
-import org.kin.kinrpc.transport.RemotingClientStateObserver;
-import org.kin.kinrpc.transport.RemotingServer;
-import org.kin.kinrpc.transport.Transport;
+import org.kin.kinrpc.transport.*;
 import org.kin.kinrpc.transport.cmd.RequestCommand;
 
 import java.util.Collection;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * @author huangjianqin
@@ -32,7 +31,7 @@ public abstract class AbstractProtocol implements Protocol {
     /**
      * client cache, 复用client
      * key -> remote address
-     * todo 同一remote server, 是否考虑需要client池
+     * 如果reference配置了client pool, 则同一remote server使用{@link RemotingClientPool}
      */
     private final ReferenceCountedCache<String, RemotingClient> clientCache = new ReferenceCountedCache<>();
 
@@ -77,7 +76,8 @@ public abstract class AbstractProtocol implements Protocol {
 
         Transport transport = ExtensionLoader.getExtension(Transport.class, name());
         RemotingServer server = transport.createServer(serverConfig.getHost(), serverConfig.getPort(),
-                executor, ApplicationContext.instance().getConfig(SslConfig.class));
+                executor, ApplicationContext.instance().getConfig(SslConfig.class),
+                FlushBatchConfig.fromAttachments(serverConfig));
         DefaultRpcRequestProcessor rpcRequestProcessor = new DefaultRpcRequestProcessor();
         server.registerRequestProcessor(rpcRequestProcessor);
 
@@ -107,7 +107,19 @@ public abstract class AbstractProtocol implements Protocol {
         String address = instance.address();
         RemotingClient client = clientCache.get(address, () -> {
             Transport transport = ExtensionLoader.getExtension(Transport.class, name());
-            RemotingClient innerClient = wrapClient(transport.createClient(instance.host(), instance.port(), referenceConfig.getSsl()), address);
+            FlushBatchConfig flushBatchConfig = FlushBatchConfig.fromAttachments(referenceConfig);
+            int maxInFlight = referenceConfig.intAttachment(ReferenceConstants.MAX_IN_FLIGHT_KEY, 0);
+            Supplier<RemotingClient> clientFactory = () -> {
+                RemotingClient newClient = transport.createClient(instance.host(), instance.port(),
+                        referenceConfig.getSsl(), flushBatchConfig);
+                if (maxInFlight > 0 && newClient instanceof AbstractRemotingClient) {
+                    ((AbstractRemotingClient) newClient).maxInFlight(maxInFlight);
+                }
+                return newClient;
+            };
+            RemotingClientPoolConfig poolConfig = RemotingClientPoolConfig.fromAttachments(referenceConfig);
+            RemotingClient innerClient = wrapClient(Objects.nonNull(poolConfig) ?
+                    new RemotingClientPool<>(clientFactory, poolConfig) : clientFactory.get(), address);
             innerClient.connect();
             return innerClient;
         });
@@ -138,6 +150,16 @@ public abstract class AbstractProtocol implements Protocol {
                 return client.remoteAddress();
             }
 
+            @Override
+            public boolean isWritable() {
+                return client.isWritable();
+            }
+
+            @Override
+            public int inFlight() {
+                return client.inFlight();
+            }
+
             @Override
             public void shutdown() {
                 if (clientCache.release(address)) {
@@ -1,5 +1,6 @@
 package org.kin.kinrpc.protocol;
 
+import io.netty.util.Timeout;
 import org.kin.framework.concurrent.ThreadLessExecutor;
 import org.kin.framework.utils.ExtensionLoader;
 import org.kin.framework.utils.StringUtils;
@@ -7,18 +8,21 @@ import org.kin.kinrpc.*;
 import org.kin.kinrpc.config.MethodConfig;
 import org.kin.kinrpc.constants.InvocationConstants;
 import org.kin.kinrpc.constants.ServiceMetadataConstants;
-import org.kin.kinrpc.transport.RemotingClient;
+import org.kin.kinrpc.transport.*;
 import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
 import org.kin.kinrpc.transport.cmd.RpcResponseCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
+import org.kin.kinrpc.transport.compression.Compressions;
 import org.kin.serialization.Serialization;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 默认{@link ReferenceInvoker}实现, 基于{@link RemotingClient}发起服务调用
@@ -27,12 +31,17 @@ import java.util.concurrent.TimeUnit;
  * @date 2023/6/28
  */
 public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
+    /** server streaming rpc call, 反序列化stream元素及回调user的scheduler, 即reference通用线程 */
+    private static final Scheduler STREAM_SCHEDULER = Schedulers.fromExecutor(ReferenceContext.SCHEDULER);
+
     /** service instance */
     private final ServiceInstance instance;
     /** remoting client */
     private final RemotingClient client;
     /** 服务支持的序列化code */
     private final Byte serializationCode;
+    /** provider声明支持的compression code bit mask, 0表示不支持压缩 */
+    private final int compressionCodes;
 
     public DefaultReferenceInvoker(ServiceInstance instance,
                                    RemotingClient client) {
@@ -44,6 +53,7 @@ public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
         } else {
             this.serializationCode = null;
         }
+        this.compressionCodes = Compressions.parseCodes(instance.metadata(ServiceMetadataConstants.COMPRESSION_KEY));
     }
 
     @Override
@@ -75,6 +85,19 @@ public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
         Map<String, String> serverAttachments = invocation.serverAttachments();
         addTokenIfExists(serverAttachments);
         command.setMetadata(serverAttachments);
+        if (Objects.nonNull(methodConfig) && StringUtils.isNotBlank(methodConfig.getCompression())) {
+            //request payload压缩, 并协商response压缩
+            //旧版本或者不支持该压缩实现的provider无法解析压缩后的payload, 仅当provider声明支持时才压缩
+            byte compressionCode = Compressions.getCode(methodConfig.getCompression());
+            if ((compressionCodes & (1 << compressionCode)) != 0 && Compressions.isCompressionAvailable(compressionCode)) {
+                command.compression(compressionCode, methodConfig.getCompressionThreshold());
+            }
+        }
+
+        if (invocation.isStreamReturn()) {
+            //server streaming, rpc call result即为stream元素flux, 订阅时才发起rpc call
+            return RpcResult.success(invocation, RpcCall.completed(requestStream(invocation, command)));
+        }
 
         return asyncInvoke ? asyncInvoke(invocation, command, timeoutMs) : invoke(invocation, command, timeoutMs);
     }
@@ -90,46 +113,46 @@ public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
     private RpcResult invoke(Invocation invocation,
                              RpcRequestCommand command,
                              int timeoutMs) {
-        CompletableFuture<Object> resultFuture = new CompletableFuture<>();
+        RpcCall call = new RpcCall();
         //相当于callback
-        ThreadLessExecutor threadLessExecutor = new ThreadLessExecutor(resultFuture);
-
-        Future<?> timeoutFuture;
-        if (timeoutMs > 0) {
-            //async timeout
-            //这里没有统一纳管timeoutFuture, 一般超时时间都比较短, 待调度触发完成后, 有jvm回收
-            timeoutFuture = ReferenceContext.SCHEDULER.schedule(() -> {
-                if (!threadLessExecutor.isWaiting()) {
-                    //服务调用已有返回结果
-                    return;
-                }
-
-                threadLessExecutor.notifyExceptionally(new RpcTimeoutException(invocation, timeoutMs));
-            }, timeoutMs, TimeUnit.MILLISECONDS);
-        } else {
-            timeoutFuture = null;
-        }
+        ThreadLessExecutor threadLessExecutor = new ThreadLessExecutor(call.toFuture());
 
         if (invocation.isVoid()) {
+            Timeout timeout;
+            if (timeoutMs > 0) {
+                //async timeout
+                timeout = RequestTimeoutManager.newTimeout(t -> {
+                    if (!threadLessExecutor.isWaiting()) {
+                        //服务调用已有返回结果
+                        return;
+                    }
+
+                    threadLessExecutor.execute(() -> call.completeExceptionally(new RpcTimeoutException(invocation, timeoutMs)));
+                }, timeoutMs);
+            } else {
+                timeout = null;
+            }
+
             CompletableFuture<Void> completeSignal = client.fireAndForget(command);
             completeSignal.whenComplete((response, t) ->
                     threadLessExecutor.execute(() ->
-                            onFireAndForgetCompleted(invocation, resultFuture, timeoutFuture, t)));
+                            onFireAndForgetCompleted(invocation, call, timeout, t)));
         } else {
+            //request response超时由transport层统一管理
             CompletableFuture<RpcResponseCommand> respFuture = client.requestResponse(command);
 
             respFuture.whenComplete((response, t) ->
                     threadLessExecutor.execute(() ->
-                            onRequestAndResponseCompleted(invocation, resultFuture, timeoutFuture, response, t)));
+                            onRequestAndResponseCompleted(invocation, call, timeoutMs, response, t)));
         }
 
         //block and wait return
         try {
             threadLessExecutor.waitAndDrain();
         } catch (InterruptedException e) {
-            resultFuture.completeExceptionally(e);
+            call.completeExceptionally(e);
         }
-        return RpcResult.success(invocation, resultFuture);
+        return RpcResult.success(invocation, call);
     }
 
     /**
@@ -143,64 +166,92 @@ public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
     private RpcResult asyncInvoke(Invocation invocation,
                                   RpcRequestCommand command,
                                   int timeoutMs) {
-        CompletableFuture<Object> resultFuture = new CompletableFuture<>();
-        Future<?> timeoutFuture;
-        if (timeoutMs > 0) {
-            //async timeout
-            //这里没有统一纳管timeoutFuture, 一般超时时间都比较短, 待调度触发完成后, 有jvm回收
-            timeoutFuture = ReferenceContext.SCHEDULER.schedule(() -> {
-                if (resultFuture.isDone()) {
-                    //服务调用已有返回结果
-                    return;
-                }
-
-                resultFuture.completeExceptionally(new RpcTimeoutException(invocation, timeoutMs));
-            }, timeoutMs, TimeUnit.MILLISECONDS);
-        } else {
-            timeoutFuture = null;
-        }
-
+        RpcCall call = new RpcCall();
         if (invocation.isVoid()) {
+            Timeout timeout;
+            if (timeoutMs > 0) {
+                //async timeout
+                timeout = RequestTimeoutManager.newTimeout(t -> {
+                    if (call.isDone()) {
+                        //服务调用已有返回结果
+                        return;
+                    }
+
+                    call.completeExceptionally(new RpcTimeoutException(invocation, timeoutMs));
+                }, timeoutMs);
+            } else {
+                timeout = null;
+            }
+
             CompletableFuture<Void> completeSignal = client.fireAndForget(command);
             completeSignal.whenCompleteAsync((response, t) ->
-                            onFireAndForgetCompleted(invocation, resultFuture, timeoutFuture, t),
+                            onFireAndForgetCompleted(invocation, call, timeout, t),
                     ReferenceContext.SCHEDULER);
         } else {
+            //request response超时由transport层统一管理
             CompletableFuture<RpcResponseCommand> respFuture = client.requestResponse(command);
 
             respFuture.whenCompleteAsync((response, t) ->
-                            onRequestAndResponseCompleted(invocation, resultFuture, timeoutFuture, response, t),
+                            onRequestAndResponseCompleted(invocation, call, timeoutMs, response, t),
                     ReferenceContext.SCHEDULER);
         }
 
-        return RpcResult.success(invocation, resultFuture);
+        return RpcResult.success(invocation, call);
+    }
+
+    /**
+     * server streaming rpc call
+     *
+     * @param invocation rpc call信息
+     * @param command    rpc request command
+     * @return stream元素flux
+     */
+    private Flux<Object> requestStream(Invocation invocation,
+                                       RpcRequestCommand command) {
+        Class<?> elementType = invocation.realReturnType();
+        return client.requestStream(command)
+                //prefetch即向server request-n的数量, user消费后再补充
+                .publishOn(STREAM_SCHEDULER, TransportConstants.STREAM_PREFETCH)
+                //cancel后丢弃的frame需释放bytes payload
+                .doOnDiscard(StreamFrameCommand.class, StreamFrameCommand::releaseElement)
+                .map(frame -> {
+                    frame.deserializeElement(elementType);
+                    return frame.getElement();
+                })
+                .onErrorMap(t -> {
+                    if (t instanceof RemoteStreamException) {
+                        return new ServerErrorException(String.format("rpc call fail, due to %s, invocation=%s", t.getMessage(), invocation));
+                    } else {
+                        return new RpcException("rpc call fail, invocation=" + invocation, t);
+                    }
+                });
     }
 
     /**
      * operation after fire and forget completed
      *
      * @param invocation    rpc call信息
-     * @param resultFuture  result future
-     * @param timeoutFuture rpc call timeout future
+     * @param call          rpc call
+     * @param timeout       rpc call timeout handle
      * @param t             rpc call异常
      */
     private void onFireAndForgetCompleted(@Nonnull Invocation invocation,
-                                          @Nonnull CompletableFuture<Object> resultFuture,
-                                          @Nullable Future<?> timeoutFuture,
+                                          @Nonnull RpcCall call,
+                                          @Nullable Timeout timeout,
                                           Throwable t) {
-        if (Objects.nonNull(timeoutFuture) && !timeoutFuture.isDone()) {
-            timeoutFuture.cancel(true);
+        if (Objects.nonNull(timeout)) {
+            timeout.cancel();
         }
 
-        if (resultFuture.isDone()) {
+        if (call.isDone()) {
             return;
         }
 
         if (Objects.isNull(t)) {
             //send rpc call success
-            resultFuture.complete(null);
+            call.complete(null);
         } else {
-            resultFuture.completeExceptionally(new RpcException("rpc call fail, invocation=" + invocation, t));
+            call.completeExceptionally(new RpcException("rpc call fail, invocation=" + invocation, t));
         }
     }
 
@@ -208,21 +259,17 @@ public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
      * operation after request response
      *
      * @param invocation    rpc call信息
-     * @param resultFuture  result future
-     * @param timeoutFuture rpc call timeout future
+     * @param call          rpc call
+     * @param timeoutMs     rpc call timeout
      * @param response      rpc response
      * @param t             rpc call异常
      */
     private void onRequestAndResponseCompleted(@Nonnull Invocation invocation,
-                                               @Nonnull CompletableFuture<Object> resultFuture,
-                                               @Nullable Future<?> timeoutFuture,
+                                               @Nonnull RpcCall call,
+                                               int timeoutMs,
                                                RpcResponseCommand response,
                                                Throwable t) {
-        if (Objects.nonNull(timeoutFuture) && !timeoutFuture.isDone()) {
-            timeoutFuture.cancel(true);
-        }
-
-        if (resultFuture.isDone()) {
+        if (call.isDone()) {
             return;
         }
 
@@ -231,16 +278,18 @@ public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
             try {
                 if (response.isOk()) {
                     response.deserializeResult(invocation.realReturnType());
-                    resultFuture.complete(response.getResult());
+                    call.complete(response.getResult());
                 } else {
                     response.deserializeResult(String.class);
-                    resultFuture.completeExceptionally(new ServerErrorException(String.format("rpc call fail, due to %s, invocation=%s", response.getResult(), invocation)));
+                    call.completeExceptionally(new ServerErrorException(String.format("rpc call fail, due to %s, invocation=%s", response.getResult(), invocation)));
                 }
             } catch (Exception e) {
-                resultFuture.completeExceptionally(new RpcException("rpc call fail, invocation=" + invocation, e));
+                call.completeExceptionally(new RpcException("rpc call fail, invocation=" + invocation, e));
             }
+        } else if (t instanceof RequestTimeoutException) {
+            call.completeExceptionally(new RpcTimeoutException(invocation, timeoutMs));
         } else {
-            resultFuture.completeExceptionally(new RpcException("rpc call fail, invocation=" + invocation, t));
+            call.completeExceptionally(new RpcException("rpc call fail, invocation=" + invocation, t));
         }
     }
 
@@ -268,6 +317,11 @@ public class DefaultReferenceInvoker<T> implements ReferenceInvoker<T> {
         return client.isAvailable();
     }
 
+    @Override
+    public boolean isWritable() {
+        return client.isWritable();
+    }
+
     @Override
     public void destroy() {
         client.shutdown();
@@ -15,8 +15,10 @@ import org.kin.kinrpc.transport.cmd.CodecException;
 import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
 import org.kin.kinrpc.utils.GsvUtils;
 import org.kin.kinrpc.utils.RpcUtils;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
 
 import java.util.Map;
 import java.util.Objects;
@@ -100,6 +102,7 @@ public class DefaultRpcRequestProcessor extends RpcRequestProcessor {
         if (request.isTimeout()) {
             //仅仅warning
             log.warn("rpc request timeout before process, request={}", request);
+            endStreamIfTimeout(requestContext, request);
             return;
         }
 
@@ -118,6 +121,18 @@ public class DefaultRpcRequestProcessor extends RpcRequestProcessor {
         }
     }
 
+    /**
+     * server stream request超时, 以error frame结束stream, 释放预先绑定的server stream
+     *
+     * @param requestContext rpc request context
+     * @param request        rpc request
+     */
+    private void endStreamIfTimeout(RequestContext requestContext, RpcRequestCommand request) {
+        if (request.isStream()) {
+            requestContext.writeResponseIfError(new RpcException("rpc request timeout, request=" + request));
+        }
+    }
+
     /**
      * 服务方法调用
      * !!!一般是在服务调用线程执行, 如果服务方法自定义异步执行逻辑, 那么就会在该异步执行线程执行
@@ -136,12 +151,16 @@ public class DefaultRpcRequestProcessor extends RpcRequestProcessor {
         if (request.isTimeout()) {
             //仅仅warning
             log.warn("process rpc request timeout after process finish, request={}", request);
+            endStreamIfTimeout(requestContext, request);
             return;
         }
 
         if (Objects.isNull(t)) {
             //服务调用正常结束
-            if (!oneWay) {
+            if (request.isStream()) {
+                //server streaming, 按client request-n写出stream元素
+                requestContext.writeStream(result instanceof Publisher ? (Publisher<?>) result : Mono.justOrEmpty(result));
+            } else if (!oneWay) {
                 requestContext.writeResponse(result);
             }
         } else {
@@ -34,7 +34,13 @@ public final class GrpcProtocol extends AbstractProtocol {
                 .stream()
                 .map(MethodMetadata::handlerId)
                 .collect(Collectors.toList());
-        grpcServer.registerService(service.serviceId(), handlerIds);
+        //server streaming服务方法
+        List<Integer> streamHandlerIds = service.getMethodMetadatas()
+                .stream()
+                .filter(MethodMetadata::isStreamReturn)
+                .map(MethodMetadata::handlerId)
+                .collect(Collectors.toList());
+        grpcServer.registerService(service.serviceId(), handlerIds, streamHandlerIds);
     }
 
     @Override
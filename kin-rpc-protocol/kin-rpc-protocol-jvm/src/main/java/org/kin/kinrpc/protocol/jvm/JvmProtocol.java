@@ -10,7 +10,6 @@ import org.kin.kinrpc.protocol.Protocol;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 在同一jvm内部直接调用
@@ -78,9 +77,8 @@ public class JvmProtocol implements Protocol {
                 return RpcResult.fail(invocation,
                         new RpcException(String.format("can not find service '%s'", invocation.service())));
             }
-            CompletableFuture<Object> future = new CompletableFuture<>();
-            rpcService.invoke(invocation).onFinish(future);
-            return RpcResult.success(invocation, future);
+            //直接复用服务方法调用的rpc result
+            return rpcService.invoke(invocation);
         }
 
         @Override
@@ -5,8 +5,11 @@ import org.kin.framework.utils.StringUtils;
 import org.kin.kinrpc.ServiceMetadata;
 import org.kin.kinrpc.config.ServerConfig;
 import org.kin.kinrpc.config.ServiceConfig;
+import org.kin.kinrpc.constants.ServiceMetadataConstants;
+import org.kin.kinrpc.transport.compression.Compressions;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
@@ -46,7 +49,13 @@ public class ApplicationMetadata {
      * @param serviceConfig 服务配置
      */
     public synchronized void register(ServiceConfig<?> serviceConfig) {
-        serviceMetadataMap.put(serviceConfig.getService(), serviceConfig.getMetadata());
+        Map<String, String> metadata = new HashMap<>(serviceConfig.getMetadata().getMetadata());
+        //声明provider支持的压缩实现, consumer据此决定是否压缩request
+        String compressions = Compressions.availableCodes();
+        if (StringUtils.isNotBlank(compressions)) {
+            metadata.put(ServiceMetadataConstants.COMPRESSION_KEY, compressions);
+        }
+        serviceMetadataMap.put(serviceConfig.getService(), new ServiceMetadata(metadata));
         update = true;
     }
 
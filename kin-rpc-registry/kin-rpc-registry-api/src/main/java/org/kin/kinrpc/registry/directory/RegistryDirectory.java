@@ -8,6 +8,7 @@ import org.kin.framework.utils.StringUtils;
 import org.kin.kinrpc.ReferenceInvoker;
 import org.kin.kinrpc.RegistryContext;
 import org.kin.kinrpc.ServiceInstance;
+import org.kin.kinrpc.common.AvailabilityVersion;
 import org.kin.kinrpc.config.ReferenceConfig;
 import org.kin.kinrpc.constants.ServiceMetadataConstants;
 import org.kin.kinrpc.protocol.Protocol;
@@ -38,6 +39,8 @@ public class RegistryDirectory extends AbstractDirectory implements ServiceInsta
     private final Registry registry;
     /** 订阅的invoker列表 */
     private volatile List<ReferenceInvoker<?>> invokers = Collections.emptyList();
+    /** 可用invoker快照, 仅当订阅的invoker列表或invoker可用性发生变化时才重建 */
+    private volatile ActiveInvokers activeInvokers = new ActiveInvokers(Collections.emptyList(), -1, Collections.emptyList());
     /** 标识是否正在处理服务发现实例 */
     private final AtomicBoolean discovering = new AtomicBoolean(false);
     /** 待处理的服务发现实例列表 */
@@ -56,11 +59,27 @@ public class RegistryDirectory extends AbstractDirectory implements ServiceInsta
 
     /**
      * 返回已订阅且活跃的invoker列表
+     * 返回的是不可变快照, 仅当订阅的invoker列表或invoker可用性发生变化时才重建, 否则无任何分配
      */
     private List<ReferenceInvoker<?>> getActiveInvokers() {
-        return invokers.stream()
-                .filter(ReferenceInvoker::isAvailable)
-                .collect(Collectors.toList());
+        List<ReferenceInvoker<?>> invokers = this.invokers;
+        //先读取版本号, 再重建, 保证重建期间的可用性变化会触发下一次重建
+        long availabilityVersion = AvailabilityVersion.current();
+        ActiveInvokers activeInvokers = this.activeInvokers;
+        if (activeInvokers.source == invokers &&
+                activeInvokers.availabilityVersion == availabilityVersion) {
+            return activeInvokers.invokers;
+        }
+
+        List<ReferenceInvoker<?>> available = new ArrayList<>(invokers.size());
+        for (ReferenceInvoker<?> invoker : invokers) {
+            if (invoker.isAvailable()) {
+                available.add(invoker);
+            }
+        }
+        activeInvokers = new ActiveInvokers(invokers, availabilityVersion, Collections.unmodifiableList(available));
+        this.activeInvokers = activeInvokers;
+        return activeInvokers.invokers;
     }
 
     @Override
@@ -296,4 +315,24 @@ public class RegistryDirectory extends AbstractDirectory implements ServiceInsta
     public String service() {
         return config.getService();
     }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 可用invoker快照
+     */
+    private static final class ActiveInvokers {
+        /** 构建快照时订阅的invoker列表 */
+        private final List<ReferenceInvoker<?>> source;
+        /** 构建快照时的可用性版本号 */
+        private final long availabilityVersion;
+        /** 可用invoker列表, 不可变 */
+        private final List<ReferenceInvoker<?>> invokers;
+
+        ActiveInvokers(List<ReferenceInvoker<?>> source, long availabilityVersion, List<ReferenceInvoker<?>> invokers) {
+            this.source = source;
+            this.availabilityVersion = availabilityVersion;
+            this.invokers = invokers;
+        }
+    }
 }
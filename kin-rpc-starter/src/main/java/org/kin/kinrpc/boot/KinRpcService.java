@@ -84,6 +84,9 @@ public @interface KinRpcService {
     /** 延迟发布时间, 毫秒 */
     long delay() default -1L;
 
+    /** 预热时间, 毫秒 */
+    long warmup() default -1L;
+
     /** 标识是否异步export */
     boolean exportAsync() default false;
 }
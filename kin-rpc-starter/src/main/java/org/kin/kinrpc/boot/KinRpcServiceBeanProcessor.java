@@ -147,6 +147,11 @@ public class KinRpcServiceBeanProcessor implements BeanPostProcessor, Applicatio
             serviceConfig.delay(delay);
         }
 
+        long warmup = (long) serviceAnnoAttrs.get("warmup");
+        if (warmup > 0) {
+            serviceConfig.warmup(warmup);
+        }
+
         boolean exportAsync = (boolean) serviceAnnoAttrs.get("exportAsync");
         if (exportAsync) {
             serviceConfig.exportAsync();
@@ -0,0 +1,31 @@
+package org.kin.kinrpc.constants;
+
+/**
+ * remoting client pool相关配置, 通过reference config的attachment配置
+ *
+ * @author huangjianqin
+ * @date 2023/9/4
+ */
+public final class ClientPoolConstants {
+    /** 同一remote server最少连接数 */
+    public static final String MIN_CONNECTIONS_KEY = "transport.pool.minConnections";
+    /** 同一remote server最多连接数, 大于1才会开启client pool */
+    public static final String MAX_CONNECTIONS_KEY = "transport.pool.maxConnections";
+    /** 单个连接in-flight request数量达到该阈值时, 新建连接 */
+    public static final String GROW_IN_FLIGHT_KEY = "transport.pool.growInFlight";
+    /** 多余连接空闲超过该时间(ms)后关闭 */
+    public static final String IDLE_TIMEOUT_KEY = "transport.pool.idleTimeout";
+
+    //-------------------------------------------------------------------------------------default
+    /** 默认同一remote server最少连接数 */
+    public static final int DEFAULT_MIN_CONNECTIONS = 1;
+    /** 默认同一remote server最多连接数 */
+    public static final int DEFAULT_MAX_CONNECTIONS = 1;
+    /** 默认新建连接的in-flight request数量阈值 */
+    public static final int DEFAULT_GROW_IN_FLIGHT = 128;
+    /** 默认多余连接空闲时间(ms) */
+    public static final int DEFAULT_IDLE_TIMEOUT = 60_000;
+
+    private ClientPoolConstants() {
+    }
+}
@@ -0,0 +1,25 @@
+package org.kin.kinrpc.constants;
+
+/**
+ * write合并(flush batch)相关配置, 通过{@link org.kin.kinrpc.config.ServerConfig}或reference config的attachment配置
+ *
+ * @author huangjianqin
+ * @date 2023/9/2
+ */
+public final class FlushBatchConstants {
+    /** 是否开启write合并 */
+    public static final String ENABLED_KEY = "transport.flushBatch.enabled";
+    /** 每次flush最多合并的command数量 */
+    public static final String MAX_COMMANDS_KEY = "transport.flushBatch.maxCommands";
+    /** 每次flush最多合并的字节数 */
+    public static final String MAX_BYTES_KEY = "transport.flushBatch.maxBytes";
+
+    //-------------------------------------------------------------------------------------default
+    /** 默认每次flush最多合并的command数量 */
+    public static final int DEFAULT_MAX_COMMANDS = 64;
+    /** 默认每次flush最多合并的字节数 */
+    public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+    private FlushBatchConstants() {
+    }
+}
@@ -1,24 +1,32 @@
 package org.kin.kinrpc.transport;
 
-import org.jctools.maps.NonBlockingHashMap;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import org.kin.framework.concurrent.SimpleThreadFactory;
 import org.kin.framework.concurrent.ThreadPoolUtils;
 import org.kin.framework.utils.SysUtils;
+import org.kin.kinrpc.common.AvailabilityVersion;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
 import org.kin.kinrpc.executor.DefaultManagedExecutor;
 import org.kin.kinrpc.executor.ManagedExecutor;
+import org.kin.kinrpc.transport.cmd.HeartbeatCommand;
 import org.kin.kinrpc.transport.cmd.RemotingCodec;
 import org.kin.kinrpc.transport.cmd.RemotingCommand;
+import org.kin.kinrpc.transport.cmd.RequestCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.FluxSink;
 
 import javax.annotation.Nullable;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -29,13 +37,25 @@ import java.util.function.Consumer;
  */
 public abstract class AbstractRemotingClient implements RemotingClient {
     private static final Logger log = LoggerFactory.getLogger(AbstractRemotingClient.class);
+    /** 单个连接默认最大in-flight request数量, 小于等于0表示不限制 */
+    private static final int DEFAULT_MAX_IN_FLIGHT = SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_MAX_IN_FLIGHT, 0);
 
     /** remoting codec */
     protected final RemotingCodec codec = new RemotingCodec();
     /** remoting processor */
     protected final RemotingProcessor remotingProcessor;
-    /** key -> request id, value -> request future */
-    protected final Map<Long, CompletableFuture<Object>> requestFutureMap = new NonBlockingHashMap<>();
+    /** request id generator, 递增到负数也是接受的, 唯一即可 */
+    private final AtomicLong requestIdGenerator = new AtomicLong();
+    /** 最大in-flight request数量, 小于等于0表示不限制 */
+    private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    /** in-flight request table, key -> request id, value -> request future */
+    protected final InFlightTable<RequestFuture> requestFutureTable = new InFlightTable<>();
+    /** 占用in-flight窗口的request数量, 即不包含心跳的in-flight request数量 */
+    private final AtomicInteger inFlightWindow = new AtomicInteger();
+    /** 进行中的client stream, key -> stream id, value -> client stream */
+    private final InFlightTable<ClientStream> clientStreamTable = new InFlightTable<>(64);
+    /** chunk frame重组器, 仅支持chunk frame的transport会用到 */
+    private final ChunkAssembler chunkAssembler = new ChunkAssembler();
     /** remote host */
     protected final String host;
     /** remote port */
@@ -52,8 +72,28 @@ public abstract class AbstractRemotingClient implements RemotingClient {
         @Nullable
         @Override
         public CompletableFuture<Object> removeRequestFuture(long requestId) {
+            //收到response, 说明remote已解码该request
+            codec.onResponse(requestId);
             return AbstractRemotingClient.this.removeRequestFuture(requestId);
         }
+
+        @Nullable
+        @Override
+        public ClientStream getClientStream(long streamId) {
+            //收到stream frame, 说明remote已解码该server stream request
+            codec.onResponse(streamId);
+            return clientStreamTable.get(streamId);
+        }
+
+        @Override
+        public ChunkAssembler chunkAssembler() {
+            return chunkAssembler;
+        }
+
+        @Override
+        public void onBatchSupported() {
+            AbstractRemotingClient.this.onBatchSupported();
+        }
     };
     /** client是否可用 */
     protected volatile boolean available;
@@ -68,12 +108,12 @@ public abstract class AbstractRemotingClient implements RemotingClient {
 
         @Override
         public void toUnhealth() {
-            available = false;
+            setAvailable(false);
         }
 
         @Override
         public void toHealth() {
-            available = true;
+            setAvailable(true);
         }
 
         @Nullable
@@ -94,6 +134,8 @@ public abstract class AbstractRemotingClient implements RemotingClient {
 
                 log.warn("{} start to reconnect", getName());
                 reconnectSignal = new CompletableFuture<>();
+                //remote不一定还保留原来的metadata header table
+                codec.resetHeaderTable();
                 AbstractRemotingClient.this.onReconnect();
                 return reconnectSignal;
             }
@@ -124,12 +166,13 @@ public abstract class AbstractRemotingClient implements RemotingClient {
         this.remoteAddress = new InetSocketAddress(host, port);
         this.name = getClass().getSimpleName() + String.format("(- R:%s)", remoteAddress());
         String executorName = name + "-command-processor";
+        //线程池满时拒绝而不是在transport io线程执行, 被拒绝的command由RemotingProcessor在io线程分派并统计
         ManagedExecutor executor = new DefaultManagedExecutor(
                 ThreadPoolUtils.newThreadPool(executorName, true,
                         SysUtils.CPU_NUM, SysUtils.DOUBLE_CPU,
                         60, TimeUnit.SECONDS,
                         new LinkedBlockingQueue<>(256), new SimpleThreadFactory(executorName),
-                        new ThreadPoolExecutor.CallerRunsPolicy()));
+                        new ThreadPoolExecutor.AbortPolicy()));
         this.remotingProcessor = new RemotingProcessor(codec, executor);
     }
 
@@ -213,7 +256,7 @@ public abstract class AbstractRemotingClient implements RemotingClient {
             synchronized (this) {
                 if (!isReconnecting()) {
                     log.error("{} connect to {} fail", name(), remoteAddress(), t);
-                    available = false;
+                    setAvailable(false);
                     RemotingClientHealthManager.onConnectFail(helper, t);
                 } else {
                     //重连中, 交给monitor继续重试
@@ -241,7 +284,7 @@ public abstract class AbstractRemotingClient implements RemotingClient {
             return;
         }
 
-        available = false;
+        setAvailable(false);
         RemotingClientHealthManager.onRequestFail(helper, t);
     }
 
@@ -279,6 +322,13 @@ public abstract class AbstractRemotingClient implements RemotingClient {
         reconnectSignal.completeExceptionally(t);
     }
 
+    /**
+     * remote支持解析batch frame, 即收到的command携带{@link org.kin.kinrpc.transport.cmd.RemotingCommand#FLAG_BATCH_SUPPORTED}
+     */
+    protected void onBatchSupported() {
+        //default do nothing
+    }
+
     /**
      * client connection closed
      */
@@ -289,6 +339,11 @@ public abstract class AbstractRemotingClient implements RemotingClient {
         }
 
         log.info("{} connection closed", name());
+        //chunk id仅在连接内有效
+        chunkAssembler.clear();
+        //server stream随连接断开而结束, 通知consumer, 否则consumer会一直等待
+        TransportException closedException = new TransportException(String.format("%s connection closed", name()));
+        clientStreamTable.drain(stream -> stream.onError(closedException));
 
         //remote down or remote force close connection
         RemotingClientHealthManager.onClientTerminated(helper);
@@ -303,12 +358,18 @@ public abstract class AbstractRemotingClient implements RemotingClient {
         }
 
         terminated = true;
+        AvailabilityVersion.increment();
         remotingProcessor.shutdown();
         onShutdown();
 
-        for (CompletableFuture<Object> future : requestFutureMap.values()) {
-            future.completeExceptionally(new TransportException(String.format("%s has terminated", name())));
-        }
+        TransportException terminatedException = new TransportException(String.format("%s has terminated", name()));
+        requestFutureTable.drain(future -> {
+            future.cancelTimeout();
+            future.releaseWindow();
+            future.completeExceptionally(terminatedException);
+        });
+        clientStreamTable.drain(stream -> stream.onError(terminatedException));
+        chunkAssembler.clear();
 
         RemotingClientHealthManager.removeClient(helper);
     }
@@ -319,18 +380,38 @@ public abstract class AbstractRemotingClient implements RemotingClient {
     protected abstract void onShutdown();
 
     /**
-     * 根据{@code requestId}创建request future
+     * 根据{@code command}创建request future, 并根据request超时时间调度超时任务
+     * 没有设置超时时间的request也会调度超时任务, 避免response丢失导致request future泄漏
+     * 如果in-flight request数量达到上限, 则返回以{@link InFlightLimitExceededException}结束的future, 调用者需判断future是否已结束, 已结束则不能发送request
      *
+     * @param command request command
      * @return request future
      */
-    protected final CompletableFuture<Object> createRequestFuture(long requestId) {
-        CompletableFuture<Object> requestFuture = new CompletableFuture<>();
-        CompletableFuture<Object> current = requestFutureMap.computeIfAbsent(requestId, i -> requestFuture);
-        if (current != requestFuture) {
+    protected final CompletableFuture<Object> createRequestFuture(RemotingCommand command) {
+        long requestId = command.getId();
+        //心跳不受in-flight窗口限制
+        boolean windowed = !(command instanceof HeartbeatCommand);
+        if (windowed) {
+            int maxInFlight = this.maxInFlight;
+            //先占用窗口, 超过上限再回滚, 避免check-then-act竞争
+            if (inFlightWindow.incrementAndGet() > maxInFlight && maxInFlight > 0) {
+                inFlightWindow.decrementAndGet();
+                CompletableFuture<Object> failFuture = new CompletableFuture<>();
+                failFuture.completeExceptionally(new InFlightLimitExceededException(String.format("%s in-flight requests reach limit(%d), requestId=%d", name(), maxInFlight, requestId)));
+                return failFuture;
+            }
+        }
+
+        RequestFuture requestFuture = new RequestFuture(requestId, windowed);
+        RequestFuture current = requestFutureTable.putIfAbsent(requestId, requestFuture);
+        if (Objects.nonNull(current)) {
+            requestFuture.releaseWindow();
             throw new RemotingException(String.format("request id(%d) duplicate!!!", requestId));
         }
 
-        return current;
+        long deadline = command instanceof RequestCommand ? ((RequestCommand) command).getTimeout() : 0;
+        requestFuture.timeout = RequestTimeoutManager.newDeadlineTimeout(requestFuture, deadline);
+        return requestFuture;
     }
 
     /**
@@ -341,7 +422,39 @@ public abstract class AbstractRemotingClient implements RemotingClient {
      */
     @Nullable
     protected final CompletableFuture<Object> removeRequestFuture(long requestId) {
-        return requestFutureMap.remove(requestId);
+        RequestFuture requestFuture = requestFutureTable.remove(requestId);
+        if (Objects.nonNull(requestFuture)) {
+            requestFuture.cancelTimeout();
+            requestFuture.releaseWindow();
+        }
+        return requestFuture;
+    }
+
+    /**
+     * 创建client stream, 用于接收server stream frame, stream结束后自动移除
+     * 仅适用于transport层没有request-n语义, 通过{@link RemotingProcessor}分派stream frame的client
+     *
+     * @param streamId stream id, 即server stream request id
+     * @param sink     consumer sink
+     * @return client stream
+     */
+    protected final ClientStream createClientStream(long streamId, FluxSink<StreamFrameCommand> sink) {
+        ClientStream stream = new ClientStream(streamId, sink, () -> clientStreamTable.remove(streamId));
+        ClientStream current = clientStreamTable.putIfAbsent(streamId, stream);
+        if (Objects.nonNull(current)) {
+            throw new RemotingException(String.format("stream id(%d) duplicate!!!", streamId));
+        }
+        return stream;
+    }
+
+    /**
+     * 移除client stream
+     *
+     * @param streamId stream id
+     * @return true表示移除成功, 即stream还未结束
+     */
+    protected final boolean removeClientStream(long streamId) {
+        return Objects.nonNull(clientStreamTable.remove(streamId));
     }
 
     /**
@@ -397,7 +510,22 @@ public abstract class AbstractRemotingClient implements RemotingClient {
     }
 
     /**
-     * request之前的操作, 一般用于检查
+     * 更新client是否可用, 如果发生变化, 则递增{@link AvailabilityVersion}
+     *
+     * @param available client是否可用
+     */
+    private void setAvailable(boolean available) {
+        if (this.available == available) {
+            return;
+        }
+
+        this.available = available;
+        AvailabilityVersion.increment();
+    }
+
+    /**
+     * request之前的操作, 一般用于检查, 并分配request id
+     * 子类覆盖时, 必须调用super
      *
      * @param command request command
      */
@@ -405,6 +533,55 @@ public abstract class AbstractRemotingClient implements RemotingClient {
         if (Objects.isNull(command)) {
             throw new IllegalArgumentException("request command is null");
         }
+
+        //request id仅需保证单个连接内唯一, 每次发送都重新分配, 避免同一command经不同client发送导致id冲突
+        command.setId(requestIdGenerator.incrementAndGet());
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * request future, 同时也是request超时任务
+     */
+    protected final class RequestFuture extends CompletableFuture<Object> implements TimerTask {
+        /** request id */
+        private final long requestId;
+        /** 是否占用in-flight窗口 */
+        private final boolean windowed;
+        /** request超时任务handle */
+        private volatile Timeout timeout;
+
+        private RequestFuture(long requestId, boolean windowed) {
+            this.requestId = requestId;
+            this.windowed = windowed;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            if (requestFutureTable.remove(requestId, this)) {
+                releaseWindow();
+                completeExceptionally(new RequestTimeoutException(String.format("%s wait response timeout, requestId=%d", name(), requestId)));
+            }
+        }
+
+        /**
+         * 释放占用的in-flight窗口, 仅在从{@link #requestFutureTable}移除后调用, 保证只释放一次
+         */
+        private void releaseWindow() {
+            if (windowed) {
+                inFlightWindow.decrementAndGet();
+            }
+        }
+
+        /**
+         * 取消request超时任务
+         */
+        private void cancelTimeout() {
+            Timeout timeout = this.timeout;
+            if (Objects.nonNull(timeout)) {
+                timeout.cancel();
+            }
+        }
     }
 
     //getter
@@ -425,4 +602,32 @@ public abstract class AbstractRemotingClient implements RemotingClient {
     public String name() {
         return name;
     }
+
+    @Override
+    public boolean isWritable() {
+        if (!isAvailable()) {
+            return false;
+        }
+
+        int maxInFlight = this.maxInFlight;
+        return maxInFlight <= 0 || inFlightWindow.get() < maxInFlight;
+    }
+
+    @Override
+    public int inFlight() {
+        return requestFutureTable.size();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * 设置最大in-flight request数量
+     *
+     * @param maxInFlight 最大in-flight request数量, 小于等于0表示不限制
+     */
+    public void maxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
 }
@@ -21,8 +21,8 @@ import java.util.concurrent.TimeUnit;
  * @date 2023/6/4
  */
 public abstract class AbstractRemotingServer implements RemotingServer {
-    /** remoting codec */
-    protected final RemotingCodec codec = new RemotingCodec();
+    /** remoting codec, 被所有连接共享 */
+    protected final RemotingCodec codec = new RemotingCodec(true);
     /** remoting processor */
     protected final RemotingProcessor remotingProcessor;
 
@@ -1,6 +1,8 @@
 package org.kin.kinrpc.transport;
 
 import io.netty.buffer.ByteBuf;
+import org.kin.kinrpc.transport.cmd.ClassTableDecoder;
+import org.kin.kinrpc.transport.cmd.ClassTableEncoder;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -32,6 +34,113 @@ public interface ChannelContext {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * write out server stream frame
+     *
+     * @param streamId stream id
+     * @param byteBuf  encoded stream frame
+     * @param last     是否是stream最后一个frame
+     * @param listener transport operation listener
+     */
+    default void writeStream(long streamId, ByteBuf byteBuf, boolean last, @Nonnull TransportOperationListener listener) {
+        writeAndFlush(byteBuf, listener);
+    }
+
+    /**
+     * 是否在收到server stream request时(transport io线程, 早于服务方法调用)预先创建并绑定server stream
+     * 适用于request-n和cancel以独立command发送, 并与server stream request经过同一连接按序到达的transport
+     * 保证早于服务方法调用结束到达的request-n和cancel不会因为找不到server stream而丢失
+     *
+     * @return true表示预先绑定server stream, 否则在{@link RemotingContext#writeStream}时才绑定
+     */
+    default boolean isStreamPreBound() {
+        return false;
+    }
+
+    /**
+     * 绑定server stream, 用于后续将client request-n或cancel传递给server stream
+     * transport层原生支持request-n的, 则直接将request-n传递给server stream
+     *
+     * @param stream server stream
+     */
+    default void bindStream(ServerStream stream) {
+        throw new UnsupportedOperationException("server stream is not supported");
+    }
+
+    /**
+     * 解绑server stream, 一般是server stream已结束
+     *
+     * @param streamId stream id
+     */
+    default void unbindStream(long streamId) {
+        //default do nothing
+    }
+
+    /**
+     * 返回已绑定的server stream
+     * client侧永远返回null
+     *
+     * @param streamId stream id
+     * @return server stream
+     */
+    @Nullable
+    default ServerStream getServerStream(long streamId) {
+        return null;
+    }
+
+    /**
+     * 返回client stream
+     * server侧永远返回null
+     *
+     * @param streamId stream id
+     * @return client stream
+     */
+    @Nullable
+    default ClientStream getClientStream(long streamId) {
+        return null;
+    }
+
+    /**
+     * 返回连接的chunk frame重组器
+     * 不支持chunk frame的transport返回null
+     *
+     * @return chunk frame重组器
+     */
+    @Nullable
+    default ChunkAssembler chunkAssembler() {
+        return null;
+    }
+
+    /**
+     * 返回连接的message class table encoder, 对端支持时基于class table编码response message data class
+     * codec被多个连接共享时(即server端), 由支持的transport按连接维护, 返回null表示不基于class table编码
+     *
+     * @return message class table encoder
+     */
+    @Nullable
+    default ClassTableEncoder classTableEncoder() {
+        return null;
+    }
+
+    /**
+     * 返回连接的message class table decoder
+     * 返回null则使用codec的decoder
+     *
+     * @return message class table decoder
+     */
+    @Nullable
+    default ClassTableDecoder classTableDecoder() {
+        return null;
+    }
+
+    /**
+     * 收到携带{@link org.kin.kinrpc.transport.cmd.RemotingCommand#FLAG_BATCH_SUPPORTED}的command时回调, 即对端支持解析batch frame
+     * 开启write合并的transport此时才允许将多个command合并成batch frame写出
+     */
+    default void onBatchSupported() {
+        //default do nothing
+    }
+
     /**
      * 返回client address
      * @return  client address
@@ -0,0 +1,147 @@
+package org.kin.kinrpc.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * chunk frame重组, 每个连接一个实例
+ * chunk字节以slice的形式组合成{@link CompositeByteBuf}, 无需分配与command等长的连续内存
+ * 单个连接正在重组的command总字节数不能超过上限, 超过上限的command会被丢弃
+ *
+ * @author huangjianqin
+ * @date 2023/9/7
+ * @see ChunkWriter
+ */
+public final class ChunkAssembler {
+    private static final Logger log = LoggerFactory.getLogger(ChunkAssembler.class);
+
+    /** 正在重组的command总字节数上限 */
+    private final int maxBytes;
+    /** byte buf allocator */
+    private final ByteBufAllocator allocator;
+    /** key -> chunk id, value -> 正在重组的command */
+    private final Map<Long, Assembly> assemblies = new HashMap<>();
+    /** 因超过上限而被丢弃, 但还未收到最后一个chunk的chunk id */
+    private final Set<Long> dropped = new HashSet<>();
+    /** 正在重组的command总字节数 */
+    private long assemblingBytes;
+
+    public ChunkAssembler() {
+        this(TransportConstants.CHUNK_REASSEMBLY_MAX_BYTES, ByteBufAllocator.DEFAULT);
+    }
+
+    public ChunkAssembler(int maxBytes, ByteBufAllocator allocator) {
+        this.maxBytes = maxBytes;
+        this.allocator = allocator;
+    }
+
+    /**
+     * 收到command首个chunk, 开始重组
+     *
+     * @param chunkId    chunk id
+     * @param totalBytes command总字节数
+     * @return false表示超过重组上限, 该command的所有chunk都会被丢弃
+     */
+    public synchronized boolean begin(long chunkId, int totalBytes) {
+        if (totalBytes < 0 || assemblingBytes + totalBytes > maxBytes) {
+            dropped.add(chunkId);
+            return false;
+        }
+
+        assemblingBytes += totalBytes;
+        assemblies.put(chunkId, new Assembly(allocator.compositeBuffer(Integer.MAX_VALUE), totalBytes));
+        return true;
+    }
+
+    /**
+     * 追加chunk字节
+     * 不会release {@code chunk}
+     *
+     * @param chunkId chunk id
+     * @param chunk   chunk字节
+     * @param last    是否是command最后一个chunk
+     * @return 重组完成的command byte buffer, null表示还未收到最后一个chunk或者该command已被丢弃
+     */
+    @Nullable
+    public synchronized ByteBuf append(long chunkId, ByteBuf chunk, boolean last) {
+        Assembly assembly = assemblies.get(chunkId);
+        if (Objects.isNull(assembly)) {
+            if (!dropped.contains(chunkId)) {
+                log.warn("receive unknown chunk, chunkId={}", chunkId);
+            } else if (last) {
+                dropped.remove(chunkId);
+            }
+            return null;
+        }
+
+        CompositeByteBuf byteBuf = assembly.byteBuf;
+        int chunkBytes = chunk.readableBytes();
+        if (byteBuf.readableBytes() + chunkBytes > assembly.totalBytes) {
+            remove(chunkId, assembly);
+            ReferenceCountUtil.safeRelease(byteBuf);
+            throw new TransportException(String.format("chunk bytes exceeds command total bytes %d, chunkId=%d", assembly.totalBytes, chunkId));
+        }
+
+        if (chunkBytes > 0) {
+            byteBuf.addComponent(true, chunk.retainedSlice());
+        }
+        if (!last) {
+            return null;
+        }
+
+        remove(chunkId, assembly);
+        if (byteBuf.readableBytes() != assembly.totalBytes) {
+            ReferenceCountUtil.safeRelease(byteBuf);
+            throw new TransportException(String.format("chunk bytes is less than command total bytes %d, chunkId=%d", assembly.totalBytes, chunkId));
+        }
+        return byteBuf;
+    }
+
+    /**
+     * 移除正在重组的command
+     */
+    private void remove(long chunkId, Assembly assembly) {
+        assemblies.remove(chunkId);
+        assemblingBytes -= assembly.totalBytes;
+    }
+
+    /**
+     * 释放所有正在重组的command, 一般用于连接断开后
+     */
+    public synchronized void clear() {
+        for (Assembly assembly : assemblies.values()) {
+            ReferenceCountUtil.safeRelease(assembly.byteBuf);
+        }
+        assemblies.clear();
+        dropped.clear();
+        assemblingBytes = 0;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 正在重组的command
+     */
+    private static final class Assembly {
+        /** 已收到的chunk字节 */
+        private final CompositeByteBuf byteBuf;
+        /** command总字节数 */
+        private final int totalBytes;
+
+        Assembly(CompositeByteBuf byteBuf, int totalBytes) {
+            this.byteBuf = byteBuf;
+            this.totalBytes = totalBytes;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package org.kin.kinrpc.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.jctools.queues.MpscUnboundedArrayQueue;
+import org.kin.transport.netty.utils.VarIntUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 大command分块写出, 避免单个大command长时间独占连接
+ * 超过chunk字节数的command会被切分成定长chunk frame, 格式见{@link TransportConstants#CHUNK_FRAME_MARKER}
+ * <p>
+ * 每个连接同一时刻仅有一个chunk frame在write, 上一个chunk frame写完后才write下一个, 多个大command的chunk轮流写出,
+ * 小command则直接write, 从而与chunk frame交错发送, 不会排队在大command后面
+ * <p>
+ * 相同order key的command需按序到达, 故当该order key存在未写完的大command时, 该order key后续的command排在其后写出
+ * 默认所有command都按连接写出顺序到达, 比如actor message需保证FIFO, 仅明确指定{@link #UNORDERED}的command(比如rpc request和response, 基于id关联)才可能被后写出的小command超过
+ *
+ * @author huangjianqin
+ * @date 2023/9/7
+ */
+public final class ChunkWriter {
+    private static final Logger log = LoggerFactory.getLogger(ChunkWriter.class);
+    /** 无需保证写出顺序 */
+    public static final long UNORDERED = -1;
+    /** 按连接写出顺序到达 */
+    public static final long CONNECTION_ORDERED = Long.MIN_VALUE;
+
+    /** chunk字节数, 小于等于0表示不分块 */
+    private final int chunkSize;
+    /** byte buf allocator */
+    private final ByteBufAllocator allocator;
+    /** 真正执行write的逻辑 */
+    private final BiConsumer<ByteBuf, TransportOperationListener> writer;
+    /** chunk id生成器 */
+    private final AtomicLong chunkIdGenerator = new AtomicLong();
+    /** 待写出的大command, 轮流写出一个chunk */
+    private final Queue<ChunkedWrite> queue = new MpscUnboundedArrayQueue<>(16);
+    /** work in progress, 大于0表示有线程正在drain队列 */
+    private final AtomicInteger wip = new AtomicInteger();
+    /** 是否有chunk frame正在write */
+    private volatile boolean writing;
+    /**
+     * key -> order key, value -> 该order key未写完的大command
+     * 需在{@code this}锁内访问
+     */
+    private final Map<Long, ChunkedWrite> orderedWrites = new HashMap<>();
+
+    public ChunkWriter(BiConsumer<ByteBuf, TransportOperationListener> writer) {
+        this(TransportConstants.CHUNK_SIZE, ByteBufAllocator.DEFAULT, writer);
+    }
+
+    public ChunkWriter(int chunkSize,
+                       ByteBufAllocator allocator,
+                       BiConsumer<ByteBuf, TransportOperationListener> writer) {
+        this.chunkSize = chunkSize;
+        this.allocator = allocator;
+        this.writer = writer;
+    }
+
+    /**
+     * write command, 按连接写出顺序到达
+     *
+     * @param byteBuf  encoded command
+     * @param listener transport operation listener
+     */
+    public void write(ByteBuf byteBuf, @Nonnull TransportOperationListener listener) {
+        write(byteBuf, listener, CONNECTION_ORDERED);
+    }
+
+    /**
+     * write command
+     *
+     * @param byteBuf  encoded command
+     * @param listener transport operation listener
+     * @param orderKey 相同order key的command按write顺序写出, 比如{@link #CONNECTION_ORDERED}或stream id, {@link #UNORDERED}表示无需保证写出顺序
+     */
+    public void write(ByteBuf byteBuf, @Nonnull TransportOperationListener listener, long orderKey) {
+        if (chunkSize <= 0) {
+            writer.accept(byteBuf, listener);
+            return;
+        }
+
+        if (orderKey != UNORDERED) {
+            synchronized (this) {
+                writeOrdered(byteBuf, listener, orderKey);
+            }
+            return;
+        }
+
+        if (byteBuf.readableBytes() <= chunkSize) {
+            writer.accept(byteBuf, listener);
+            return;
+        }
+
+        enqueue(new ChunkedWrite(byteBuf, listener, UNORDERED));
+    }
+
+    /**
+     * write需保证写出顺序的command
+     * !!! 需在{@code this}锁内调用
+     *
+     * @param byteBuf  encoded command
+     * @param listener transport operation listener
+     * @param orderKey order key
+     */
+    private void writeOrdered(ByteBuf byteBuf, TransportOperationListener listener, long orderKey) {
+        ChunkedWrite head = orderedWrites.get(orderKey);
+        if (Objects.nonNull(head)) {
+            //排在未写完的大command后面
+            head.addFollower(byteBuf, listener);
+            return;
+        }
+
+        if (byteBuf.readableBytes() <= chunkSize) {
+            writer.accept(byteBuf, listener);
+            return;
+        }
+
+        ChunkedWrite chunkedWrite = new ChunkedWrite(byteBuf, listener, orderKey);
+        orderedWrites.put(orderKey, chunkedWrite);
+        enqueue(chunkedWrite);
+    }
+
+    /**
+     * 大command入队, 等待分块写出
+     *
+     * @param chunkedWrite 待分块写出的大command
+     */
+    private void enqueue(ChunkedWrite chunkedWrite) {
+        queue.offer(chunkedWrite);
+        drain();
+    }
+
+    /**
+     * 如果没有chunk frame正在write, 则取出队首大command并写出其下一个chunk
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            //其他线程正在drain
+            return;
+        }
+
+        int missed = 1;
+        for (; ; ) {
+            if (!writing) {
+                ChunkedWrite chunkedWrite;
+                do {
+                    chunkedWrite = queue.poll();
+                    //跳过已失败的大command
+                } while (Objects.nonNull(chunkedWrite) && chunkedWrite.done);
+
+                if (Objects.nonNull(chunkedWrite)) {
+                    writing = true;
+                    writeChunk(chunkedWrite);
+                }
+            }
+
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 写出大command的下一个chunk, 如果还有剩余chunk, 则重新入队, 与其他大command轮流写出
+     *
+     * @param chunkedWrite 待分块写出的大command
+     */
+    private void writeChunk(ChunkedWrite chunkedWrite) {
+        ByteBuf chunk;
+        boolean last;
+        try {
+            ByteBuf byteBuf = chunkedWrite.byteBuf;
+            int len = Math.min(chunkSize, byteBuf.readableBytes());
+            last = len == byteBuf.readableBytes();
+
+            byte flag = 0;
+            ByteBuf header = allocator.buffer(16);
+            header.writeByte(TransportConstants.CHUNK_FRAME_MARKER);
+            VarIntUtils.writeRawVarInt64(header, chunkedWrite.chunkId, false);
+            if (chunkedWrite.first) {
+                flag |= TransportConstants.CHUNK_FLAG_FIRST;
+            }
+            if (!last) {
+                flag |= TransportConstants.CHUNK_FLAG_CONTINUATION;
+            }
+            header.writeByte(flag);
+            if (chunkedWrite.first) {
+                VarIntUtils.writeRawVarInt32(header, byteBuf.readableBytes());
+            }
+            chunkedWrite.first = false;
+
+            CompositeByteBuf frame = allocator.compositeBuffer(2);
+            frame.addComponent(true, header);
+            frame.addComponent(true, byteBuf.readRetainedSlice(len));
+            chunk = frame;
+        } catch (Exception e) {
+            log.error("split chunk fail", e);
+            chunkedWrite.fail(e);
+            writing = false;
+            drain();
+            return;
+        }
+
+        if (!last) {
+            //轮流写出
+            queue.offer(chunkedWrite);
+        }
+
+        writer.accept(chunk, new TransportOperationListener() {
+            @Override
+            public void onComplete() {
+                if (last) {
+                    chunkedWrite.complete();
+                }
+                writing = false;
+                drain();
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                chunkedWrite.fail(cause);
+                writing = false;
+                drain();
+            }
+        });
+    }
+
+    /**
+     * 大command写完或失败, 写出排在其后的command
+     *
+     * @param chunkedWrite 大command
+     */
+    private void onChunkedWriteDone(ChunkedWrite chunkedWrite) {
+        if (chunkedWrite.orderKey == UNORDERED) {
+            return;
+        }
+
+        synchronized (this) {
+            orderedWrites.remove(chunkedWrite.orderKey);
+            List<PendingWrite> followers = chunkedWrite.followers;
+            if (Objects.isNull(followers)) {
+                return;
+            }
+
+            for (PendingWrite follower : followers) {
+                writeOrdered(follower.byteBuf, follower.listener, chunkedWrite.orderKey);
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 排在大command后面的command
+     */
+    private static final class PendingWrite {
+        /** encoded command */
+        private final ByteBuf byteBuf;
+        /** transport operation listener */
+        private final TransportOperationListener listener;
+
+        PendingWrite(ByteBuf byteBuf, TransportOperationListener listener) {
+            this.byteBuf = byteBuf;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * 待分块写出的大command
+     */
+    private final class ChunkedWrite {
+        /** chunk id, 单个连接内唯一 */
+        private final long chunkId = chunkIdGenerator.incrementAndGet();
+        /** encoded command */
+        private final ByteBuf byteBuf;
+        /** transport operation listener */
+        private final TransportOperationListener listener;
+        /** order key */
+        private final long orderKey;
+        /** 是否还未写出首个chunk, 仅drain线程访问 */
+        private boolean first = true;
+        /** 是否已写完或失败 */
+        private volatile boolean done;
+        /**
+         * 排在其后的相同order key的command
+         * 需在{@link ChunkWriter}锁内访问
+         */
+        private List<PendingWrite> followers;
+
+        ChunkedWrite(ByteBuf byteBuf, TransportOperationListener listener, long orderKey) {
+            this.byteBuf = byteBuf;
+            this.listener = listener;
+            this.orderKey = orderKey;
+        }
+
+        /**
+         * 添加排在其后的command
+         */
+        void addFollower(ByteBuf byteBuf, TransportOperationListener listener) {
+            if (Objects.isNull(followers)) {
+                followers = new ArrayList<>(4);
+            }
+            followers.add(new PendingWrite(byteBuf, listener));
+        }
+
+        /**
+         * 所有chunk已写出
+         */
+        void complete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            ReferenceCountUtil.safeRelease(byteBuf);
+            listener.onComplete();
+            onChunkedWriteDone(this);
+        }
+
+        /**
+         * 写出失败, 不再写出剩余chunk
+         */
+        void fail(Throwable cause) {
+            if (done) {
+                return;
+            }
+            done = true;
+            ReferenceCountUtil.safeRelease(byteBuf);
+            listener.onFailure(cause);
+            onChunkedWriteDone(this);
+        }
+    }
+}
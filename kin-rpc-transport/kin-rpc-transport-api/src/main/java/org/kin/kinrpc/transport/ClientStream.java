@@ -0,0 +1,110 @@
+package org.kin.kinrpc.transport;
+
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.SynchronousSink;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * client stream, 将收到的server stream frame转发给consumer
+ * 仅转发{@link StreamFrameCommand.Type#NEXT} frame, 收到完成或异常frame后结束stream
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+public final class ClientStream {
+    /** stream id, 即server stream request id */
+    private final long streamId;
+    /** consumer sink */
+    private final FluxSink<StreamFrameCommand> sink;
+    /** stream结束后回调, 一般用于移除stream */
+    private final Runnable onTerminate;
+    /** 是否已结束 */
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    public ClientStream(long streamId, FluxSink<StreamFrameCommand> sink) {
+        this(streamId, sink, () -> {
+        });
+    }
+
+    public ClientStream(long streamId, FluxSink<StreamFrameCommand> sink, Runnable onTerminate) {
+        this.streamId = streamId;
+        this.sink = sink;
+        this.onTerminate = onTerminate;
+    }
+
+    /**
+     * 处理server stream frame, 用于transport层原生支持stream的client(比如rsocket), 直接基于stream operator转换frame
+     *
+     * @param frame server stream frame
+     * @param sink  consumer sink
+     */
+    public static void handle(StreamFrameCommand frame, SynchronousSink<StreamFrameCommand> sink) {
+        if (frame.isNext()) {
+            sink.next(frame);
+        } else if (frame.isComplete()) {
+            sink.complete();
+        } else {
+            frame.deserializeElement(String.class);
+            sink.error(new RemoteStreamException(frame.getElement()));
+        }
+    }
+
+    /**
+     * 收到server stream frame
+     *
+     * @param frame server stream frame
+     */
+    public void onFrame(StreamFrameCommand frame) {
+        if (terminated.get()) {
+            frame.releaseElement();
+            return;
+        }
+
+        if (frame.isNext()) {
+            sink.next(frame);
+        } else if (frame.isComplete()) {
+            if (terminate()) {
+                sink.complete();
+            }
+        } else {
+            frame.deserializeElement(String.class);
+            onError(new RemoteStreamException(frame.getElement()));
+        }
+    }
+
+    /**
+     * stream异常结束
+     *
+     * @param t 异常
+     */
+    public void onError(Throwable t) {
+        if (terminate()) {
+            sink.error(t);
+        }
+    }
+
+    /**
+     * 标识stream结束
+     *
+     * @return true表示本次调用结束了stream
+     */
+    private boolean terminate() {
+        if (!terminated.compareAndSet(false, true)) {
+            return false;
+        }
+
+        onTerminate.run();
+        return true;
+    }
+
+    //getter
+    public long getStreamId() {
+        return streamId;
+    }
+
+    public boolean isTerminated() {
+        return terminated.get();
+    }
+}
@@ -28,6 +28,8 @@ public final class CommandHelper {
         registerFactory(MessageCommand.class, MessageCommand::new);
         registerFactory(RpcRequestCommand.class, RpcRequestCommand::new);
         registerFactory(RpcResponseCommand.class, RpcResponseCommand::new);
+        registerFactory(StreamFrameCommand.class, StreamFrameCommand::new);
+        registerFactory(StreamRequestNCommand.class, StreamRequestNCommand::new);
 
     }
 
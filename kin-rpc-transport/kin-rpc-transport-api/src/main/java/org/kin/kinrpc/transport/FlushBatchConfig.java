@@ -0,0 +1,65 @@
+package org.kin.kinrpc.transport;
+
+import com.google.common.base.Preconditions;
+import org.kin.kinrpc.config.AttachableConfig;
+import org.kin.kinrpc.constants.FlushBatchConstants;
+
+import javax.annotation.Nullable;
+
+/**
+ * write合并配置
+ * <p>
+ * batch frame是新增的帧格式, 旧版本无法解析, 升级顺序: 先升级接收方(server和client都会接收), 再开启write合并
+ * 即使开启, 也仅当对端command携带{@link org.kin.kinrpc.transport.cmd.RemotingCommand#FLAG_BATCH_SUPPORTED}后才真正合并,
+ * 所以与未升级的对端通信时退化为逐个write
+ *
+ * @author huangjianqin
+ * @date 2023/9/2
+ * @see FlushBatcher
+ */
+public final class FlushBatchConfig {
+    /** 每次flush最多合并的command数量 */
+    private final int maxCommands;
+    /** 每次flush最多合并的字节数 */
+    private final int maxBytes;
+
+    public FlushBatchConfig(int maxCommands, int maxBytes) {
+        Preconditions.checkArgument(maxCommands > 0, "flush batch max commands must be greater than 0");
+        Preconditions.checkArgument(maxBytes > 0, "flush batch max bytes must be greater than 0");
+        this.maxCommands = maxCommands;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 从config attachment中解析write合并配置
+     *
+     * @param config attachable config
+     * @return write合并配置, 如果未开启则返回null
+     */
+    @Nullable
+    public static FlushBatchConfig fromAttachments(AttachableConfig<?> config) {
+        if (!config.boolAttachment(FlushBatchConstants.ENABLED_KEY)) {
+            return null;
+        }
+
+        return new FlushBatchConfig(config.intAttachment(FlushBatchConstants.MAX_COMMANDS_KEY, FlushBatchConstants.DEFAULT_MAX_COMMANDS),
+                config.intAttachment(FlushBatchConstants.MAX_BYTES_KEY, FlushBatchConstants.DEFAULT_MAX_BYTES));
+    }
+
+    //getter
+    public int getMaxCommands() {
+        return maxCommands;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "FlushBatchConfig{" +
+                "maxCommands=" + maxCommands +
+                ", maxBytes=" + maxBytes +
+                '}';
+    }
+}
@@ -0,0 +1,265 @@
+package org.kin.kinrpc.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.jctools.queues.MpscUnboundedArrayQueue;
+import org.kin.transport.netty.utils.VarIntUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * write合并, 减少flush次数(即syscall次数)
+ * 并发write的command先入队, 同一时刻仅有一个线程负责drain队列, 将多个command合并成一个batch frame后再write and flush
+ * 无竞争时, 每次write都会立即flush, 不会引入额外延迟; 有竞争时, drain线程flush期间入队的command会合并到下一次flush,
+ * 单次flush最多合并{@link FlushBatchConfig#getMaxCommands()}个command或{@link FlushBatchConfig#getMaxBytes()}字节
+ * <p>
+ * 仅有一个command时直接write原始command, 多个command时使用batch frame, 格式见{@link TransportConstants#BATCH_FRAME_MARKER}
+ * <p>
+ * 旧版本对端无法解析batch frame, 所以仅当对端command携带{@link org.kin.kinrpc.transport.cmd.RemotingCommand#FLAG_BATCH_SUPPORTED}
+ * 并调用{@link #enableBatch()}后才合并, 在此之前drain出来的command仍逐个write
+ *
+ * @author huangjianqin
+ * @date 2023/9/2
+ */
+public final class FlushBatcher {
+    private static final Logger log = LoggerFactory.getLogger(FlushBatcher.class);
+
+    /** write合并配置 */
+    private final FlushBatchConfig config;
+    /** byte buf allocator */
+    private final ByteBufAllocator allocator;
+    /** 真正执行write and flush的逻辑 */
+    private final BiConsumer<ByteBuf, TransportOperationListener> flusher;
+    /** 待flush的command */
+    private final Queue<PendingWrite> queue = new MpscUnboundedArrayQueue<>(64);
+    /** work in progress, 大于0表示有线程正在drain队列 */
+    private final AtomicInteger wip = new AtomicInteger();
+    /** 当前batch, 仅drain线程访问 */
+    private final List<PendingWrite> batch = new ArrayList<>();
+    /** 对端是否支持解析batch frame, 重连后需重新协商 */
+    private volatile boolean batchEnabled;
+    /** flush次数 */
+    private final LongAdder flushes = new LongAdder();
+    /** 已flush的command数量 */
+    private final LongAdder flushedCommands = new LongAdder();
+
+    public FlushBatcher(FlushBatchConfig config,
+                        BiConsumer<ByteBuf, TransportOperationListener> flusher) {
+        this(config, ByteBufAllocator.DEFAULT, flusher);
+    }
+
+    public FlushBatcher(FlushBatchConfig config,
+                        ByteBufAllocator allocator,
+                        BiConsumer<ByteBuf, TransportOperationListener> flusher) {
+        this.config = config;
+        this.allocator = allocator;
+        this.flusher = flusher;
+    }
+
+    /**
+     * write command, 可能与其他并发write的command合并后flush
+     *
+     * @param byteBuf  encoded command
+     * @param listener transport operation listener
+     */
+    public void write(ByteBuf byteBuf, @Nonnull TransportOperationListener listener) {
+        queue.offer(new PendingWrite(byteBuf, listener));
+        if (wip.getAndIncrement() != 0) {
+            //其他线程正在drain
+            return;
+        }
+
+        int missed = 1;
+        for (; ; ) {
+            drain();
+
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 对端支持解析batch frame, 开启合并
+     */
+    public void enableBatch() {
+        if (!batchEnabled) {
+            batchEnabled = true;
+        }
+    }
+
+    /**
+     * 关闭合并, 一般用于重连后, 直到重新收到对端的{@link org.kin.kinrpc.transport.cmd.RemotingCommand#FLAG_BATCH_SUPPORTED}
+     */
+    public void disableBatch() {
+        batchEnabled = false;
+    }
+
+    /**
+     * drain队列, 直到队列为空
+     */
+    private void drain() {
+        int maxCommands = config.getMaxCommands();
+        int maxBytes = config.getMaxBytes();
+        for (; ; ) {
+            int bytes = 0;
+            PendingWrite pendingWrite;
+            while (batch.size() < maxCommands &&
+                    bytes < maxBytes &&
+                    (pendingWrite = queue.poll()) != null) {
+                batch.add(pendingWrite);
+                bytes += pendingWrite.byteBuf.readableBytes();
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("flush batch fail", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * flush当前batch
+     */
+    private void flush() {
+        int size = batch.size();
+        flushes.increment();
+        flushedCommands.add(size);
+        if (size == 1 || !batchEnabled) {
+            //对端还不支持batch frame时逐个write
+            for (PendingWrite pendingWrite : batch) {
+                flusher.accept(pendingWrite.byteBuf, pendingWrite.listener);
+            }
+            return;
+        }
+
+        TransportOperationListener[] listeners = new TransportOperationListener[size];
+        CompositeByteBuf frame = allocator.compositeBuffer(size + 1);
+        ByteBuf header = allocator.buffer(1 + 5 * (size + 1));
+        try {
+            header.writeByte(TransportConstants.BATCH_FRAME_MARKER);
+            VarIntUtils.writeRawVarInt32(header, size);
+            for (PendingWrite pendingWrite : batch) {
+                VarIntUtils.writeRawVarInt32(header, pendingWrite.byteBuf.readableBytes());
+            }
+            frame.addComponent(true, header);
+            header = null;
+
+            for (int i = 0; i < size; i++) {
+                PendingWrite pendingWrite = batch.get(i);
+                frame.addComponent(true, pendingWrite.byteBuf);
+                listeners[i] = pendingWrite.listener;
+            }
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(header);
+            ReferenceCountUtil.safeRelease(frame);
+            for (PendingWrite pendingWrite : batch) {
+                if (pendingWrite.byteBuf.refCnt() > 0) {
+                    ReferenceCountUtil.safeRelease(pendingWrite.byteBuf);
+                }
+                pendingWrite.listener.onFailure(e);
+            }
+            return;
+        }
+
+        flusher.accept(frame, new BatchListener(listeners));
+    }
+
+    /**
+     * 返回flush次数
+     *
+     * @return flush次数
+     */
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * 返回已flush的command数量
+     *
+     * @return 已flush的command数量
+     */
+    public long getFlushedCommands() {
+        return flushedCommands.sum();
+    }
+
+    /**
+     * 返回对端是否支持解析batch frame
+     *
+     * @return true表示已开启合并
+     */
+    public boolean isBatchEnabled() {
+        return batchEnabled;
+    }
+
+    /**
+     * 返回平均每次flush合并的command数量
+     *
+     * @return 平均每次flush合并的command数量
+     */
+    public double getAvgCommandsPerFlush() {
+        long flushes = getFlushes();
+        return flushes > 0 ? (double) getFlushedCommands() / flushes : 0;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 待flush的command
+     */
+    private static final class PendingWrite {
+        /** encoded command */
+        private final ByteBuf byteBuf;
+        /** transport operation listener */
+        private final TransportOperationListener listener;
+
+        PendingWrite(ByteBuf byteBuf, TransportOperationListener listener) {
+            this.byteBuf = byteBuf;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * batch frame write结果通知batch内所有command的listener
+     */
+    private static final class BatchListener implements TransportOperationListener {
+        /** batch内所有command的listener */
+        private final TransportOperationListener[] listeners;
+
+        BatchListener(TransportOperationListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void onComplete() {
+            for (TransportOperationListener listener : listeners) {
+                listener.onComplete();
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            for (TransportOperationListener listener : listeners) {
+                listener.onFailure(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.kin.kinrpc.transport;
+
+/**
+ * 连接in-flight request数量达到上限, 拒绝发送request
+ *
+ * @author huangjianqin
+ * @date 2023/9/5
+ */
+public class InFlightLimitExceededException extends RemotingException {
+    private static final long serialVersionUID = 4816052271870046563L;
+
+    public InFlightLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,303 @@
+package org.kin.kinrpc.transport;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * in-flight request table, key -> request id, value -> request相关对象(一般是request future)
+ * 基于long key的开放寻址(线性探测)hash表, 避免request id装箱
+ * 按request id分段(striped), 每段独立加锁, 降低并发竞争
+ * 删除时采用backward shift, 不需要墓碑标记, 删除与插入均为常数时间
+ * <p>
+ * value不允许为null, null表示slot为空
+ *
+ * @author huangjianqin
+ * @date 2023/9/3
+ */
+public final class InFlightTable<V> {
+    /** 默认预估最大in-flight request数量 */
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+    /** 最大段数 */
+    private static final int MAX_STRIPES = 64;
+    /** 负载因子阈值, 超过则扩容 */
+    private static final float LOAD_FACTOR = 0.5F;
+
+    /** 段 */
+    private final Stripe<V>[] stripes;
+    /** 段数 - 1 */
+    private final int stripeMask;
+
+    public InFlightTable() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * @param expectedSize 预估最大in-flight request数量, 用于初始化表容量, 超过后会自动扩容
+     */
+    @SuppressWarnings("unchecked")
+    public InFlightTable(int expectedSize) {
+        Preconditions.checkArgument(expectedSize > 0, "expected size must be greater than 0");
+        int stripeNum = Math.min(MAX_STRIPES, ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors() * 2));
+        int stripeCapacity = ceilingPowerOfTwo(Math.max(8, (int) (expectedSize / stripeNum / LOAD_FACTOR)));
+        this.stripes = new Stripe[stripeNum];
+        for (int i = 0; i < stripeNum; i++) {
+            stripes[i] = new Stripe<>(stripeCapacity);
+        }
+        this.stripeMask = stripeNum - 1;
+    }
+
+    /**
+     * 返回不小于{@code value}的2的幂
+     */
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * 打散request id, request id一般是连续的
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 返回{@code key}所在段
+     */
+    private Stripe<V> stripe(int hash) {
+        return stripes[(hash >>> 16) & stripeMask];
+    }
+
+    /**
+     * 如果不存在{@code key}, 则插入
+     *
+     * @param key   request id
+     * @param value value
+     * @return 已存在的value, 如果不存在则返回null, 表示插入成功
+     */
+    @Nullable
+    public V putIfAbsent(long key, V value) {
+        Preconditions.checkNotNull(value);
+        int hash = hash(key);
+        return stripe(hash).putIfAbsent(key, hash, value);
+    }
+
+    /**
+     * 返回{@code key}对应的value
+     *
+     * @param key request id
+     * @return value, 如果不存在则返回null
+     */
+    @Nullable
+    public V get(long key) {
+        int hash = hash(key);
+        return stripe(hash).get(key, hash);
+    }
+
+    /**
+     * 移除并返回{@code key}对应的value
+     *
+     * @param key request id
+     * @return 被移除的value, 如果不存在则返回null
+     */
+    @Nullable
+    public V remove(long key) {
+        int hash = hash(key);
+        return stripe(hash).remove(key, hash, null);
+    }
+
+    /**
+     * 当{@code key}对应的value是{@code value}时才移除
+     *
+     * @param key   request id
+     * @param value 期望的value
+     * @return true表示移除成功
+     */
+    public boolean remove(long key, V value) {
+        Preconditions.checkNotNull(value);
+        int hash = hash(key);
+        return stripe(hash).remove(key, hash, value) != null;
+    }
+
+    /**
+     * 移除所有元素, 并逐个交给{@code consumer}处理, 一般用于client shutdown时批量fail in-flight request
+     * {@code consumer}在锁外执行
+     *
+     * @param consumer 被移除元素的处理逻辑
+     */
+    public void drain(Consumer<? super V> consumer) {
+        for (Stripe<V> stripe : stripes) {
+            for (V value : stripe.drain()) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    /**
+     * 返回in-flight request数量, 非精确快照
+     *
+     * @return in-flight request数量
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 段, 开放寻址hash表
+     */
+    private static final class Stripe<V> {
+        /** keys */
+        private long[] keys;
+        /** values, null表示slot为空 */
+        private Object[] values;
+        /** slot数 - 1 */
+        private int mask;
+        /** 元素数量 */
+        private volatile int size;
+        /** 扩容阈值 */
+        private int threshold;
+
+        Stripe(int capacity) {
+            init(capacity);
+        }
+
+        /**
+         * 初始化slot数组
+         */
+        private void init(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V putIfAbsent(long key, int hash, V value) {
+            int index = hash & mask;
+            Object cur;
+            while ((cur = values[index]) != null) {
+                if (keys[index] == key) {
+                    return (V) cur;
+                }
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = key;
+            values[index] = value;
+            //单写多读(size()), 无需原子操作
+            int size = this.size + 1;
+            this.size = size;
+            if (size > threshold) {
+                resize();
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V get(long key, int hash) {
+            int index = hash & mask;
+            Object cur;
+            while ((cur = values[index]) != null) {
+                if (keys[index] == key) {
+                    return (V) cur;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * 移除{@code key}对应的value
+         *
+         * @param expected 期望的value, null表示不校验
+         * @return 被移除的value
+         */
+        @SuppressWarnings("unchecked")
+        synchronized V remove(long key, int hash, @Nullable V expected) {
+            int index = hash & mask;
+            Object cur;
+            while ((cur = values[index]) != null) {
+                if (keys[index] == key) {
+                    if (expected != null && expected != cur) {
+                        return null;
+                    }
+                    shiftBack(index);
+                    size = size - 1;
+                    return (V) cur;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * backward shift deletion
+         * 将{@code index}后续同一探测链上的元素前移, 保证线性探测查找不会提前中断
+         */
+        private void shiftBack(int index) {
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (values[next] != null) {
+                int ideal = hash(keys[next]) & mask;
+                //next元素的理想slot不在(hole, next]区间内, 则可以前移到hole
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            values[hole] = null;
+        }
+
+        /**
+         * 扩容至2倍
+         */
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            init(oldKeys.length << 1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                Object value = oldValues[i];
+                if (value == null) {
+                    continue;
+                }
+
+                long key = oldKeys[i];
+                int index = hash(key) & mask;
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = value;
+            }
+        }
+
+        /**
+         * 移除并返回所有value
+         */
+        @SuppressWarnings("unchecked")
+        synchronized List<V> drain() {
+            List<V> drained = new ArrayList<>(size);
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value != null) {
+                    drained.add((V) value);
+                    values[i] = null;
+                }
+            }
+            size = 0;
+            return drained;
+        }
+    }
+}
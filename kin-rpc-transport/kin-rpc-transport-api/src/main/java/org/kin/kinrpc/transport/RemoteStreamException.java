@@ -0,0 +1,15 @@
+package org.kin.kinrpc.transport;
+
+/**
+ * remote server stream异常结束, 即收到{@link org.kin.kinrpc.transport.cmd.StreamFrameCommand.Type#ERROR} frame
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+public class RemoteStreamException extends RemotingException {
+    private static final long serialVersionUID = 3194623187532018957L;
+
+    public RemoteStreamException(String message) {
+        super(message);
+    }
+}
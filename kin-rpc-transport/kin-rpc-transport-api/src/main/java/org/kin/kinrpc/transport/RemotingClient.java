@@ -1,6 +1,9 @@
 package org.kin.kinrpc.transport;
 
 import org.kin.kinrpc.transport.cmd.RequestCommand;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
+import reactor.core.publisher.Flux;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,6 +33,25 @@ public interface RemotingClient {
      */
     boolean isAvailable();
 
+    /**
+     * client是否可写, 即可用且未达到in-flight request数量上限
+     * 用于负载均衡时跳过饱和的连接
+     *
+     * @return true表示client可写
+     */
+    default boolean isWritable() {
+        return isAvailable();
+    }
+
+    /**
+     * 返回in-flight request数量, 即已发送但未收到response的request数量
+     *
+     * @return in-flight request数量
+     */
+    default int inFlight() {
+        return 0;
+    }
+
     /**
      * 返回remote address
      *
@@ -125,6 +147,17 @@ public interface RemotingClient {
         }
     }
 
+    /**
+     * server stream request, 返回的flux仅包含{@link StreamFrameCommand.Type#NEXT} frame, 收到完成或异常frame后结束
+     * 订阅后才会发送request, consumer的request-n会传递给server, server仅发送consumer已request的元素
+     *
+     * @param command server stream request command
+     * @return server stream frame flux
+     */
+    default Flux<StreamFrameCommand> requestStream(RpcRequestCommand command) {
+        return Flux.error(new UnsupportedOperationException(String.format("%s does not support server stream", getClass().getSimpleName())));
+    }
+
     /**
      * 添加{@link  RemotingClientStateObserver}实例
      *
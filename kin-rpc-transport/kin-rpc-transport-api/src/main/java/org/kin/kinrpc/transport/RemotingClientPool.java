@@ -1,29 +1,81 @@
 package org.kin.kinrpc.transport;
 
-import org.kin.framework.utils.CollectionUtils;
+import org.kin.framework.concurrent.SimpleThreadFactory;
+import org.kin.framework.concurrent.ThreadPoolUtils;
+import org.kin.framework.utils.SysUtils;
 import org.kin.kinrpc.transport.cmd.RequestCommand;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 
 import javax.annotation.Nullable;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
+ * 同一remote server的remoting client pool
+ * 基于power of two choices选择in-flight request较少的client, 避免热点服务实例的请求都排队在单一连接上
+ * 如果配置了client factory, 则当选中client的in-flight request数量达到阈值时新建连接, 并关闭空闲的多余连接
+ *
  * @author huangjianqin
  * @date 2023/6/29
  */
 public class RemotingClientPool<C extends RemotingClient> implements RemotingClient {
-    /** remoting client pool */
-    private final List<C> clients = new CopyOnWriteArrayList<>();
-    /** round robin形式选择哪个client发起rpc request */
-    private final AtomicInteger idx = new AtomicInteger();
+    private static final Logger log = LoggerFactory.getLogger(RemotingClientPool.class);
+    /** 新建连接, 关闭空闲连接scheduler */
+    private static final ScheduledThreadPoolExecutor SCHEDULER = ThreadPoolUtils.newScheduledThreadPool("remoting-client-pool", true,
+            1, new SimpleThreadFactory("remoting-client-pool", true),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    /** 新建连接executor, 连接是同步阻塞的, 避免阻塞{@link #SCHEDULER} */
+    private static final ThreadPoolExecutor CONNECTOR;
+    /** 空client数组 */
+    private static final PooledClient[] EMPTY_CLIENTS = new PooledClient[0];
+
+    static {
+        CONNECTOR = ThreadPoolUtils.newThreadPool("remoting-client-pool-connector", true,
+                SysUtils.CPU_NUM, SysUtils.CPU_NUM, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new SimpleThreadFactory("remoting-client-pool-connector", true));
+        CONNECTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /** remoting client pool, copy on write */
+    private volatile PooledClient[] clients = EMPTY_CLIENTS;
+    /** client factory, 为null则不会新建或关闭连接 */
+    @Nullable
+    private final Supplier<C> clientFactory;
+    /** client pool配置, 为null则不会新建或关闭连接 */
+    @Nullable
+    private final RemotingClientPoolConfig config;
+    /** 是否正在新建连接 */
+    private final AtomicBoolean growing = new AtomicBoolean();
+    /** 已添加的client state observer, 新建的连接也需要添加 */
+    private final List<RemotingClientStateObserver> observers = new CopyOnWriteArrayList<>();
+    /** 空闲连接检查future */
+    @Nullable
+    private final ScheduledFuture<?> idleCheckFuture;
+    /** pool是否已shutdown */
+    private volatile boolean terminated;
 
     public RemotingClientPool() {
+        this(Collections.emptyList());
     }
 
     public RemotingClientPool(List<C> clients) {
-        this.clients.addAll(clients);
+        this.clientFactory = null;
+        this.config = null;
+        this.idleCheckFuture = null;
+        addClients(clients);
+    }
+
+    public RemotingClientPool(Supplier<C> clientFactory, RemotingClientPoolConfig config) {
+        this.clientFactory = clientFactory;
+        this.config = config;
+        long checkInterval = Math.max(1000, config.getIdleTimeout() / 2);
+        this.idleCheckFuture = SCHEDULER.scheduleWithFixedDelay(this::checkIdle, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -31,7 +83,8 @@ public class RemotingClientPool<C extends RemotingClient> implements RemotingCli
      *
      * @param clients remoting client数组
      */
-    public void addClients(C... clients) {
+    @SafeVarargs
+    public final void addClients(C... clients) {
         addClients(Arrays.asList(clients));
     }
 
@@ -41,18 +94,66 @@ public class RemotingClientPool<C extends RemotingClient> implements RemotingCli
      * @param clients remoting client列表
      */
     public void addClients(Collection<C> clients) {
-        this.clients.addAll(clients);
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            PooledClient[] oldClients = this.clients;
+            PooledClient[] newClients = Arrays.copyOf(oldClients, oldClients.length + clients.size());
+            int i = oldClients.length;
+            for (C client : clients) {
+                newClients[i++] = new PooledClient(client, now);
+            }
+            this.clients = newClients;
+        }
+    }
+
+    /**
+     * 移除remoting client
+     *
+     * @param client remoting client
+     * @return true表示移除成功
+     */
+    private synchronized boolean removeClient(PooledClient client) {
+        PooledClient[] oldClients = this.clients;
+        for (int i = 0; i < oldClients.length; i++) {
+            if (oldClients[i] != client) {
+                continue;
+            }
+
+            PooledClient[] newClients = new PooledClient[oldClients.length - 1];
+            System.arraycopy(oldClients, 0, newClients, 0, i);
+            System.arraycopy(oldClients, i + 1, newClients, i, oldClients.length - i - 1);
+            this.clients = newClients;
+            return true;
+        }
+        return false;
     }
 
     @Override
     public void connect() {
-        throw new UnsupportedOperationException("remoting client pool does not support connect operation");
+        if (Objects.isNull(clientFactory) || Objects.isNull(config)) {
+            for (PooledClient pooledClient : clients) {
+                pooledClient.client.connect();
+            }
+            return;
+        }
+
+        List<C> newClients = new ArrayList<>(config.getMinConnections());
+        for (int i = clients.length; i < config.getMinConnections(); i++) {
+            C client = clientFactory.get();
+            client.connect();
+            newClients.add(client);
+        }
+        addClients(newClients);
     }
 
     @Override
     public boolean isAvailable() {
-        for (C client : clients) {
-            if (client.isAvailable()) {
+        for (PooledClient pooledClient : clients) {
+            if (pooledClient.client.isAvailable()) {
                 return true;
             }
         }
@@ -61,43 +162,208 @@ public class RemotingClientPool<C extends RemotingClient> implements RemotingCli
 
     @Override
     public String remoteAddress() {
-        if (CollectionUtils.isNonEmpty(clients)) {
-            return clients.get(0).remoteAddress();
+        PooledClient[] clients = this.clients;
+        if (clients.length > 0) {
+            return clients[0].client.remoteAddress();
         }
         return "";
     }
 
+    @Override
+    public boolean isWritable() {
+        for (PooledClient pooledClient : clients) {
+            if (pooledClient.client.isWritable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int inFlight() {
+        int inFlight = 0;
+        for (PooledClient pooledClient : clients) {
+            inFlight += pooledClient.client.inFlight();
+        }
+        return inFlight;
+    }
+
     @Override
     public void shutdown() {
-        Iterator<C> iterator = clients.iterator();
-        while (iterator.hasNext()) {
-            C client = iterator.next();
-            client.shutdown();
-            iterator.remove();
+        terminated = true;
+        if (Objects.nonNull(idleCheckFuture)) {
+            idleCheckFuture.cancel(true);
+        }
+
+        PooledClient[] clients;
+        synchronized (this) {
+            clients = this.clients;
+            this.clients = EMPTY_CLIENTS;
+        }
+
+        for (PooledClient pooledClient : clients) {
+            pooledClient.client.shutdown();
         }
     }
 
     /**
-     * 返回一个可用client
+     * 基于power of two choices, 随机选择两个client, 返回in-flight request较少的可写client
+     * 如果两者均不可写, 则退化为返回任一可用client
+     * 同时更新选中client的最近使用时间, 用于判断连接是否空闲
      *
      * @return remoting client
      */
+    @SuppressWarnings("unchecked")
     @Nullable
     private C select() {
-        int size = clients.size();
-        int counter = 0;
-        while (counter < size) {
-            int i = idx.incrementAndGet();
-            C c = clients.get(i % size);
-            if (c.isAvailable()) {
-                return c;
+        PooledClient[] clients = this.clients;
+        int size = clients.length;
+        PooledClient selected = null;
+        if (size == 1) {
+            selected = clients[0].client.isAvailable() ? clients[0] : null;
+        } else if (size > 1) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(size);
+            int j = random.nextInt(size - 1);
+            if (j >= i) {
+                j++;
+            }
+
+            PooledClient c1 = clients[i];
+            PooledClient c2 = clients[j];
+            boolean c1Writable = c1.client.isWritable();
+            boolean c2Writable = c2.client.isWritable();
+            if (c1Writable && c2Writable) {
+                selected = c1.client.inFlight() <= c2.client.inFlight() ? c1 : c2;
+            } else if (c1Writable) {
+                selected = c1;
+            } else if (c2Writable) {
+                selected = c2;
+            } else {
+                //fallback, 顺序查找可写client, 其次是可用client
+                for (PooledClient pooledClient : clients) {
+                    if (pooledClient.client.isWritable()) {
+                        selected = pooledClient;
+                        break;
+                    }
+
+                    if (Objects.isNull(selected) && pooledClient.client.isAvailable()) {
+                        selected = pooledClient;
+                    }
+                }
             }
-            counter++;
         }
 
+        if (Objects.nonNull(selected)) {
+            selected.lastUsedTime = System.currentTimeMillis();
+            tryGrow(selected.client, size);
+            return (C) selected.client;
+        }
+        if (size == 0) {
+            tryGrow(null, size);
+        }
         return null;
     }
 
+    /**
+     * 如果选中client的in-flight request数量达到阈值, 则在{@link #CONNECTOR}异步新建连接
+     *
+     * @param selected 选中的client
+     * @param size     当前连接数
+     */
+    private void tryGrow(@Nullable RemotingClient selected, int size) {
+        if (Objects.isNull(clientFactory) || Objects.isNull(config) || terminated) {
+            return;
+        }
+
+        if (size >= config.getMaxConnections()) {
+            return;
+        }
+
+        if (Objects.nonNull(selected) && selected.inFlight() < config.getGrowInFlight()) {
+            return;
+        }
+
+        if (!growing.compareAndSet(false, true)) {
+            return;
+        }
+
+        CONNECTOR.execute(() -> {
+            try {
+                if (terminated || clients.length >= config.getMaxConnections()) {
+                    return;
+                }
+
+                C client = clientFactory.get();
+                client.connect();
+                if (!observers.isEmpty()) {
+                    client.addObservers(observers);
+                }
+
+                if (terminated) {
+                    client.shutdown();
+                    return;
+                }
+
+                addClients(Collections.singletonList(client));
+                log.info("remoting client pool grows to {} connections, remote={}", clients.length, client.remoteAddress());
+            } catch (Exception e) {
+                log.error("remoting client pool create new connection error", e);
+            } finally {
+                growing.set(false);
+            }
+        });
+    }
+
+    /**
+     * 关闭空闲超时的多余连接, 即超过idle timeout没有被选中, 并且没有in-flight request
+     * 先从pool移除, 不再被选中, 待in-flight request全部完成后再shutdown
+     */
+    private void checkIdle() {
+        if (Objects.isNull(config) || terminated) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            PooledClient[] clients = this.clients;
+            int size = clients.length;
+            for (PooledClient pooledClient : clients) {
+                if (size <= config.getMinConnections()) {
+                    break;
+                }
+
+                RemotingClient client = pooledClient.client;
+                if (now - pooledClient.lastUsedTime < config.getIdleTimeout() ||
+                        client.inFlight() > 0) {
+                    continue;
+                }
+
+                if (removeClient(pooledClient)) {
+                    size--;
+                    closeWhenDrained(client);
+                    log.info("remoting client pool shrinks to {} connections, remote={}", size, client.remoteAddress());
+                }
+            }
+        } catch (Exception e) {
+            log.error("remoting client pool check idle connections error", e);
+        }
+    }
+
+    /**
+     * 待in-flight request全部完成后再shutdown client
+     *
+     * @param client 已移出pool的client
+     */
+    private void closeWhenDrained(RemotingClient client) {
+        if (client.inFlight() <= 0) {
+            client.shutdown();
+            return;
+        }
+
+        SCHEDULER.schedule(() -> closeWhenDrained(client), 1, TimeUnit.SECONDS);
+    }
+
     @Override
     public <T> CompletableFuture<T> requestResponse(RequestCommand command) {
         C client = select();
@@ -116,10 +382,48 @@ public class RemotingClientPool<C extends RemotingClient> implements RemotingCli
         return client.fireAndForget(command);
     }
 
+    @Override
+    public Flux<StreamFrameCommand> requestStream(RpcRequestCommand command) {
+        C client = select();
+        if (Objects.isNull(client)) {
+            return Flux.error(new TransportException("can not find available client"));
+        }
+        return client.requestStream(command);
+    }
+
     @Override
     public void addObservers(Collection<RemotingClientStateObserver> observers) {
-        for (C client : clients) {
-            client.addObservers(observers);
+        this.observers.addAll(observers);
+        for (PooledClient pooledClient : clients) {
+            pooledClient.client.addObservers(observers);
+        }
+    }
+
+    //getter
+
+    /**
+     * 返回当前连接数
+     *
+     * @return 当前连接数
+     */
+    public int size() {
+        return clients.length;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * pool中的client及其最近使用时间
+     */
+    private static final class PooledClient {
+        /** remoting client */
+        private final RemotingClient client;
+        /** 最近被选中发送request的时间戳(毫秒), 并发更新丢失少量更新可以接受 */
+        private volatile long lastUsedTime;
+
+        PooledClient(RemotingClient client, long lastUsedTime) {
+            this.client = client;
+            this.lastUsedTime = lastUsedTime;
         }
     }
 }
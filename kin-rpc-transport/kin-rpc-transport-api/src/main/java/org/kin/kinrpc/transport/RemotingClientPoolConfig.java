@@ -0,0 +1,82 @@
+package org.kin.kinrpc.transport;
+
+import com.google.common.base.Preconditions;
+import org.kin.kinrpc.config.AttachableConfig;
+import org.kin.kinrpc.constants.ClientPoolConstants;
+
+import javax.annotation.Nullable;
+
+/**
+ * remoting client pool配置
+ *
+ * @author huangjianqin
+ * @date 2023/9/4
+ * @see RemotingClientPool
+ */
+public final class RemotingClientPoolConfig {
+    /** 最少连接数 */
+    private final int minConnections;
+    /** 最多连接数 */
+    private final int maxConnections;
+    /** 单个连接in-flight request数量达到该阈值时, 新建连接 */
+    private final int growInFlight;
+    /** 多余连接空闲超过该时间(ms)后关闭 */
+    private final int idleTimeout;
+
+    public RemotingClientPoolConfig(int minConnections, int maxConnections, int growInFlight, int idleTimeout) {
+        Preconditions.checkArgument(minConnections > 0, "pool min connections must be greater than 0");
+        Preconditions.checkArgument(maxConnections >= minConnections, "pool max connections must be greater than or equal to min connections");
+        Preconditions.checkArgument(growInFlight > 0, "pool grow in-flight must be greater than 0");
+        Preconditions.checkArgument(idleTimeout > 0, "pool idle timeout must be greater than 0");
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        this.growInFlight = growInFlight;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * 从config attachment中解析remoting client pool配置
+     *
+     * @param config attachable config
+     * @return remoting client pool配置, 如果最多连接数不大于1则返回null, 即不开启client pool
+     */
+    @Nullable
+    public static RemotingClientPoolConfig fromAttachments(AttachableConfig<?> config) {
+        int maxConnections = config.intAttachment(ClientPoolConstants.MAX_CONNECTIONS_KEY, ClientPoolConstants.DEFAULT_MAX_CONNECTIONS);
+        if (maxConnections <= 1) {
+            return null;
+        }
+
+        return new RemotingClientPoolConfig(config.intAttachment(ClientPoolConstants.MIN_CONNECTIONS_KEY, ClientPoolConstants.DEFAULT_MIN_CONNECTIONS),
+                maxConnections,
+                config.intAttachment(ClientPoolConstants.GROW_IN_FLIGHT_KEY, ClientPoolConstants.DEFAULT_GROW_IN_FLIGHT),
+                config.intAttachment(ClientPoolConstants.IDLE_TIMEOUT_KEY, ClientPoolConstants.DEFAULT_IDLE_TIMEOUT));
+    }
+
+    //getter
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getGrowInFlight() {
+        return growInFlight;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return "RemotingClientPoolConfig{" +
+                "minConnections=" + minConnections +
+                ", maxConnections=" + maxConnections +
+                ", growInFlight=" + growInFlight +
+                ", idleTimeout=" + idleTimeout +
+                '}';
+    }
+}
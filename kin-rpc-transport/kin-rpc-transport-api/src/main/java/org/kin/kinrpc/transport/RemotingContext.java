@@ -2,6 +2,7 @@ package org.kin.kinrpc.transport;
 
 import org.kin.kinrpc.transport.cmd.*;
 import org.kin.kinrpc.transport.message.Error;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,13 +40,30 @@ public class RemotingContext{
      */
     private void writeAndFlush(RemotingCommand command, @Nonnull TransportOperationListener listener) {
         if (!(command instanceof RpcResponseCommand) &&
+                !(command instanceof StreamFrameCommand) &&
                 !(command instanceof MessageCommand) &&
                 !(command instanceof HeartbeatCommand)) {
             throw new TransportException("can not write message which type is" + command.getClass().getName());
         }
 
         try {
-            channelContext.writeAndFlush(codec.encode(command), listener);
+            if (command instanceof MessageCommand) {
+                channelContext.writeAndFlush(codec.encode(command, classTableEncoder((MessageCommand) command)), new TransportOperationListener() {
+                    @Override
+                    public void onComplete() {
+                        //确认该message携带的class table entry
+                        codec.onWritten(command);
+                        listener.onComplete();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable cause) {
+                        listener.onFailure(cause);
+                    }
+                });
+            } else {
+                channelContext.writeAndFlush(codec.encode(command), listener);
+            }
         } catch (Exception e) {
             String errorMsg = String.format("write response command fail, id=%d, due to %s", command.getId(), e.getClass().getName() + ": " + e.getMessage());
             log.error("write response command fail, id={}", command.getId(), e);
@@ -55,18 +73,27 @@ public class RemotingContext{
         }
     }
 
+    /**
+     * 返回编码response message使用的class table encoder
+     * 仅当request携带{@link RemotingCommand#FLAG_CLASS_INDEX_SUPPORTED}时才基于连接的class table编码data class
+     * @param message   response message
+     * @return  class table encoder, null表示直接编码全限定类名
+     */
+    @Nullable
+    private ClassTableEncoder classTableEncoder(MessageCommand message){
+        if (!message.isRequesterClassIndexSupported()) {
+            return null;
+        }
+        return channelContext.classTableEncoder();
+    }
+
     /**
      * write response with error message
      * @param command   remoting command
      * @param errorMsg  error message
      */
     public void writeResponseIfError(RemotingCommand command, String errorMsg){
-        RemotingCommand respondCommand = null;
-        if (command instanceof RpcRequestCommand) {
-            respondCommand = RpcResponseCommand.error(command, errorMsg);
-        } else if (command instanceof MessageCommand) {
-            respondCommand = new MessageCommand((MessageCommand) command, new Error(errorMsg));
-        }
+        RemotingCommand respondCommand = errorResponse(command, errorMsg);
 
         if (Objects.nonNull(respondCommand)) {
             writeResponse(respondCommand);
@@ -80,18 +107,34 @@ public class RemotingContext{
      * @param listener transport operation listener
      */
     private void writeResponseIfError(RemotingCommand command, String errorMsg, @Nonnull TransportOperationListener listener){
-        RemotingCommand respondCommand = null;
-        if (command instanceof RpcRequestCommand) {
-            respondCommand = RpcResponseCommand.error(command, errorMsg);
-        } else if (command instanceof MessageCommand) {
-            respondCommand = new MessageCommand((MessageCommand) command, new Error(errorMsg));
-        }
+        RemotingCommand respondCommand = errorResponse(command, errorMsg);
 
         if (Objects.nonNull(respondCommand)) {
             writeAndFlush(respondCommand, listener);
         }
     }
 
+    /**
+     * 根据{@code command}类型返回对应的error response command
+     * @param command   remoting command
+     * @param errorMsg  error message
+     * @return  error response command, 不需要response则返回null
+     */
+    @Nullable
+    private RemotingCommand errorResponse(RemotingCommand command, String errorMsg){
+        if (command instanceof RpcRequestCommand) {
+            if (((RpcRequestCommand) command).isStream()) {
+                //server stream request, 以error frame结束stream, 并解绑预先绑定的server stream
+                channelContext.unbindStream(command.getId());
+                return StreamFrameCommand.error(command, errorMsg);
+            }
+            return RpcResponseCommand.error(command, errorMsg);
+        } else if (command instanceof MessageCommand) {
+            return new MessageCommand((MessageCommand) command, new Error(errorMsg));
+        }
+        return null;
+    }
+
     /**
      * 返回client address
      * @return  client address
@@ -111,6 +154,28 @@ public class RemotingContext{
         return channelContext.removeRequestFuture(requestId);
     }
 
+    /**
+     * 返回已绑定的server stream
+     * client侧永远返回null
+     * @param streamId stream id
+     * @return  server stream
+     */
+    @Nullable
+    public ServerStream getServerStream(long streamId){
+        return channelContext.getServerStream(streamId);
+    }
+
+    /**
+     * 返回client stream
+     * server侧永远返回null
+     * @param streamId stream id
+     * @return  client stream
+     */
+    @Nullable
+    public ClientStream getClientStream(long streamId){
+        return channelContext.getClientStream(streamId);
+    }
+
     /**
      * 根据interest返回对应的{@link RequestProcessor}实例
      * @param interest request processor interest
@@ -141,4 +206,37 @@ public class RemotingContext{
             }
         });
     }
+
+    /**
+     * 订阅{@code publisher}, 并按client request-n将元素以stream frame写出
+     * @param request   server stream request
+     * @param publisher 服务方法返回的publisher
+     */
+    public void writeStream(RpcRequestCommand request, Publisher<?> publisher){
+        ServerStream stream;
+        if (channelContext.isStreamPreBound()) {
+            //收到server stream request时已绑定
+            stream = channelContext.getServerStream(request.getId());
+            if (Objects.isNull(stream)) {
+                //client已cancel或者连接已断开
+                if (log.isDebugEnabled()) {
+                    log.debug("server stream has been cancelled before subscribe, id={} from {}", request.getId(), address());
+                }
+                return;
+            }
+        } else {
+            stream = new ServerStream(codec, channelContext, request);
+            try {
+                //先绑定, 保证订阅前到达的request-n不会丢失
+                channelContext.bindStream(stream);
+            } catch (Exception e) {
+                log.error("bind server stream fail, id={}", request.getId(), e);
+                writeResponseIfError(request, e.getClass().getName() + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        stream.request(request.getInitialRequestN());
+        publisher.subscribe(stream);
+    }
 }
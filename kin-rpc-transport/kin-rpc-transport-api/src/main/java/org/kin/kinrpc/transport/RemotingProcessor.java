@@ -2,15 +2,28 @@ package org.kin.kinrpc.transport;
 
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
 import org.kin.framework.utils.ClassUtils;
+import org.kin.framework.utils.SysUtils;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
 import org.kin.kinrpc.executor.ManagedExecutor;
+import org.kin.kinrpc.transport.cmd.HeartbeatCommand;
 import org.kin.kinrpc.transport.cmd.RemotingCodec;
 import org.kin.kinrpc.transport.cmd.RemotingCommand;
+import org.kin.kinrpc.transport.cmd.CommandCodes;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
+import org.kin.kinrpc.transport.cmd.RpcResponseCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
 import org.kin.kinrpc.transport.cmd.processor.*;
+import org.kin.transport.netty.utils.VarIntUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * protocol byte buffer统一处理入口
@@ -20,6 +33,8 @@ import java.util.*;
  */
 public class RemotingProcessor {
     private static final Logger log = LoggerFactory.getLogger(RemotingProcessor.class);
+    /** 是否在transport io线程解码command header, 并按command类型分派 */
+    private static final boolean IO_THREAD_DISPATCH = Boolean.parseBoolean(SysUtils.getSysProperty(KinRpcSystemProperties.TRANSPORT_IO_THREAD_DISPATCH, "true"));
 
     /** key -> command code, value -> {@link CommandProcessor}实例 */
     private final Map<Short, CommandProcessor<RemotingCommand>> cmdProcessorMap = new HashMap<>();
@@ -29,17 +44,34 @@ public class RemotingProcessor {
     private final RemotingCodec codec;
     /** {@link RequestProcessor}实例管理 */
     private final RequestProcessorRegistry requestProcessorRegistry = new RequestProcessorRegistry();
+    /** 是否在transport io线程解码command header, 并按command类型分派 */
+    private final boolean ioThreadDispatch;
+    /** 已提交到线程池但还未开始处理的command数量 */
+    private final AtomicInteger queued = new AtomicInteger();
+    /** 提交到线程池的command数量 */
+    private final LongAdder dispatched = new LongAdder();
+    /** 在transport io线程直接处理的command数量 */
+    private final LongAdder inlined = new LongAdder();
+    /** 被线程池拒绝的command数量 */
+    private final LongAdder rejected = new LongAdder();
 
-    @SuppressWarnings("unchecked")
     public RemotingProcessor(RemotingCodec codec, ManagedExecutor executor) {
+        this(codec, executor, IO_THREAD_DISPATCH);
+    }
+
+    @SuppressWarnings("unchecked")
+    public RemotingProcessor(RemotingCodec codec, ManagedExecutor executor, boolean ioThreadDispatch) {
         Preconditions.checkNotNull(executor);
         this.codec = codec;
         this.executor = executor;
+        this.ioThreadDispatch = ioThreadDispatch;
         //internal
         List<CommandProcessor<? extends RemotingCommand>> commandProcessors = Arrays.asList(new HeartbeatCommandProcessor(),
                 new MessageCommandProcessor(),
                 new RpcRequestCommandProcessor(),
-                new RpcResponseCommandProcessor());
+                new RpcResponseCommandProcessor(),
+                new StreamFrameCommandProcessor(),
+                new StreamRequestNCommandProcessor());
         for (CommandProcessor<? extends RemotingCommand> commandProcessor : commandProcessors) {
             Class<? extends RemotingCommand> type = (Class<? extends RemotingCommand>)
                     ClassUtils.getSuperInterfacesGenericActualTypes(CommandProcessor.class, commandProcessor.getClass()).get(0);
@@ -56,13 +88,287 @@ public class RemotingProcessor {
      * @param in      protocol byte buffer
      */
     public void process(ChannelContext context, ByteBuf in) {
+        if (in.readableBytes() > 0 &&
+                in.getUnsignedByte(in.readerIndex()) == TransportConstants.BATCH_FRAME_MARKER) {
+            //多个command合并的batch frame
+            processBatch(context, in);
+            return;
+        }
+
+        processFrame(context, in);
+    }
+
+    /**
+     * process chunk frame或者single command
+     *
+     * @param context channel context
+     * @param in      protocol byte buffer
+     */
+    private void processFrame(ChannelContext context, ByteBuf in) {
+        if (in.readableBytes() > 0 &&
+                in.getUnsignedByte(in.readerIndex()) == TransportConstants.CHUNK_FRAME_MARKER) {
+            //大command的其中一块
+            processChunk(context, in);
+            return;
+        }
+
+        process0(context, in);
+    }
+
+    /**
+     * 拆分batch frame, 逐个process command
+     * 会对{@code in}进行{@link ByteBuf#release()}操作
+     *
+     * @param context channel context
+     * @param in      batch frame byte buffer
+     * @see FlushBatcher
+     */
+    private void processBatch(ChannelContext context, ByteBuf in) {
+        try {
+            //skip marker
+            in.skipBytes(1);
+            int size = VarIntUtils.readRawVarInt32(in);
+            int[] lens = new int[size];
+            for (int i = 0; i < size; i++) {
+                lens[i] = VarIntUtils.readRawVarInt32(in);
+            }
+
+            for (int len : lens) {
+                processFrame(context, in.retainedSlice(in.readerIndex(), len));
+                in.skipBytes(len);
+            }
+        } catch (Exception e) {
+            log.error("process batch frame error", e);
+        } finally {
+            ReferenceCountUtil.safeRelease(in);
+        }
+    }
+
+    /**
+     * 重组chunk frame, 收到最后一个chunk后process重组后的command
+     * 会对{@code in}进行{@link ByteBuf#release()}操作
+     *
+     * @param context channel context
+     * @param in      chunk frame byte buffer
+     * @see ChunkWriter
+     */
+    private void processChunk(ChannelContext context, ByteBuf in) {
+        try {
+            ChunkAssembler assembler = context.chunkAssembler();
+            if (Objects.isNull(assembler)) {
+                log.error("chunk frame is not supported, from {}", context.address());
+                return;
+            }
+
+            //skip marker
+            in.skipBytes(1);
+            long chunkId = VarIntUtils.readRawVarInt64(in, false);
+            byte flag = in.readByte();
+            if ((flag & TransportConstants.CHUNK_FLAG_FIRST) != 0) {
+                int totalBytes = VarIntUtils.readRawVarInt32(in);
+                if (!assembler.begin(chunkId, totalBytes)) {
+                    onChunkOverflow(context, in, totalBytes);
+                    return;
+                }
+            }
+
+            ByteBuf command = assembler.append(chunkId, in, (flag & TransportConstants.CHUNK_FLAG_CONTINUATION) == 0);
+            if (Objects.nonNull(command)) {
+                process0(context, command);
+            }
+        } catch (Exception e) {
+            log.error("process chunk frame error", e);
+        } finally {
+            ReferenceCountUtil.safeRelease(in);
+        }
+    }
+
+    /**
+     * 大command超过chunk重组上限, 该command的所有chunk都会被丢弃
+     * 根据首个chunk中的command header, 通知request发起方失败
+     *
+     * @param context    channel context
+     * @param in         首个chunk字节, 以command header开头
+     * @param totalBytes command总字节数
+     */
+    private void onChunkOverflow(ChannelContext context, ByteBuf in, int totalBytes) {
+        String errorMsg = String.format("command bytes %d exceeds chunk reassembly limit %d",
+                totalBytes, TransportConstants.CHUNK_REASSEMBLY_MAX_BYTES);
+        short cmdCode = in.readUnsignedByte();
+        short version = in.readUnsignedByte();
+        long id = VarIntUtils.readRawVarInt64(in, true);
+        short flag = in.readShort();
+        log.warn("{}, drop command, cmdCode={}, id={}, from {}", errorMsg, cmdCode, id, context.address());
+
+        if (cmdCode == CommandCodes.RPC_RESPONSE) {
+            //client, 直接complete request future
+            CompletableFuture<Object> future = context.removeRequestFuture(id);
+            if (Objects.nonNull(future)) {
+                future.completeExceptionally(new TransportException(errorMsg));
+            }
+            return;
+        }
+
+        if (cmdCode == CommandCodes.STREAM_FRAME) {
+            //client, 结束client stream
+            ClientStream stream = context.getClientStream(id);
+            if (Objects.nonNull(stream)) {
+                stream.onError(new TransportException(errorMsg));
+            }
+            return;
+        }
+
+        //server, response error
+        RemotingCommand command = CommandHelper.createCommandByCode(cmdCode);
+        command.setVersion(version);
+        command.setId(id);
+        command.setFlag(flag);
+        new RemotingContext(codec, requestProcessorRegistry, context).writeResponseIfError(command, errorMsg);
+    }
+
+    /**
+     * process single command
+     *
+     * @param context channel context
+     * @param in      protocol byte buffer
+     */
+    private void process0(ChannelContext context, ByteBuf in) {
+        short cmdCode = in.getUnsignedByte(in.readerIndex());
+        if (ioThreadDispatch ||
+                cmdCode == CommandCodes.STREAM_FRAME ||
+                cmdCode == CommandCodes.MESSAGE ||
+                (cmdCode == CommandCodes.RPC_REQUEST && context.isStreamPreBound())) {
+            //stream frame必须按序处理, 不能提交到线程池
+            //message需在io线程按序解码data class, 见ClassTableEncoder
+            //server stream request需在io线程预先绑定server stream
+            dispatch(context, in);
+            return;
+        }
+
         try {
             executor.execute(new CommandProcessTask(context, in));
+        } catch (RejectedExecutionException e) {
+            //线程池已满, 在当前线程解码header后分派, response和heartbeat直接处理, 其余command则拒绝
+            dispatch(context, in);
         } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(in);
             log.error("process command error", e);
         }
     }
 
+    /**
+     * 在当前线程(一般是transport io线程)解码command header, 然后按command类型分派
+     * response和heartbeat仅仅是complete request future或者write ack, 直接在当前线程处理, 避免排队在耗时的request后面
+     * stream frame仅仅是转发给client stream(consumer在reference线程消费), 同样直接在当前线程处理
+     * request, message和stream request-n(可能直接触发服务方法publisher产生元素)则提交到线程池处理
+     * 如果{@link ChannelContext#isStreamPreBound()}, server stream request提交到线程池前先绑定server stream
+     *
+     * @param context channel context
+     * @param in      protocol byte buffer
+     */
+    private void dispatch(ChannelContext context, ByteBuf in) {
+        RemotingCommand command;
+        try {
+            command = decode(context, in, false);
+        } catch (Exception e) {
+            log.error("command decode fail", e);
+            return;
+        }
+
+        if (command instanceof RpcResponseCommand ||
+                command instanceof HeartbeatCommand ||
+                command instanceof StreamFrameCommand) {
+            inlined.increment();
+            doProcess(context, command);
+            return;
+        }
+
+        if (command instanceof RpcRequestCommand &&
+                ((RpcRequestCommand) command).isStream() &&
+                context.isStreamPreBound()) {
+            preBindStream(context, (RpcRequestCommand) command);
+        }
+
+        queued.incrementAndGet();
+        try {
+            executor.execute(new CommandProcessTask(context, command));
+            dispatched.increment();
+        } catch (Exception e) {
+            queued.decrementAndGet();
+            if (e instanceof RejectedExecutionException) {
+                rejected.increment();
+            }
+            log.error("dispatch command fail, {}", command, e);
+            command.releasePayload();
+            CompletableFuture<Object> future = context.removeRequestFuture(command.getId());
+            if (Objects.nonNull(future)) {
+                //client, 比如message response, 直接complete request future
+                future.completeExceptionally(e);
+                return;
+            }
+            //command dispatch fail, response error
+            new RemotingContext(codec, requestProcessorRegistry, context)
+                    .writeResponseIfError(command, e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 解码command, 并根据command flag记录对端支持的连接能力
+     * message data class基于连接的class table解码
+     *
+     * @param context            channel context
+     * @param in                 protocol byte buffer
+     * @param deserializePayload 是否反序列化payload
+     * @return 解析后的command
+     */
+    private RemotingCommand decode(ChannelContext context, ByteBuf in, boolean deserializePayload) {
+        RemotingCommand command = codec.decode(in, deserializePayload, context.classTableEncoder(), context.classTableDecoder());
+        if (command.isBatchSupported()) {
+            context.onBatchSupported();
+        }
+        return command;
+    }
+
+    /**
+     * 在transport io线程预先创建并绑定server stream, 后续到达的request-n和cancel即使早于服务方法调用结束也不会丢失
+     * 绑定失败则在{@link RemotingContext#writeStream}时response error
+     *
+     * @param context channel context
+     * @param request server stream request, 仅解码了header
+     */
+    private void preBindStream(ChannelContext context, RpcRequestCommand request) {
+        try {
+            context.bindStream(new ServerStream(codec, context, request));
+        } catch (Exception e) {
+            log.error("pre-bind server stream fail, id={}", request.getId(), e);
+        }
+    }
+
+    /**
+     * process command
+     *
+     * @param channelContext channel context
+     * @param command        remoting command
+     */
+    private void doProcess(ChannelContext channelContext, RemotingCommand command) {
+        RemotingContext remotingContext = new RemotingContext(codec, requestProcessorRegistry, channelContext);
+        try {
+            command.deserializePayload();
+
+            short cmdCode = command.getCmdCode();
+            CommandProcessor<RemotingCommand> processor = cmdProcessorMap.get(cmdCode);
+            if (Objects.isNull(processor)) {
+                throw new RemotingException("can not find command processor with command code " + cmdCode);
+            }
+
+            processor.process(remotingContext, command);
+        } catch (Exception e) {
+            log.error("process command fail, {}", command, e);
+            //command process fail, response error
+            remotingContext.writeResponseIfError(command, e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+
     /**
      * release resource
      */
@@ -78,38 +384,38 @@ public class RemotingProcessor {
     private class CommandProcessTask implements Runnable {
         /** channel context */
         private final ChannelContext channelContext;
-        /** protocol byte buffer */
+        /** protocol byte buffer, 仅当未在io线程解码时有值 */
         private final ByteBuf in;
+        /** 已解码header的command, 仅当在io线程解码时有值 */
+        private final RemotingCommand command;
 
         public CommandProcessTask(ChannelContext channelContext, ByteBuf in) {
             this.channelContext = channelContext;
             this.in = in;
+            this.command = null;
+        }
+
+        public CommandProcessTask(ChannelContext channelContext, RemotingCommand command) {
+            this.channelContext = channelContext;
+            this.in = null;
+            this.command = command;
         }
 
         @Override
         public void run() {
-            RemotingCommand command;
-            try {
-                command = codec.decode(in);
-            }catch (Exception e){
-                log.error("command decode fail", e);
-                throw new TransportException("command decode fail", e);
-            }
-
-            RemotingContext remotingContext = new RemotingContext(codec, requestProcessorRegistry, channelContext);
-            try {
-                short cmdCode = command.getCmdCode();
-                CommandProcessor<RemotingCommand> processor = cmdProcessorMap.get(cmdCode);
-                if (Objects.isNull(processor)) {
-                    throw new RemotingException("can not find command processor with command code " + cmdCode);
+            RemotingCommand command = this.command;
+            if (Objects.nonNull(command)) {
+                queued.decrementAndGet();
+            } else {
+                try {
+                    command = decode(channelContext, in, true);
+                } catch (Exception e) {
+                    log.error("command decode fail", e);
+                    throw new TransportException("command decode fail", e);
                 }
-
-                processor.process(remotingContext, command);
-            } catch (Exception e) {
-                log.error("process command fail, {}", command, e);
-                //command process fail, response error
-                remotingContext.writeResponseIfError(command, e.getClass().getName() + ": " + e.getMessage());
             }
+
+            doProcess(channelContext, command);
         }
     }
 
@@ -117,4 +423,32 @@ public class RemotingProcessor {
     public RequestProcessorRegistry getRequestProcessorManager() {
         return requestProcessorRegistry;
     }
+
+    /**
+     * 返回已提交到线程池但还未开始处理的command数量, 即排队长度
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * 返回提交到线程池的command数量
+     */
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    /**
+     * 返回在transport io线程直接处理的command数量
+     */
+    public long getInlined() {
+        return inlined.sum();
+    }
+
+    /**
+     * 返回被线程池拒绝的command数量
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
 }
@@ -2,7 +2,9 @@ package org.kin.kinrpc.transport;
 
 import org.kin.kinrpc.transport.cmd.MessageCommand;
 import org.kin.kinrpc.transport.cmd.RequestCommand;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
 import org.kin.kinrpc.transport.cmd.RpcResponseCommand;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +37,14 @@ public class RequestContext{
         remotingContext.writeResponse(RpcResponseCommand.success(command, result));
     }
 
+    /**
+     * write server stream, 按client request-n逐个写出{@code publisher}的元素
+     * @param publisher   服务方法返回的publisher
+     */
+    public void writeStream(Publisher<?> publisher){
+        remotingContext.writeStream((RpcRequestCommand) command, publisher);
+    }
+
     /**
      * write response with error message
      * @param t   request process exception
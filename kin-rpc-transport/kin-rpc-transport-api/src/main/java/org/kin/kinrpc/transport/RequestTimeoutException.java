@@ -0,0 +1,15 @@
+package org.kin.kinrpc.transport;
+
+/**
+ * request response超时异常
+ *
+ * @author huangjianqin
+ * @date 2023/8/2
+ */
+public class RequestTimeoutException extends RemotingException {
+    private static final long serialVersionUID = -2419183585393370329L;
+
+    public RequestTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package org.kin.kinrpc.transport;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import org.kin.framework.JvmCloseCleaner;
+import org.kin.framework.concurrent.SimpleThreadFactory;
+import org.kin.framework.utils.SysUtils;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * request超时管理, 所有{@link AbstractRemotingClient}实例共享同一个时间轮
+ * 相对于每个request调度一个{@link java.util.concurrent.ScheduledFuture}, 时间轮新增和取消超时任务都是O(1), 并且无锁竞争
+ *
+ * @author huangjianqin
+ * @date 2023/8/2
+ */
+public final class RequestTimeoutManager {
+    /** 时间轮tick间隔(ms), 即超时精度 */
+    private static final int TICK_DURATION;
+    /**
+     * 没有设置超时的request最长等待时间(ms)
+     * 超过该时间还没收到response, 则认为response已丢失, 移除request future, 避免内存泄漏
+     */
+    private static final int ORPHAN_TIMEOUT;
+    /** 时间轮 */
+    private static final HashedWheelTimer TIMER;
+
+    static {
+        TICK_DURATION = SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_TIMEOUT_TICK, 10);
+        ORPHAN_TIMEOUT = SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_ORPHAN_TIMEOUT, 300_000);
+        TIMER = new HashedWheelTimer(new SimpleThreadFactory("kinrpc-request-timeout", true),
+                TICK_DURATION, TimeUnit.MILLISECONDS, 512);
+
+        //hook
+        JvmCloseCleaner.instance().add(TIMER::stop);
+    }
+
+    private RequestTimeoutManager() {
+    }
+
+    /**
+     * 调度超时任务
+     *
+     * @param task    超时任务
+     * @param delayMs 超时时间(ms)
+     * @return timeout handle, 用于取消超时任务
+     */
+    public static Timeout newTimeout(TimerTask task, long delayMs) {
+        return TIMER.newTimeout(task, Math.max(delayMs, 1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 根据request超时时间(绝对时间)调度超时任务, 如果request没有设置超时, 则按{@link #ORPHAN_TIMEOUT}调度
+     *
+     * @param task     超时任务
+     * @param deadline request超时时间(绝对时间), 小于等于0表示没有设置超时
+     * @return timeout handle, 用于取消超时任务
+     */
+    public static Timeout newDeadlineTimeout(TimerTask task, long deadline) {
+        long delayMs = deadline > 0 ? deadline - System.currentTimeMillis() : ORPHAN_TIMEOUT;
+        return newTimeout(task, delayMs);
+    }
+}
@@ -0,0 +1,196 @@
+package org.kin.kinrpc.transport;
+
+import io.netty.buffer.ByteBuf;
+import org.kin.kinrpc.transport.cmd.RemotingCodec;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Operators;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * server stream, 订阅服务方法返回的{@link org.reactivestreams.Publisher}, 将元素编码成{@link StreamFrameCommand}写出
+ * 仅当client request-n时才会向publisher request元素, 保证server端缓存的元素数量有上限
+ * <p>
+ * request-n可能在订阅publisher之前到达(比如transport层原生支持request-n), 此时先累加, 订阅后再一次性request
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+public final class ServerStream implements Subscriber<Object> {
+    private static final Logger log = LoggerFactory.getLogger(ServerStream.class);
+
+    /** 协议codec */
+    private final RemotingCodec codec;
+    /** channel context */
+    private final ChannelContext channelContext;
+    /** server stream request */
+    private final RpcRequestCommand request;
+    /** 订阅publisher之前累加的request-n */
+    private final AtomicLong pendingRequested = new AtomicLong();
+    /** publisher subscription */
+    private volatile Subscription subscription;
+    /** 是否已cancel */
+    private volatile boolean cancelled;
+    /** 是否已结束 */
+    private volatile boolean terminated;
+
+    public ServerStream(RemotingCodec codec, ChannelContext channelContext, RpcRequestCommand request) {
+        this.codec = codec;
+        this.channelContext = channelContext;
+        this.request = request;
+    }
+
+    /**
+     * client request-n
+     *
+     * @param n 请求元素数量
+     */
+    public void request(long n) {
+        if (n <= 0 || cancelled) {
+            return;
+        }
+
+        Subscription subscription = this.subscription;
+        if (Objects.nonNull(subscription)) {
+            subscription.request(n);
+            return;
+        }
+
+        pendingRequested.getAndAccumulate(n, Operators::addCap);
+        subscription = this.subscription;
+        if (Objects.nonNull(subscription)) {
+            //与onSubscribe并发, 谁先取到谁request
+            requestPending(subscription);
+        }
+    }
+
+    /**
+     * client cancel或者transport异常
+     */
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+
+        cancelled = true;
+        channelContext.unbindStream(streamId());
+        Subscription subscription = this.subscription;
+        if (Objects.nonNull(subscription)) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * request订阅前累加的request-n
+     */
+    private void requestPending(Subscription subscription) {
+        long requested = pendingRequested.getAndSet(0);
+        if (requested > 0) {
+            subscription.request(requested);
+        }
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (Objects.nonNull(this.subscription)) {
+            subscription.cancel();
+            return;
+        }
+
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+
+        requestPending(subscription);
+    }
+
+    @Override
+    public void onNext(Object element) {
+        if (terminated || cancelled) {
+            return;
+        }
+
+        write(StreamFrameCommand.next(request, element), false);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (terminated) {
+            return;
+        }
+
+        terminated = true;
+        channelContext.unbindStream(streamId());
+        if (cancelled) {
+            return;
+        }
+        write(StreamFrameCommand.error(request, t.getClass().getName() + ": " + t.getMessage()), true);
+    }
+
+    @Override
+    public void onComplete() {
+        if (terminated) {
+            return;
+        }
+
+        terminated = true;
+        channelContext.unbindStream(streamId());
+        if (cancelled) {
+            return;
+        }
+        write(StreamFrameCommand.complete(request), true);
+    }
+
+    /**
+     * write stream frame
+     *
+     * @param frame stream frame
+     * @param last  是否是stream最后一个frame
+     */
+    private void write(StreamFrameCommand frame, boolean last) {
+        ByteBuf byteBuf;
+        try {
+            byteBuf = codec.encode(frame);
+        } catch (Exception e) {
+            log.error("encode stream frame fail, id={}", streamId(), e);
+            if (last) {
+                return;
+            }
+            //无法继续stream
+            cancel();
+            terminated = true;
+            write(StreamFrameCommand.error(request, e.getClass().getName() + ": " + e.getMessage()), true);
+            return;
+        }
+
+        channelContext.writeStream(streamId(), byteBuf, last, new TransportOperationListener() {
+            @Override
+            public void onFailure(Throwable cause) {
+                if (log.isDebugEnabled()) {
+                    log.debug("send stream frame fail, id={} to {} {}", streamId(), channelContext.address(), cause);
+                }
+                //transport异常, 不再继续stream
+                cancel();
+            }
+        });
+    }
+
+    //getter
+
+    /**
+     * 返回stream id, 即server stream request id
+     *
+     * @return stream id
+     */
+    public long streamId() {
+        return request.getId();
+    }
+}
@@ -26,6 +26,24 @@ public interface Transport {
                                 @Nullable ManagedExecutor executor,
                                 @Nullable SslConfig sslConfig);
 
+    /**
+     * create remoting server
+     *
+     * @param host             listen host
+     * @param port             listen port
+     * @param executor         command handler executor
+     * @param sslConfig        ssl config
+     * @param flushBatchConfig write合并配置, null表示不开启, 不支持write合并的transport忽略该配置
+     * @return remoting server instance
+     */
+    default RemotingServer createServer(String host,
+                                        int port,
+                                        @Nullable ManagedExecutor executor,
+                                        @Nullable SslConfig sslConfig,
+                                        @Nullable FlushBatchConfig flushBatchConfig) {
+        return createServer(host, port, executor, sslConfig);
+    }
+
     /**
      * create remoting client
      *
@@ -37,4 +55,20 @@ public interface Transport {
     RemotingClient createClient(String host,
                                 int port,
                                 @Nullable SslConfig sslConfig);
+
+    /**
+     * create remoting client
+     *
+     * @param host             remoting host
+     * @param port             remoting port
+     * @param sslConfig        ssl config
+     * @param flushBatchConfig write合并配置, null表示不开启, 不支持write合并的transport忽略该配置
+     * @return remoting client instance
+     */
+    default RemotingClient createClient(String host,
+                                        int port,
+                                        @Nullable SslConfig sslConfig,
+                                        @Nullable FlushBatchConfig flushBatchConfig) {
+        return createClient(host, port, sslConfig);
+    }
 }
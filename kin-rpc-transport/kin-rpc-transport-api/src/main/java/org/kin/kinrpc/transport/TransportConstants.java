@@ -1,5 +1,8 @@
 package org.kin.kinrpc.transport;
 
+import org.kin.framework.utils.SysUtils;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
+
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -8,10 +11,62 @@ import java.nio.charset.StandardCharsets;
  * @date 2023/6/1
  */
 public interface TransportConstants {
-    /** 版本号 */
-    short VERSION = 1;
+    /**
+     * 版本1
+     * payload len和metadata len使用var int编码, 编码时需额外分配byte buffer暂存payload和metadata
+     */
+    short VERSION_1 = 1;
+    /**
+     * 版本2
+     * payload len和metadata len使用定长int编码, 编码时预留长度位, 直接序列化到同一byte buffer, 最后回填长度
+     */
+    short VERSION_2 = 2;
+    /**
+     * 本端支持的最高版本号, 默认为最新版本, 可通过系统变量限制
+     * 每个连接默认以{@link #VERSION_1}编码, 收到对端声明支持的版本后才升级, 保证与旧版本peer兼容
+     */
+    short VERSION = (short) SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_VERSION, VERSION_2);
+    /**
+     * batch frame标识, 与command code共用首字节, 表示该frame由多个command合并而成
+     * 格式: marker(1) + command数量(var int) + 各command长度(var int) + 各command字节
+     */
+    short BATCH_FRAME_MARKER = 0xFF;
+    /**
+     * chunk frame标识, 与command code共用首字节, 表示该frame是大command的其中一块
+     * 格式: marker(1) + chunk id(var long) + flag(1) + command总字节数(var int, 仅首个chunk) + chunk字节
+     */
+    short CHUNK_FRAME_MARKER = 0xFE;
+    /** chunk flag, 表示是command的首个chunk */
+    byte CHUNK_FLAG_FIRST = 0x01;
+    /** chunk flag, 表示后续还有chunk */
+    byte CHUNK_FLAG_CONTINUATION = 0x02;
+    /**
+     * 大command分块写出时每个chunk的字节数, 小于等于0表示不分块, 最小1K
+     * 默认不分块, 旧版本peer无法解析chunk frame, 需确保所有peer都已升级后再开启, 比如1M
+     * 无论是否开启, 都支持解析对端发送的chunk frame
+     */
+    int CHUNK_SIZE = chunkSize(SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_CHUNK_SIZE, 0));
+    /** 单个连接正在重组的chunked command总字节数上限, 默认256M */
+    int CHUNK_REASSEMBLY_MAX_BYTES = SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_CHUNK_REASSEMBLY_MAX_BYTES, 256 * 1024 * 1024);
+    /** payload解压后字节数上限, 默认256M */
+    int DECOMPRESSED_MAX_BYTES = SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_DECOMPRESSED_MAX_BYTES, 256 * 1024 * 1024);
+    /**
+     * server stream每次向remote request的元素数量上限, 保证consumer和provider缓存的元素数量有上限
+     * 对于transport层没有request-n语义的(比如grpc), 也作为server端初始credit
+     */
+    int STREAM_PREFETCH = Math.max(1, SysUtils.getIntSysProperty(KinRpcSystemProperties.TRANSPORT_STREAM_PREFETCH, 256));
     /** 魔数 */
     String MAGIC = "KinRPC";
     /** 魔数字节数组 */
     byte[] MAGIC_BYTES = MAGIC.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 修正chunk字节数, 保证首个chunk能容纳command header
+     *
+     * @param chunkSize 配置的chunk字节数
+     * @return chunk字节数
+     */
+    static int chunkSize(int chunkSize) {
+        return chunkSize > 0 ? Math.max(1024, chunkSize) : 0;
+    }
 }
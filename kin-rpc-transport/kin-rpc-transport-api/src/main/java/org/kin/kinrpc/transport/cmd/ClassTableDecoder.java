@@ -0,0 +1,102 @@
+package org.kin.kinrpc.transport.cmd;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import org.kin.framework.utils.ClassUtils;
+import org.kin.framework.utils.ExceptionUtils;
+import org.kin.transport.netty.utils.VarIntUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 基于dynamic class table的{@link MessageCommand} data class解码
+ * 按{@link ClassTableEncoder}生成的class table id维护对端的class table,
+ * 所以同一个codec实例可以同时服务多个连接
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ * @see ClassTableEncoder
+ */
+public final class ClassTableDecoder {
+    /** key -> 全限定类名, value -> class, 所有连接共享, 避免每条message都加载class */
+    private static final Map<String, Class<?>> CLASS_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * key -> class table id, value -> class table
+     * 5分钟没有访问, 则clear, 用于清理已断开连接的class table
+     */
+    private final Cache<Long, AtomicReferenceArray<Class<?>>> tables = CacheBuilder.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(5))
+            .build();
+
+    /**
+     * 根据全限定类名返回class, 已加载的class会被缓存
+     *
+     * @param className 全限定类名
+     * @return class
+     */
+    public static Class<?> getClass(String className) {
+        Class<?> claxx = CLASS_CACHE.get(className);
+        if (Objects.nonNull(claxx)) {
+            return claxx;
+        }
+
+        claxx = ClassUtils.getClass(className);
+        if (Objects.nonNull(claxx)) {
+            CLASS_CACHE.putIfAbsent(className, claxx);
+        }
+        return claxx;
+    }
+
+    /**
+     * 解码data class
+     *
+     * @param in protocol byte buffer
+     * @return data class
+     */
+    public Class<?> decode(ByteBuf in) {
+        long tableId = VarIntUtils.readRawVarInt64(in, true);
+        AtomicReferenceArray<Class<?>> table;
+        try {
+            table = tables.get(tableId, () -> new AtomicReferenceArray<>(ClassTableEncoder.CAPACITY));
+        } catch (ExecutionException e) {
+            ExceptionUtils.throwExt(e);
+            return null;
+        }
+
+        int tag = VarIntUtils.readRawVarInt32(in);
+        int kind = tag & ClassTableEncoder.KIND_MASK;
+        int index = tag >>> ClassTableEncoder.KIND_BITS;
+        switch (kind) {
+            case ClassTableEncoder.KIND_INDEXED:
+                Class<?> claxx = table.get(checkIndex(index));
+                if (Objects.isNull(claxx)) {
+                    throw new CodecException("can not find class table entry with index " + index);
+                }
+                return claxx;
+            case ClassTableEncoder.KIND_INSERT:
+                Class<?> inserted = getClass(BytebufUtils.readShortString(in));
+                table.compareAndSet(checkIndex(index), null, inserted);
+                return inserted;
+            default:
+                //literal
+                return getClass(BytebufUtils.readShortString(in));
+        }
+    }
+
+    /**
+     * 检查class table index是否合法
+     */
+    private int checkIndex(int index) {
+        if (index >= ClassTableEncoder.CAPACITY) {
+            throw new CodecException("class table index out of bounds, " + index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,185 @@
+package org.kin.kinrpc.transport.cmd;
+
+import io.netty.buffer.ByteBuf;
+import org.kin.transport.netty.utils.VarIntUtils;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于dynamic class table编码{@link MessageCommand} data class, 避免每条message都传输全限定类名
+ * 每个连接独立维护一份class table, data class首次出现时分配id并连同类名一起传输, 后续仅传输变长id
+ * <p>
+ * 对端按连接接收顺序(transport io线程)解码data class, 所以携带insert指令的message成功写出后, 后续编码的message即可引用该entry,
+ * 无需等待对端response, 对于tell或batch等没有response的message同样有效.
+ * 因为command可能在多个线程并发编码, 所以entry被确认(即携带该entry insert指令的message成功写出)前, 每次编码都会携带insert指令(id + 类名)
+ * !!! 一个encoder实例必须对应一个连接, client端由codec持有, server端codec被多个连接共享, 所以由每个连接的{@link org.kin.kinrpc.transport.ChannelContext}持有
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ * @see ClassTableDecoder
+ */
+public final class ClassTableEncoder {
+    /** 引用class table entry */
+    static final int KIND_INDEXED = 0;
+    /** 插入class table entry, 后面紧跟类名 */
+    static final int KIND_INSERT = 1;
+    /** 字面量, 不插入class table, 后面紧跟类名 */
+    static final int KIND_LITERAL = 2;
+    /** entry kind位数 */
+    static final int KIND_BITS = 2;
+    /** entry kind mask */
+    static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    /** class table容量 */
+    static final int CAPACITY = 1024;
+    /**
+     * class table空闲多久后重置
+     * 需小于{@link ClassTableDecoder}中class table的过期时间, 避免引用对端已过期的entry
+     */
+    private static final long IDLE_RESET_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 当前class table */
+    private volatile Table table = new Table();
+    /** 对端是否支持基于class table编码data class */
+    private volatile boolean enabled;
+
+    /**
+     * 对端支持基于class table编码data class
+     */
+    public void enable() {
+        enabled = true;
+    }
+
+    /**
+     * 是否已协商成功, 可以基于class table编码data class
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 重置class table并重新协商, 一般是重连后
+     */
+    public void reset() {
+        enabled = false;
+        table = new Table();
+    }
+
+    /**
+     * 编码data class
+     *
+     * @param out   protocol byte buffer
+     * @param claxx data class
+     * @return 本次编码写入insert指令的entry, 携带该指令的message成功写出后需调用{@link Entry#ack()}, 没有写入insert指令则返回null
+     */
+    @Nullable
+    public Entry encode(ByteBuf out, Class<?> claxx) {
+        /*
+         * var long: class table id
+         * var int: (index << 2) | kind
+         * [short(2) len based string: class name, 仅kind为insert or literal]
+         */
+        Table table = this.table;
+        long now = System.currentTimeMillis();
+        if (now - table.lastAccessTime > IDLE_RESET_MS) {
+            //空闲太久, 对端可能已移除该class table
+            table = new Table();
+            this.table = table;
+        }
+        table.lastAccessTime = now;
+
+        VarIntUtils.writeRawVarInt64(out, table.id, true);
+
+        Entry entry = table.entries.get(claxx);
+        if (Objects.isNull(entry)) {
+            entry = table.insert(claxx);
+        }
+
+        if (Objects.isNull(entry)) {
+            writeTag(out, 0, KIND_LITERAL);
+            BytebufUtils.writeShortString(out, claxx.getName());
+            return null;
+        } else if (entry.acked) {
+            writeTag(out, entry.index, KIND_INDEXED);
+            return null;
+        } else {
+            writeTag(out, entry.index, KIND_INSERT);
+            BytebufUtils.writeShortString(out, claxx.getName());
+            return entry;
+        }
+    }
+
+    /**
+     * write entry tag
+     */
+    private void writeTag(ByteBuf out, int index, int kind) {
+        VarIntUtils.writeRawVarInt32(out, (index << KIND_BITS) | kind);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+    /**
+     * class table
+     */
+    private static class Table {
+        /** class table唯一id, 对端根据该id寻找对应的class table */
+        private final long id = ThreadLocalRandom.current().nextLong();
+        /** key -> data class, value -> entry */
+        private final Map<Class<?>, Entry> entries = new ConcurrentHashMap<>();
+        /** 下一个entry index */
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        /** 最近访问时间 */
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        /**
+         * 插入class table entry
+         *
+         * @param claxx data class
+         * @return entry, 如果class table已满则返回null
+         */
+        private Entry insert(Class<?> claxx) {
+            if (nextIndex.get() >= CAPACITY) {
+                return null;
+            }
+
+            int index = nextIndex.getAndIncrement();
+            if (index >= CAPACITY) {
+                return null;
+            }
+
+            Entry entry = new Entry(index);
+            Entry old = entries.putIfAbsent(claxx, entry);
+            if (Objects.nonNull(old)) {
+                //并发插入, 浪费一个index
+                return old;
+            }
+
+            return entry;
+        }
+    }
+
+    /**
+     * class table entry
+     */
+    public static final class Entry {
+        /** entry index */
+        private final int index;
+        /** 对端是否已确认 */
+        private volatile boolean acked;
+
+        private Entry(int index) {
+            this.index = index;
+        }
+
+        /**
+         * 携带该entry insert指令的message已成功写出, 对端解码后续message前必然已插入该entry
+         */
+        void ack() {
+            acked = true;
+        }
+    }
+}
@@ -14,4 +14,8 @@ public interface CommandCodes {
     short RPC_REQUEST = 2;
     /** rpc响应 */
     short RPC_RESPONSE = 3;
+    /** server stream frame, 即stream元素, 完成或异常 */
+    short STREAM_FRAME = 4;
+    /** server stream request-n或cancel */
+    short STREAM_REQUEST_N = 5;
 }
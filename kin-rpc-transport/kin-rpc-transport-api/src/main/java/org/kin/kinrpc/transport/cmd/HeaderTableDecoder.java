@@ -0,0 +1,103 @@
+package org.kin.kinrpc.transport.cmd;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import org.kin.framework.utils.ExceptionUtils;
+import org.kin.transport.netty.utils.VarIntUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 基于static + dynamic header table的command metadata解码
+ * 按{@link HeaderTableEncoder}生成的dynamic header table id维护对端的dynamic header table,
+ * 所以同一个codec实例可以同时服务多个连接
+ *
+ * @author huangjianqin
+ * @date 2023/8/1
+ * @see HeaderTableEncoder
+ */
+public final class HeaderTableDecoder {
+    /**
+     * key -> dynamic header table id, value -> dynamic header table
+     * 5分钟没有访问, 则clear, 用于清理已断开连接的dynamic header table
+     */
+    private final Cache<Long, AtomicReferenceArray<String>> tables = CacheBuilder.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(5))
+            .build();
+
+    /**
+     * 解码metadata
+     *
+     * @param in protocol byte buffer
+     * @return command metadata
+     */
+    public Map<String, String> decode(ByteBuf in) {
+        long tableId = VarIntUtils.readRawVarInt64(in, true);
+        AtomicReferenceArray<String> table;
+        try {
+            table = tables.get(tableId, () -> new AtomicReferenceArray<>(HeaderTableEncoder.CAPACITY));
+        } catch (ExecutionException e) {
+            ExceptionUtils.throwExt(e);
+            return null;
+        }
+
+        int size = VarIntUtils.readRawVarInt32(in);
+        Map<String, String> metadata = new HashMap<>((int) (size / 0.75f) + 1);
+        for (int i = 0; i < size; i++) {
+            String key = decodeString(in, table);
+            String value = decodeString(in, table);
+
+            metadata.put(key, value);
+        }
+        return metadata;
+    }
+
+    /**
+     * 解码metadata key or value
+     *
+     * @param in    protocol byte buffer
+     * @param table dynamic header table
+     * @return metadata key or value
+     */
+    private String decodeString(ByteBuf in, AtomicReferenceArray<String> table) {
+        int tag = VarIntUtils.readRawVarInt32(in);
+        int kind = tag & HeaderTableEncoder.KIND_MASK;
+        int index = tag >>> HeaderTableEncoder.KIND_BITS;
+        switch (kind) {
+            case HeaderTableEncoder.KIND_STATIC:
+                return StaticHeaderTable.get(index);
+            case HeaderTableEncoder.KIND_DYNAMIC:
+                String s = table.get(checkIndex(index));
+                if (Objects.isNull(s)) {
+                    throw new CodecException("can not find dynamic header table entry with index " + index);
+                }
+                return s;
+            case HeaderTableEncoder.KIND_INSERT:
+                String inserted = BytebufUtils.readVarInt32String(in);
+                if (!table.compareAndSet(checkIndex(index), null, inserted)) {
+                    //已插入, 复用已有字符串实例
+                    inserted = table.get(index);
+                }
+                return inserted;
+            default:
+                //literal
+                return BytebufUtils.readVarInt32String(in);
+        }
+    }
+
+    /**
+     * 检查dynamic header table index是否合法
+     */
+    private int checkIndex(int index) {
+        if (index >= HeaderTableEncoder.CAPACITY) {
+            throw new CodecException("dynamic header table index out of bounds, " + index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,238 @@
+package org.kin.kinrpc.transport.cmd;
+
+import io.netty.buffer.ByteBuf;
+import org.kin.transport.netty.utils.VarIntUtils;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 基于static + dynamic header table的command metadata编码, 类似HPACK
+ * 每个连接独立维护一份dynamic header table, 重复出现的metadata key和value仅需传输index
+ * <p>
+ * 因为command可能在多个线程并发编码, 并且transport层不保证command在对端按发送顺序解码,
+ * 所以dynamic header table entry被对端确认(即收到携带该entry insert指令的request的response)前,
+ * 每次编码都会携带insert指令(index + 字符串), 确认后才仅传输index
+ *
+ * @author huangjianqin
+ * @date 2023/8/1
+ */
+public final class HeaderTableEncoder {
+    /** 引用static header table entry */
+    static final int KIND_STATIC = 0;
+    /** 引用dynamic header table entry */
+    static final int KIND_DYNAMIC = 1;
+    /** 插入dynamic header table entry, 后面紧跟字符串 */
+    static final int KIND_INSERT = 2;
+    /** 字面量, 不插入header table, 后面紧跟字符串 */
+    static final int KIND_LITERAL = 3;
+    /** entry kind位数 */
+    static final int KIND_BITS = 2;
+    /** entry kind mask */
+    static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    /** dynamic header table容量 */
+    static final int CAPACITY = 256;
+    /**
+     * dynamic header table空闲多久后重置
+     * 需小于{@link HeaderTableDecoder}中dynamic header table的过期时间, 避免引用对端已过期的entry
+     */
+    private static final long IDLE_RESET_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 当前dynamic header table */
+    private volatile Table table = new Table();
+    /** 对端是否支持基于header table编码metadata */
+    private volatile boolean enabled;
+
+    /**
+     * 对端支持基于header table编码metadata
+     */
+    public void enable() {
+        enabled = true;
+    }
+
+    /**
+     * 是否已协商成功, 可以基于header table编码metadata
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 重置dynamic header table并重新协商, 一般是重连后, 对端不一定还保留原来的dynamic header table, 甚至不再支持
+     */
+    public void reset() {
+        enabled = false;
+        table = new Table();
+    }
+
+    /**
+     * 编码metadata
+     *
+     * @param out       protocol byte buffer
+     * @param requestId 携带该metadata的command id
+     * @param metadata  command metadata
+     */
+    public void encode(ByteBuf out, long requestId, Map<String, String> metadata) {
+        /*
+         * var long: dynamic header table id
+         * var int: entry num
+         * entry(key + value):
+         *   var int: (index << 2) | kind
+         *   [var int32 len based string, 仅kind为insert or literal]
+         */
+        Table table = this.table;
+        long now = System.currentTimeMillis();
+        if (now - table.lastAccessTime > IDLE_RESET_MS) {
+            //空闲太久, 对端可能已移除该dynamic header table
+            table = new Table();
+            this.table = table;
+        }
+        table.lastAccessTime = now;
+
+        VarIntUtils.writeRawVarInt64(out, table.id, true);
+        VarIntUtils.writeRawVarInt32(out, metadata.size());
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+
+            encodeString(out, table, requestId, key, true);
+            //仅当value与该key上一次的value一致时才插入dynamic header table, 避免trace id这类每次都变化的value污染header table
+            String lastValue = table.lastValues.size() < CAPACITY ? table.lastValues.put(key, value) : table.lastValues.get(key);
+            encodeString(out, table, requestId, value, value.equals(lastValue));
+        }
+    }
+
+    /**
+     * 编码metadata key or value
+     *
+     * @param out       protocol byte buffer
+     * @param table     dynamic header table
+     * @param requestId 携带该metadata的command id
+     * @param s         metadata key or value
+     * @param indexable 是否允许插入dynamic header table
+     */
+    private void encodeString(ByteBuf out, Table table, long requestId, String s, boolean indexable) {
+        Integer staticIndex = StaticHeaderTable.indexOf(s);
+        if (Objects.nonNull(staticIndex)) {
+            writeTag(out, staticIndex, KIND_STATIC);
+            return;
+        }
+
+        Entry entry = table.entries.get(s);
+        if (Objects.isNull(entry) && indexable) {
+            entry = table.insert(s);
+        }
+
+        if (Objects.isNull(entry)) {
+            writeTag(out, 0, KIND_LITERAL);
+            BytebufUtils.writeVarInt32String(out, s);
+        } else if (entry.acked) {
+            writeTag(out, entry.index, KIND_DYNAMIC);
+        } else {
+            entry.carrierId = requestId;
+            writeTag(out, entry.index, KIND_INSERT);
+            BytebufUtils.writeVarInt32String(out, s);
+        }
+    }
+
+    /**
+     * write entry tag
+     */
+    private void writeTag(ByteBuf out, int index, int kind) {
+        VarIntUtils.writeRawVarInt32(out, (index << KIND_BITS) | kind);
+    }
+
+    /**
+     * 收到request id为{@code requestId}的response, 说明对端已解码该request携带的insert指令, 确认相关dynamic header table entry
+     *
+     * @param requestId request id
+     */
+    public void ack(long requestId) {
+        Table table = this.table;
+        if (table.pendingNum.get() <= 0) {
+            //没有待确认的entry
+            return;
+        }
+
+        int size = Math.min(table.nextIndex.get(), CAPACITY);
+        for (int i = 0; i < size; i++) {
+            Entry entry = table.entryArr.get(i);
+            if (Objects.isNull(entry) || entry.acked || entry.carrierId != requestId) {
+                continue;
+            }
+
+            entry.acked = true;
+            table.pendingNum.decrementAndGet();
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+    /**
+     * dynamic header table
+     */
+    private static class Table {
+        /** dynamic header table唯一id, 对端根据该id寻找对应的dynamic header table */
+        private final long id = ThreadLocalRandom.current().nextLong();
+        /** key -> metadata key or value, value -> entry */
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        /** index -> entry */
+        private final AtomicReferenceArray<Entry> entryArr = new AtomicReferenceArray<>(CAPACITY);
+        /** 下一个entry index */
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        /** key -> metadata key, value -> 该key上一次的metadata value */
+        private final Map<String, String> lastValues = new ConcurrentHashMap<>();
+        /** 待确认entry数量, 用于快速判断是否需要遍历确认 */
+        private final AtomicInteger pendingNum = new AtomicInteger();
+        /** 最近访问时间 */
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        /**
+         * 插入dynamic header table entry
+         *
+         * @param s metadata key or value
+         * @return entry, 如果dynamic header table已满则返回null
+         */
+        private Entry insert(String s) {
+            if (nextIndex.get() >= CAPACITY) {
+                return null;
+            }
+
+            int index = nextIndex.getAndIncrement();
+            if (index >= CAPACITY) {
+                return null;
+            }
+
+            Entry entry = new Entry(index);
+            Entry old = entries.putIfAbsent(s, entry);
+            if (Objects.nonNull(old)) {
+                //并发插入, 浪费一个index
+                return old;
+            }
+
+            entryArr.set(index, entry);
+            pendingNum.incrementAndGet();
+            return entry;
+        }
+    }
+
+    /**
+     * dynamic header table entry
+     */
+    private static class Entry {
+        /** entry index */
+        private final int index;
+        /** 对端是否已确认 */
+        private volatile boolean acked;
+        /** 最近一次携带该entry insert指令的command id */
+        private volatile long carrierId;
+
+        private Entry(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.kin.kinrpc.transport.cmd;
 
 import io.netty.buffer.ByteBuf;
-import org.kin.kinrpc.transport.RequestIdGenerator;
 import org.kin.kinrpc.transport.TransportConstants;
 
 /**
@@ -14,7 +13,7 @@ public final class HeartbeatCommand extends RemotingCommand {
     private static final long serialVersionUID = -4897142987926394746L;
 
     public HeartbeatCommand() {
-        this(TransportConstants.VERSION, RequestIdGenerator.next());
+        this(TransportConstants.VERSION, UNASSIGNED_ID);
     }
 
     public HeartbeatCommand(short version, long id) {
@@ -1,11 +1,13 @@
 package org.kin.kinrpc.transport.cmd;
 
 import io.netty.buffer.ByteBuf;
-import org.kin.framework.utils.ClassUtils;
-import org.kin.kinrpc.transport.RequestIdGenerator;
 import org.kin.kinrpc.transport.TransportConstants;
+import org.kin.kinrpc.transport.compression.Compressions;
+import org.kin.transport.netty.utils.VarIntUtils;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * @author huangjianqin
@@ -14,6 +16,8 @@ import java.io.Serializable;
 @CommandCode(CommandCodes.MESSAGE)
 public final class MessageCommand extends RequestCommand {
     private static final long serialVersionUID = 2678295231039867756L;
+    /** data class基于class table编码标识 */
+    public static final short FLAG_CLASS_INDEXED = 0x0004;
     /**
      * interest, 用于寻找唯一的{@link org.kin.kinrpc.transport.RequestProcessor}实例
      * 往往是全限定类名
@@ -27,6 +31,16 @@ public final class MessageCommand extends RequestCommand {
      * @see RemotingCommand#getPayload()
      */
     private Serializable data;
+    /** class table encoder, 仅基于class table编码data class时有值 */
+    private transient ClassTableEncoder classTableEncoder;
+    /** 本次编码写入insert指令的class table entry, 成功写出后确认 */
+    private transient ClassTableEncoder.Entry insertedClassEntry;
+    /** class table decoder */
+    private transient ClassTableDecoder classTableDecoder;
+    /** 解码header时已解码data class, 反序列化payload时跳过的data class字节数, 小于0表示未解码 */
+    private transient int decodedClassLen = -1;
+    /** response message, 对应request是否携带{@link #FLAG_CLASS_INDEX_SUPPORTED}, 即request发起方是否支持基于class table解码data class */
+    private transient boolean requesterClassIndexSupported;
 
     public MessageCommand() {
     }
@@ -36,7 +50,7 @@ public final class MessageCommand extends RequestCommand {
     }
 
     public MessageCommand(short version, byte serializationCode, Serializable data) {
-        this(version, RequestIdGenerator.next(), serializationCode, data);
+        this(version, UNASSIGNED_ID, serializationCode, data);
     }
 
     private MessageCommand(short version, long id, byte serializationCode, Serializable data) {
@@ -50,35 +64,129 @@ public final class MessageCommand extends RequestCommand {
      * 用于response message
      */
     public MessageCommand(MessageCommand command, Serializable data) {
-        this(TransportConstants.VERSION, command.getId(), command.getSerializationCode(), data);
+        this(command.getVersion(), command.getId(), command.getSerializationCode(), data);
+        this.requesterClassIndexSupported = command.isClassIndexSupported();
     }
 
     @Override
     public void serializePayload(ByteBuf out) {
         super.serializePayload(out);
         /*
-         * short(2): interest len
-         * bytes(interest len): interest content
+         * 基于class table编码data class:
+         *   bytes: class table encoded data class, 见{@link ClassTableEncoder}
+         * 否则:
+         *   short(2): interest len
+         *   bytes(interest len): interest content
          * bytes(other): data payload
          */
 
-        //interest
-        BytebufUtils.writeShortString(out, interest);
+        if (isClassIndexed()) {
+            insertedClassEntry = classTableEncoder.encode(out, dataClass);
+        } else {
+            //interest
+            BytebufUtils.writeShortString(out, interest);
+        }
 
         getSerialization().serialize(out, data);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public void deserialize0(ByteBuf in) {
         super.deserialize0(in);
 
-        //interest
-        interest = BytebufUtils.readShortString(in);
-
-        dataClass = ClassUtils.getClass(interest);
+        if (decodedClassLen >= 0) {
+            //已解码data class
+            in.skipBytes(decodedClassLen);
+        } else {
+            readDataClass(in);
+        }
         data = getSerialization().deserialize(in, dataClass);
     }
 
+    /**
+     * 解码data class
+     *
+     * @param in payload
+     */
+    @SuppressWarnings("unchecked")
+    private void readDataClass(ByteBuf in) {
+        if (isClassIndexed()) {
+            if (Objects.isNull(classTableDecoder)) {
+                throw new CodecException("can not decode class indexed message without class table decoder");
+            }
+            dataClass = (Class<? extends Serializable>) classTableDecoder.decode(in);
+            interest = dataClass.getName();
+        } else {
+            //interest
+            interest = BytebufUtils.readShortString(in);
+            dataClass = (Class<? extends Serializable>) ClassTableDecoder.getClass(interest);
+        }
+    }
+
+    /**
+     * 解码header后马上解码data class, 保证class table insert指令按连接接收顺序生效, 不受payload乱序反序列化影响
+     *
+     * @param classTableDecoder class table decoder
+     */
+    void decodeDataClass(ClassTableDecoder classTableDecoder) {
+        this.classTableDecoder = classTableDecoder;
+        if (getPayloadCompressionCode() != Compressions.NONE) {
+            //payload已压缩, 反序列化payload时再解码
+            return;
+        }
+
+        ByteBuf in = getPayload().duplicate();
+        //skip request timeout
+        VarIntUtils.readRawVarInt64(in);
+        int start = in.readerIndex();
+        readDataClass(in);
+        decodedClassLen = in.readerIndex() - start;
+    }
+
+    /**
+     * 成功写出后回调, 确认本次编码写入insert指令的class table entry
+     */
+    void onWritten() {
+        ClassTableEncoder.Entry entry = insertedClassEntry;
+        if (Objects.nonNull(entry)) {
+            insertedClassEntry = null;
+            entry.ack();
+        }
+    }
+
+    /**
+     * 编码时是否基于class table编码data class
+     *
+     * @param classTableEncoder class table encoder, null表示直接编码全限定类名
+     */
+    public void classIndexed(@Nullable ClassTableEncoder classTableEncoder) {
+        this.classTableEncoder = classTableEncoder;
+        if (Objects.nonNull(classTableEncoder)) {
+            setFlag((short) (getFlag() | FLAG_CLASS_INDEXED));
+        } else {
+            setFlag((short) (getFlag() & ~FLAG_CLASS_INDEXED));
+        }
+    }
+
+    /**
+     * response message对应的request发起方是否支持基于class table解码data class
+     *
+     * @return true表示request携带{@link #FLAG_CLASS_INDEX_SUPPORTED}
+     */
+    public boolean isRequesterClassIndexSupported() {
+        return requesterClassIndexSupported;
+    }
+
+    /**
+     * data class是否基于class table编码
+     *
+     * @return true表示data class基于class table编码
+     */
+    public boolean isClassIndexed() {
+        return (getFlag() & FLAG_CLASS_INDEXED) != 0;
+    }
+
     //setter && getter
     public String getInterest() {
         return interest;
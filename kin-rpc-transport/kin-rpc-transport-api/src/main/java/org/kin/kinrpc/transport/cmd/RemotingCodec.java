@@ -4,12 +4,17 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.ReferenceCountUtil;
 import org.kin.framework.utils.CollectionUtils;
+import org.kin.framework.utils.SysUtils;
+import org.kin.kinrpc.constants.KinRpcSystemProperties;
 import org.kin.kinrpc.transport.CommandHelper;
+import org.kin.kinrpc.transport.TransportConstants;
+import org.kin.kinrpc.transport.compression.Compressions;
 import org.kin.transport.netty.AdaptiveOutputByteBufAllocator;
 import org.kin.transport.netty.utils.VarIntUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -22,17 +27,48 @@ import java.util.Objects;
  */
 public class RemotingCodec {
     private static final Logger log = LoggerFactory.getLogger(RemotingCodec.class);
+    /** 是否支持基于header table编码metadata */
+    private static final boolean HEADER_TABLE_ENABLED = Boolean.parseBoolean(SysUtils.getSysProperty(KinRpcSystemProperties.TRANSPORT_HEADER_TABLE, "true"));
+    /** 是否支持基于class table编码message data class */
+    private static final boolean CLASS_TABLE_ENABLED = Boolean.parseBoolean(SysUtils.getSysProperty(KinRpcSystemProperties.TRANSPORT_CLASS_TABLE, "true"));
 
     /** 自适应分配{@link io.netty.buffer.ByteBuf}实例 */
     private final AdaptiveOutputByteBufAllocator.Handle adaptiveHandle = AdaptiveOutputByteBufAllocator.DEFAULT.newHandle();
     private final ByteBufAllocator allocator;
+    /** metadata header table encoder, 一个codec实例对应一个连接时才有意义, 即client端 */
+    private final HeaderTableEncoder headerTableEncoder = new HeaderTableEncoder();
+    /** metadata header table decoder */
+    private final HeaderTableDecoder headerTableDecoder = new HeaderTableDecoder();
+    /**
+     * codec实例是否被多个连接共享, 即server端
+     * 共享时, 不使用codec自身的message class table encoder, 由每个连接的{@link org.kin.kinrpc.transport.ChannelContext}维护
+     */
+    private final boolean shared;
+    /** message data class table encoder, 一个codec实例对应一个连接时才有意义, 即client端 */
+    private final ClassTableEncoder classTableEncoder = new ClassTableEncoder();
+    /** message data class table decoder, 连接未提供decoder时使用, 按对端class table id区分, 所以可以被多个连接共享 */
+    private final ClassTableDecoder classTableDecoder = new ClassTableDecoder();
+    /**
+     * 对端支持的最高版本号, 默认{@link TransportConstants#VERSION_1}, 收到对端command时根据flag升级
+     * 一个codec实例对应一个连接时才有意义, 即client端, server端response版本号与request一致, 所以不受影响
+     */
+    private volatile short peerVersion = TransportConstants.VERSION_1;
 
     public RemotingCodec() {
-        this(ByteBufAllocator.DEFAULT);
+        this(false);
+    }
+
+    public RemotingCodec(boolean shared) {
+        this(ByteBufAllocator.DEFAULT, shared);
     }
 
     public RemotingCodec(ByteBufAllocator allocator) {
+        this(allocator, false);
+    }
+
+    public RemotingCodec(ByteBufAllocator allocator, boolean shared) {
         this.allocator = allocator;
+        this.shared = shared;
     }
 
     /**
@@ -41,11 +77,147 @@ public class RemotingCodec {
      * @return  protocol byte buffe
      */
     public ByteBuf encode(RemotingCommand cmd){
+        return encode(cmd, shared ? null : classTableEncoder);
+    }
+
+    /**
+     * 编码
+     * @param cmd   {@link RemotingCommand}实例
+     * @param classTableEncoder 连接的message class table encoder, null表示直接编码全限定类名
+     * @return  protocol byte buffe
+     */
+    public ByteBuf encode(RemotingCommand cmd, @Nullable ClassTableEncoder classTableEncoder){
+        if (cmd instanceof MessageCommand) {
+            //对端支持则基于class table编码data class
+            ((MessageCommand) cmd).classIndexed(CLASS_TABLE_ENABLED && Objects.nonNull(classTableEncoder) && classTableEncoder.isEnabled() ? classTableEncoder : null);
+        }
+
+        //不超过对端支持的最高版本号
+        short version = (short) Math.min(cmd.getVersion(), peerVersion);
+        if (version >= TransportConstants.VERSION_2) {
+            return encodeV2(cmd, version);
+        }
+        else{
+            return encodeV1(cmd, version);
+        }
+    }
+
+    /**
+     * 是否基于header table编码metadata
+     * @param metadata  command metadata
+     * @return  true表示基于header table编码metadata
+     */
+    private boolean isMetadataIndexed(Map<String, String> metadata){
+        return HEADER_TABLE_ENABLED && headerTableEncoder.isEnabled() && CollectionUtils.isNonEmpty(metadata);
+    }
+
+    /**
+     * 编码header
+     * @param out   protocol byte buffer
+     * @param cmd   {@link RemotingCommand}实例
+     * @param version   实际编码版本号
+     * @param metadataIndexed   是否基于header table编码metadata
+     * @return  flag在{@code out}的index, 用于压缩payload后回填compression code
+     */
+    private int encodeHeader(ByteBuf out, RemotingCommand cmd, short version, boolean metadataIndexed){
+        out.writeByte(cmd.getCmdCode());
+        out.writeByte(version);
+        VarIntUtils.writeRawVarInt64(out, cmd.getId(), true);
+        //payload是否压缩由本次编码决定
+        short flag = (short) (cmd.getFlag() & ~RemotingCommand.FLAG_COMPRESSION_MASK);
+        if (HEADER_TABLE_ENABLED) {
+            //告诉对端, 支持基于header table编码metadata
+            flag |= RemotingCommand.FLAG_METADATA_INDEX_SUPPORTED;
+        }
+        if (CLASS_TABLE_ENABLED) {
+            //告诉对端, 支持基于class table编码message data class
+            flag |= RemotingCommand.FLAG_CLASS_INDEX_SUPPORTED;
+        }
+        if (TransportConstants.VERSION >= TransportConstants.VERSION_2) {
+            //告诉对端, 支持版本2编码
+            flag |= RemotingCommand.FLAG_VERSION_2_SUPPORTED;
+        }
+        //告诉对端, 支持解析batch frame
+        flag |= RemotingCommand.FLAG_BATCH_SUPPORTED;
+        if (metadataIndexed) {
+            flag |= RemotingCommand.FLAG_METADATA_INDEXED;
+        }
+        int flagIndex = out.writerIndex();
+        out.writeShort(flag);
+        return flagIndex;
+    }
+
+    /**
+     * payload超过压缩阈值时压缩payload, 仅当压缩后字节数更少才采用, 并回填flag中的compression code
+     * @param buf   payload所在byte buffer
+     * @param payloadIndex  payload在{@code buf}的起始index, payload需位于{@code buf}末尾
+     * @param payloadLen    payload字节数
+     * @param flagBuf   flag所在byte buffer
+     * @param flagIndex flag在{@code flagBuf}的index
+     * @param cmd   {@link RemotingCommand}实例
+     * @return  最终payload字节数
+     */
+    private int compressPayload(ByteBuf buf, int payloadIndex, int payloadLen,
+                                ByteBuf flagBuf, int flagIndex, RemotingCommand cmd){
+        byte compressionCode = cmd.getCompressionCode();
+        if (compressionCode == Compressions.NONE || payloadLen <= cmd.getCompressionThreshold()) {
+            return payloadLen;
+        }
+
+        ByteBuf compressed = Compressions.getByCode(compressionCode).compress(buf.slice(payloadIndex, payloadLen), allocator);
+        try {
+            int compressedLen = compressed.readableBytes();
+            if (compressedLen >= payloadLen) {
+                //压缩无收益
+                return payloadLen;
+            }
+
+            buf.writerIndex(payloadIndex);
+            buf.writeBytes(compressed);
+            short flag = flagBuf.getShort(flagIndex);
+            flag |= (short) ((compressionCode << RemotingCommand.FLAG_COMPRESSION_SHIFT) & RemotingCommand.FLAG_COMPRESSION_MASK);
+            flagBuf.setShort(flagIndex, flag);
+            return compressedLen;
+        } finally {
+            ReferenceCountUtil.safeRelease(compressed);
+        }
+    }
+
+    /**
+     * 编码metadata
+     * @param out   protocol byte buffer
+     * @param cmd   {@link RemotingCommand}实例
+     * @param metadata  command metadata
+     * @param metadataIndexed   是否基于header table编码metadata
+     */
+    private void encodeMetadata(ByteBuf out, RemotingCommand cmd, Map<String, String> metadata, boolean metadataIndexed){
+        if (metadataIndexed) {
+            headerTableEncoder.encode(out, cmd.getId(), metadata);
+            return;
+        }
+
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+
+            BytebufUtils.writeVarInt32String(out, key);
+            BytebufUtils.writeVarInt32String(out, value);
+        }
+    }
+
+    /**
+     * 版本1编码
+     * @param cmd   {@link RemotingCommand}实例
+     * @param version   实际编码版本号
+     * @return  protocol byte buffe
+     * @see TransportConstants#VERSION_1
+     */
+    private ByteBuf encodeV1(RemotingCommand cmd, short version){
         /*
          * unsigned byte: command code
          * unsigned byte: version
          * signed var long: command id, usually request id
-         * short: flag(4bit serialization code; )
+         * short: flag(4bit serialization code; 4bit payload compression code; )
          * var int: payload len
          * var int: metadata len
          * bytes(payload len): payload(depend on actual command)
@@ -55,24 +227,18 @@ public class RemotingCodec {
         ByteBuf payloadOut = null;
         ByteBuf metadataOut = null;
         try {
-            out.writeByte(cmd.getCmdCode());
-            out.writeByte(cmd.getVersion());
-            VarIntUtils.writeRawVarInt64(out, cmd.getId(), true);
-            out.writeShort(cmd.getFlag());
+            Map<String, String> metadata = cmd.getMetadata();
+            boolean metadataIndexed = isMetadataIndexed(metadata);
+            int flagIndex = encodeHeader(out, cmd, version, metadataIndexed);
 
-            payloadOut = adaptiveHandle.allocate(allocator);
+            payloadOut = allocate(cmd.sizeHint());
             cmd.serializePayload(payloadOut);
+            cmd.onEncoded(payloadOut.readableBytes());
+            compressPayload(payloadOut, payloadOut.readerIndex(), payloadOut.readableBytes(), out, flagIndex, cmd);
 
-            Map<String, String> metadata = cmd.getMetadata();
             if (CollectionUtils.isNonEmpty(metadata)) {
                 metadataOut = adaptiveHandle.allocate(allocator);
-                for (Map.Entry<String, String> entry : metadata.entrySet()) {
-                    String key = entry.getKey();
-                    String value = entry.getValue();
-
-                    BytebufUtils.writeVarInt32String(metadataOut, key);
-                    BytebufUtils.writeVarInt32String(metadataOut, value);
-                }
+                encodeMetadata(metadataOut, cmd, metadata, metadataIndexed);
             }
 
             int payloadLen = payloadOut.readableBytes();
@@ -101,34 +267,158 @@ public class RemotingCodec {
         return out;
     }
 
+    /**
+     * 版本2编码
+     * 仅分配一次byte buffer, 预留定长的payload len和metadata len, payload和metadata直接写入, 最后回填长度
+     * @param cmd   {@link RemotingCommand}实例
+     * @param version   实际编码版本号
+     * @return  protocol byte buffe
+     * @see TransportConstants#VERSION_2
+     */
+    private ByteBuf encodeV2(RemotingCommand cmd, short version){
+        /*
+         * unsigned byte: command code
+         * unsigned byte: version
+         * signed var long: command id, usually request id
+         * short: flag(4bit serialization code; 4bit payload compression code; )
+         * int: payload len
+         * int: metadata len
+         * bytes(payload len): payload(depend on actual command)
+         * bytes(metadata len): metadata(Map<String, String>)
+         */
+        int sizeHint = cmd.sizeHint();
+        //额外预留header和metadata空间
+        ByteBuf out = allocate(sizeHint > 0 ? sizeHint + 256 : 0);
+        try {
+            Map<String, String> metadata = cmd.getMetadata();
+            boolean metadataIndexed = isMetadataIndexed(metadata);
+            int flagIndex = encodeHeader(out, cmd, version, metadataIndexed);
+
+            //预留payload len和metadata len
+            int lenIndex = out.writerIndex();
+            out.writeInt(0);
+            out.writeInt(0);
+
+            int payloadIndex = out.writerIndex();
+            cmd.serializePayload(out);
+            int payloadLen = out.writerIndex() - payloadIndex;
+            cmd.onEncoded(payloadLen);
+            payloadLen = compressPayload(out, payloadIndex, payloadLen, out, flagIndex, cmd);
+
+            int metadataLen = 0;
+            if (CollectionUtils.isNonEmpty(metadata)) {
+                int metadataIndex = out.writerIndex();
+                encodeMetadata(out, cmd, metadata, metadataIndexed);
+                metadataLen = out.writerIndex() - metadataIndex;
+            }
+
+            //回填payload len和metadata len
+            out.setInt(lenIndex, payloadLen);
+            out.setInt(lenIndex + 4, metadataLen);
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(out);
+            throw new CodecException("remoting codec encode fail", e);
+        }
+
+        return out;
+    }
+
+    /**
+     * 分配byte buffer
+     * @param sizeHint  预估字节数, 小于等于0则自适应分配
+     * @return  byte buffer
+     */
+    private ByteBuf allocate(int sizeHint){
+        if (sizeHint > 0) {
+            return allocator.buffer(sizeHint);
+        }
+        return adaptiveHandle.allocate(allocator);
+    }
+
     /**
      * 解码
      * @param in    protocol byte buffer
      * @return  解析后的 {@link RemotingCommand}
      */
     public RemotingCommand decode(ByteBuf in){
+        return decode(in, true);
+    }
+
+    /**
+     * 解码
+     * @param in    protocol byte buffer
+     * @param deserializePayload    是否反序列化payload, 如果false, 则仅解码header和metadata, 由调用者在合适时机调用{@link RemotingCommand#deserializePayload()}
+     * @return  解析后的 {@link RemotingCommand}
+     */
+    public RemotingCommand decode(ByteBuf in, boolean deserializePayload){
+        return decode(in, deserializePayload, null, null);
+    }
+
+    /**
+     * 解码
+     * @param in    protocol byte buffer
+     * @param deserializePayload    是否反序列化payload, 如果false, 则仅解码header和metadata, 由调用者在合适时机调用{@link RemotingCommand#deserializePayload()}
+     * @param connClassTableEncoder 连接的message class table encoder, 对端支持时开启, null则使用codec自身的encoder(仅非共享codec)
+     * @param connClassTableDecoder 连接的message class table decoder, null则使用codec自身的decoder
+     * @return  解析后的 {@link RemotingCommand}
+     */
+    public RemotingCommand decode(ByteBuf in, boolean deserializePayload,
+                                  @Nullable ClassTableEncoder connClassTableEncoder,
+                                  @Nullable ClassTableDecoder connClassTableDecoder){
         if(in.readableBytes() < 1){
             throw new CodecException("input byte buffer is empty");
         }
 
+        RemotingCommand command = null;
         try {
             short cmdCode = in.readUnsignedByte();
-            RemotingCommand command = CommandHelper.createCommandByCode(cmdCode);
-            command.setVersion(in.readUnsignedByte());
+            command = CommandHelper.createCommandByCode(cmdCode);
+            short version = in.readUnsignedByte();
+            command.setVersion(version);
             command.setId(VarIntUtils.readRawVarInt64(in, true));
             command.setFlag(in.readShort());
+            if (TransportConstants.VERSION >= TransportConstants.VERSION_2 && command.isVersion2Supported()) {
+                //对端支持版本2编码
+                peerVersion = TransportConstants.VERSION_2;
+            }
+            if (HEADER_TABLE_ENABLED && command.isMetadataIndexSupported()) {
+                //对端支持基于header table编码metadata
+                headerTableEncoder.enable();
+            }
+            ClassTableEncoder classTableEncoder = Objects.nonNull(connClassTableEncoder) ? connClassTableEncoder : (shared ? null : this.classTableEncoder);
+            if (CLASS_TABLE_ENABLED && command.isClassIndexSupported() && Objects.nonNull(classTableEncoder)) {
+                //对端支持基于class table编码message data class
+                classTableEncoder.enable();
+            }
 
-            int payloadLen = VarIntUtils.readRawVarInt32(in);
-            int metadataLen = VarIntUtils.readRawVarInt32(in);
+            int payloadLen;
+            int metadataLen;
+            if (version >= TransportConstants.VERSION_2) {
+                payloadLen = in.readInt();
+                metadataLen = in.readInt();
+            }
+            else{
+                payloadLen = VarIntUtils.readRawVarInt32(in);
+                metadataLen = VarIntUtils.readRawVarInt32(in);
+            }
             command.setPayload(in.retainedSlice(in.readerIndex(), payloadLen));
+            if (command instanceof MessageCommand) {
+                //按连接接收顺序解码data class, 保证class table insert指令先于引用该entry的message生效
+                ((MessageCommand) command).decodeDataClass(Objects.nonNull(connClassTableDecoder) ? connClassTableDecoder : classTableDecoder);
+            }
 
-            command.deserializePayload();
+            if (deserializePayload) {
+                command.deserializePayload();
+            }
 
             //skip data payload
             in.readerIndex(in.readerIndex() + payloadLen);
 
             Map<String, String> metadata = Collections.emptyMap();
-            if (metadataLen > 0) {
+            if (metadataLen > 0 && command.isMetadataIndexed()) {
+                metadata = headerTableDecoder.decode(in);
+            }
+            else if (metadataLen > 0) {
                 metadata = new HashMap<>();
                 while (in.readableBytes() > 0) {
                     String key = BytebufUtils.readVarInt32String(in);
@@ -141,9 +431,40 @@ public class RemotingCodec {
 
             return command;
         }catch (Exception e) {
+            if (Objects.nonNull(command)) {
+                command.releasePayload();
+            }
             throw new CodecException("remoting codec decode fail", e);
         } finally {
             ReferenceCountUtil.safeRelease(in);
         }
     }
+
+    /**
+     * 收到response, 确认该request携带的metadata header table entry
+     * @param requestId request id
+     */
+    public void onResponse(long requestId){
+        headerTableEncoder.ack(requestId);
+    }
+
+    /**
+     * command成功写出后回调, 确认该command携带的message class table entry
+     * 对端在transport io线程按接收顺序解码data class, 所以后续写出的message可以直接引用该entry
+     * @param command   已成功写出的command
+     */
+    public void onWritten(RemotingCommand command){
+        if (command instanceof MessageCommand) {
+            ((MessageCommand) command).onWritten();
+        }
+    }
+
+    /**
+     * 重置metadata header table, message class table和对端版本号, 一般用于重连后
+     */
+    public void resetHeaderTable(){
+        peerVersion = TransportConstants.VERSION_1;
+        headerTableEncoder.reset();
+        classTableEncoder.reset();
+    }
 }
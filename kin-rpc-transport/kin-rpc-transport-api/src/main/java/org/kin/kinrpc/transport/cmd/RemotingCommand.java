@@ -1,8 +1,11 @@
 package org.kin.kinrpc.transport.cmd;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
+import org.kin.kinrpc.transport.TransportConstants;
+import org.kin.kinrpc.transport.compression.Compressions;
 import org.kin.serialization.Serialization;
 
 import java.io.Serializable;
@@ -21,6 +24,22 @@ public abstract class RemotingCommand implements Serializable {
     private static final int FLAG_SERIALIZATION_MASK = 0xF000;
     /** serialization标识位移 */
     private static final int FLAG_SERIALIZATION_SHIFT = 12;
+    /** payload compression标识mask, 0表示payload未压缩 */
+    static final int FLAG_COMPRESSION_MASK = 0x0F00;
+    /** payload compression标识位移 */
+    static final int FLAG_COMPRESSION_SHIFT = 8;
+    /** metadata基于header table编码标识 */
+    public static final short FLAG_METADATA_INDEXED = 0x0001;
+    /** 支持基于header table编码metadata标识, 用于与对端协商 */
+    public static final short FLAG_METADATA_INDEX_SUPPORTED = 0x0002;
+    /** 支持基于class table编码message data class标识, 用于与对端协商 */
+    public static final short FLAG_CLASS_INDEX_SUPPORTED = 0x0010;
+    /** 支持{@link org.kin.kinrpc.transport.TransportConstants#VERSION_2}编码标识, 用于与对端协商版本号 */
+    public static final short FLAG_VERSION_2_SUPPORTED = 0x0020;
+    /** 支持解析batch frame标识, 用于与对端协商是否开启write合并, 见{@link org.kin.kinrpc.transport.FlushBatcher} */
+    public static final short FLAG_BATCH_SUPPORTED = 0x0040;
+    /** 未分配的command id, request command的id由client在发送时分配, 仅保证单个连接内唯一 */
+    public static final long UNASSIGNED_ID = 0;
 
     /** command code */
     private short cmdCode;
@@ -36,6 +55,10 @@ public abstract class RemotingCommand implements Serializable {
     private ByteBuf payload = Unpooled.EMPTY_BUFFER;
     /** command metadata */
     private Map<String, String> metadata = Collections.emptyMap();
+    /** 编码时压缩payload使用的compression code, {@link Compressions#NONE}表示不压缩 */
+    private transient byte compressionCode;
+    /** 编码时payload超过该字节数才压缩 */
+    private transient int compressionThreshold;
 
     protected RemotingCommand() {
     }
@@ -53,6 +76,24 @@ public abstract class RemotingCommand implements Serializable {
      */
     public abstract void serializePayload(ByteBuf out);
 
+    /**
+     * 返回编码后预估字节数, 用于编码时一次性分配足够容量的byte buffer
+     *
+     * @return 编码后预估字节数, 小于等于0表示无预估
+     */
+    public int sizeHint() {
+        return 0;
+    }
+
+    /**
+     * 编码完成后回调
+     *
+     * @param size 编码后字节数
+     */
+    public void onEncoded(int size) {
+        //default do nothing
+    }
+
     /**
      * 反序列化payload payload
      */
@@ -62,14 +103,36 @@ public abstract class RemotingCommand implements Serializable {
             return;
         }
 
+        ByteBuf decompressed = null;
         try {
-            deserialize0(payload);
+            int payloadCompressionCode = getPayloadCompressionCode();
+            if (payloadCompressionCode != Compressions.NONE) {
+                decompressed = Compressions.getByCode(payloadCompressionCode).decompress(payload, ByteBufAllocator.DEFAULT, TransportConstants.DECOMPRESSED_MAX_BYTES);
+                deserialize0(decompressed);
+            } else {
+                deserialize0(payload);
+            }
         } finally {
             ReferenceCountUtil.safeRelease(payload);
+            if (Objects.nonNull(decompressed)) {
+                ReferenceCountUtil.safeRelease(decompressed);
+            }
             setPayload(null);
         }
     }
 
+    /**
+     * 释放未反序列化的payload, 一般用于command解码后无法继续处理的场景
+     */
+    public final void releasePayload() {
+        if (Objects.isNull(payload)) {
+            return;
+        }
+
+        ReferenceCountUtil.safeRelease(payload);
+        setPayload(null);
+    }
+
     /**
      * 反序列化payload payload
      * @param payload   payload payload
@@ -93,6 +156,69 @@ public abstract class RemotingCommand implements Serializable {
         return flag;
     }
 
+    /**
+     * metadata是否基于header table编码
+     */
+    public final boolean isMetadataIndexed() {
+        return (flag & FLAG_METADATA_INDEXED) != 0;
+    }
+
+    /**
+     * 对端是否支持基于header table编码metadata
+     */
+    public final boolean isMetadataIndexSupported() {
+        return (flag & FLAG_METADATA_INDEX_SUPPORTED) != 0;
+    }
+
+    /**
+     * 对端是否支持基于class table编码message data class
+     */
+    public final boolean isClassIndexSupported() {
+        return (flag & FLAG_CLASS_INDEX_SUPPORTED) != 0;
+    }
+
+    /**
+     * 对端是否支持{@link org.kin.kinrpc.transport.TransportConstants#VERSION_2}编码
+     */
+    public final boolean isVersion2Supported() {
+        return (flag & FLAG_VERSION_2_SUPPORTED) != 0;
+    }
+
+    /**
+     * 对端是否支持解析batch frame
+     */
+    public final boolean isBatchSupported() {
+        return (flag & FLAG_BATCH_SUPPORTED) != 0;
+    }
+
+    /**
+     * 返回payload压缩使用的compression code, 仅解码后有效
+     *
+     * @return compression code, {@link Compressions#NONE}表示payload未压缩
+     */
+    public final int getPayloadCompressionCode() {
+        return (flag & FLAG_COMPRESSION_MASK) >>> FLAG_COMPRESSION_SHIFT;
+    }
+
+    /**
+     * 编码时, payload超过{@code threshold}字节则使用{@code compressionCode}对应的压缩实现压缩payload
+     *
+     * @param compressionCode compression code, {@link Compressions#NONE}表示不压缩
+     * @param threshold       payload超过该字节数才压缩
+     */
+    public void compression(byte compressionCode, int threshold) {
+        this.compressionCode = compressionCode;
+        this.compressionThreshold = threshold;
+    }
+
+    public final byte getCompressionCode() {
+        return compressionCode;
+    }
+
+    public final int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
     public final byte getSerializationCode() {
         return serializationCode;
     }
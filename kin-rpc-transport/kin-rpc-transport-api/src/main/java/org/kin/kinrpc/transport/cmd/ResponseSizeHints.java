@@ -0,0 +1,82 @@
+package org.kin.kinrpc.transport.cmd;
+
+import org.jctools.maps.NonBlockingHashMapLong;
+
+import java.util.Objects;
+
+/**
+ * 按服务方法(handlerId)统计response编码后字节数的移动平均值, 作为下次编码时分配byte buffer的初始容量
+ * 避免大结果response编码时byte buffer反复扩容
+ * <p>
+ * 统计值无需精确, 并发更新时允许丢失部分样本
+ *
+ * @author huangjianqin
+ * @date 2023/9/7
+ */
+public final class ResponseSizeHints {
+    /** 移动平均权重, 新样本占1/8 */
+    private static final int EWMA_SHIFT = 3;
+    /** 小于该值则不使用size hint, 由{@link org.kin.transport.netty.AdaptiveOutputByteBufAllocator}分配即可 */
+    private static final int MIN_HINT = 1024;
+    /** size hint上限 */
+    private static final int MAX_HINT = 16 * 1024 * 1024;
+
+    /** key -> handlerId, value -> response编码后字节数移动平均值 */
+    private static final NonBlockingHashMapLong<SizeHint> SIZE_HINTS = new NonBlockingHashMapLong<>();
+
+    private ResponseSizeHints() {
+    }
+
+    /**
+     * 返回服务方法response编码后预估字节数, 已预留1/4余量
+     *
+     * @param handlerId 服务方法唯一id
+     * @return response编码后预估字节数, 0表示无预估
+     */
+    public static int get(int handlerId) {
+        SizeHint sizeHint = SIZE_HINTS.get(handlerId);
+        if (Objects.isNull(sizeHint)) {
+            return 0;
+        }
+
+        int avg = sizeHint.avg;
+        if (avg < MIN_HINT) {
+            return 0;
+        }
+        return Math.min(MAX_HINT, avg + (avg >> 2));
+    }
+
+    /**
+     * 记录服务方法response编码后字节数
+     *
+     * @param handlerId 服务方法唯一id
+     * @param size      response编码后字节数
+     */
+    public static void record(int handlerId, int size) {
+        SizeHint sizeHint = SIZE_HINTS.get(handlerId);
+        if (Objects.isNull(sizeHint)) {
+            SizeHint newSizeHint = new SizeHint(size);
+            sizeHint = SIZE_HINTS.putIfAbsent(handlerId, newSizeHint);
+            if (Objects.isNull(sizeHint)) {
+                return;
+            }
+        }
+
+        int avg = sizeHint.avg;
+        sizeHint.avg = avg + ((size - avg) >> EWMA_SHIFT);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * response编码后字节数移动平均值
+     */
+    private static final class SizeHint {
+        /** 移动平均值 */
+        private volatile int avg;
+
+        SizeHint(int avg) {
+            this.avg = avg;
+        }
+    }
+}
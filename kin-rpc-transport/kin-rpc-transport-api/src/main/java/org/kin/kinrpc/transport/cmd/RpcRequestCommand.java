@@ -2,8 +2,8 @@ package org.kin.kinrpc.transport.cmd;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.util.ReferenceCountUtil;
-import org.kin.kinrpc.transport.RequestIdGenerator;
 import org.kin.kinrpc.transport.TransportConstants;
+import org.kin.kinrpc.transport.compression.Compressions;
 import org.kin.transport.netty.utils.VarIntUtils;
 
 import java.util.Arrays;
@@ -17,6 +17,10 @@ public class RpcRequestCommand extends RequestCommand {
     private static final long serialVersionUID = 5549418324792160032L;
     /** 空参数 */
     private static final Object[] EMPTY_PARAMS = new Object[0];
+    /** server stream request标识 */
+    public static final short FLAG_STREAM = 0x0004;
+    /** 携带client可接受的payload compression, server按相同方式压缩response */
+    public static final short FLAG_ACCEPT_COMPRESSION = 0x0008;
 
     /** 服务唯一id */
     private int serviceId;
@@ -26,6 +30,8 @@ public class RpcRequestCommand extends RequestCommand {
     private Object[] params;
     /** 服务方法调用参数bytes payload */
     private ByteBuf paramsPayload;
+    /** server stream初始request-n, 仅server stream request有效 */
+    private long initialRequestN;
 
     public RpcRequestCommand() {
     }
@@ -59,7 +65,7 @@ public class RpcRequestCommand extends RequestCommand {
                              int handlerId,
                              long timeout,
                              Object[] params) {
-        super(CommandCodes.RPC_REQUEST, version, RequestIdGenerator.next(), serializationCode);
+        super(CommandCodes.RPC_REQUEST, version, UNASSIGNED_ID, serializationCode);
         setTimeout(timeout);
         this.serviceId = serviceId;
         this.handlerId = handlerId;
@@ -72,10 +78,20 @@ public class RpcRequestCommand extends RequestCommand {
         /*
          * 变长int(1-5): serviceId
          * 变长int(1-5): handlerId
+         * 变长long(1-9): initial request-n, 仅server stream request
+         * byte: accept compression code, 仅携带accept compression标识
+         * 变长int(1-5): accept compression threshold, 仅携带accept compression标识
          * bytes(other): params payload
          */
         VarIntUtils.writeRawVarInt32(out, serviceId);
         VarIntUtils.writeRawVarInt32(out, handlerId);
+        if (isStream()) {
+            VarIntUtils.writeRawVarInt64(out, initialRequestN);
+        }
+        if (isAcceptCompression()) {
+            out.writeByte(getCompressionCode());
+            VarIntUtils.writeRawVarInt32(out, getCompressionThreshold());
+        }
         if (params.length == 1 && params[0] instanceof ByteBuf) {
             //支持参数为Bytebuf, 但参数长度必须为1
             ByteBuf byteBuf = (ByteBuf) params[0];
@@ -98,6 +114,21 @@ public class RpcRequestCommand extends RequestCommand {
         //handlerId
         handlerId = VarIntUtils.readRawVarInt32(in);
 
+        if (isStream()) {
+            //initial request-n
+            initialRequestN = VarIntUtils.readRawVarInt64(in);
+        }
+
+        if (isAcceptCompression()) {
+            //accept compression
+            byte compressionCode = in.readByte();
+            int compressionThreshold = VarIntUtils.readRawVarInt32(in);
+            if (Compressions.isCompressionAvailable(compressionCode)) {
+                //server不支持则response不压缩
+                super.compression(compressionCode, compressionThreshold);
+            }
+        }
+
         //slice
         paramsPayload = in.retainedSlice();
     }
@@ -125,6 +156,50 @@ public class RpcRequestCommand extends RequestCommand {
         }
     }
 
+    /**
+     * 标识为server stream request
+     *
+     * @param initialRequestN 初始request-n, 0表示由transport层flow control决定
+     */
+    public void stream(long initialRequestN) {
+        setFlag((short) (getFlag() | FLAG_STREAM));
+        this.initialRequestN = initialRequestN;
+    }
+
+    /**
+     * 压缩request payload, 同时告诉server以相同方式压缩response
+     *
+     * @param compressionCode compression code, {@link Compressions#NONE}表示不压缩
+     * @param threshold       payload超过该字节数才压缩
+     */
+    @Override
+    public void compression(byte compressionCode, int threshold) {
+        super.compression(compressionCode, threshold);
+        if (compressionCode != Compressions.NONE) {
+            setFlag((short) (getFlag() | FLAG_ACCEPT_COMPRESSION));
+        } else {
+            setFlag((short) (getFlag() & ~FLAG_ACCEPT_COMPRESSION));
+        }
+    }
+
+    /**
+     * request是否携带client可接受的payload compression
+     *
+     * @return true表示携带client可接受的payload compression
+     */
+    public boolean isAcceptCompression() {
+        return (getFlag() & FLAG_ACCEPT_COMPRESSION) != 0;
+    }
+
+    /**
+     * 是否是server stream request
+     *
+     * @return true表示是server stream request
+     */
+    public boolean isStream() {
+        return (getFlag() & FLAG_STREAM) != 0;
+    }
+
     //getter
     public int getServiceId() {
         return serviceId;
@@ -142,6 +217,10 @@ public class RpcRequestCommand extends RequestCommand {
         return paramsPayload;
     }
 
+    public long getInitialRequestN() {
+        return initialRequestN;
+    }
+
     @Override
     public String toString() {
         return "RpcRequestCommand{" +
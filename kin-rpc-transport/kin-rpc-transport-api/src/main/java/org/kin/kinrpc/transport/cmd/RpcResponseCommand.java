@@ -21,10 +21,21 @@ public class RpcResponseCommand extends RemotingCommand {
     private Object result;
     /** 服务方法调用结果bytes payload */
     private ByteBuf resultPayload;
+    /** 对应request的服务方法唯一id, 仅用于统计response编码后字节数, 不参与序列化 */
+    private transient int handlerId;
+    /** 是否统计response编码后字节数 */
+    private transient boolean sizeHintEnabled;
 
     public static RpcResponseCommand success(RemotingCommand command, Object result){
-        return success(command.getVersion(), command.getId(),
+        RpcResponseCommand response = success(command.getVersion(), command.getId(),
                 command.getSerializationCode(), result);
+        //按request协商的方式压缩response
+        response.compression(command.getCompressionCode(), command.getCompressionThreshold());
+        if (command instanceof RpcRequestCommand) {
+            response.handlerId = ((RpcRequestCommand) command).getHandlerId();
+            response.sizeHintEnabled = true;
+        }
+        return response;
     }
 
     public static RpcResponseCommand success(short version, long id, byte serializationCode,
@@ -70,11 +81,24 @@ public class RpcResponseCommand extends RemotingCommand {
                     ReferenceCountUtil.safeRelease(byteBuf);
                 }
             } else {
-                out.writeBytes(getSerialization().serialize(result));
+                //直接序列化到out, 不经过中间byte[]
+                getSerialization().serialize(out, result);
             }
         }
     }
 
+    @Override
+    public int sizeHint() {
+        return sizeHintEnabled ? ResponseSizeHints.get(handlerId) : 0;
+    }
+
+    @Override
+    public void onEncoded(int size) {
+        if (sizeHintEnabled) {
+            ResponseSizeHints.record(handlerId, size);
+        }
+    }
+
     @Override
     public void deserialize0(ByteBuf payload) {
         status = Status.getByCode(payload.readByte());
@@ -0,0 +1,73 @@
+package org.kin.kinrpc.transport.cmd;
+
+import org.kin.kinrpc.constants.InvocationConstants;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * command metadata静态header table
+ * 通信双方内置相同的常用metadata key, 编码时仅需传输index
+ * !!!只允许在尾部追加, 不允许修改已有entry的顺序
+ *
+ * @author huangjianqin
+ * @date 2023/8/1
+ */
+public final class StaticHeaderTable {
+    /** 静态header table entries */
+    private static final String[] ENTRIES = {
+            InvocationConstants.TOKEN_KEY,
+            //w3c trace context
+            "traceparent",
+            "tracestate",
+            //w3c baggage
+            "baggage",
+            //b3
+            "b3",
+            "X-B3-TraceId",
+            "X-B3-SpanId",
+            "X-B3-ParentSpanId",
+            "X-B3-Sampled",
+            "X-B3-Flags",
+            //skywalking
+            "sw8",
+            "sw8-correlation",
+            "sw8-x",
+    };
+    /** key -> entry, value -> index */
+    private static final Map<String, Integer> INDEX_MAP = new HashMap<>(ENTRIES.length * 2);
+
+    static {
+        for (int i = 0; i < ENTRIES.length; i++) {
+            INDEX_MAP.put(ENTRIES[i], i);
+        }
+    }
+
+    private StaticHeaderTable() {
+    }
+
+    /**
+     * 返回{@code s}在静态header table的index
+     *
+     * @param s metadata key or value
+     * @return index, 如果不存在则返回null
+     */
+    @Nullable
+    public static Integer indexOf(String s) {
+        return INDEX_MAP.get(s);
+    }
+
+    /**
+     * 根据index返回静态header table entry
+     *
+     * @param index entry index
+     * @return header table entry
+     */
+    public static String get(int index) {
+        if (index < 0 || index >= ENTRIES.length) {
+            throw new CodecException("can not find static header table entry with index " + index);
+        }
+        return ENTRIES[index];
+    }
+}
@@ -0,0 +1,205 @@
+package org.kin.kinrpc.transport.cmd;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.kinrpc.transport.TransportException;
+
+import java.util.Objects;
+
+/**
+ * server stream frame, id与server stream request id一致
+ * 每个stream元素对应一个{@link Type#NEXT} frame, 最后以{@link Type#COMPLETE}或{@link Type#ERROR} frame结束
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+@CommandCode(CommandCodes.STREAM_FRAME)
+public final class StreamFrameCommand extends RemotingCommand {
+    private static final long serialVersionUID = -3620546208237325869L;
+
+    /** frame类型 */
+    private Type type;
+    /**
+     * stream元素
+     * 当frame类型为{@link Type#ERROR}时, 则是error message
+     */
+    private Object element;
+    /** stream元素bytes payload */
+    private ByteBuf elementPayload;
+
+    public static StreamFrameCommand next(RemotingCommand command, Object element) {
+        return new StreamFrameCommand(command, Type.NEXT, element);
+    }
+
+    public static StreamFrameCommand complete(RemotingCommand command) {
+        return new StreamFrameCommand(command, Type.COMPLETE, null);
+    }
+
+    public static StreamFrameCommand error(RemotingCommand command, String errorMsg) {
+        return new StreamFrameCommand(command, Type.ERROR, errorMsg);
+    }
+
+    public StreamFrameCommand() {
+    }
+
+    private StreamFrameCommand(RemotingCommand command, Type type, Object element) {
+        super(CommandCodes.STREAM_FRAME, command.getVersion(), command.getId());
+        setSerializationCode(command.getSerializationCode());
+        //按request协商的方式压缩stream frame
+        compression(command.getCompressionCode(), command.getCompressionThreshold());
+        this.type = type;
+        this.element = element;
+    }
+
+    @Override
+    public void serializePayload(ByteBuf out) {
+        /*
+         * byte: frame type
+         * bytes(other): stream element
+         */
+        out.writeByte(type.getCode());
+        if (Objects.nonNull(element)) {
+            if (element instanceof ByteBuf) {
+                //支持元素为ByteBuf
+                ByteBuf byteBuf = (ByteBuf) element;
+                try {
+                    out.writeBytes(byteBuf);
+                } finally {
+                    ReferenceCountUtil.safeRelease(byteBuf);
+                }
+            } else {
+                getSerialization().serialize(out, element);
+            }
+        }
+    }
+
+    @Override
+    protected void deserialize0(ByteBuf payload) {
+        type = Type.getByCode(payload.readByte());
+        //slice
+        elementPayload = payload.retainedSlice();
+    }
+
+    /**
+     * 反序列化stream元素
+     *
+     * @param elementType stream元素类型
+     */
+    public void deserializeElement(Class<?> elementType) {
+        if (Objects.isNull(elementPayload)) {
+            //已经反序列化了
+            return;
+        }
+
+        try {
+            if (elementPayload.readableBytes() > 0) {
+                if (ByteBuf.class.isAssignableFrom(elementType)) {
+                    //支持元素为ByteBuf, user要负责release bytebuf
+                    element = elementPayload.retain();
+                } else {
+                    element = getSerialization().deserialize(elementPayload, elementType);
+                }
+            } else {
+                element = null;
+            }
+        } finally {
+            ReferenceCountUtil.safeRelease(elementPayload);
+            elementPayload = null;
+        }
+    }
+
+    /**
+     * 释放未反序列化的stream元素bytes payload, 一般用于consumer已cancel stream的场景
+     */
+    public void releaseElement() {
+        if (Objects.isNull(elementPayload)) {
+            return;
+        }
+
+        ReferenceCountUtil.safeRelease(elementPayload);
+        elementPayload = null;
+    }
+
+    /**
+     * 是否是stream元素frame
+     */
+    public boolean isNext() {
+        return Type.NEXT.equals(type);
+    }
+
+    /**
+     * 是否是stream完成frame
+     */
+    public boolean isComplete() {
+        return Type.COMPLETE.equals(type);
+    }
+
+    /**
+     * 是否是stream异常frame
+     */
+    public boolean isError() {
+        return Type.ERROR.equals(type);
+    }
+
+    //getter
+    public Type getType() {
+        return type;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getElement() {
+        return (T) element;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamFrameCommand{" +
+                "id=" + getId() +
+                ", type=" + type +
+                '}';
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------------------
+    public enum Type {
+        /**
+         * stream元素
+         */
+        NEXT(0),
+        /**
+         * stream完成
+         */
+        COMPLETE(1),
+        /**
+         * stream异常
+         */
+        ERROR(2),
+        ;
+
+        private static final Type[] VALUES = values();
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * 根据{@code code}寻找{@link Type}枚举
+         *
+         * @return {@link Type}枚举
+         */
+        public static Type getByCode(int code) {
+            for (Type type : VALUES) {
+                if (type.getCode() == code) {
+                    return type;
+                }
+            }
+
+            throw new TransportException("can not find stream frame type with code " + code);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.kin.kinrpc.transport.cmd;
+
+import io.netty.buffer.ByteBuf;
+import org.kin.kinrpc.transport.TransportConstants;
+import org.kin.transport.netty.utils.VarIntUtils;
+
+/**
+ * server stream request-n, id与server stream request id一致
+ * 用于transport层没有request-n语义的协议(比如kinrpc), 由client告诉server还可以发送多少个stream元素
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+@CommandCode(CommandCodes.STREAM_REQUEST_N)
+public final class StreamRequestNCommand extends RemotingCommand {
+    private static final long serialVersionUID = 6236436236458005216L;
+    /** 表示cancel server stream */
+    public static final long CANCEL = -1;
+
+    /** request-n, {@link #CANCEL}表示cancel */
+    private long n;
+
+    public StreamRequestNCommand() {
+    }
+
+    public StreamRequestNCommand(long streamId, long n) {
+        super(CommandCodes.STREAM_REQUEST_N, TransportConstants.VERSION, streamId);
+        this.n = n;
+    }
+
+    @Override
+    public void serializePayload(ByteBuf out) {
+        /*
+         * 变长long(1-9), zigzag: request-n
+         */
+        VarIntUtils.writeRawVarInt64(out, n, true);
+    }
+
+    @Override
+    protected void deserialize0(ByteBuf payload) {
+        n = VarIntUtils.readRawVarInt64(payload, true);
+    }
+
+    /**
+     * 是否cancel server stream
+     *
+     * @return true表示cancel server stream
+     */
+    public boolean isCancel() {
+        return n == CANCEL;
+    }
+
+    //getter
+    public long getN() {
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamRequestNCommand{" +
+                "id=" + getId() +
+                ", n=" + n +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package org.kin.kinrpc.transport.cmd.processor;
+
+import org.kin.kinrpc.transport.ClientStream;
+import org.kin.kinrpc.transport.RemotingContext;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+
+/**
+ * client收到server stream frame, 转发给对应的client stream
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+public class StreamFrameCommandProcessor implements CommandProcessor<StreamFrameCommand> {
+    private static final Logger log = LoggerFactory.getLogger(StreamFrameCommandProcessor.class);
+
+    @Override
+    public void process(RemotingContext context, StreamFrameCommand command) {
+        long streamId = command.getId();
+        ClientStream stream = context.getClientStream(streamId);
+        if (Objects.isNull(stream)) {
+            //consumer已cancel或者stream已结束
+            command.releaseElement();
+            if (log.isDebugEnabled()) {
+                log.debug("can not find client stream, id={}", streamId);
+            }
+            return;
+        }
+
+        stream.onFrame(command);
+    }
+}
@@ -0,0 +1,38 @@
+package org.kin.kinrpc.transport.cmd.processor;
+
+import org.kin.kinrpc.transport.RemotingContext;
+import org.kin.kinrpc.transport.ServerStream;
+import org.kin.kinrpc.transport.cmd.StreamRequestNCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+
+/**
+ * server收到client request-n或cancel, 转发给对应的server stream
+ *
+ * @author huangjianqin
+ * @date 2023/9/6
+ */
+public class StreamRequestNCommandProcessor implements CommandProcessor<StreamRequestNCommand> {
+    private static final Logger log = LoggerFactory.getLogger(StreamRequestNCommandProcessor.class);
+
+    @Override
+    public void process(RemotingContext context, StreamRequestNCommand command) {
+        long streamId = command.getId();
+        ServerStream stream = context.getServerStream(streamId);
+        if (Objects.isNull(stream)) {
+            //server stream已结束
+            if (log.isDebugEnabled()) {
+                log.debug("can not find server stream, id={} from {}", streamId, context.address());
+            }
+            return;
+        }
+
+        if (command.isCancel()) {
+            stream.cancel();
+        } else {
+            stream.request(command.getN());
+        }
+    }
+}
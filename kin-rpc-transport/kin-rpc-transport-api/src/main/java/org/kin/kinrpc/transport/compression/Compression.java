@@ -0,0 +1,44 @@
+package org.kin.kinrpc.transport.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.kin.framework.utils.SPI;
+
+/**
+ * command payload压缩
+ * 实现类需通过{@link org.kin.framework.utils.Extension#code()}指定compression code, 取值范围[1, 15]
+ *
+ * @author huangjianqin
+ * @date 2023/9/8
+ */
+@SPI(alias = "compression")
+public interface Compression {
+    /**
+     * 压缩
+     *
+     * @param in        待压缩bytes, 不会release
+     * @param allocator byte buf allocator
+     * @return 压缩后bytes
+     */
+    ByteBuf compress(ByteBuf in, ByteBufAllocator allocator);
+
+    /**
+     * 解压
+     * 解压后字节数超过{@code maxLength}时需在分配内存前抛出{@link org.kin.kinrpc.transport.cmd.CodecException}, 避免恶意payload耗尽内存
+     *
+     * @param in        待解压bytes, 不会release
+     * @param allocator byte buf allocator
+     * @param maxLength 解压后字节数上限
+     * @return 解压后bytes
+     */
+    ByteBuf decompress(ByteBuf in, ByteBufAllocator allocator, int maxLength);
+
+    /**
+     * 当前classpath是否支持该压缩实现, 比如依赖的第三方库是否存在
+     *
+     * @return true表示支持
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+package org.kin.kinrpc.transport.compression;
+
+import org.kin.framework.utils.ExtensionLoader;
+import org.kin.framework.utils.StringUtils;
+import org.kin.kinrpc.transport.cmd.CodecException;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * 压缩相关工具类
+ *
+ * @author huangjianqin
+ * @date 2023/9/8
+ */
+public final class Compressions {
+    /** 表示不压缩 */
+    public static final byte NONE = 0;
+    /** compression code最大值, 受限于command flag位数 */
+    public static final byte MAX_CODE = 15;
+
+    private Compressions() {
+    }
+
+    /**
+     * 根据compression code查找{@link Compression}实现
+     *
+     * @param code compression code
+     * @return {@link Compression}实例
+     */
+    public static Compression getByCode(int code) {
+        Compression compression = ExtensionLoader.getExtension(Compression.class, code);
+        if (Objects.isNull(compression)) {
+            throw new CodecException("can not find Compression with code " + code);
+        }
+
+        return compression;
+    }
+
+    /**
+     * 根据compression name返回compression code
+     *
+     * @param name compression name
+     * @return compression code
+     */
+    public static byte getCode(String name) {
+        int code = ExtensionLoader.getExtensionCode(Compression.class, name);
+        if (code <= NONE || code > MAX_CODE) {
+            throw new CodecException(String.format("compression '%s' code must be in [1, %d], but got %d", name, MAX_CODE, code));
+        }
+        return (byte) code;
+    }
+
+    /**
+     * 判断code为{@code  code}的压缩实现是否存在当前classpath且可用
+     *
+     * @param code compression code
+     * @return true表示在当前classpath找到{@code  code}对应的可用压缩实现
+     */
+    public static boolean isCompressionAvailable(int code) {
+        Compression compression = ExtensionLoader.getExtension(Compression.class, code);
+        return Objects.nonNull(compression) && compression.isAvailable();
+    }
+
+    /**
+     * 返回当前classpath可用的compression code, 逗号分隔, 用于provider向consumer声明支持的压缩实现
+     *
+     * @return 可用的compression code, 比如"1,2"
+     */
+    public static String availableCodes() {
+        StringJoiner joiner = new StringJoiner(",");
+        for (int code = NONE + 1; code <= MAX_CODE; code++) {
+            if (isCompressionAvailable(code)) {
+                joiner.add(Integer.toString(code));
+            }
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * 解析{@link #availableCodes()}返回的compression code, 转换成bit mask, 第code位为1表示支持该压缩实现
+     *
+     * @param codes 逗号分隔的compression code
+     * @return compression code bit mask
+     */
+    public static int parseCodes(String codes) {
+        if (StringUtils.isBlank(codes)) {
+            return 0;
+        }
+
+        int mask = 0;
+        for (String code : codes.split(",")) {
+            try {
+                int c = Integer.parseInt(code.trim());
+                if (c > NONE && c <= MAX_CODE) {
+                    mask |= 1 << c;
+                }
+            } catch (NumberFormatException e) {
+                //ignore
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 校验解压后字节数
+     *
+     * @param len    解压后字节数
+     * @param maxLen 解压后字节数上限
+     */
+    static void checkDecompressedLength(long len, int maxLen) {
+        if (len < 0 || len > maxLen) {
+            throw new CodecException(String.format("decompressed length %d out of range [0, %d]", len, maxLen));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.kin.kinrpc.transport.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.kin.framework.utils.ClassUtils;
+import org.kin.framework.utils.Extension;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 基于lz4-java实现, 需引入{@code org.lz4:lz4-java}
+ * 直接基于{@link ByteBuf#nioBuffer(int, int)}压缩和解压, 不经过中间byte[]
+ * 格式: 原始长度(int) + 压缩后bytes
+ *
+ * @author huangjianqin
+ * @date 2023/9/8
+ */
+@Extension(value = "lz4", code = 2)
+public class Lz4Compression implements Compression {
+    /** 是否引入lz4-java */
+    private static final boolean AVAILABLE = ClassUtils.isClassExists("net.jpountz.lz4.LZ4Factory");
+
+    @Override
+    public ByteBuf compress(ByteBuf in, ByteBufAllocator allocator) {
+        LZ4Compressor compressor = Lz4Holder.COMPRESSOR;
+        int len = in.readableBytes();
+        int maxLen = compressor.maxCompressedLength(len);
+        ByteBuf out = allocator.buffer(4 + maxLen);
+        try {
+            out.writeInt(len);
+            ByteBuffer src = in.nioBuffer(in.readerIndex(), len);
+            ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxLen);
+            int compressedLen = compressor.compress(src, src.position(), len, dest, dest.position(), maxLen);
+            out.writerIndex(out.writerIndex() + compressedLen);
+            return out;
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(out);
+            throw e;
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, ByteBufAllocator allocator, int maxLength) {
+        int index = in.readerIndex();
+        int len = in.getInt(index);
+        Compressions.checkDecompressedLength(len, maxLength);
+        ByteBuf out = allocator.buffer(len);
+        try {
+            ByteBuffer src = in.nioBuffer(index + 4, in.readableBytes() - 4);
+            ByteBuffer dest = out.nioBuffer(out.writerIndex(), len);
+            Lz4Holder.DECOMPRESSOR.decompress(src, src.position(), dest, dest.position(), len);
+            out.writerIndex(out.writerIndex() + len);
+            return out;
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(out);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * 延迟加载lz4-java相关类, 没有引入lz4-java也可以加载{@link Lz4Compression}
+     */
+    private static final class Lz4Holder {
+        /** lz4 compressor, 线程安全 */
+        private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+        /** lz4 decompressor, 线程安全 */
+        private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    }
+}
@@ -0,0 +1,87 @@
+package org.kin.kinrpc.transport.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.compression.Snappy;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.framework.utils.Extension;
+import org.kin.kinrpc.transport.cmd.CodecException;
+
+/**
+ * 基于netty {@link Snappy}实现, 无需引入额外依赖, 直接ByteBuf to ByteBuf
+ * 与snappy framing format一致, 按64K分块压缩, 格式: [压缩后block长度(int) + block]...
+ *
+ * @author huangjianqin
+ * @date 2023/9/8
+ */
+@Extension(value = "snappy", code = 1)
+public class SnappyCompression implements Compression {
+    /** 分块大小 */
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    @Override
+    public ByteBuf compress(ByteBuf in, ByteBufAllocator allocator) {
+        ByteBuf src = in.duplicate();
+        ByteBuf out = allocator.buffer(src.readableBytes() / 2 + 64);
+        try {
+            Snappy snappy = new Snappy();
+            while (src.isReadable()) {
+                int blockLen = Math.min(BLOCK_SIZE, src.readableBytes());
+                int lenIndex = out.writerIndex();
+                out.writeInt(0);
+                snappy.encode(src.readSlice(blockLen), out, blockLen);
+                out.setInt(lenIndex, out.writerIndex() - lenIndex - 4);
+                snappy.reset();
+            }
+            return out;
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(out);
+            throw e;
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, ByteBufAllocator allocator, int maxLength) {
+        ByteBuf src = in.duplicate();
+        ByteBuf out = allocator.buffer(Math.min(maxLength, src.readableBytes() * 2));
+        try {
+            Snappy snappy = new Snappy();
+            while (src.isReadable()) {
+                int blockLen = src.readInt();
+                if (blockLen < 0 || blockLen > src.readableBytes()) {
+                    throw new CodecException(String.format("illegal snappy block length %d, readable bytes %d", blockLen, src.readableBytes()));
+                }
+                //block起始为解压后字节数(var int), 解压前校验, 避免分配过大内存
+                Compressions.checkDecompressedLength((long) out.readableBytes() + uncompressedLength(src, blockLen), maxLength);
+                snappy.decode(src.readSlice(blockLen), out);
+                snappy.reset();
+                //block preamble与实际解压后字节数不一致时, 以实际解压后字节数为准
+                Compressions.checkDecompressedLength(out.readableBytes(), maxLength);
+            }
+            return out;
+        } catch (Exception e) {
+            ReferenceCountUtil.safeRelease(out);
+            throw e;
+        }
+    }
+
+    /**
+     * 读取snappy block起始的解压后字节数(var int), 不移动reader index
+     *
+     * @param src      待解压bytes
+     * @param blockLen block字节数
+     * @return 解压后字节数
+     */
+    private static long uncompressedLength(ByteBuf src, int blockLen) {
+        int index = src.readerIndex();
+        long len = 0;
+        for (int i = 0; i < Math.min(5, blockLen); i++) {
+            int b = src.getUnsignedByte(index + i);
+            len |= (long) (b & 0x7F) << (i * 7);
+            if ((b & 0x80) == 0) {
+                return len;
+            }
+        }
+        throw new CodecException("illegal snappy block preamble");
+    }
+}
@@ -0,0 +1,136 @@
+package org.kin.kinrpc.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.transport.netty.utils.VarIntUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * 校验{@link ChunkWriter}分块写出与{@link ChunkAssembler}重组
+ * 包括小command与chunk frame交错写出, 相同order key的command按序到达, 以及重组上限
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class ChunkTest {
+    /** chunk字节数 */
+    private static final int CHUNK_SIZE = 64;
+
+    /** 已write但还未complete的frame listener, 模拟异步write */
+    private static final Queue<TransportOperationListener> WRITING = new ArrayDeque<>();
+    /** 接收端重组后的command id, 按到达顺序 */
+    private static final List<Integer> RECEIVED = new ArrayList<>();
+    /** 接收端重组后的command */
+    private static final List<ByteBuf> COMMANDS = new ArrayList<>();
+
+    public static void main(String[] args) {
+        ChunkAssembler assembler = new ChunkAssembler(CHUNK_SIZE * 100, ByteBufAllocator.DEFAULT);
+        ChunkWriter writer = new ChunkWriter(CHUNK_SIZE, ByteBufAllocator.DEFAULT, (byteBuf, listener) -> {
+            receive(assembler, byteBuf);
+            WRITING.offer(listener);
+        });
+
+        //大command分块写出时, 无需保证顺序的小command直接写出
+        ByteBuf big = command(1, CHUNK_SIZE * 3);
+        ByteBuf bigCopy = big.copy();
+        writer.write(big, new TransportOperationListener() {
+        }, ChunkWriter.UNORDERED);
+        writer.write(command(2, 8), new TransportOperationListener() {
+        }, ChunkWriter.UNORDERED);
+        //按连接顺序到达的小command排在未写完的大command后面
+        writer.write(command(3, CHUNK_SIZE * 2), new TransportOperationListener() {
+        });
+        writer.write(command(4, 8), new TransportOperationListener() {
+        });
+        completeAll();
+
+        check(Arrays.asList(2, 1, 3, 4).equals(RECEIVED), "unexpected arrive order " + RECEIVED);
+        check(ByteBufUtil.equals(bigCopy, COMMANDS.get(1)), "assembled command not match");
+
+        //超过重组上限的command被丢弃
+        RECEIVED.clear();
+        ChunkAssembler smallAssembler = new ChunkAssembler(CHUNK_SIZE * 2, ByteBufAllocator.DEFAULT);
+        ChunkWriter smallWriter = new ChunkWriter(CHUNK_SIZE, ByteBufAllocator.DEFAULT, (byteBuf, listener) -> {
+            receive(smallAssembler, byteBuf);
+            WRITING.offer(listener);
+        });
+        smallWriter.write(command(5, CHUNK_SIZE * 3), new TransportOperationListener() {
+        });
+        smallWriter.write(command(6, CHUNK_SIZE * 2), new TransportOperationListener() {
+        });
+        completeAll();
+        check(RECEIVED.equals(Arrays.asList(6)), "command exceeds reassembly max bytes is not dropped, " + RECEIVED);
+
+        for (ByteBuf command : COMMANDS) {
+            ReferenceCountUtil.safeRelease(command);
+        }
+        ReferenceCountUtil.safeRelease(bigCopy);
+        System.out.println("chunk check passed");
+    }
+
+    /**
+     * 构造command, 首字节为0, 接着是4字节command id, 剩余字节填充
+     */
+    private static ByteBuf command(int id, int len) {
+        ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(len);
+        byteBuf.writeByte(0);
+        byteBuf.writeInt(id);
+        for (int i = 5; i < len; i++) {
+            byteBuf.writeByte(i);
+        }
+        return byteBuf;
+    }
+
+    /**
+     * 模拟异步write, 逐个complete已write的frame, 直到没有frame在write
+     */
+    private static void completeAll() {
+        TransportOperationListener listener;
+        while ((listener = WRITING.poll()) != null) {
+            listener.onComplete();
+        }
+    }
+
+    /**
+     * 与{@link RemotingProcessor}一致, 解析chunk frame或single command
+     */
+    private static void receive(ChunkAssembler assembler, ByteBuf frame) {
+        try {
+            if (frame.getUnsignedByte(frame.readerIndex()) != TransportConstants.CHUNK_FRAME_MARKER) {
+                onCommand(frame.retain());
+                return;
+            }
+
+            frame.skipBytes(1);
+            long chunkId = VarIntUtils.readRawVarInt64(frame, false);
+            byte flag = frame.readByte();
+            if ((flag & TransportConstants.CHUNK_FLAG_FIRST) != 0) {
+                assembler.begin(chunkId, VarIntUtils.readRawVarInt32(frame));
+            }
+            ByteBuf command = assembler.append(chunkId, frame, (flag & TransportConstants.CHUNK_FLAG_CONTINUATION) == 0);
+            if (command != null) {
+                onCommand(command);
+            }
+        } finally {
+            ReferenceCountUtil.safeRelease(frame);
+        }
+    }
+
+    private static void onCommand(ByteBuf command) {
+        RECEIVED.add(command.getInt(command.readerIndex() + 1));
+        COMMANDS.add(command);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.kin.kinrpc.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 校验{@link FlushBatcher}仅在对端支持batch frame后才合并, 在此之前逐个write
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class FlushBatchTest {
+    /** 每次flush写出的frame首字节 */
+    private static final List<Short> FLUSHED = new ArrayList<>();
+    /** 在flush期间write的command数量, 模拟并发write */
+    private static int concurrentWrites;
+    private static FlushBatcher flushBatcher;
+
+    public static void main(String[] args) {
+        flushBatcher = new FlushBatcher(new FlushBatchConfig(16, 64 * 1024), FlushBatchTest::flush);
+
+        //未协商, drain出来的多个command逐个write
+        writeWithContention();
+        check(FLUSHED.size() == 3, "commands are batched before negotiated, flushes: " + FLUSHED.size());
+        check(!FLUSHED.contains(TransportConstants.BATCH_FRAME_MARKER), "batch frame is written before negotiated");
+
+        //协商后, 合并成batch frame
+        FLUSHED.clear();
+        flushBatcher.enableBatch();
+        writeWithContention();
+        check(FLUSHED.size() == 2, "commands are not batched after negotiated, flushes: " + FLUSHED.size());
+        check(FLUSHED.get(1) == TransportConstants.BATCH_FRAME_MARKER, "second flush is not batch frame");
+
+        //重连后重新协商
+        FLUSHED.clear();
+        flushBatcher.disableBatch();
+        writeWithContention();
+        check(FLUSHED.size() == 3, "commands are batched after reconnect, flushes: " + FLUSHED.size());
+        System.out.println("flush batch check passed");
+    }
+
+    /**
+     * 首个command flush期间再write两个command, 它们会在同一次drain中被取出
+     */
+    private static void writeWithContention() {
+        concurrentWrites = 2;
+        flushBatcher.write(command(), TransportOperationListener.DEFAULT);
+    }
+
+    private static ByteBuf command() {
+        return Unpooled.wrappedBuffer(new byte[]{1, 2, 3});
+    }
+
+    private static void flush(ByteBuf byteBuf, TransportOperationListener listener) {
+        FLUSHED.add(byteBuf.getUnsignedByte(byteBuf.readerIndex()));
+        ReferenceCountUtil.safeRelease(byteBuf);
+        listener.onComplete();
+        while (concurrentWrites > 0) {
+            concurrentWrites--;
+            flushBatcher.write(command(), TransportOperationListener.DEFAULT);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
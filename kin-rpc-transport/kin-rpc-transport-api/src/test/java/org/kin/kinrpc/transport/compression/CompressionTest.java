@@ -0,0 +1,81 @@
+package org.kin.kinrpc.transport.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.kinrpc.transport.cmd.CodecException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 校验压缩实现round trip, 解压后字节数上限, 以及compression code协商
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class CompressionTest {
+    public static void main(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            sb.append("kinrpc compression ").append(i % 10).append(';');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<Compression> compressions = Arrays.asList(new SnappyCompression(), new Lz4Compression());
+        for (Compression compression : compressions) {
+            String name = compression.getClass().getSimpleName();
+            if (!compression.isAvailable()) {
+                System.out.println(name + " is not available, skip");
+                continue;
+            }
+
+            ByteBuf in = ByteBufAllocator.DEFAULT.buffer(bytes.length).writeBytes(bytes);
+            ByteBuf compressed = compression.compress(in, ByteBufAllocator.DEFAULT);
+            try {
+                if (compressed.readableBytes() >= bytes.length) {
+                    throw new IllegalStateException(name + " does not compress");
+                }
+
+                //round trip
+                ByteBuf decompressed = compression.decompress(compressed.duplicate(), ByteBufAllocator.DEFAULT, bytes.length);
+                try {
+                    if (!ByteBufUtil.equals(in, decompressed)) {
+                        throw new IllegalStateException(name + " round trip not match");
+                    }
+                } finally {
+                    ReferenceCountUtil.safeRelease(decompressed);
+                }
+
+                //解压后字节数超过上限
+                try {
+                    ByteBuf overflow = compression.decompress(compressed.duplicate(), ByteBufAllocator.DEFAULT, bytes.length - 1);
+                    ReferenceCountUtil.safeRelease(overflow);
+                    throw new IllegalStateException(name + " decompress exceeds max length without exception");
+                } catch (CodecException e) {
+                    //expected
+                }
+            } finally {
+                ReferenceCountUtil.safeRelease(in);
+                ReferenceCountUtil.safeRelease(compressed);
+            }
+        }
+
+        //compression code协商
+        if (Compressions.parseCodes("1, 2,x,0,16") != ((1 << 1) | (1 << 2))) {
+            throw new IllegalStateException("parse compression codes fail");
+        }
+        if (Compressions.parseCodes(null) != 0 || Compressions.parseCodes("") != 0) {
+            throw new IllegalStateException("parse blank compression codes fail");
+        }
+        int mask = Compressions.parseCodes(Compressions.availableCodes());
+        for (int code = Compressions.NONE + 1; code <= Compressions.MAX_CODE; code++) {
+            if (((mask & (1 << code)) != 0) != Compressions.isCompressionAvailable(code)) {
+                throw new IllegalStateException("available compression codes not match, code " + code);
+            }
+        }
+        System.out.println("compression check passed");
+    }
+}
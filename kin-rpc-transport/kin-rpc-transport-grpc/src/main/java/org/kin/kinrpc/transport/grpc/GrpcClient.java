@@ -10,11 +10,13 @@ import org.kin.framework.utils.ExtensionLoader;
 import org.kin.framework.utils.NetUtils;
 import org.kin.kinrpc.config.SslConfig;
 import org.kin.kinrpc.transport.AbstractRemotingClient;
+import org.kin.kinrpc.transport.ClientStream;
 import org.kin.kinrpc.transport.TransportException;
 import org.kin.kinrpc.transport.cmd.*;
 import org.kin.transport.netty.utils.SslUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,6 +41,11 @@ public class GrpcClient extends AbstractRemotingClient {
             //5分钟没有访问, 则clear, 用于延迟清理无用MethodDescriptor
             .expireAfterAccess(Duration.ofMinutes(5))
             .build();
+    /** grpc server streaming call method descriptor cache */
+    private final Cache<Integer, MethodDescriptor<ByteBuf, ByteBuf>> streamMethodDescriptorCache = CacheBuilder.newBuilder()
+            //5分钟没有访问, 则clear, 用于延迟清理无用MethodDescriptor
+            .expireAfterAccess(Duration.ofMinutes(5))
+            .build();
 
     public GrpcClient(int port) {
         this(port, null);
@@ -123,7 +130,11 @@ public class GrpcClient extends AbstractRemotingClient {
     public <T> CompletableFuture<T> requestResponse(RequestCommand command) {
         beforeRequest(command);
 
-        CompletableFuture<T> requestFuture = (CompletableFuture<T>) createRequestFuture(command.getId());
+        CompletableFuture<T> requestFuture = (CompletableFuture<T>) createRequestFuture(command);
+        if (requestFuture.isDone()) {
+            //in-flight窗口已满
+            return requestFuture;
+        }
         return call(command, requestFuture);
     }
 
@@ -132,12 +143,51 @@ public class GrpcClient extends AbstractRemotingClient {
         throw new UnsupportedOperationException(String.format("%s does not support fire and forget, please ensure service method does not return void", name()));
     }
 
+    @Override
+    public Flux<StreamFrameCommand> requestStream(RpcRequestCommand command) {
+        return Flux.create(sink -> {
+            beforeRequest(command);
+            ClientStream stream = new ClientStream(command.getId(), sink);
+            //grpc没有request-n语义, 由server基于transport是否可写决定发送速率
+            command.stream(0);
+            MethodDescriptor<ByteBuf, ByteBuf> methodDescriptor = getMethodDescriptor(streamMethodDescriptorCache,
+                    command.getServiceId(), command.getHandlerId(), MethodDescriptor.MethodType.SERVER_STREAMING);
+            ClientCall<ByteBuf, ByteBuf> clientCall = channel.newCall(methodDescriptor, CallOptions.DEFAULT);
+            clientCall.start(new ClientCall.Listener<ByteBuf>() {
+                @Override
+                public void onMessage(ByteBuf byteBuf) {
+                    stream.onFrame((StreamFrameCommand) codec.decode(byteBuf));
+                }
+
+                @Override
+                public void onClose(Status status, Metadata trailers) {
+                    if (stream.isTerminated() || sink.isCancelled()) {
+                        return;
+                    }
+
+                    if (status.isOk()) {
+                        stream.onError(new TransportException("server stream closed without complete frame"));
+                    } else {
+                        stream.onError(new GrpcException(status.getDescription(), status.getCause()));
+                        onRequestFail(status.getCause());
+                    }
+                }
+            }, new Metadata());
+
+            clientCall.sendMessage(codec.encode(command));
+            clientCall.halfClose();
+            //consumer request-n仅控制client接收速率, 结合http2 flow control实现背压
+            sink.onRequest(n -> clientCall.request((int) Math.min(n, Integer.MAX_VALUE)));
+            sink.onCancel(() -> clientCall.cancel("consumer cancel server stream", null));
+        });
+    }
+
     @Override
     protected CompletableFuture<Void> heartbeat() {
         HeartbeatCommand command = new HeartbeatCommand();
         beforeRequest(command);
 
-        CompletableFuture<Object> requestFuture = createRequestFuture(command.getId());
+        CompletableFuture<Object> requestFuture = createRequestFuture(command);
         call(command, requestFuture);
 
         return CompletableFuture.allOf(requestFuture);
@@ -170,7 +220,8 @@ public class GrpcClient extends AbstractRemotingClient {
                                              CompletableFuture<T> requestFuture) {
         int serviceId = command.getServiceId();
         int handlerId = command.getHandlerId();
-        return callNow(getMethodDescriptor(serviceId, handlerId), command, codec.encode(command), requestFuture);
+        return callNow(getMethodDescriptor(methodDescriptorCache, serviceId, handlerId, MethodDescriptor.MethodType.UNARY),
+                command, codec.encode(command), requestFuture);
     }
 
     /**
@@ -235,13 +286,17 @@ public class GrpcClient extends AbstractRemotingClient {
     /**
      * 返回grpc method descriptor
      *
+     * @param cache     method descriptor cache
      * @param serviceId 服务唯一id
      * @param handlerId 服务方法唯一id
+     * @param type      grpc method type
      * @return grpc method descriptor
      */
-    private MethodDescriptor<ByteBuf, ByteBuf> getMethodDescriptor(int serviceId, int handlerId) {
+    private MethodDescriptor<ByteBuf, ByteBuf> getMethodDescriptor(Cache<Integer, MethodDescriptor<ByteBuf, ByteBuf>> cache,
+                                                                   int serviceId, int handlerId,
+                                                                   MethodDescriptor.MethodType type) {
         try {
-            return methodDescriptorCache.get(handlerId, () -> GrpcUtils.genMethodDescriptor(serviceId, handlerId));
+            return cache.get(handlerId, () -> GrpcUtils.genMethodDescriptor(serviceId, handlerId, type));
         } catch (ExecutionException e) {
             ExceptionUtils.throwExt(e);
             return null;
@@ -1,5 +1,6 @@
 package org.kin.kinrpc.transport.grpc;
 
+import io.grpc.MethodDescriptor;
 import io.grpc.Server;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerServiceDefinition;
@@ -23,6 +24,8 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -42,6 +45,9 @@ public class GrpcServer extends AbstractRemotingServer {
     /** grpc service handler */
     private final ServerCallHandler<ByteBuf, ByteBuf> serviceHandler = ServerCalls.asyncUnaryCall(
             (byteBuf, streamObserver) -> remotingProcessor.process(new GrpcServerChannelContext(streamObserver), byteBuf));
+    /** grpc server stream service handler */
+    private final ServerCallHandler<ByteBuf, ByteBuf> streamServiceHandler = ServerCalls.asyncServerStreamingCall(
+            (byteBuf, streamObserver) -> remotingProcessor.process(new GrpcServerChannelContext(streamObserver, true), byteBuf));
 
     public GrpcServer(int port) {
         this(port, null);
@@ -121,9 +127,25 @@ public class GrpcServer extends AbstractRemotingServer {
      * @param handlerIds 服务方法唯一id list
      */
     public void registerService(int serviceId, List<Integer> handlerIds) {
+        registerService(serviceId, handlerIds, Collections.emptySet());
+    }
+
+    /**
+     * 注册服务及服务方法
+     *
+     * @param serviceId        服务唯一id
+     * @param handlerIds       服务方法唯一id list
+     * @param streamHandlerIds server stream服务方法唯一id
+     */
+    public void registerService(int serviceId, List<Integer> handlerIds, Collection<Integer> streamHandlerIds) {
         ServerServiceDefinition.Builder serviceDefinitionBuilder = ServerServiceDefinition.builder(GrpcConstants.SERVICE_PREFIX + serviceId);
         for (Integer handlerId : handlerIds) {
-            serviceDefinitionBuilder.addMethod(GrpcUtils.genMethodDescriptor(serviceId, handlerId), serviceHandler);
+            if (streamHandlerIds.contains(handlerId)) {
+                serviceDefinitionBuilder.addMethod(GrpcUtils.genMethodDescriptor(serviceId, handlerId, MethodDescriptor.MethodType.SERVER_STREAMING),
+                        streamServiceHandler);
+            } else {
+                serviceDefinitionBuilder.addMethod(GrpcUtils.genMethodDescriptor(serviceId, handlerId), serviceHandler);
+            }
         }
 
         handlerRegistry.addService(serviceId, serviceDefinitionBuilder.build());
@@ -2,9 +2,12 @@ package org.kin.kinrpc.transport.grpc;
 
 import io.grpc.Attributes;
 import io.grpc.Grpc;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import io.netty.buffer.ByteBuf;
 import org.kin.kinrpc.transport.ChannelContext;
+import org.kin.kinrpc.transport.ServerStream;
+import org.kin.kinrpc.transport.TransportConstants;
 import org.kin.kinrpc.transport.TransportException;
 import org.kin.kinrpc.transport.TransportOperationListener;
 
@@ -12,6 +15,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.SocketAddress;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author huangjianqin
@@ -20,9 +24,33 @@ import java.util.Objects;
 public class GrpcServerChannelContext implements ChannelContext {
     private final GrpcServerCallContext callContext = GrpcServerCallContext.current();
     private final StreamObserver<ByteBuf> observer;
+    /**
+     * server streaming call observer, 仅server streaming call有值
+     * grpc没有request-n语义, 基于transport是否可写来补充server stream credit
+     */
+    @Nullable
+    private final ServerCallStreamObserver<ByteBuf> streamObserver;
+    /** 因transport不可写而暂缓补充的credit */
+    private final AtomicLong stalledCredits = new AtomicLong();
+    /** server stream */
+    private volatile ServerStream stream;
+    /** 是否已cancel */
+    private volatile boolean cancelled;
 
     public GrpcServerChannelContext(StreamObserver<ByteBuf> observer) {
+        this(observer, false);
+    }
+
+    public GrpcServerChannelContext(StreamObserver<ByteBuf> observer, boolean streaming) {
         this.observer = observer;
+        if (streaming && observer instanceof ServerCallStreamObserver) {
+            this.streamObserver = (ServerCallStreamObserver<ByteBuf>) observer;
+            //!!!必须在grpc service handler调用时设置
+            streamObserver.setOnReadyHandler(this::onReady);
+            streamObserver.setOnCancelHandler(this::onCancel);
+        } else {
+            this.streamObserver = null;
+        }
     }
 
     @Override
@@ -36,6 +64,85 @@ public class GrpcServerChannelContext implements ChannelContext {
         }
     }
 
+    @Override
+    public void writeStream(long streamId, ByteBuf byteBuf, boolean last, @Nonnull TransportOperationListener listener) {
+        if (last) {
+            writeAndFlush(byteBuf, listener);
+            return;
+        }
+
+        try {
+            observer.onNext(byteBuf);
+            listener.onComplete();
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+
+        replenish();
+    }
+
+    @Override
+    public void bindStream(ServerStream stream) {
+        if (Objects.isNull(streamObserver)) {
+            throw new TransportException("grpc call is not server streaming call");
+        }
+
+        this.stream = stream;
+        //初始credit
+        stream.request(TransportConstants.STREAM_PREFETCH);
+        if (cancelled) {
+            stream.cancel();
+        }
+    }
+
+    /**
+     * 已发送一个stream元素, 如果transport可写, 则补充一个credit, 否则等待transport可写再补充
+     */
+    private void replenish() {
+        ServerStream stream = this.stream;
+        if (Objects.isNull(stream) || Objects.isNull(streamObserver)) {
+            return;
+        }
+
+        if (streamObserver.isReady()) {
+            stream.request(1);
+            return;
+        }
+
+        stalledCredits.incrementAndGet();
+        if (streamObserver.isReady()) {
+            //可能错过了on ready回调
+            onReady();
+        }
+    }
+
+    /**
+     * transport可写, 补充暂缓的credit
+     */
+    private void onReady() {
+        ServerStream stream = this.stream;
+        if (Objects.isNull(stream)) {
+            return;
+        }
+
+        long credits = stalledCredits.getAndSet(0);
+        if (credits > 0) {
+            stream.request(credits);
+        }
+    }
+
+    /**
+     * client cancel
+     */
+    private void onCancel() {
+        cancelled = true;
+        ServerStream stream = this.stream;
+        if (Objects.nonNull(stream)) {
+            stream.cancel();
+        }
+    }
+
     @Override
     public SocketAddress address() {
         if (Objects.nonNull(callContext)) {
@@ -12,16 +12,28 @@ public final class GrpcUtils {
     }
 
     /**
-     * 返回grpc method descriptor
+     * 返回unary grpc method descriptor
      *
      * @param serviceId 服务唯一id
      * @param handlerId 服务方法唯一id
      * @return grpc method descriptor
      */
     public static MethodDescriptor<ByteBuf, ByteBuf> genMethodDescriptor(int serviceId, int handlerId) {
+        return genMethodDescriptor(serviceId, handlerId, MethodDescriptor.MethodType.UNARY);
+    }
+
+    /**
+     * 返回grpc method descriptor
+     *
+     * @param serviceId 服务唯一id
+     * @param handlerId 服务方法唯一id
+     * @param type      grpc method type, server stream服务方法为{@link MethodDescriptor.MethodType#SERVER_STREAMING}
+     * @return grpc method descriptor
+     */
+    public static MethodDescriptor<ByteBuf, ByteBuf> genMethodDescriptor(int serviceId, int handlerId,
+                                                                         MethodDescriptor.MethodType type) {
         return MethodDescriptor.<ByteBuf, ByteBuf>newBuilder()
-                // TODO: 2023/6/8 如果需要扩展stream request response, 则需要按方法返回值来设置method type
-                .setType(MethodDescriptor.MethodType.UNARY)
+                .setType(type)
                 .setFullMethodName(GrpcConstants.SERVICE_PREFIX + serviceId + "/" + GrpcConstants.HANDLER_PREFIX + handlerId)
                 .setRequestMarshaller(ByteBufMarshaller.DEFAULT)
                 .setResponseMarshaller(ByteBufMarshaller.DEFAULT)
@@ -1,10 +1,20 @@
 package org.kin.kinrpc.transport.kinrpc;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.util.NetUtil;
 import org.kin.kinrpc.config.SslConfig;
 import org.kin.kinrpc.transport.AbstractRemotingClient;
+import org.kin.kinrpc.transport.ChunkWriter;
+import org.kin.kinrpc.transport.ClientStream;
+import org.kin.kinrpc.transport.FlushBatchConfig;
+import org.kin.kinrpc.transport.FlushBatcher;
+import org.kin.kinrpc.transport.TransportOperationListener;
 import org.kin.kinrpc.transport.cmd.HeartbeatCommand;
+import org.kin.kinrpc.transport.cmd.MessageCommand;
 import org.kin.kinrpc.transport.cmd.RequestCommand;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
+import org.kin.kinrpc.transport.cmd.StreamRequestNCommand;
 import org.kin.transport.netty.ChannelOperationListener;
 import org.kin.transport.netty.ClientObserver;
 import org.kin.transport.netty.Session;
@@ -12,12 +22,14 @@ import org.kin.transport.netty.tcp.client.TcpClient;
 import org.kin.transport.netty.tcp.client.TcpClientTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 
 /**
@@ -33,6 +45,11 @@ public class KinRpcClient extends AbstractRemotingClient {
     private final TcpClientTransport transport;
     /** tcp client */
     private TcpClient client;
+    /** write合并, null表示不开启 */
+    @Nullable
+    private final FlushBatcher flushBatcher;
+    /** 大command分块写出 */
+    private final ChunkWriter chunkWriter = new ChunkWriter(this::sendFrame);
 
     public KinRpcClient(int port) {
         this(port, null);
@@ -43,7 +60,18 @@ public class KinRpcClient extends AbstractRemotingClient {
     }
 
     public KinRpcClient(String host, int port, @Nullable SslConfig sslConfig) {
+        this(host, port, sslConfig, null);
+    }
+
+    public KinRpcClient(String host, int port,
+                        @Nullable SslConfig sslConfig,
+                        @Nullable FlushBatchConfig flushBatchConfig) {
         super(host, port);
+        if (Objects.nonNull(flushBatchConfig)) {
+            flushBatcher = new FlushBatcher(flushBatchConfig, this::doSend);
+        } else {
+            flushBatcher = null;
+        }
         transport = TcpClientTransport.create()
                 .payloadProcessor((s, bp) ->
                         Mono.fromRunnable(() -> remotingProcessor.process(clientChannelContext, bp.data().retain())))
@@ -90,10 +118,21 @@ public class KinRpcClient extends AbstractRemotingClient {
         if (Objects.nonNull(client) && !client.isDisposed()) {
             client.dispose();
         }
+        if (Objects.nonNull(flushBatcher)) {
+            //remote不一定还支持batch frame, 重新协商
+            flushBatcher.disableBatch();
+        }
 
         onConnect0();
     }
 
+    @Override
+    protected void onBatchSupported() {
+        if (Objects.nonNull(flushBatcher)) {
+            flushBatcher.enableBatch();
+        }
+    }
+
     @Override
     protected void onShutdown() {
         if (Objects.isNull(client)) {
@@ -112,15 +151,24 @@ public class KinRpcClient extends AbstractRemotingClient {
     public <T> CompletableFuture<T> requestResponse(RequestCommand command) {
         beforeRequest(command);
 
-        CompletableFuture<Object> requestFuture = createRequestFuture(command.getId());
-        client.send(codec.encode(command), new ChannelOperationListener() {
+        CompletableFuture<Object> requestFuture = createRequestFuture(command);
+        if (requestFuture.isDone()) {
+            //in-flight窗口已满
+            return (CompletableFuture<T>) requestFuture;
+        }
+        send(codec.encode(command), orderKey(command), new TransportOperationListener() {
             @Override
-            public void onFailure(Session session, Throwable cause) {
+            public void onComplete() {
+                codec.onWritten(command);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
                 removeRequestFuture(command.getId());
                 requestFuture.completeExceptionally(cause);
                 onRequestFail(cause);
             }
-        }).subscribe();
+        });
 
         return (CompletableFuture<T>) requestFuture;
     }
@@ -129,36 +177,130 @@ public class KinRpcClient extends AbstractRemotingClient {
     public CompletableFuture<Void> fireAndForget(RequestCommand command) {
         beforeRequest(command);
         CompletableFuture<Void> signal = new CompletableFuture<>();
-        client.send(codec.encode(command), new ChannelOperationListener() {
+        send(codec.encode(command), orderKey(command), new TransportOperationListener() {
             @Override
-            public void onSuccess(Session session) {
+            public void onComplete() {
+                codec.onWritten(command);
                 signal.complete(null);
             }
 
             @Override
-            public void onFailure(Session session, Throwable cause) {
+            public void onFailure(Throwable cause) {
                 signal.completeExceptionally(cause);
                 onRequestFail(cause);
             }
-        }).subscribe();
+        });
         return signal;
     }
 
+    @Override
+    public Flux<StreamFrameCommand> requestStream(RpcRequestCommand command) {
+        return Flux.create(sink -> {
+            beforeRequest(command);
+            long streamId = command.getId();
+            ClientStream stream = createClientStream(streamId, sink);
+            //server stream request是否已发送
+            AtomicBoolean sent = new AtomicBoolean();
+            sink.onRequest(n -> {
+                if (stream.isTerminated()) {
+                    return;
+                }
+
+                if (sent.compareAndSet(false, true)) {
+                    //首次request-n随server stream request一起发送
+                    command.stream(n);
+                    send(codec.encode(command), streamId, new TransportOperationListener() {
+                        @Override
+                        public void onFailure(Throwable cause) {
+                            stream.onError(cause);
+                            onRequestFail(cause);
+                        }
+                    });
+                } else {
+                    send(codec.encode(new StreamRequestNCommand(streamId, n)), streamId, TransportOperationListener.DEFAULT);
+                }
+            });
+            sink.onCancel(() -> {
+                if (removeClientStream(streamId) && sent.get()) {
+                    //stream还未结束, 通知server cancel
+                    send(codec.encode(new StreamRequestNCommand(streamId, StreamRequestNCommand.CANCEL)), streamId, TransportOperationListener.DEFAULT);
+                }
+            });
+        });
+    }
+
     @Override
     protected CompletableFuture<Void> heartbeat() {
         HeartbeatCommand command = new HeartbeatCommand();
 
         beforeRequest(command);
-        CompletableFuture<Object> requestFuture = createRequestFuture(command.getId());
-        client.send(codec.encode(command), new ChannelOperationListener() {
+        CompletableFuture<Object> requestFuture = createRequestFuture(command);
+        send(codec.encode(command), ChunkWriter.UNORDERED, new TransportOperationListener() {
             @Override
-            public void onFailure(Session session, Throwable cause) {
+            public void onFailure(Throwable cause) {
+                removeRequestFuture(command.getId());
                 requestFuture.completeExceptionally(cause);
             }
-        }).subscribe();
+        });
         return CompletableFuture.allOf(requestFuture);
     }
 
+    /**
+     * 返回command写出的order key
+     * message需保证FIFO, 按连接写出顺序到达; rpc request基于id关联response, 无需保证写出顺序
+     *
+     * @param command request command
+     * @return order key
+     */
+    private static long orderKey(RequestCommand command) {
+        return command instanceof MessageCommand ? ChunkWriter.CONNECTION_ORDERED : ChunkWriter.UNORDERED;
+    }
+
+    /**
+     * write command, 大command会被分块写出
+     *
+     * @param byteBuf  encoded command
+     * @param orderKey 相同order key的command按write顺序写出
+     * @param listener transport operation listener
+     */
+    private void send(ByteBuf byteBuf, long orderKey, TransportOperationListener listener) {
+        chunkWriter.write(byteBuf, listener, orderKey);
+    }
+
+    /**
+     * write command or chunk frame, 如果开启write合并, 则可能与其他并发write的command合并后flush
+     *
+     * @param byteBuf  encoded command or chunk frame
+     * @param listener transport operation listener
+     */
+    private void sendFrame(ByteBuf byteBuf, TransportOperationListener listener) {
+        if (Objects.nonNull(flushBatcher)) {
+            flushBatcher.write(byteBuf, listener);
+        } else {
+            doSend(byteBuf, listener);
+        }
+    }
+
+    /**
+     * write and flush
+     *
+     * @param byteBuf  encoded command or batch frame
+     * @param listener transport operation listener
+     */
+    private void doSend(ByteBuf byteBuf, TransportOperationListener listener) {
+        client.send(byteBuf, new ChannelOperationListener() {
+            @Override
+            public void onSuccess(Session session) {
+                listener.onComplete();
+            }
+
+            @Override
+            public void onFailure(Session session, Throwable cause) {
+                listener.onFailure(cause);
+            }
+        }).subscribe();
+    }
+
     /**
      * 发送请求失败
      *
@@ -172,5 +314,11 @@ public class KinRpcClient extends AbstractRemotingClient {
         super.onRequestFail(t);
     }
 
+    //getter
+    @Nullable
+    public FlushBatcher getFlushBatcher() {
+        return flushBatcher;
+    }
+
 
 }
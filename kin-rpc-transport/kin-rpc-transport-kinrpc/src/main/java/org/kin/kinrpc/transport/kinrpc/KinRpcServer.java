@@ -1,12 +1,16 @@
 package org.kin.kinrpc.transport.kinrpc;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.jctools.maps.NonBlockingHashMapLong;
 import org.kin.kinrpc.config.SslConfig;
 import org.kin.kinrpc.executor.ManagedExecutor;
-import org.kin.kinrpc.transport.AbstractRemotingServer;
-import org.kin.kinrpc.transport.ChannelContext;
-import org.kin.kinrpc.transport.TransportOperationListener;
+import org.kin.kinrpc.transport.*;
+import org.kin.kinrpc.transport.cmd.ClassTableDecoder;
+import org.kin.kinrpc.transport.cmd.ClassTableEncoder;
 import org.kin.transport.netty.ChannelOperationListener;
 import org.kin.transport.netty.ServerObserver;
 import org.kin.transport.netty.Session;
@@ -18,8 +22,11 @@ import reactor.core.publisher.Mono;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
 import java.net.SocketAddress;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author huangjianqin
@@ -32,6 +39,18 @@ public class KinRpcServer extends AbstractRemotingServer {
     private final TcpServerTransport transport;
     /** tcp server */
     private volatile TcpServer server;
+    /** write合并配置, null表示不开启 */
+    @Nullable
+    private final FlushBatchConfig flushBatchConfig;
+    /**
+     * 每个session独立的channel context, 维护该session的write合并, 大command分块写出, chunk重组, message class table以及进行中的server stream
+     * session断开时主动移除, 移除时释放未重组完的chunk并cancel进行中的server stream
+     * weak key仅作为兜底, 避免断开回调丢失导致泄漏
+     */
+    private final Cache<Session, SessionChannelContext> channelContextCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .<Session, SessionChannelContext>removalListener(n -> n.getValue().onSessionRemoved())
+            .build();
 
     public KinRpcServer(int port) {
         this(port, null);
@@ -52,37 +71,30 @@ public class KinRpcServer extends AbstractRemotingServer {
                         int port,
                         @Nullable ManagedExecutor executor,
                         @Nullable SslConfig sslConfig) {
+        this(host, port, executor, sslConfig, null);
+    }
+
+    public KinRpcServer(String host,
+                        int port,
+                        @Nullable ManagedExecutor executor,
+                        @Nullable SslConfig sslConfig,
+                        @Nullable FlushBatchConfig flushBatchConfig) {
         super(host, port, executor);
+        this.flushBatchConfig = flushBatchConfig;
         transport = TcpServerTransport.create()
                 .payloadProcessor((s, bp) ->
-                        Mono.fromRunnable(() -> remotingProcessor.process(new ChannelContext() {
-                            @Override
-                            public void writeAndFlush(ByteBuf byteBuf, @Nonnull TransportOperationListener listener) {
-                                s.send(byteBuf, new ChannelOperationListener() {
-                                            @Override
-                                            public void onSuccess(Session session) {
-                                                listener.onComplete();
-                                            }
-
-                                            @Override
-                                            public void onFailure(Session session, Throwable cause) {
-                                               listener.onFailure(cause);
-                                            }
-                                        })
-                                        .subscribe();
-                            }
-
-                            @Override
-                            public SocketAddress address() {
-                                return s.remoteAddress();
-                            }
-                        }, bp.data().retain())))
+                        Mono.fromRunnable(() -> remotingProcessor.process(getChannelContext(s), bp.data().retain())))
                 .observer(new ServerObserver<TcpServer>() {
                     @Override
                     public void onBound(TcpServer server) {
                         log.info("kinrpc server started on {}:{}", host, port);
                     }
 
+                    @Override
+                    public void onClientDisconnected(TcpServer server, Session session) {
+                        channelContextCache.invalidate(session);
+                    }
+
                     @Override
                     public void onUnbound(TcpServer server) {
                         log.info("kinrpc server({}:{}) terminated", host, port);
@@ -99,6 +111,195 @@ public class KinRpcServer extends AbstractRemotingServer {
         }
     }
 
+    /**
+     * 返回session对应的channel context, 不存在则创建
+     *
+     * @param session session
+     * @return session channel context
+     */
+    private SessionChannelContext getChannelContext(Session session) {
+        try {
+            return channelContextCache.get(session, () -> new SessionChannelContext(session));
+        } catch (ExecutionException e) {
+            throw new TransportException("create session channel context fail", e.getCause());
+        }
+    }
+
+    /**
+     * write and flush
+     *
+     * @param session  session
+     * @param byteBuf  encoded command or batch frame
+     * @param listener transport operation listener
+     */
+    private static void send(Session session, ByteBuf byteBuf, TransportOperationListener listener) {
+        session.send(byteBuf, new ChannelOperationListener() {
+                    @Override
+                    public void onSuccess(Session session) {
+                        listener.onComplete();
+                    }
+
+                    @Override
+                    public void onFailure(Session session, Throwable cause) {
+                        listener.onFailure(cause);
+                    }
+                })
+                .subscribe();
+    }
+
+    /**
+     * 返回所有session平均每次flush合并的command数量, 未开启write合并则返回0
+     *
+     * @return 平均每次flush合并的command数量
+     */
+    public double getAvgCommandsPerFlush() {
+        long flushes = 0;
+        long flushedCommands = 0;
+        for (SessionChannelContext channelContext : channelContextCache.asMap().values()) {
+            FlushBatcher flushBatcher = channelContext.flushBatcher;
+            if (Objects.isNull(flushBatcher)) {
+                continue;
+            }
+            flushes += flushBatcher.getFlushes();
+            flushedCommands += flushBatcher.getFlushedCommands();
+        }
+        return flushes > 0 ? (double) flushedCommands / flushes : 0;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * session channel context
+     */
+    private class SessionChannelContext implements ChannelContext {
+        /**
+         * session
+         * weak reference, 避免cache value强引用session导致session无法被回收
+         */
+        private final WeakReference<Session> sessionRef;
+        /** remote address */
+        private final SocketAddress address;
+        /** write合并, null表示不开启 */
+        @Nullable
+        private final FlushBatcher flushBatcher;
+        /** 大command分块写出 */
+        private final ChunkWriter chunkWriter;
+        /** chunk frame重组器 */
+        private final ChunkAssembler chunkAssembler = new ChunkAssembler();
+        /** message class table encoder, 用于编码response message data class */
+        private final ClassTableEncoder classTableEncoder = new ClassTableEncoder();
+        /** message class table decoder */
+        private final ClassTableDecoder classTableDecoder = new ClassTableDecoder();
+        /** 进行中的server stream, 用于将client request-n或cancel传递给server stream */
+        private final NonBlockingHashMapLong<ServerStream> serverStreams = new NonBlockingHashMapLong<>();
+        /** 是否已清理, session断开和cache回收都会触发清理 */
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        SessionChannelContext(Session session) {
+            this.sessionRef = new WeakReference<>(session);
+            this.address = session.remoteAddress();
+            if (Objects.nonNull(flushBatchConfig)) {
+                this.flushBatcher = new FlushBatcher(flushBatchConfig, this::send);
+                this.chunkWriter = new ChunkWriter(flushBatcher::write);
+            } else {
+                this.flushBatcher = null;
+                this.chunkWriter = new ChunkWriter(this::send);
+            }
+        }
+
+        /**
+         * write and flush
+         *
+         * @param byteBuf  encoded command, chunk frame or batch frame
+         * @param listener transport operation listener
+         */
+        private void send(ByteBuf byteBuf, TransportOperationListener listener) {
+            Session session = sessionRef.get();
+            if (Objects.isNull(session)) {
+                ReferenceCountUtil.safeRelease(byteBuf);
+                listener.onFailure(new TransportException("session is closed, remote=" + address));
+                return;
+            }
+
+            KinRpcServer.send(session, byteBuf, listener);
+        }
+
+        /**
+         * session断开后回调
+         */
+        private void onSessionRemoved() {
+            if (!removed.compareAndSet(false, true)) {
+                return;
+            }
+            chunkAssembler.clear();
+            for (ServerStream stream : serverStreams.values()) {
+                stream.cancel();
+            }
+            serverStreams.clear();
+        }
+
+        @Override
+        public void writeAndFlush(ByteBuf byteBuf, @Nonnull TransportOperationListener listener) {
+            //response基于request id关联, 无需保证写出顺序
+            chunkWriter.write(byteBuf, listener, ChunkWriter.UNORDERED);
+        }
+
+        @Override
+        public void writeStream(long streamId, ByteBuf byteBuf, boolean last, @Nonnull TransportOperationListener listener) {
+            //同一stream的frame需按序写出
+            chunkWriter.write(byteBuf, listener, streamId);
+        }
+
+        @Override
+        public SocketAddress address() {
+            return address;
+        }
+
+        @Override
+        public boolean isStreamPreBound() {
+            //request-n和cancel以独立command发送, 可能先于服务方法调用结束到达
+            return true;
+        }
+
+        @Override
+        public void bindStream(ServerStream stream) {
+            serverStreams.put(stream.streamId(), stream);
+        }
+
+        @Override
+        public void unbindStream(long streamId) {
+            serverStreams.remove(streamId);
+        }
+
+        @Nullable
+        @Override
+        public ServerStream getServerStream(long streamId) {
+            return serverStreams.get(streamId);
+        }
+
+        @Override
+        public ChunkAssembler chunkAssembler() {
+            return chunkAssembler;
+        }
+
+        @Override
+        public ClassTableEncoder classTableEncoder() {
+            return classTableEncoder;
+        }
+
+        @Override
+        public ClassTableDecoder classTableDecoder() {
+            return classTableDecoder;
+        }
+
+        @Override
+        public void onBatchSupported() {
+            if (Objects.nonNull(flushBatcher)) {
+                flushBatcher.enableBatch();
+            }
+        }
+    }
+
     @Override
     public void start() {
         if (server != null) {
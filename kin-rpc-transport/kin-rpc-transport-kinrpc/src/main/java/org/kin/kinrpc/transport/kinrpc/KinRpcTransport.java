@@ -3,6 +3,7 @@ package org.kin.kinrpc.transport.kinrpc;
 import org.kin.framework.utils.Extension;
 import org.kin.kinrpc.config.SslConfig;
 import org.kin.kinrpc.executor.ManagedExecutor;
+import org.kin.kinrpc.transport.FlushBatchConfig;
 import org.kin.kinrpc.transport.RemotingClient;
 import org.kin.kinrpc.transport.RemotingServer;
 import org.kin.kinrpc.transport.Transport;
@@ -17,11 +18,26 @@ import javax.annotation.Nullable;
 public class KinRpcTransport implements Transport {
     @Override
     public RemotingServer createServer(String host, int port, @Nullable ManagedExecutor executor, @Nullable SslConfig sslConfig) {
-        return new KinRpcServer(host, port, executor, sslConfig);
+        return createServer(host, port, executor, sslConfig, null);
+    }
+
+    @Override
+    public RemotingServer createServer(String host, int port,
+                                       @Nullable ManagedExecutor executor,
+                                       @Nullable SslConfig sslConfig,
+                                       @Nullable FlushBatchConfig flushBatchConfig) {
+        return new KinRpcServer(host, port, executor, sslConfig, flushBatchConfig);
     }
 
     @Override
     public RemotingClient createClient(String host, int port, @Nullable SslConfig sslConfig) {
-        return new KinRpcClient(host, port, sslConfig);
+        return createClient(host, port, sslConfig, null);
+    }
+
+    @Override
+    public RemotingClient createClient(String host, int port,
+                                       @Nullable SslConfig sslConfig,
+                                       @Nullable FlushBatchConfig flushBatchConfig) {
+        return new KinRpcClient(host, port, sslConfig, flushBatchConfig);
     }
 }
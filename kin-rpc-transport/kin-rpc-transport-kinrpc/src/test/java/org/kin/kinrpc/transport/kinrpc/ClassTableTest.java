@@ -0,0 +1,142 @@
+package org.kin.kinrpc.transport.kinrpc;
+
+import io.netty.buffer.ByteBuf;
+import org.kin.kinrpc.transport.ChannelContext;
+import org.kin.kinrpc.transport.RemotingContext;
+import org.kin.kinrpc.transport.TransportOperationListener;
+import org.kin.kinrpc.transport.cmd.ClassTableDecoder;
+import org.kin.kinrpc.transport.cmd.ClassTableEncoder;
+import org.kin.kinrpc.transport.cmd.HeartbeatCommand;
+import org.kin.kinrpc.transport.cmd.MessageCommand;
+import org.kin.kinrpc.transport.cmd.RemotingCodec;
+
+import javax.annotation.Nonnull;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * 校验message data class基于class table编码
+ * entry被确认(携带insert指令的message成功写出)前每次编码都携带insert指令, 确认后仅编码entry index, 对端按接收顺序解码
+ * server端按连接维护class table, 仅当request携带{@link MessageCommand#FLAG_CLASS_INDEX_SUPPORTED}时才基于class table编码response
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class ClassTableTest {
+    public static void main(String[] args) {
+        //client端codec对应一个连接, server端codec被多个连接共享
+        RemotingCodec clientCodec = new RemotingCodec();
+        RemotingCodec serverCodec = new RemotingCodec(true);
+
+        //收到server command后, client才基于class table编码
+        MessageCommand beforeNegotiated = new MessageCommand((byte) 9, "Hello message");
+        ByteBuf byteBuf = clientCodec.encode(beforeNegotiated);
+        check(!beforeNegotiated.isClassIndexed(), "class indexed before negotiated");
+        decode(serverCodec, byteBuf, "Hello message");
+        clientCodec.decode(serverCodec.encode(new HeartbeatCommand()));
+
+        //确认前, 并发编码的message都携带insert指令
+        MessageCommand first = new MessageCommand((byte) 9, "Hello message");
+        MessageCommand concurrent = new MessageCommand((byte) 9, "Hello message");
+        ByteBuf firstBuf = clientCodec.encode(first);
+        ByteBuf concurrentBuf = clientCodec.encode(concurrent);
+        int insertLen = firstBuf.readableBytes();
+        check(first.isClassIndexed(), "class is not indexed after negotiated");
+        check(concurrentBuf.readableBytes() == insertLen, "message encoded before ack does not carry insert");
+
+        //成功写出后确认entry, 后续message仅编码entry index
+        clientCodec.onWritten(first);
+        MessageCommand indexed = new MessageCommand((byte) 9, "Hello message");
+        ByteBuf indexedBuf = clientCodec.encode(indexed);
+        int indexedLen = indexedBuf.readableBytes();
+        check(indexedLen + String.class.getName().length() <= insertLen,
+                String.format("indexed message is not smaller, insert: %d, indexed: %d", insertLen, indexedLen));
+
+        //server端按接收顺序解码
+        decode(serverCodec, firstBuf, "Hello message");
+        decode(serverCodec, concurrentBuf, "Hello message");
+        decode(serverCodec, indexedBuf, "Hello message");
+
+        //共享codec自身不基于class table编码
+        MessageCommand sharedResponse = new MessageCommand((byte) 9, "Hello response");
+        serverCodec.encode(sharedResponse).release();
+        check(!sharedResponse.isClassIndexed(), "shared codec class indexed");
+
+        //连接协商后, response基于该连接的class table编码
+        CapturingChannelContext upgraded = new CapturingChannelContext();
+        MessageCommand request = (MessageCommand) serverCodec.decode(clientCodec.encode(new MessageCommand((byte) 9, "Hello message")),
+                true, upgraded.classTableEncoder(), upgraded.classTableDecoder());
+        MessageCommand response = writeResponse(serverCodec, upgraded, request);
+        check(response.isClassIndexed(), "response is not class indexed after negotiated");
+        check(response.isClassIndexSupported(), "response does not advertise class index supported");
+
+        //同一连接, request未携带supported flag, response不基于class table编码
+        MessageCommand baselineRequest = new MessageCommand((byte) 9, "Hello message");
+        baselineRequest.setFlag((short) 0);
+        response = writeResponse(serverCodec, upgraded, baselineRequest);
+        check(!response.isClassIndexed(), "response is class indexed while request does not support");
+
+        //其他未协商的连接, 不受影响
+        CapturingChannelContext baseline = new CapturingChannelContext();
+        response = writeResponse(serverCodec, baseline, baselineRequest);
+        check(!response.isClassIndexed(), "response is class indexed on baseline connection");
+        check(!baseline.classTableEncoder().isEnabled(), "baseline connection class table is enabled");
+        System.out.println("class table check passed");
+    }
+
+    /**
+     * server端write response message, 并以client codec解码写出的response
+     */
+    private static MessageCommand writeResponse(RemotingCodec serverCodec, CapturingChannelContext channelContext, MessageCommand request) {
+        new RemotingContext(serverCodec, null, channelContext).writeResponse(new MessageCommand(request, "Hello response"));
+        MessageCommand response = (MessageCommand) new RemotingCodec().decode(channelContext.written);
+        check("Hello response".equals(response.getData()), "response data not match, " + response.getData());
+        return response;
+    }
+
+    /**
+     * 解码并校验message data
+     */
+    private static void decode(RemotingCodec codec, ByteBuf byteBuf, String expect) {
+        MessageCommand command = (MessageCommand) codec.decode(byteBuf);
+        check(String.class.equals(command.getDataClass()), "data class not match, " + command.getDataClass());
+        check(expect.equals(command.getData()), "data not match, " + command.getData());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    /**
+     * 模拟server端连接, 维护该连接的class table, 并记录最近写出的command
+     */
+    private static class CapturingChannelContext implements ChannelContext {
+        private final ClassTableEncoder classTableEncoder = new ClassTableEncoder();
+        private final ClassTableDecoder classTableDecoder = new ClassTableDecoder();
+        /** 最近写出的command */
+        private ByteBuf written;
+
+        @Override
+        public void writeAndFlush(ByteBuf byteBuf, @Nonnull TransportOperationListener listener) {
+            written = byteBuf;
+            listener.onComplete();
+        }
+
+        @Override
+        public ClassTableEncoder classTableEncoder() {
+            return classTableEncoder;
+        }
+
+        @Override
+        public ClassTableDecoder classTableDecoder() {
+            return classTableDecoder;
+        }
+
+        @Override
+        public SocketAddress address() {
+            return InetSocketAddress.createUnresolved("127.0.0.1", 0);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.kin.kinrpc.transport.kinrpc;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.kin.kinrpc.transport.ChannelContext;
+import org.kin.kinrpc.transport.ServerStream;
+import org.kin.kinrpc.transport.TransportOperationListener;
+import org.kin.kinrpc.transport.cmd.RemotingCodec;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.Nonnull;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * 校验{@link ServerStream}按client request-n写出stream frame, 以及cancel后不再写出
+ *
+ * @author huangjianqin
+ * @date 2023/9/9
+ */
+public class ServerStreamTest {
+    public static void main(String[] args) {
+        RemotingCodec codec = new RemotingCodec();
+
+        //订阅前到达的request-n先累加
+        CountingChannelContext channelContext = new CountingChannelContext();
+        ServerStream stream = new ServerStream(codec, channelContext, streamRequest(1));
+        stream.request(2);
+        Flux.range(0, 10).subscribe(stream);
+        check(channelContext.frames == 2 && !channelContext.last, "unexpected frames before subscribe, " + channelContext.frames);
+
+        //按request-n写出
+        stream.request(3);
+        check(channelContext.frames == 5 && !channelContext.last, "unexpected frames after request-n, " + channelContext.frames);
+
+        //10个元素 + complete frame
+        stream.request(10);
+        check(channelContext.frames == 11 && channelContext.last && channelContext.unbound,
+                "stream is not completed, " + channelContext.frames);
+
+        //cancel后不再写出
+        channelContext = new CountingChannelContext();
+        stream = new ServerStream(codec, channelContext, streamRequest(2));
+        Flux.range(0, 10).subscribe(stream);
+        check(channelContext.frames == 0, "write frames without request-n, " + channelContext.frames);
+        stream.request(2);
+        stream.cancel();
+        stream.request(5);
+        check(channelContext.frames == 2 && !channelContext.last && channelContext.unbound,
+                "write frames after cancel, " + channelContext.frames);
+        System.out.println("server stream check passed");
+    }
+
+    /**
+     * 构造server stream request
+     */
+    private static RpcRequestCommand streamRequest(long id) {
+        RpcRequestCommand request = new RpcRequestCommand((byte) 9, 0, 0, new Object[0]);
+        request.setId(id);
+        request.stream(0);
+        return request;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    /**
+     * 统计写出的stream frame
+     */
+    private static class CountingChannelContext implements ChannelContext {
+        /** 已写出的stream frame数量 */
+        private int frames;
+        /** 是否已写出stream最后一个frame */
+        private boolean last;
+        /** 是否已解绑server stream */
+        private boolean unbound;
+
+        @Override
+        public void writeStream(long streamId, ByteBuf byteBuf, boolean last, @Nonnull TransportOperationListener listener) {
+            ReferenceCountUtil.safeRelease(byteBuf);
+            if (this.last) {
+                throw new IllegalStateException("write frame after last frame");
+            }
+            frames++;
+            this.last = last;
+            listener.onComplete();
+        }
+
+        @Override
+        public void unbindStream(long streamId) {
+            unbound = true;
+        }
+
+        @Override
+        public SocketAddress address() {
+            return InetSocketAddress.createUnresolved("127.0.0.1", 0);
+        }
+    }
+}
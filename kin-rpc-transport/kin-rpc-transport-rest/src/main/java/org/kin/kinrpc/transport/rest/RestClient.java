@@ -146,7 +146,11 @@ public class RestClient extends AbstractRemotingClient {
     public <T> CompletableFuture<T> requestResponse(RequestCommand command) {
         beforeRequest(command);
 
-        CompletableFuture<Object> requestFuture = createRequestFuture(command.getId());
+        CompletableFuture<Object> requestFuture = createRequestFuture(command);
+        if (requestFuture.isDone()) {
+            //in-flight窗口已满
+            return (CompletableFuture<T>) requestFuture;
+        }
         httpClient.post()
                 .uri(getUri(command))
                 .send(Mono.just(codec.encode(command)))
@@ -10,12 +10,17 @@ import org.kin.framework.utils.ExtensionLoader;
 import org.kin.framework.utils.NetUtils;
 import org.kin.kinrpc.config.SslConfig;
 import org.kin.kinrpc.transport.AbstractRemotingClient;
+import org.kin.kinrpc.transport.ClientStream;
+import org.kin.kinrpc.transport.TransportException;
 import org.kin.kinrpc.transport.cmd.HeartbeatCommand;
 import org.kin.kinrpc.transport.cmd.RemotingCommand;
 import org.kin.kinrpc.transport.cmd.RequestCommand;
+import org.kin.kinrpc.transport.cmd.RpcRequestCommand;
+import org.kin.kinrpc.transport.cmd.StreamFrameCommand;
 import org.kin.transport.netty.utils.SslUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 import reactor.netty.ReactorNetty;
@@ -142,7 +147,11 @@ public class RSocketClient extends AbstractRemotingClient {
     private <T> CompletableFuture<T> requestResponse0(RemotingCommand command) {
         beforeRequest(command);
 
-        CompletableFuture<Object> requestFuture = createRequestFuture(command.getId());
+        CompletableFuture<Object> requestFuture = createRequestFuture(command);
+        if (requestFuture.isDone()) {
+            //in-flight窗口已满
+            return (CompletableFuture<T>) requestFuture;
+        }
 
         requesterMono.flatMap(rsocket -> rsocket.requestResponse(ByteBufPayload.create(codec.encode(command)))
                         .doOnError(t -> {
@@ -180,4 +189,26 @@ public class RSocketClient extends AbstractRemotingClient {
 
         return signal;
     }
+
+    @Override
+    public Flux<StreamFrameCommand> requestStream(RpcRequestCommand command) {
+        return Flux.defer(() -> {
+                    beforeRequest(command);
+                    //rsocket原生支持request-n, 由rsocket request stream传递consumer request-n
+                    command.stream(0);
+                    return requesterMono.flatMapMany(rsocket -> rsocket.requestStream(ByteBufPayload.create(codec.encode(command))))
+                            //server stream至少有完成frame, 为空则说明还没建立连接
+                            .switchIfEmpty(Flux.error(new TransportException(String.format("%s is not available", name()))));
+                })
+                .doOnError(this::onRequestFail)
+                .<StreamFrameCommand>handle((p, sink) -> {
+                    StreamFrameCommand frame;
+                    try {
+                        frame = (StreamFrameCommand) codec.decode(p.data().retain());
+                    } finally {
+                        ReactorNetty.safeRelease(p);
+                    }
+                    ClientStream.handle(frame, sink);
+                });
+    }
 }
@@ -8,10 +8,13 @@ import io.rsocket.util.ByteBufPayload;
 import org.kin.framework.utils.ExceptionUtils;
 import org.kin.kinrpc.transport.ChannelContext;
 import org.kin.kinrpc.transport.RemotingProcessor;
+import org.kin.kinrpc.transport.ServerStream;
+import org.kin.kinrpc.transport.TransportException;
 import org.kin.kinrpc.transport.TransportOperationListener;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
 import reactor.core.publisher.Sinks;
 import reactor.netty.ReactorNetty;
 
@@ -19,6 +22,8 @@ import javax.annotation.Nonnull;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.SocketAddress;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author huangjianqin
@@ -96,7 +101,14 @@ public class RSocketResponder implements RSocket {
 
     @Override
     public Flux<Payload> requestStream(Payload payload) {
-        return Flux.error(new UnsupportedOperationException());
+        StreamChannelContext context = new StreamChannelContext();
+        try {
+            remotingProcessor.process(context, payload.data().retain());
+        } finally {
+            ReactorNetty.safeRelease(payload);
+        }
+
+        return context.asFlux();
     }
 
     @Override
@@ -128,4 +140,123 @@ public class RSocketResponder implements RSocket {
     public Mono<Void> onClose() {
         return requester.onClose();
     }
+
+    //------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * server stream channel context, 将rsocket request-n或cancel传递给server stream
+     * request-n可能在server stream绑定之前到达, 此时先累加, 绑定后再一次性request
+     */
+    private class StreamChannelContext implements ChannelContext {
+        /** stream frame sink, 仅emit已request的frame, 故buffer有上限 */
+        private final Sinks.Many<Payload> sink = Sinks.many().unicast().onBackpressureBuffer();
+        /** 绑定server stream之前累加的request-n */
+        private final AtomicLong pendingRequested = new AtomicLong();
+        /** server stream */
+        private volatile ServerStream stream;
+        /** 是否已cancel */
+        private volatile boolean cancelled;
+
+        @Override
+        public void writeAndFlush(ByteBuf byteBuf, @Nonnull TransportOperationListener listener) {
+            //非stream frame, 比如server stream request处理异常, 也意味着stream结束
+            emit(byteBuf, true, listener);
+        }
+
+        @Override
+        public void writeStream(long streamId, ByteBuf byteBuf, boolean last, @Nonnull TransportOperationListener listener) {
+            emit(byteBuf, last, listener);
+        }
+
+        /**
+         * emit stream frame payload
+         *
+         * @param byteBuf  encoded stream frame
+         * @param last     是否是stream最后一个frame
+         * @param listener transport operation listener
+         */
+        private void emit(ByteBuf byteBuf, boolean last, TransportOperationListener listener) {
+            Payload payload = ByteBufPayload.create(byteBuf);
+            Sinks.EmitResult result;
+            do {
+                result = sink.tryEmitNext(payload);
+            } while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+
+            if (result.isFailure()) {
+                //一般是remote已cancel
+                ReactorNetty.safeRelease(payload);
+                listener.onFailure(new TransportException("emit stream frame fail, due to " + result));
+                return;
+            }
+
+            if (last) {
+                sink.emitComplete(RetryNonSerializedEmitFailureHandler.RETRY_NON_SERIALIZED);
+            }
+            listener.onComplete();
+        }
+
+        @Override
+        public void bindStream(ServerStream stream) {
+            this.stream = stream;
+            requestPending(stream);
+            if (cancelled) {
+                stream.cancel();
+            }
+        }
+
+        @Override
+        public SocketAddress address() {
+            return remoteAddress;
+        }
+
+        /**
+         * rsocket request-n
+         *
+         * @param n 请求元素数量
+         */
+        private void request(long n) {
+            ServerStream stream = this.stream;
+            if (Objects.nonNull(stream)) {
+                stream.request(n);
+                return;
+            }
+
+            pendingRequested.getAndAccumulate(n, Operators::addCap);
+            stream = this.stream;
+            if (Objects.nonNull(stream)) {
+                //与bindStream并发, 谁先取到谁request
+                requestPending(stream);
+            }
+        }
+
+        /**
+         * request绑定前累加的request-n
+         */
+        private void requestPending(ServerStream stream) {
+            long requested = pendingRequested.getAndSet(0);
+            if (requested > 0) {
+                stream.request(requested);
+            }
+        }
+
+        /**
+         * rsocket cancel
+         */
+        private void cancel() {
+            cancelled = true;
+            ServerStream stream = this.stream;
+            if (Objects.nonNull(stream)) {
+                stream.cancel();
+            }
+        }
+
+        /**
+         * 返回stream frame flux
+         */
+        private Flux<Payload> asFlux() {
+            return sink.asFlux()
+                    .doOnRequest(this::request)
+                    .doOnCancel(this::cancel);
+        }
+    }
 }